@@ -1,4 +1,4 @@
-import React, { useState, useEffect, useCallback } from 'react';
+import React, { useState, useEffect, useCallback, useRef } from 'react';
 import { useNavigate } from 'react-router-dom';
 import { cartService, orderService, profileService } from '../services/api';
 import './Checkout.css';
@@ -14,6 +14,8 @@ function Checkout() {
   const [deliveryMethods, setDeliveryMethods] = useState([]);
   const [paymentMethods, setPaymentMethods] = useState([]);
   const [pendingOrder, setPendingOrder] = useState(false);
+  // Ключ идемпотентности на одно содержимое заказа: повторная отправка не создаст дубль
+  const orderAttempt = useRef({ payload: null, key: null });
   const userId = localStorage.getItem('userId');
 
   const loadCart = useCallback(async () => {
@@ -84,21 +86,27 @@ function Checkout() {
       return;
     }
 
+    // Позиции не отправляются: сервер оформляет заказ из сохранённой корзины
     const orderData = {
-      userId: userId,
       shippingCityId: parseInt(cityId),
       shippingAddressText: address,
       deliveryMethodId: parseInt(deliveryMethodId),
-      paymentMethodId: parseInt(paymentMethodId),
-      items: cart.items.map(item => ({
-        productId: item.product?.productId || item.productId,
-        quantity: item.quantity
-      }))
+      paymentMethodId: parseInt(paymentMethodId)
     };
 
+    // Новый ключ, если изменились данные заказа или корзина
+    const payload = JSON.stringify({
+      ...orderData,
+      items: cart.items.map(item => [item.product?.productId || item.productId, item.quantity])
+    });
+    if (orderAttempt.current.payload !== payload) {
+      orderAttempt.current = { payload, key: crypto.randomUUID() };
+    }
+
     setPendingOrder(true);
     try {
-      await orderService.create(orderData);
+      await cartService.checkout(userId, orderData, orderAttempt.current.key);
+      orderAttempt.current = { payload: null, key: null };
       setPendingOrder(false);
       navigate('/orders');
     } catch (error) {
@@ -51,11 +51,18 @@ export const cartService = {
   
   remove: (data) => 
     api.delete('/customer/cart/remove', { data }),
+
+  // Заказ из сохранённой корзины: позиции и цены берёт сервер, корзина очищается
+  checkout: (userId, data, idempotencyKey) =>
+    api.post(`/customer/cart/${userId}/checkout`, data,
+      idempotencyKey ? { headers: { 'Idempotency-Key': idempotencyKey } } : undefined),
 };
 
 export const orderService = {
-  create: (data) => 
-    api.post('/customer/orders', data),
+  // Повтор с тем же ключом вернёт уже оформленный заказ, а не создаст второй
+  create: (data, idempotencyKey) => 
+    api.post('/customer/orders', data,
+      idempotencyKey ? { headers: { 'Idempotency-Key': idempotencyKey } } : undefined),
   
   getUserOrders: (userId, page = 0, size = 20) => 
     api.get(`/customer/orders/user/${userId}?page=${page}&size=${size}`),
@@ -1,5 +1,6 @@
 package com.estore.admin.controller;
 
+import com.estore.library.analytics.AnalyticsQueryExecutor;
 import com.estore.library.dto.analyze.dto.ForecastDto;
 import com.estore.library.service.AdminProfileService;
 import com.estore.library.service.AnalyzeService;
@@ -23,6 +24,7 @@ public class AnalyzeAnalyticsController {
 
     private final AdminProfileService adminProfileService;
     private final AnalyzeService analyzeService;
+    private final AnalyticsQueryExecutor analyticsQueryExecutor;
 
     private boolean hasAnalyzeAccess(UUID adminUserId) {
         return adminProfileService.hasAnalyticsAccess(adminUserId);
@@ -48,11 +50,12 @@ public class AnalyzeAnalyticsController {
                     .body(Map.of("error", "Access denied. ANALYZE department required"));
         }
         // Легкий прокси: берем сводку через сервисы
-        return ResponseEntity.ok(Map.of(
-                "salesLast30d", analyzeService.getRevenueByMonthLastYear(),
-                "topBrands", analyzeService.getTopBrands(),
-                "topCategories", analyzeService.getTopCategories()
-        ));
+        return ResponseEntity.ok(analyticsQueryExecutor.fanOut()
+                .add("salesLast30d", analyzeService::getRevenueByMonthLastYear)
+                .add("topBrands", analyzeService::getTopBrands)
+                .add("topCategories", analyzeService::getTopCategories)
+                .execute()
+                .toResponseBody());
     }
 
     @GetMapping("/sales/forecast")
@@ -63,8 +66,25 @@ public class AnalyzeAnalyticsController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(Map.of("error", "Access denied. ANALYZE department required"));
         }
-        ForecastDto forecast = analyzeService.getMonthlySalesForecast(categoryId, windowSize);
-        return ResponseEntity.ok(Map.of("forecast", forecast));
+        try {
+            ForecastDto forecast = analyzeService.getMonthlySalesForecast(categoryId, windowSize);
+            return ResponseEntity.ok(Map.of("forecast", forecast));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
-}
 
+    @GetMapping("/cache/stats")
+    public ResponseEntity<?> cacheStatistics(@RequestParam UUID adminUserId) {
+        if (!hasAnalyzeAccess(adminUserId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", "Access denied. ANALYZE department required"));
+        }
+        return ResponseEntity.ok(Map.of(
+                "cache", analyzeService.getCacheStatistics(),
+                "executor", analyticsQueryExecutor.getStatistics(),
+                "cube", analyzeService.getCubeStatistics(),
+                "sketches", analyzeService.getSketchStatistics()
+        ));
+    }
+}
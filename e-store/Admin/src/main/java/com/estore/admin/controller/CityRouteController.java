@@ -374,15 +374,14 @@ public class CityRouteController {
     }
 
     /**
-     * Найти все маршруты из города (BFS)
-     * GET /api/admin/cities/routes/bfs/all
-     * * Примечание: Возвращает List<Object[]>, форматирование которого уже выполнено в контроллере.
-     * Данный формат ответа (List<Map<String, Object>>) является приемлемым для результатов BFS.
+     * Кратчайшие маршруты из города в ближайшие города (по одному на город)
+     * GET /api/admin/cities/routes/bfs/all?startCityName=&limit=
      */
     @GetMapping("/routes/bfs/all")
     public ResponseEntity<?> findAllRoutesBFS(
             @RequestParam UUID adminUserId,
-            @RequestParam String startCityName) {
+            @RequestParam String startCityName,
+            @RequestParam(defaultValue = "50") int limit) {
 
         try {
             if (!checkAccess(adminUserId)) {
@@ -390,29 +389,56 @@ public class CityRouteController {
                         .body(Map.of("error", "Access denied"));
             }
 
-            List<Object[]> routes = cityRouteService.findAllRoutesBFS(startCityName);
+            List<RouteSummaryDto> routes = cityRouteService.findRoutesFrom(startCityName, limit);
 
-            // Форматируем результат (эта логика остается, так как она специфична для BFS)
             List<Map<String, Object>> formatted = new ArrayList<>();
-            for (Object[] route : routes) {
+            for (RouteSummaryDto route : routes) {
                 Map<String, Object> routeMap = new HashMap<>();
-                routeMap.put("destinationCity", route[0]);
-                routeMap.put("totalDistance", route[1]);
-                routeMap.put("numberOfStops", route[2]);
-                routeMap.put("path", route[3]);
+                routeMap.put("destinationCity", route.getEndCity().getCityName());
+                routeMap.put("totalDistance", route.getTotalDistance());
+                routeMap.put("numberOfStops", route.getNumberOfStops());
+                routeMap.put("path", route.getPathName());
                 formatted.add(routeMap);
             }
 
             return ResponseEntity.ok(formatted);
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", e.getMessage()));
         }
     }
 
+    /**
+     * Альтернативные маршруты между городами по возрастанию длины (k ограничено настройками)
+     * GET /api/admin/cities/routes/alternatives?fromCityId=&toCityId=&k=
+     */
+    @GetMapping("/routes/alternatives")
+    public ResponseEntity<?> findAlternativeRoutes(
+            @RequestParam UUID adminUserId,
+            @RequestParam Integer fromCityId,
+            @RequestParam Integer toCityId,
+            @RequestParam(defaultValue = "3") int k) {
 
+        try {
+            if (!checkAccess(adminUserId)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("error", "Access denied"));
+            }
+
+            return ResponseEntity.ok(cityRouteService.findAlternativeRoutes(fromCityId, toCityId, k));
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
 
     /**
      * Маршруты в пределах расстояния
@@ -0,0 +1,57 @@
+package com.estore.admin.controller;
+
+import com.estore.library.analytics.live.LiveAnalytics;
+import com.estore.library.analytics.live.LiveDashboardBroadcaster;
+import com.estore.library.service.AdminProfileService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/admin/analytics/live")
+@RequiredArgsConstructor
+@CrossOrigin(origins = {"http://localhost:3001", "null"})
+public class LiveAnalyticsController {
+
+    private final AdminProfileService adminProfileService;
+    private final LiveAnalytics liveAnalytics;
+    private final LiveDashboardBroadcaster liveDashboardBroadcaster;
+
+    private boolean hasAnalyzeAccess(UUID adminUserId) {
+        return adminProfileService.hasAnalyticsAccess(adminUserId);
+    }
+
+    /**
+     * Текущие значения счётчиков: за минуту, час, сутки и по часам
+     */
+    @GetMapping("/snapshot")
+    public ResponseEntity<?> snapshot(@RequestParam UUID adminUserId) {
+        if (!hasAnalyzeAccess(adminUserId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", "Access denied. ANALYZE department required"));
+        }
+        return ResponseEntity.ok(liveAnalytics.snapshot());
+    }
+
+    /**
+     * Поток снимков (text/event-stream), событие "snapshot" раз в analytics.live.tick-ms
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> stream(@RequestParam UUID adminUserId) {
+        if (!hasAnalyzeAccess(adminUserId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(Map.of("error", "Access denied. ANALYZE department required"));
+        }
+        return ResponseEntity.ok(liveDashboardBroadcaster.subscribe());
+    }
+}
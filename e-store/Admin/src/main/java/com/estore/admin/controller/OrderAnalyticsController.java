@@ -1,22 +1,28 @@
 package com.estore.admin.controller;
 
+import com.estore.library.analytics.AnalyticsQueryExecutor;
 import com.estore.library.dto.analyze.dto.PaymentDeliveryAnalysisDto;
 import com.estore.library.dto.analyze.dto.RouteAnalysisDto;
+import com.estore.library.dto.order.dto.OrderExportFilter;
 import com.estore.library.model.dicts.OrderStatus;
 import com.estore.library.repository.dicts.OrderStatusRepository;
 import com.estore.library.service.AdminProfileService;
 import com.estore.library.service.AnalyzeService;
+import com.estore.library.service.OrderExportService;
 import com.estore.library.service.OrderService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -35,6 +41,8 @@ public class OrderAnalyticsController {
     private final AnalyzeService analyzeService;
     private final OrderService orderService;
     private final OrderStatusRepository orderStatusRepository;
+    private final AnalyticsQueryExecutor analyticsQueryExecutor;
+    private final OrderExportService orderExportService;
 
     private boolean hasOrderAccess(UUID adminUserId) {
         return adminProfileService.hasOrderManagementAccess(adminUserId)
@@ -53,13 +61,14 @@ public class OrderAnalyticsController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(Map.of("error", "Access denied. ORDER_MANAGE or ANALYZE department required"));
         }
-        return ResponseEntity.ok(Map.of(
-                "topBrands", analyzeService.getTopBrands(),
-                "topCategories", analyzeService.getTopCategories(),
-                "topProducts", analyzeService.getTopProducts(),
-                "revenueByMonth", analyzeService.getRevenueByMonthLastYear(),
-                "bestsellersByMonth", analyzeService.getBestsellersByMonth()
-        ));
+        return ResponseEntity.ok(analyticsQueryExecutor.fanOut()
+                .add("topBrands", analyzeService::getTopBrands)
+                .add("topCategories", analyzeService::getTopCategories)
+                .add("topProducts", analyzeService::getTopProducts)
+                .add("revenueByMonth", analyzeService::getRevenueByMonthLastYear)
+                .add("bestsellersByMonth", analyzeService::getBestsellersByMonth)
+                .execute()
+                .toResponseBody());
     }
 
     @GetMapping("/filter")
@@ -73,11 +82,33 @@ public class OrderAnalyticsController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(Map.of("error", "Access denied. ORDER_MANAGE or ANALYZE department required"));
         }
-        return ResponseEntity.ok(Map.of(
-                "brands", analyzeService.getOrderBrandsByFilter(status, gender, ageGroup, categoryId, brandId),
-                "categories", analyzeService.getOrderCategoriesByFilter(status, gender, ageGroup, categoryId, brandId),
-                "products", analyzeService.getOrderProductsByFilter(status, gender, ageGroup, categoryId, brandId)
-        ));
+        return ResponseEntity.ok(analyticsQueryExecutor.fanOut()
+                .add("brands", () -> analyzeService.getOrderBrandsByFilter(status, gender, ageGroup, categoryId, brandId))
+                .add("categories", () -> analyzeService.getOrderCategoriesByFilter(status, gender, ageGroup, categoryId, brandId))
+                .add("products", () -> analyzeService.getOrderProductsByFilter(status, gender, ageGroup, categoryId, brandId))
+                .execute()
+                .toResponseBody());
+    }
+
+    /**
+     * Top-K бестселлеров: scope=products|brands|categories, months — окно в месяцах
+     * (без параметра — за всё время), exact=true — точный подсчёт вместо скетчей
+     */
+    @GetMapping("/top")
+    public ResponseEntity<?> topK(@RequestParam UUID adminUserId,
+                                  @RequestParam(defaultValue = "products") String scope,
+                                  @RequestParam(defaultValue = "10") int k,
+                                  @RequestParam(required = false) Integer months,
+                                  @RequestParam(defaultValue = "false") boolean exact) {
+        if (!hasOrderAccess(adminUserId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", "Access denied. ORDER_MANAGE or ANALYZE department required"));
+        }
+        try {
+            return ResponseEntity.ok(analyzeService.getTopK(scope, months, k, exact));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     @GetMapping("/orders")
@@ -157,5 +188,40 @@ public class OrderAnalyticsController {
 
         return ResponseEntity.ok(stats);
     }
-}
 
+    /**
+     * Выгрузка доставленных заказов за период (по умолчанию последние 30 дней), CSV или NDJSON
+     */
+    @GetMapping("/sales/export")
+    public ResponseEntity<?> salesExport(@RequestParam UUID adminUserId,
+                                         @RequestParam(defaultValue = "csv") String format,
+                                         @RequestParam(defaultValue = "orders") String dataset,
+                                         @RequestParam(required = false) LocalDateTime startDate,
+                                         @RequestParam(required = false) LocalDateTime endDate) {
+        if (!hasOrderAccess(adminUserId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", "Access denied. ORDER_MANAGE or ANALYZE department required"));
+        }
+        OrderExportService.Format exportFormat;
+        OrderExportService.Dataset exportDataset;
+        try {
+            exportFormat = OrderExportService.Format.valueOf(format.toUpperCase());
+            exportDataset = OrderExportService.Dataset.valueOf(dataset.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Unsupported format or dataset. Use format=csv|ndjson, dataset=orders|lines"));
+        }
+
+        OrderExportFilter filter = new OrderExportFilter();
+        filter.setStatusId(getOrderStatusId("DELIVERED"));
+        filter.setStartDate(startDate != null ? startDate : LocalDateTime.now().minusDays(30));
+        filter.setEndDate(endDate != null ? endDate : LocalDateTime.now());
+
+        StreamingResponseBody body = out -> orderExportService.export(exportDataset, exportFormat, filter, out);
+        String fileName = "sales-" + exportDataset.name().toLowerCase() + "." + exportFormat.getExtension();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType() + ";charset=UTF-8"))
+                .body(body);
+    }
+}
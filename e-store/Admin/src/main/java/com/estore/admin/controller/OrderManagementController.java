@@ -1,30 +1,39 @@
 package com.estore.admin.controller;
 
+import com.estore.library.dto.city.RouteSummaryDto;
+import com.estore.library.dto.order.dto.OrderExportFilter;
 import com.estore.library.model.bisentity.Order;
 import com.estore.library.model.bisentity.User;
 import com.estore.library.model.bisentity.Warehouse;
 import com.estore.library.model.dicts.OrderStatus;
 import com.estore.library.repository.dicts.OrderStatusRepository;
+import com.estore.library.routing.CityPair;
 import com.estore.library.service.AdminProfileService;
+import com.estore.library.service.DeliveryPlanningService;
+import com.estore.library.service.OrderExportService;
 import com.estore.library.service.OrderService;
 import com.estore.library.service.OrderItemService;
 import com.estore.library.service.UserService;
 import com.estore.library.service.WarehouseService;
 import com.estore.library.service.CityRouteService;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Контроллер для отдела ORDER_MANAGE
@@ -37,6 +46,8 @@ import java.util.stream.Collectors;
 @CrossOrigin(origins = {"http://localhost:3001", "null"})
 public class OrderManagementController {
 
+    private static final Logger logger = LoggerFactory.getLogger(OrderManagementController.class);
+
     private final AdminProfileService adminProfileService;
     private final OrderService orderService;
     private final OrderItemService orderItemService;
@@ -44,6 +55,8 @@ public class OrderManagementController {
     private final UserService userService;
     private final WarehouseService warehouseService;
     private final CityRouteService cityRouteService;
+    private final OrderExportService orderExportService;
+    private final DeliveryPlanningService deliveryPlanningService;
 
     private boolean checkAccess(UUID adminUserId) {
         return adminProfileService.hasOrderManagementAccess(adminUserId);
@@ -70,7 +83,7 @@ public class OrderManagementController {
             Page<Order> orders = orderService.getAllOrders(pageable);
 
             return ResponseEntity.ok(Map.of(
-                    "orders", orders.getContent().stream().map(this::convertToDto).collect(Collectors.toList()),
+                    "orders", convertToDtos(orders.getContent()),
                     "currentPage", orders.getNumber(),
                     "totalPages", orders.getTotalPages(),
                     "totalItems", orders.getTotalElements()
@@ -145,6 +158,9 @@ public class OrderManagementController {
                     "message", "Order status updated to " + statusOpt.get().getStatusName()
             ));
 
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", e.getMessage()));
@@ -179,7 +195,7 @@ public class OrderManagementController {
             Page<Order> orders = orderService.getOrdersByStatus(statusId, pageable);
 
             return ResponseEntity.ok(Map.of(
-                    "orders", orders.getContent().stream().map(this::convertToDto).collect(Collectors.toList()),
+                    "orders", convertToDtos(orders.getContent()),
                     "currentPage", orders.getNumber(),
                     "totalPages", orders.getTotalPages(),
                     "totalItems", orders.getTotalElements()
@@ -213,7 +229,7 @@ public class OrderManagementController {
             Page<Order> orders = orderService.getOrdersByDateRange(startDate, endDate, pageable);
 
             return ResponseEntity.ok(Map.of(
-                    "orders", orders.getContent().stream().map(this::convertToDto).collect(Collectors.toList()),
+                    "orders", convertToDtos(orders.getContent()),
                     "currentPage", orders.getNumber(),
                     "totalPages", orders.getTotalPages(),
                     "totalItems", orders.getTotalElements()
@@ -225,6 +241,51 @@ public class OrderManagementController {
         }
     }
 
+    /**
+     * Потоковая выгрузка заказов или позиций заказов (CSV / NDJSON)
+     * GET /api/admin/orders/export?format=csv&dataset=orders&statusId=&startDate=&endDate=
+     */
+    @GetMapping("/export")
+    public ResponseEntity<?> exportOrders(
+            @RequestParam UUID adminUserId,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "orders") String dataset,
+            @RequestParam(required = false) Integer statusId,
+            @RequestParam(required = false) LocalDateTime startDate,
+            @RequestParam(required = false) LocalDateTime endDate) {
+
+        if (!checkAccess(adminUserId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", "Access denied"));
+        }
+
+        OrderExportService.Format exportFormat;
+        OrderExportService.Dataset exportDataset;
+        try {
+            exportFormat = OrderExportService.Format.valueOf(format.toUpperCase());
+            exportDataset = OrderExportService.Dataset.valueOf(dataset.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Unsupported format or dataset. Use format=csv|ndjson, dataset=orders|lines"));
+        }
+        if (statusId != null && orderStatusRepository.findById(statusId).isEmpty()) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Invalid status ID"));
+        }
+
+        OrderExportFilter filter = new OrderExportFilter();
+        filter.setStatusId(statusId);
+        filter.setStartDate(startDate);
+        filter.setEndDate(endDate);
+
+        StreamingResponseBody body = out -> orderExportService.export(exportDataset, exportFormat, filter, out);
+        String fileName = exportDataset.name().toLowerCase() + "." + exportFormat.getExtension();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType() + ";charset=UTF-8"))
+                .body(body);
+    }
+
     /**
      * Заказы, ожидающие обработки (PROCESSING)
      * GET /api/admin/orders/pending
@@ -244,8 +305,44 @@ public class OrderManagementController {
             Pageable pageable = PageRequest.of(0, 50);
             Page<Order> orders = orderService.getOrdersByStatus(processingId, pageable);
 
-            return ResponseEntity.ok(orders.getContent().stream().map(this::convertToDto).collect(Collectors.toList()));
+            return ResponseEntity.ok(convertToDtos(orders.getContent()));
+
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * План рейсов доставки для заказов PROCESSING по складам-источникам
+     * GET /api/admin/orders/delivery-plan
+     */
+    @GetMapping("/delivery-plan")
+    public ResponseEntity<?> getDeliveryPlan(@RequestParam UUID adminUserId) {
+        try {
+            if (!checkAccess(adminUserId)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("error", "Access denied"));
+            }
+            return ResponseEntity.ok(deliveryPlanningService.planProcessingOrders());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
 
+    /**
+     * Назначить заказам PROCESSING без склада ближайший склад одним пакетом и вернуть план рейсов
+     * POST /api/admin/orders/delivery-plan/assign
+     */
+    @PostMapping("/delivery-plan/assign")
+    public ResponseEntity<?> assignWarehousesAndPlan(@RequestParam UUID adminUserId) {
+        try {
+            if (!checkAccess(adminUserId)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("error", "Access denied"));
+            }
+            return ResponseEntity.ok(deliveryPlanningService.assignWarehousesAndPlan());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", e.getMessage()));
@@ -298,6 +395,57 @@ public class OrderManagementController {
     }
 
     private Map<String, Object> convertToDto(Order order) {
+        return convertToDtos(List.of(order)).get(0);
+    }
+
+    /**
+     * DTO для списка заказов: справочник статусов читается один раз, а маршруты
+     * склад -> город доставки ищутся одним пакетом по уникальным парам городов
+     */
+    private List<Map<String, Object>> convertToDtos(List<Order> orders) {
+        Map<Integer, String> statusNames = new HashMap<>();
+        for (OrderStatus status : orderStatusRepository.findAll()) {
+            statusNames.put(status.getStatusId(), status.getStatusName());
+        }
+        Set<CityPair> pairs = new HashSet<>();
+        for (Order order : orders) {
+            CityPair pair = routePair(order);
+            if (pair != null) {
+                pairs.add(pair);
+            }
+        }
+        Map<CityPair, RouteSummaryDto> routes = Map.of();
+        String routeError = null;
+        try {
+            routes = cityRouteService.findShortestRoutesByIds(pairs);
+        } catch (Exception e) {
+            // Логируем ошибку, но не прерываем выполнение
+            logger.error("Error calculating routes for {} city pairs", pairs.size(), e);
+            routeError = "Ошибка вычисления маршрута: " + e.getMessage();
+        }
+        List<Map<String, Object>> dtos = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            dtos.add(convertToDto(order, statusNames, routes, routeError));
+        }
+        return dtos;
+    }
+
+    // Пара городов склад -> доставка, если для заказа нужен поиск маршрута
+    private static CityPair routePair(Order order) {
+        Warehouse w = order.getSourceWarehouse();
+        if (w == null || w.getCity() == null || order.getShippingCity() == null) {
+            return null;
+        }
+        Integer warehouseCityId = w.getCity().getCityId();
+        Integer shippingCityId = order.getShippingCity().getCityId();
+        if (warehouseCityId == null || shippingCityId == null || warehouseCityId.equals(shippingCityId)) {
+            return null;
+        }
+        return new CityPair(warehouseCityId, shippingCityId);
+    }
+
+    private Map<String, Object> convertToDto(Order order, Map<Integer, String> statusNames,
+                                             Map<CityPair, RouteSummaryDto> routes, String routeError) {
         Map<String, Object> dto = new HashMap<>();
         dto.put("orderId", order.getId());
         dto.put("orderDate", order.getOrderDate());
@@ -305,9 +453,9 @@ public class OrderManagementController {
         String statusName = null;
         if (order.getStatus() != null) {
             statusId = order.getStatus().getStatusId();
-            statusName = orderStatusRepository.findById(statusId)
-                    .map(OrderStatus::getStatusName)
-                    .orElse(order.getStatus().getStatusName());
+            statusName = statusNames.containsKey(statusId)
+                    ? statusNames.get(statusId)
+                    : order.getStatus().getStatusName();
         }
         dto.put("statusId", statusId);
         dto.put("statusName", statusName);
@@ -345,47 +493,23 @@ public class OrderManagementController {
             dto.put("sourceWarehouse", wh);
             // distance
             if (order.getShippingCity() != null && w.getCity() != null) {
-                try {
-                    Integer warehouseCityId = w.getCity().getCityId();
-                    Integer shippingCityId = order.getShippingCity().getCityId();
-                    
-                    // Если города одинаковые, расстояние = 0
-                    if (warehouseCityId != null && warehouseCityId.equals(shippingCityId)) {
-                        dto.put("distanceKm", 0.0);
-                        dto.put("routePath", w.getCity().getCityName());
-                    } else if (warehouseCityId != null && shippingCityId != null) {
-                        // Используем метод по ID, который правильно обрабатывает двунаправленные маршруты
-                        var routeSummary = cityRouteService.findShortestRouteBFSById(
-                                warehouseCityId,
-                                shippingCityId
-                        );
-                        if (routeSummary != null && routeSummary.getTotalDistance() != null) {
-                            dto.put("distanceKm", routeSummary.getTotalDistance());
-                            if (routeSummary.getPathName() != null) {
-                                dto.put("routePath", routeSummary.getPathName());
-                            }
-                        } else {
-                            // Если не найден через BFS, попробуем найти прямой маршрут
-                            var directRoute = cityRouteService.getDirectRoutesBetweenCities(
-                                    warehouseCityId, shippingCityId
-                            );
-                            if (!directRoute.isEmpty()) {
-                                var route = directRoute.get(0);
-                                dto.put("distanceKm", route.getDistanceKm());
-                                dto.put("routePath", route.getCityA().getCityName() + " -> " + route.getCityB().getCityName());
-                            } else {
-                                // Маршрут не найден
-                                dto.put("distanceKm", null);
-                                dto.put("routePath", "Маршрут не найден");
-                            }
-                        }
+                Integer warehouseCityId = w.getCity().getCityId();
+                CityPair pair = routePair(order);
+
+                // Если города одинаковые, расстояние = 0
+                if (warehouseCityId != null && warehouseCityId.equals(order.getShippingCity().getCityId())) {
+                    dto.put("distanceKm", 0.0);
+                    dto.put("routePath", w.getCity().getCityName());
+                } else if (pair != null) {
+                    RouteSummaryDto routeSummary = routes.get(pair);
+                    if (routeSummary != null) {
+                        dto.put("distanceKm", routeSummary.getTotalDistance());
+                        dto.put("routePath", routeSummary.getPathName());
+                    } else {
+                        // Маршрут не найден
+                        dto.put("distanceKm", null);
+                        dto.put("routePath", routeError != null ? routeError : "Маршрут не найден");
                     }
-                } catch (Exception e) {
-                    // Логируем ошибку, но не прерываем выполнение
-                    System.err.println("Error calculating distance: " + e.getMessage());
-                    e.printStackTrace();
-                    dto.put("distanceKm", null);
-                    dto.put("routePath", "Ошибка вычисления маршрута: " + e.getMessage());
                 }
             }
         }
@@ -1,13 +1,18 @@
 package com.estore.admin.controller;
 
+import com.estore.library.analytics.AnalyticsQueryExecutor;
 import com.estore.library.dto.analyze.dto.BestSellerDto;
 import com.estore.library.dto.analyze.dto.CategoryBrandAnalysisDto;
 import com.estore.library.dto.analyze.dto.RouteAnalysisDto;
+import com.estore.library.dto.analyze.dto.RouteNetworkDto;
+import com.estore.library.model.bisentity.Product;
 import com.estore.library.service.AdminProfileService;
 import com.estore.library.service.AnalyzeService;
 import com.estore.library.service.OrderItemService;
 import com.estore.library.service.ProductService;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
@@ -18,7 +23,6 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -33,6 +37,7 @@ public class ProductAnalyticsController {
     private final AnalyzeService analyzeService;
     private final ProductService productService;
     private final OrderItemService orderItemService;
+    private final AnalyticsQueryExecutor analyticsQueryExecutor;
 
     private boolean hasProductAccess(UUID adminUserId) {
         return adminProfileService.hasProductManagementAccess(adminUserId)
@@ -45,13 +50,14 @@ public class ProductAnalyticsController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(Map.of("error", "Access denied. PRODUCT_MANAGE or ANALYZE department required"));
         }
-        return ResponseEntity.ok(Map.of(
-                "categoryShare", analyzeService.getCategoryShare(),
-                "brandShare", analyzeService.getBrandShare(),
-                "priceBuckets", analyzeService.getPriceBuckets(),
-                "topCitiesRoutes", analyzeService.getTopCitiesInRoutes(),
-                "routeDistanceBuckets", analyzeService.getRouteDistanceBuckets()
-        ));
+        return ResponseEntity.ok(analyticsQueryExecutor.fanOut()
+                .add("categoryShare", analyzeService::getCategoryShare)
+                .add("brandShare", analyzeService::getBrandShare)
+                .add("priceBuckets", analyzeService::getPriceBuckets)
+                .add("topCitiesRoutes", analyzeService::getTopCitiesInRoutes)
+                .add("routeDistanceBuckets", analyzeService::getRouteDistanceBuckets)
+                .execute()
+                .toResponseBody());
     }
 
     @GetMapping("/routes")
@@ -64,6 +70,25 @@ public class ProductAnalyticsController {
         return ResponseEntity.ok(Map.of("routeAnalysis", analysis));
     }
 
+    /**
+     * Узкие места сети маршрутов: центральность, связность, точки сочленения, нагрузка хабов
+     * GET /api/admin/analytics/product/routes/network?limit=10
+     */
+    @GetMapping("/routes/network")
+    public ResponseEntity<?> routeNetwork(@RequestParam UUID adminUserId,
+                                          @RequestParam(defaultValue = "10") int limit) {
+        if (!hasProductAccess(adminUserId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", "Access denied. PRODUCT_MANAGE or ANALYZE department required"));
+        }
+        try {
+            RouteNetworkDto network = analyzeService.getRouteNetwork(limit);
+            return ResponseEntity.ok(Map.of("routeNetwork", network));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @GetMapping("/category-brand")
     public ResponseEntity<?> categoryBrand(@RequestParam UUID adminUserId) {
         if (!hasProductAccess(adminUserId)) {
@@ -81,17 +106,26 @@ public class ProductAnalyticsController {
                     .body(Map.of("error", "Access denied. PRODUCT_MANAGE or ANALYZE department required"));
         }
         Pageable pageable = PageRequest.of(0, 10);
-        var topRated = productService.getTopRatedProducts(pageable);
-        var lowStock = productService.getLowStockProducts(10, pageable);
-        var newest = productService.getNewestProducts(pageable);
-        List<Object[]> topSelling = orderItemService.getTopSellingProducts();
+        return ResponseEntity.ok(analyticsQueryExecutor.fanOut()
+                .add("topRatedProducts", () -> initialized(productService.getTopRatedProducts(pageable)))
+                .add("lowStockProducts", () -> initialized(productService.getLowStockProducts(10, pageable)))
+                .add("newestProducts", () -> initialized(productService.getNewestProducts(pageable)))
+                .add("topSellingProducts", () -> orderItemService.getTopSellingProducts(10))
+                .execute()
+                .toResponseBody());
+    }
 
-        Map<String, Object> analytics = new HashMap<>();
-        analytics.put("topRatedProducts", topRated.getContent());
-        analytics.put("lowStockProducts", lowStock.getContent());
-        analytics.put("newestProducts", newest.getContent());
-        analytics.put("topSellingProducts", topSelling);
-        return ResponseEntity.ok(analytics);
+    /**
+     * Подзапрос выполняется в своей транзакции, поэтому ленивые связи
+     * загружаются до её завершения, а не при сериализации ответа
+     */
+    private static List<Product> initialized(Page<Product> page) {
+        for (Product product : page.getContent()) {
+            Hibernate.initialize(product.getCategory());
+            Hibernate.initialize(product.getBrand());
+            Hibernate.initialize(product.getImages());
+        }
+        return page.getContent();
     }
 
     @GetMapping("/best-sellers")
@@ -376,6 +376,35 @@ public class ProductManagementController {
         }
     }
     
+    /**
+     * Горячий товар (распродажа): остаток держится в памяти приложения покупателей
+     * PUT /api/admin/products/{productId}/hot-stock
+     */
+    @PutMapping("/{productId}/hot-stock")
+    public ResponseEntity<?> setHotStock(
+            @RequestParam UUID adminUserId,
+            @PathVariable UUID productId,
+            @RequestParam boolean enabled) {
+        
+        try {
+            if (!checkAccess(adminUserId)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("error", "Access denied"));
+            }
+            
+            productService.setHotStock(productId, enabled);
+            
+            return ResponseEntity.ok(Map.of("success", true, "hotStock", enabled));
+            
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+    
     /**
      * Товары с низкими остатками
      * GET /api/admin/products/low-stock
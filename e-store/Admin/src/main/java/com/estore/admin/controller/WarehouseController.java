@@ -365,4 +365,108 @@ public class WarehouseController {
                     .body(Map.of("error", e.getMessage()));
         }
     }
+
+    /**
+     * Зоны доставки склада по полосам расстояния
+     * GET /api/admin/warehouses/{warehouseId}/zones?bands=50,100,200,500
+     */
+    @GetMapping("/{warehouseId}/zones")
+    public ResponseEntity<?> getDeliveryZones(
+            @RequestParam UUID adminUserId,
+            @PathVariable Long warehouseId,
+            @RequestParam(required = false) List<Integer> bands) {
+
+        try {
+            if (!checkAccess(adminUserId)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("error", "Access denied"));
+            }
+
+            return ResponseEntity.ok(warehouseService.getDeliveryZones(warehouseId, bands));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Склады, доставляющие в город, с полосой расстояния
+     * GET /api/admin/warehouses/zones/city/{cityId}?bands=50,100,200,500
+     */
+    @GetMapping("/zones/city/{cityId}")
+    public ResponseEntity<?> getDeliveryZonesForCity(
+            @RequestParam UUID adminUserId,
+            @PathVariable Integer cityId,
+            @RequestParam(required = false) List<Integer> bands) {
+
+        try {
+            if (!checkAccess(adminUserId)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("error", "Access denied"));
+            }
+
+            return ResponseEntity.ok(warehouseService.getDeliveryZonesForCity(cityId, bands));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Остатки товаров на складе
+     * GET /api/admin/warehouses/{warehouseId}/stock
+     */
+    @GetMapping("/{warehouseId}/stock")
+    public ResponseEntity<?> getWarehouseStock(
+            @RequestParam UUID adminUserId,
+            @PathVariable Long warehouseId) {
+
+        try {
+            if (!checkAccess(adminUserId)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("error", "Access denied"));
+            }
+
+            return ResponseEntity.ok(warehouseService.getWarehouseStock(warehouseId));
+
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Установить остаток товара на складе
+     * PUT /api/admin/warehouses/{warehouseId}/stock/{productId}?quantity=
+     */
+    @PutMapping("/{warehouseId}/stock/{productId}")
+    public ResponseEntity<?> setWarehouseStock(
+            @RequestParam UUID adminUserId,
+            @PathVariable Long warehouseId,
+            @PathVariable UUID productId,
+            @RequestParam int quantity) {
+
+        try {
+            if (!checkAccess(adminUserId)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("error", "Access denied"));
+            }
+
+            warehouseService.setWarehouseStock(warehouseId, productId, quantity);
+
+            return ResponseEntity.ok(Map.of("success", true, "message", "Warehouse stock updated"));
+
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
 }
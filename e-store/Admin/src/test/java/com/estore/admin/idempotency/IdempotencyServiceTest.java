@@ -0,0 +1,115 @@
+package com.estore.admin.idempotency;
+
+import com.estore.library.service.IdempotencyService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Повтор запроса с тем же ключом на реальной таблице idempotency_key. Тестовая транзакция
+ * не фиксируется, поэтому ответы в память после коммита не попадают и повтор читается из БД.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@Testcontainers
+@Transactional
+public class IdempotencyServiceTest {
+
+    private static final String SCOPE = "orders";
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.liquibase.change-log", () -> "classpath:db/changelog/changelog-master.yaml");
+    }
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @Test
+    void duplicateKeyReplaysStoredResponse() {
+        UUID owner = UUID.randomUUID();
+
+        IdempotencyService.StoredResponse first = execute(owner, "key-1", Map.of("qty", 1));
+        IdempotencyService.StoredResponse second = execute(owner, "key-1", Map.of("qty", 1));
+
+        assertThat(first.replayed()).isFalse();
+        assertThat(second.replayed()).isTrue();
+        assertThat(second.status()).isEqualTo(201);
+        assertThat(second.body()).isEqualTo(first.body());
+        assertThat(executions.get()).isEqualTo(1);
+    }
+
+    @Test
+    void duplicateKeyWithDifferentRequestIsRejected() {
+        UUID owner = UUID.randomUUID();
+        execute(owner, "key-2", Map.of("qty", 1));
+
+        assertThatThrownBy(() -> execute(owner, "key-2", Map.of("qty", 2)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(executions.get()).isEqualTo(1);
+    }
+
+    @Test
+    void sameKeyOfAnotherOwnerRunsAgain() {
+        execute(UUID.randomUUID(), "key-3", Map.of("qty", 1));
+        IdempotencyService.StoredResponse other = execute(UUID.randomUUID(), "key-3", Map.of("qty", 1));
+
+        assertThat(other.replayed()).isFalse();
+        assertThat(executions.get()).isEqualTo(2);
+    }
+
+    @Test
+    void replayIsCachedOnlyUntilStoredKeyExpires() throws InterruptedException {
+        UUID owner = UUID.randomUUID();
+        execute(owner, "key-4", Map.of("qty", 1));
+        expireIn(owner, "key-4", "1 second");
+
+        // Повтор из БД кэшируется в памяти до истечения ключа, а не на полный TTL
+        assertThat(execute(owner, "key-4", Map.of("qty", 1)).replayed()).isTrue();
+        Thread.sleep(1500);
+        expireIn(owner, "key-4", "-1 second");
+
+        IdempotencyService.StoredResponse afterExpiry = execute(owner, "key-4", Map.of("qty", 1));
+
+        assertThat(afterExpiry.replayed()).isFalse();
+        assertThat(executions.get()).isEqualTo(2);
+    }
+
+    private IdempotencyService.StoredResponse execute(UUID owner, String key, Object request) {
+        return idempotencyService.execute(SCOPE, owner, key, request, 201,
+                () -> Map.of("execution", executions.incrementAndGet()));
+    }
+
+    // CURRENT_TIMESTAMP в тестовой транзакции — время её начала, как и в запросах ключей
+    private void expireIn(UUID owner, String key, String interval) {
+        jdbcTemplate.update("UPDATE idempotency_key SET expires_at = CURRENT_TIMESTAMP + CAST(? AS INTERVAL) "
+                + "WHERE scope = ? AND owner_id = ? AND idem_key = ?", interval, SCOPE, owner, key);
+    }
+}
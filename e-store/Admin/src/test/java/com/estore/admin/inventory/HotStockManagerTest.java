@@ -0,0 +1,180 @@
+package com.estore.admin.inventory;
+
+import com.estore.library.inventory.HotStockManager;
+import com.estore.library.service.StockReservationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Горячие товары на реальной схеме: заведение счётчика, списание с него, пакетная
+ * запись в остаток и сверка. Транзакции фиксируются (счётчики меняются после коммита),
+ * данные удаляются после каждого теста. Фоновые проходы отключены длинным интервалом
+ * и вызываются из тестов.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "inventory.hot.enabled=true",
+        "inventory.hot.flush-ms=3600000",
+        "inventory.hot.reconcile-ms=3600000"
+})
+@Testcontainers
+public class HotStockManagerTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.liquibase.change-log", () -> "classpath:db/changelog/changelog-master.yaml");
+    }
+
+    @Autowired
+    private HotStockManager hotStockManager;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate tx;
+    private UUID product;
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        product = tx.execute(status -> jdbcTemplate.queryForObject(
+                "INSERT INTO product (name, price, stock_quantity, is_hot_stock) VALUES ('Hot Product', 100.00, 10, TRUE) "
+                        + "RETURNING product_id", UUID.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        tx.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM stock_reservation WHERE product_id = ?", product);
+            jdbcTemplate.update("DELETE FROM product WHERE product_id = ?", product);
+        });
+        hotStockManager.scheduledReconcile();
+    }
+
+    @Test
+    void flaggedProductIsSeededByReconcile() {
+        assertThat(hotStockManager.isHot(product)).isFalse();
+
+        hotStockManager.scheduledReconcile();
+
+        assertThat(hotStockManager.isHot(product)).isTrue();
+        assertThat(hotStockManager.isHotOrSeeding(product)).isTrue();
+    }
+
+    @Test
+    void hotReservationSkipsStockUntilFlush() {
+        hotStockManager.scheduledReconcile();
+
+        reserve(UUID.randomUUID(), 3);
+
+        assertThat(stock()).isEqualTo(10);
+        assertThat(pendingLines()).isEqualTo(1);
+
+        hotStockManager.scheduledFlush();
+
+        assertThat(stock()).isEqualTo(7);
+        assertThat(pendingLines()).isZero();
+    }
+
+    @Test
+    void counterRejectsMoreThanAvailable() {
+        hotStockManager.scheduledReconcile();
+        reserve(UUID.randomUUID(), 8);
+
+        assertThatThrownBy(() -> reserve(UUID.randomUUID(), 3))
+                .isInstanceOf(IllegalStateException.class);
+        reserve(UUID.randomUUID(), 2);
+        assertThat(pendingLines()).isEqualTo(2);
+    }
+
+    @Test
+    void releasedHotReservationReturnsToCounter() {
+        hotStockManager.scheduledReconcile();
+        UUID orderId = UUID.randomUUID();
+        reserve(orderId, 10);
+
+        tx.executeWithoutResult(status -> stockReservationService.releaseOrder(orderId));
+        hotStockManager.scheduledFlush();
+
+        // Снятая до записи строка не вычитается из остатка
+        assertThat(stock()).isEqualTo(10);
+        reserve(UUID.randomUUID(), 10);
+    }
+
+    @Test
+    void reconcilePicksUpStockChangedInDatabase() {
+        hotStockManager.scheduledReconcile();
+        tx.executeWithoutResult(status ->
+                jdbcTemplate.update("UPDATE product SET stock_quantity = 2 WHERE product_id = ?", product));
+
+        hotStockManager.scheduledReconcile();
+
+        assertThatThrownBy(() -> reserve(UUID.randomUUID(), 3))
+                .isInstanceOf(IllegalStateException.class);
+        reserve(UUID.randomUUID(), 2);
+    }
+
+    @Test
+    void flushLeavesOversoldLinesPendingInsteadOfClamping() {
+        hotStockManager.scheduledReconcile();
+        // Невычтенные резервы больше остатка (например, остаток уменьшен в обход absorbPending)
+        tx.executeWithoutResult(status -> jdbcTemplate.update("""
+                INSERT INTO stock_reservation (order_id, product_id, quantity, status, stock_applied)
+                VALUES (?, ?, 12, 'ORDERED', FALSE)
+                """, UUID.randomUUID(), product));
+
+        hotStockManager.scheduledFlush();
+        hotStockManager.scheduledReconcile();
+
+        assertThat(stock()).isEqualTo(10);
+        assertThat(pendingLines()).isEqualTo(1);
+        assertThatThrownBy(() -> reserve(UUID.randomUUID(), 1))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private void reserve(UUID orderId, int quantity) {
+        tx.executeWithoutResult(status -> stockReservationService.reserve(orderId, Map.of(product, quantity), null));
+    }
+
+    private int stock() {
+        return jdbcTemplate.queryForObject(
+                "SELECT stock_quantity FROM product WHERE product_id = ?", Integer.class, product);
+    }
+
+    private int pendingLines() {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM stock_reservation WHERE product_id = ? AND NOT stock_applied",
+                Integer.class, product);
+    }
+}
@@ -0,0 +1,150 @@
+package com.estore.admin.inventory;
+
+import com.estore.library.dto.order.request.OrderRequestDto;
+import com.estore.library.model.bisentity.Order;
+import com.estore.library.model.dicts.OrderStatus;
+import com.estore.library.repository.dicts.OrderStatusRepository;
+import com.estore.library.service.OrderPlacementService;
+import com.estore.library.service.OrderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Отмена оформленного заказа через OrderService возвращает остаток по резерву
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@Testcontainers
+@Transactional
+public class OrderCancellationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.liquibase.change-log", () -> "classpath:db/changelog/changelog-master.yaml");
+    }
+
+    @Autowired
+    private OrderPlacementService orderPlacementService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderStatusRepository orderStatusRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UUID userId;
+    private UUID productId;
+    private Integer cityId;
+
+    @BeforeEach
+    void setUp() {
+        userId = jdbcTemplate.queryForObject("""
+                INSERT INTO "user" (email, password_hash, role_id)
+                SELECT 'cancel-test@example.com', 'hash', role_id FROM role WHERE role_name = 'ROLE_CUSTOMER'
+                RETURNING user_id
+                """, UUID.class);
+        productId = jdbcTemplate.queryForObject(
+                "INSERT INTO product (name, price, stock_quantity) VALUES ('Cancelled Product', 100.00, 10) "
+                        + "RETURNING product_id", UUID.class);
+        cityId = jdbcTemplate.queryForObject(
+                "INSERT INTO city (city_name) VALUES ('Cancel City') RETURNING city_id", Integer.class);
+    }
+
+    @Test
+    void cancelByStatusIdReturnsStock() {
+        UUID orderId = placeOrder(4);
+        assertThat(stock()).isEqualTo(6);
+
+        orderService.updateOrderStatus(orderId, statusId("CANCELLED"));
+
+        assertThat(stock()).isEqualTo(10);
+    }
+
+    @Test
+    void cancelThroughUpdateOrderReturnsStock() {
+        UUID orderId = placeOrder(3);
+        Order existing = orderService.getOrderById(orderId).orElseThrow();
+        // Как из формы: новый объект заказа со статусом из справочника
+        Order changes = new Order();
+        changes.setStatus(orderStatusRepository.findByStatusName("CANCELLED").orElseThrow());
+        changes.setShippingCity(existing.getShippingCity());
+        changes.setShippingAddressText(existing.getShippingAddressText());
+        changes.setDeliveryMethod(existing.getDeliveryMethod());
+        changes.setPaymentMethod(existing.getPaymentMethod());
+
+        orderService.updateOrder(orderId, changes);
+
+        assertThat(stock()).isEqualTo(10);
+    }
+
+    @Test
+    void repeatedCancelIsRejectedAndReturnsStockOnce() {
+        UUID orderId = placeOrder(2);
+        orderService.updateOrderStatus(orderId, statusId("CANCELLED"));
+
+        assertThatThrownBy(() -> orderService.updateOrderStatus(orderId, statusId("CANCELLED")))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(stock()).isEqualTo(10);
+    }
+
+    @Test
+    void deliveredOrderCannotBeCancelled() {
+        UUID orderId = placeOrder(2);
+        orderService.updateOrderStatus(orderId, statusId("DELIVERED"));
+
+        assertThatThrownBy(() -> orderService.updateOrderStatus(orderId, statusId("CANCELLED")))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(stock()).isEqualTo(8);
+    }
+
+    private UUID placeOrder(int quantity) {
+        OrderRequestDto.OrderItemRequestDto line = new OrderRequestDto.OrderItemRequestDto();
+        line.setProductId(productId);
+        line.setQuantity(quantity);
+        OrderRequestDto request = new OrderRequestDto();
+        request.setUserId(userId);
+        request.setShippingCityId(cityId);
+        request.setShippingAddressText("Test Address");
+        request.setDeliveryMethodId(jdbcTemplate.queryForObject(
+                "SELECT method_id FROM delivery_method WHERE method_name = 'Standard Delivery'", Integer.class));
+        request.setPaymentMethodId(jdbcTemplate.queryForObject(
+                "SELECT method_id FROM payment_method WHERE method_name = 'Card Online'", Integer.class));
+        request.setItems(List.of(line));
+        return orderPlacementService.placeOrder(request).orderId();
+    }
+
+    private Integer statusId(String name) {
+        return orderStatusRepository.findByStatusName(name).map(OrderStatus::getStatusId).orElseThrow();
+    }
+
+    private int stock() {
+        return jdbcTemplate.queryForObject(
+                "SELECT stock_quantity FROM product WHERE product_id = ?", Integer.class, productId);
+    }
+}
@@ -0,0 +1,122 @@
+package com.estore.admin.inventory;
+
+import com.estore.library.inventory.WarehouseAllocation;
+import com.estore.library.service.StockReservationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Резервы при оформлении на реальной схеме: списание и возврат при отмене
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@Testcontainers
+@Transactional
+public class StockReservationServiceTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.liquibase.change-log", () -> "classpath:db/changelog/changelog-master.yaml");
+    }
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UUID product;
+    private UUID otherProduct;
+    private long warehouseId;
+
+    @BeforeEach
+    void setUp() {
+        product = createProduct("Reserved Product", 10);
+        otherProduct = createProduct("Other Product", 1);
+        Integer cityId = jdbcTemplate.queryForObject(
+                "INSERT INTO city (city_name) VALUES ('Reservation City') RETURNING city_id", Integer.class);
+        warehouseId = jdbcTemplate.queryForObject(
+                "INSERT INTO warehouse (warehouse_name, city_id) VALUES ('Reservation WH', ?) RETURNING warehouse_id",
+                Long.class, cityId);
+    }
+
+    @Test
+    void reserveDecrementsStockAndRecordsReservation() {
+        UUID orderId = UUID.randomUUID();
+
+        stockReservationService.reserve(orderId, Map.of(product, 3), null);
+
+        assertThat(stockOf(product)).isEqualTo(7);
+        assertThat(statusOf(orderId, product)).isEqualTo("ORDERED");
+    }
+
+    @Test
+    void reserveRejectsInsufficientStock() {
+        UUID orderId = UUID.randomUUID();
+
+        assertThatThrownBy(() -> stockReservationService.reserve(orderId, Map.of(product, 2, otherProduct, 5), null))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining(otherProduct.toString());
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM stock_reservation WHERE order_id = ?", Integer.class, orderId)).isZero();
+    }
+
+    @Test
+    void releaseReturnsProductAndWarehouseStockOnce() {
+        UUID orderId = UUID.randomUUID();
+        // Склад уже списан выбором склада при оформлении
+        jdbcTemplate.update("INSERT INTO warehouse_stock (warehouse_id, product_id, quantity) VALUES (?, ?, 2)",
+                warehouseId, product);
+        stockReservationService.reserve(orderId, Map.of(product, 3),
+                new WarehouseAllocation(warehouseId, null, null, true));
+
+        stockReservationService.releaseOrder(orderId);
+        stockReservationService.releaseOrder(orderId);
+
+        assertThat(stockOf(product)).isEqualTo(10);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT quantity FROM warehouse_stock WHERE warehouse_id = ? AND product_id = ?",
+                Integer.class, warehouseId, product)).isEqualTo(5);
+        assertThat(statusOf(orderId, product)).isEqualTo("RELEASED");
+    }
+
+    private UUID createProduct(String name, int stock) {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO product (name, price, stock_quantity) VALUES (?, 100.00, ?) RETURNING product_id",
+                UUID.class, name, stock);
+    }
+
+    private int stockOf(UUID productId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT stock_quantity FROM product WHERE product_id = ?", Integer.class, productId);
+    }
+
+    private String statusOf(UUID orderId, UUID productId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT status FROM stock_reservation WHERE order_id = ? AND product_id = ?",
+                String.class, orderId, productId);
+    }
+}
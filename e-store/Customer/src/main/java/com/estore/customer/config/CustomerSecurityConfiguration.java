@@ -142,6 +142,7 @@ public class CustomerSecurityConfiguration {
         configuration.setAllowedOrigins(Arrays.asList("http://localhost:3000", "http://localhost:8020", "null"));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
+        configuration.setExposedHeaders(Arrays.asList("Idempotent-Replayed"));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L);
         
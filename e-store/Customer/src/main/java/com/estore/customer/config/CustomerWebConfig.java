@@ -17,6 +17,7 @@ public class CustomerWebConfig implements WebMvcConfigurer {
                 .allowedOrigins("http://localhost:3000", "http://localhost:8020", "null")
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH")
                 .allowedHeaders("*")
+                .exposedHeaders("Idempotent-Replayed")
                 .allowCredentials(true)
                 .maxAge(3600);
     }
@@ -1,5 +1,6 @@
 package com.estore.customer.controller;
 
+import com.estore.library.dto.city.RouteSummaryDto;
 import com.estore.library.model.bisentity.*;
 import com.estore.library.model.dicts.OrderStatus;
 import com.estore.library.repository.dicts.OrderStatusRepository; // <--- ДОБАВЛЕНО
@@ -244,16 +245,15 @@ public class CustomerDashboardController {
             // Если есть город профиля, получить доступные маршруты
             if (profile.getCity() != null) {
                 String cityName = profile.getCity().getCityName();
-                List<Object[]> routes = cityRouteService.findAllRoutesBFS(cityName);
+                // Пять ближайших городов по кратчайшему маршруту (in-memory граф, без перебора путей)
+                List<RouteSummaryDto> routes = cityRouteService.findRoutesFrom(cityName, 5);
 
                 List<Map<String, Object>> availableRoutes = new ArrayList<>();
-                for (Object[] route : routes) {
-                    if (availableRoutes.size() >= 5) break;
-
+                for (RouteSummaryDto route : routes) {
                     Map<String, Object> routeInfo = new HashMap<>();
-                    routeInfo.put("destination", route[0]);
-                    routeInfo.put("distance", route[1]);
-                    routeInfo.put("stops", route[2]);
+                    routeInfo.put("destination", route.getEndCity().getCityName());
+                    routeInfo.put("distance", route.getTotalDistance());
+                    routeInfo.put("stops", route.getNumberOfStops());
                     availableRoutes.add(routeInfo);
                 }
 
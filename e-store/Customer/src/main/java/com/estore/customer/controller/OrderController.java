@@ -1,9 +1,8 @@
 package com.estore.customer.controller;
 
+import com.estore.library.dto.order.request.OrderRequestDto;
 import com.estore.library.model.bisentity.Order;
 import com.estore.library.model.bisentity.OrderItem;
-import com.estore.library.model.bisentity.Product;
-import com.estore.library.model.bisentity.User;
 import com.estore.library.model.dicts.*;
 import com.estore.library.service.*;
 import com.estore.library.repository.dicts.OrderStatusRepository;
@@ -13,6 +12,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -25,81 +25,68 @@ import java.util.*;
 @CrossOrigin(origins = {"http://localhost:3000", "http://localhost:8020", "null"})
 public class OrderController {
     
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final String ORDERS_SCOPE = "orders";
+    
     private final OrderService orderService;
+    private final OrderPlacementService orderPlacementService;
+    private final IdempotencyService idempotencyService;
     private final OrderItemService orderItemService;
     private final CityRouteService cityRouteService;
     private final DeliveryMethodService deliveryMethodService;
     private final PaymentMethodService paymentMethodService;
     private final WarehouseService warehouseService;
-    private final ProductService productService;
-    private final UserService userService;
-    private final CityService cityService;
     private final OrderStatusRepository orderStatusRepository;
     private final com.estore.library.service.ShoppingCartService shoppingCartService;
     
     /**
      * Создать новый заказ
      * POST /api/customer/orders
+     * С заголовком Idempotency-Key повтор запроса возвращает ответ первого вызова, не оформляя заказ заново
      */
     @PostMapping
-    public ResponseEntity<?> createOrder(@RequestBody CreateOrderRequest request) {
+    public ResponseEntity<?> createOrder(@RequestBody OrderRequestDto request,
+                                         @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         try {
-            User user = userService.getUserById(request.getUserId())
-                    .orElseThrow(() -> new IllegalArgumentException("User not found: " + request.getUserId()));
-            City city = cityService.getCityById(request.getShippingCityId())
-                    .orElseThrow(() -> new IllegalArgumentException("City not found: " + request.getShippingCityId()));
-            DeliveryMethod deliveryMethod = deliveryMethodService.getDeliveryMethodById(request.getDeliveryMethodId())
-                    .orElseThrow(() -> new IllegalArgumentException("Delivery method not found: " + request.getDeliveryMethodId()));
-            PaymentMethod paymentMethod = paymentMethodService.getPaymentMethodById(request.getPaymentMethodId())
-                    .orElseThrow(() -> new IllegalArgumentException("Payment method not found: " + request.getPaymentMethodId()));
-
-            Order order = new Order();
-            order.setUser(user);
-            order.setShippingCity(city);
-            order.setShippingAddressText(request.getShippingAddressText());
-            order.setDeliveryMethod(deliveryMethod);
-            order.setPaymentMethod(paymentMethod);
-            order.setDiscountApplied(request.getDiscountApplied());
-            order.setOrderItems(new ArrayList<>());
-
-            if (request.getItems() != null) {
-                for (CreateOrderItem itemReq : request.getItems()) {
-                    Product product = productService.getProductById(itemReq.getProductId())
-                            .orElseThrow(() -> new IllegalArgumentException("Product not found: " + itemReq.getProductId()));
-                    int available = product.getStockQuantity() != null ? product.getStockQuantity() : 0;
-                    int newStock = available - itemReq.getQuantity();
-                    if (newStock < 0) newStock = 0; // не даём уйти в минус, но заказ оформляем
-
-                    OrderItem item = new OrderItem();
-                    item.setOrder(order);
-                    item.setProduct(product);
-                    item.setQuantity(itemReq.getQuantity());
-                    item.setUnitPrice(product.getPrice());
-                    order.getOrderItems().add(item);
-
-                    // уменьшение склада
-                    product.setStockQuantity(newStock);
-                    productService.updateProduct(product.getProductId(), product);
-                }
+            if (idempotencyKey == null) {
+                return ResponseEntity.status(HttpStatus.CREATED).body(placeOrder(request));
             }
+            IdempotencyService.StoredResponse stored = idempotencyService.execute(ORDERS_SCOPE,
+                    request.getUserId(), idempotencyKey, request, HttpStatus.CREATED.value(), () -> placeOrder(request));
+            return ResponseEntity.status(stored.status())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(REPLAYED_HEADER, String.valueOf(stored.replayed()))
+                    .body(stored.body());
             
-            Order createdOrder = orderService.createOrder(order);
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Order created successfully");
-            response.put("orderId", createdOrder.getId());
-            response.put("totalAmount", createdOrder.getTotalAmount());
-            response.put("status", createdOrder.getStatus());
-            
-            return ResponseEntity.status(HttpStatus.CREATED).body(response);
-            
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", e.getMessage()));
         }
     }
 
+    private Map<String, Object> placeOrder(OrderRequestDto request) {
+        OrderPlacementService.PlacedOrder placed = orderPlacementService.placeOrder(request);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Order created successfully");
+        response.put("orderId", placed.orderId());
+        response.put("totalAmount", placed.totalAmount());
+        response.put("status", placed.status());
+        if (placed.allocation() != null) {
+            response.put("sourceWarehouseId", placed.allocation().warehouseId());
+            response.put("warehouseDistanceKm", placed.allocation().distanceKm());
+        }
+        return response;
+    }
+
     /**
      * Отмена заказа (возврат остатков)
      */
@@ -112,19 +99,20 @@ public class OrderController {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Forbidden"));
             }
 
-            List<OrderItem> items = orderItemService.getOrderItemsByOrderId(orderId);
-            for (OrderItem item : items) {
-                Product product = item.getProduct();
-                product.setStockQuantity(product.getStockQuantity() + item.getQuantity());
-                productService.updateProduct(product.getProductId(), product);
-            }
-
+            // Остатки возвращаются по резерву заказа в транзакции смены статуса. Загруженный
+            // заказ не меняем: при open-in-view это тот же экземпляр, что прочитает сервис,
+            // и смена статуса не была бы замечена
             OrderStatus cancelled = orderStatusRepository.findByStatusName("CANCELLED")
                     .orElseThrow(() -> new IllegalStateException("Status 'CANCELLED' not found"));
-            order.setStatus(cancelled);
-            orderService.updateOrder(orderId, order);
+            orderService.updateOrderStatus(orderId, cancelled.getStatusId());
 
             return ResponseEntity.ok(Map.of("success", true, "message", "Order cancelled"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", e.getMessage()));
@@ -272,41 +260,6 @@ public class OrderController {
         }
     }
     
-    // DTO класс
-    public static class CreateOrderRequest {
-        private UUID userId;
-        private Integer shippingCityId;
-        private String shippingAddressText;
-        private Integer deliveryMethodId;
-        private Integer paymentMethodId;
-        private Double discountApplied;
-        private List<CreateOrderItem> items;
-
-        public UUID getUserId() { return userId; }
-        public void setUserId(UUID userId) { this.userId = userId; }
-        public Integer getShippingCityId() { return shippingCityId; }
-        public void setShippingCityId(Integer shippingCityId) { this.shippingCityId = shippingCityId; }
-        public String getShippingAddressText() { return shippingAddressText; }
-        public void setShippingAddressText(String shippingAddressText) { this.shippingAddressText = shippingAddressText; }
-        public Integer getDeliveryMethodId() { return deliveryMethodId; }
-        public void setDeliveryMethodId(Integer deliveryMethodId) { this.deliveryMethodId = deliveryMethodId; }
-        public Integer getPaymentMethodId() { return paymentMethodId; }
-        public void setPaymentMethodId(Integer paymentMethodId) { this.paymentMethodId = paymentMethodId; }
-        public Double getDiscountApplied() { return discountApplied; }
-        public void setDiscountApplied(Double discountApplied) { this.discountApplied = discountApplied; }
-        public List<CreateOrderItem> getItems() { return items; }
-        public void setItems(List<CreateOrderItem> items) { this.items = items; }
-    }
-
-    public static class CreateOrderItem {
-        private UUID productId;
-        private Integer quantity;
-        public UUID getProductId() { return productId; }
-        public void setProductId(UUID productId) { this.productId = productId; }
-        public Integer getQuantity() { return quantity; }
-        public void setQuantity(Integer quantity) { this.quantity = quantity; }
-    }
-    
     /**
      * Отследить статус заказа
      * GET /api/customer/orders/{orderId}/track
@@ -378,7 +331,7 @@ public class OrderController {
             @RequestParam String toCityName) {
         
         try {
-            // Найти кратчайший маршрут с помощью BFS
+            // Кратчайший маршрут: [city_name, transfers, total_distance, path_name]
             Object[] route = cityRouteService.findShortestRouteBFS(fromCityName, toCityName);
             
             if (route == null) {
@@ -392,12 +345,12 @@ public class OrderController {
             deliveryInfo.put("found", true);
             deliveryInfo.put("from", fromCityName);
             deliveryInfo.put("to", toCityName);
-            deliveryInfo.put("distance", route[1]);
-            deliveryInfo.put("stops", route[2]);
+            deliveryInfo.put("distance", route[2]);
+            deliveryInfo.put("stops", route[1]);
             deliveryInfo.put("route", route[3]);
             
             // Рассчитать примерную стоимость (например, 10 руб/км)
-            double distance = ((Number) route[1]).doubleValue();
+            double distance = ((Number) route[2]).doubleValue();
             double estimatedCost = distance * 10.0;
             deliveryInfo.put("estimatedCost", estimatedCost);
             
@@ -1,9 +1,13 @@
 package com.estore.customer.controller;
 
+import com.estore.library.dto.order.request.OrderRequestDto;
 import com.estore.library.model.bisentity.ShoppingCart;
+import com.estore.library.service.IdempotencyService;
+import com.estore.library.service.OrderPlacementService;
 import com.estore.library.service.ShoppingCartService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -19,7 +23,12 @@ import java.util.UUID;
 @CrossOrigin(origins = {"http://localhost:8020", "null"})
 public class ShoppingCartController {
     
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final String CHECKOUT_SCOPE = "cart-checkout";
+    
     private final ShoppingCartService shoppingCartService;
+    private final IdempotencyService idempotencyService;
     
     /**
      * Получить корзину пользователя
@@ -147,6 +156,53 @@ public class ShoppingCartController {
         }
     }
     
+    /**
+     * Оформить заказ из корзины: позиции и цены берутся на сервере, корзина очищается
+     * в той же транзакции. В теле — доставка, оплата и скидка, позиции игнорируются.
+     * POST /api/customer/cart/{userId}/checkout
+     */
+    @PostMapping("/{userId}/checkout")
+    public ResponseEntity<?> checkout(@PathVariable UUID userId, @RequestBody OrderRequestDto request,
+                                      @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        try {
+            if (idempotencyKey == null) {
+                return ResponseEntity.status(HttpStatus.CREATED).body(checkoutCart(userId, request));
+            }
+            IdempotencyService.StoredResponse stored = idempotencyService.execute(CHECKOUT_SCOPE,
+                    userId, idempotencyKey, request, HttpStatus.CREATED.value(), () -> checkoutCart(userId, request));
+            return ResponseEntity.status(stored.status())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(REPLAYED_HEADER, String.valueOf(stored.replayed()))
+                    .body(stored.body());
+            
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    private Map<String, Object> checkoutCart(UUID userId, OrderRequestDto request) {
+        OrderPlacementService.PlacedOrder placed = shoppingCartService.checkout(userId, request);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Order created successfully");
+        response.put("orderId", placed.orderId());
+        response.put("totalAmount", placed.totalAmount());
+        response.put("status", placed.status());
+        if (placed.allocation() != null) {
+            response.put("sourceWarehouseId", placed.allocation().warehouseId());
+            response.put("warehouseDistanceKm", placed.allocation().distanceKm());
+        }
+        return response;
+    }
+    
     // DTO классы
     public static class AddToCartRequest {
         private UUID userId;
@@ -225,7 +225,7 @@ public class ShoppingFeaturesController {
     @GetMapping("/bestsellers")
     public ResponseEntity<?> getBestsellers() {
         try {
-            List<Object[]> topSelling = orderItemService.getTopSellingProducts();
+            List<Object[]> topSelling = orderItemService.getTopSellingProducts(10);
             
             List<Map<String, Object>> bestsellers = new ArrayList<>();
             for (Object[] item : topSelling) {
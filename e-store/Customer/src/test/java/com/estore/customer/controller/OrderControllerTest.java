@@ -0,0 +1,109 @@
+package com.estore.customer.controller;
+
+import com.estore.library.model.bisentity.Order;
+import com.estore.library.model.bisentity.User;
+import com.estore.library.model.dicts.OrderStatus;
+import com.estore.library.repository.dicts.OrderStatusRepository;
+import com.estore.library.service.OrderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderControllerTest {
+
+    private static final int CANCELLED_ID = 4;
+
+    @Mock
+    private OrderService orderService;
+
+    @Mock
+    private OrderStatusRepository orderStatusRepository;
+
+    @InjectMocks
+    private OrderController orderController;
+
+    private final UUID orderId = UUID.randomUUID();
+    private final UUID userId = UUID.randomUUID();
+    private Order order;
+    private OrderStatus processing;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setUserId(userId);
+        processing = status(1, "PROCESSING");
+        order = new Order();
+        order.setUser(user);
+        order.setStatus(processing);
+    }
+
+    @Test
+    void cancelChangesStatusThroughServiceWithoutTouchingLoadedOrder() {
+        when(orderService.getOrderById(orderId)).thenReturn(Optional.of(order));
+        when(orderStatusRepository.findByStatusName("CANCELLED"))
+                .thenReturn(Optional.of(status(CANCELLED_ID, "CANCELLED")));
+
+        ResponseEntity<?> response = orderController.cancelOrder(orderId, userId);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        verify(orderService).updateOrderStatus(orderId, CANCELLED_ID);
+        verify(orderService, never()).updateOrder(any(), any());
+        // При open-in-view это экземпляр, который сервис сравнит со старым статусом
+        assertThat(order.getStatus()).isSameAs(processing);
+    }
+
+    @Test
+    void cancelOfFinishedOrderIsConflict() {
+        when(orderService.getOrderById(orderId)).thenReturn(Optional.of(order));
+        when(orderStatusRepository.findByStatusName("CANCELLED"))
+                .thenReturn(Optional.of(status(CANCELLED_ID, "CANCELLED")));
+        doThrow(new IllegalStateException("Order in status DELIVERED cannot be cancelled"))
+                .when(orderService).updateOrderStatus(orderId, CANCELLED_ID);
+
+        ResponseEntity<?> response = orderController.cancelOrder(orderId, userId);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+    }
+
+    @Test
+    void cancelOfAnotherUsersOrderIsForbidden() {
+        when(orderService.getOrderById(orderId)).thenReturn(Optional.of(order));
+
+        ResponseEntity<?> response = orderController.cancelOrder(orderId, UUID.randomUUID());
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+        verify(orderService, never()).updateOrderStatus(any(), any());
+    }
+
+    @Test
+    void cancelOfUnknownOrderIsBadRequest() {
+        when(orderService.getOrderById(orderId)).thenReturn(Optional.empty());
+
+        ResponseEntity<?> response = orderController.cancelOrder(orderId, userId);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    private static OrderStatus status(int id, String name) {
+        OrderStatus status = new OrderStatus();
+        status.setStatusId(id);
+        status.setStatusName(name);
+        return status;
+    }
+}
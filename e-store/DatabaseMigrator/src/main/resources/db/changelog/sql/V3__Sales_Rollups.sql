@@ -0,0 +1,210 @@
+-- ===================================
+-- 7. АГРЕГАТЫ ПРОДАЖ (ROLLUPS)
+-- ===================================
+-- Дневные агрегаты доставленных заказов. Поддерживаются триггером на "order"
+-- при переходе заказа в статус DELIVERED и обратно, аналитика читает только их.
+
+-- Товарный срез: продажи по товару (категория и бренд фиксируются первой доставкой за день)
+CREATE TABLE IF NOT EXISTS sales_rollup_product_daily (
+    sale_date    DATE NOT NULL,
+    product_id   UUID NOT NULL,
+    category_id  INT,
+    brand_id     INT,
+    orders_count BIGINT NOT NULL DEFAULT 0,
+    units_sold   BIGINT NOT NULL DEFAULT 0,
+    revenue      NUMERIC(15, 2) NOT NULL DEFAULT 0.00,
+    PRIMARY KEY (sale_date, product_id)
+)
+//
+
+-- Срез категория x бренд: orders_count = число различных заказов в группе за день
+CREATE TABLE IF NOT EXISTS sales_rollup_category_brand_daily (
+    sale_date    DATE NOT NULL,
+    category_id  INT NOT NULL,
+    brand_id     INT NOT NULL,
+    orders_count BIGINT NOT NULL DEFAULT 0,
+    units_sold   BIGINT NOT NULL DEFAULT 0,
+    revenue      NUMERIC(15, 2) NOT NULL DEFAULT 0.00,
+    PRIMARY KEY (sale_date, category_id, brand_id)
+)
+//
+
+-- Срез заказов: город доставки, способ оплаты и доставки (0 = не указан)
+CREATE TABLE IF NOT EXISTS sales_rollup_order_daily (
+    sale_date          DATE NOT NULL,
+    city_id            INT NOT NULL DEFAULT 0,
+    payment_method_id  INT NOT NULL DEFAULT 0,
+    delivery_method_id INT NOT NULL DEFAULT 0,
+    orders_count       BIGINT NOT NULL DEFAULT 0,
+    revenue            NUMERIC(15, 2) NOT NULL DEFAULT 0.00,
+    PRIMARY KEY (sale_date, city_id, payment_method_id, delivery_method_id)
+)
+//
+
+CREATE INDEX IF NOT EXISTS idx_sales_rollup_product_category ON sales_rollup_product_daily (category_id, sale_date)
+//
+
+-- Применить заказ к агрегатам со знаком +1 (доставлен) или -1 (отмена доставки).
+-- Категория и бренд товара за день берутся из товарного среза: они фиксируются
+-- первой доставкой, поэтому отмена вычитается из той же группы категория x бренд.
+CREATE OR REPLACE FUNCTION apply_order_to_sales_rollups(o "order", p_sign INT)
+RETURNS VOID AS $$
+DECLARE
+sale_day DATE := CAST(o.order_date AS DATE);
+BEGIN
+INSERT INTO sales_rollup_product_daily AS r
+    (sale_date, product_id, category_id, brand_id, orders_count, units_sold, revenue)
+SELECT sale_day, oi.product_id, p.category_id, p.brand_id,
+       p_sign * COUNT(*), p_sign * SUM(oi.quantity), p_sign * SUM(oi.quantity * oi.unit_price)
+FROM order_item oi
+JOIN product p ON p.product_id = oi.product_id
+WHERE oi.order_id = o.order_id
+GROUP BY oi.product_id, p.category_id, p.brand_id
+ON CONFLICT (sale_date, product_id) DO UPDATE
+SET orders_count = r.orders_count + EXCLUDED.orders_count,
+    units_sold   = r.units_sold + EXCLUDED.units_sold,
+    revenue      = r.revenue + EXCLUDED.revenue;
+
+INSERT INTO sales_rollup_category_brand_daily AS r
+    (sale_date, category_id, brand_id, orders_count, units_sold, revenue)
+SELECT sale_day, pr.category_id, pr.brand_id,
+       p_sign, p_sign * SUM(oi.quantity), p_sign * SUM(oi.quantity * oi.unit_price)
+FROM order_item oi
+JOIN sales_rollup_product_daily pr ON pr.sale_date = sale_day AND pr.product_id = oi.product_id
+WHERE oi.order_id = o.order_id
+  AND pr.category_id IS NOT NULL
+  AND pr.brand_id IS NOT NULL
+GROUP BY pr.category_id, pr.brand_id
+ON CONFLICT (sale_date, category_id, brand_id) DO UPDATE
+SET orders_count = r.orders_count + EXCLUDED.orders_count,
+    units_sold   = r.units_sold + EXCLUDED.units_sold,
+    revenue      = r.revenue + EXCLUDED.revenue;
+
+INSERT INTO sales_rollup_order_daily AS r
+    (sale_date, city_id, payment_method_id, delivery_method_id, orders_count, revenue)
+VALUES (sale_day,
+        COALESCE(o.shipping_city_id, 0),
+        COALESCE(o.payment_method_id, 0),
+        COALESCE(o.delivery_method_id, 0),
+        p_sign,
+        p_sign * o.total_amount)
+ON CONFLICT (sale_date, city_id, payment_method_id, delivery_method_id) DO UPDATE
+SET orders_count = r.orders_count + EXCLUDED.orders_count,
+    revenue      = r.revenue + EXCLUDED.revenue;
+
+-- Обнулившиеся строки удаляются только по ключам этого заказа
+-- (группы категория x бренд — до удаления товарных строк, по которым они ищутся)
+IF p_sign < 0 THEN
+    DELETE FROM sales_rollup_category_brand_daily r
+    USING (SELECT DISTINCT pr.category_id, pr.brand_id
+           FROM order_item oi
+           JOIN sales_rollup_product_daily pr ON pr.sale_date = sale_day AND pr.product_id = oi.product_id
+           WHERE oi.order_id = o.order_id) k
+    WHERE r.sale_date = sale_day
+      AND r.category_id = k.category_id
+      AND r.brand_id = k.brand_id
+      AND r.orders_count <= 0;
+
+    DELETE FROM sales_rollup_product_daily r
+    WHERE r.sale_date = sale_day
+      AND r.product_id IN (SELECT oi.product_id FROM order_item oi WHERE oi.order_id = o.order_id)
+      AND r.orders_count <= 0;
+
+    DELETE FROM sales_rollup_order_daily r
+    WHERE r.sale_date = sale_day
+      AND r.city_id = COALESCE(o.shipping_city_id, 0)
+      AND r.payment_method_id = COALESCE(o.payment_method_id, 0)
+      AND r.delivery_method_id = COALESCE(o.delivery_method_id, 0)
+      AND r.orders_count <= 0;
+END IF;
+END;
+$$ LANGUAGE plpgsql;
+//
+
+CREATE OR REPLACE FUNCTION update_sales_rollups()
+RETURNS TRIGGER AS $$
+DECLARE
+delivered_id INT;
+BEGIN
+SELECT status_id INTO delivered_id FROM order_status WHERE status_name = 'DELIVERED';
+
+IF TG_OP = 'DELETE' THEN
+    IF OLD.status_id = delivered_id THEN
+        PERFORM apply_order_to_sales_rollups(OLD, -1);
+    END IF;
+    RETURN OLD;
+END IF;
+
+IF NEW.status_id = delivered_id AND (OLD.status_id IS DISTINCT FROM delivered_id) THEN
+    PERFORM apply_order_to_sales_rollups(NEW, 1);
+ELSIF OLD.status_id = delivered_id AND (NEW.status_id IS DISTINCT FROM delivered_id) THEN
+    PERFORM apply_order_to_sales_rollups(OLD, -1);
+END IF;
+RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+//
+
+CREATE TRIGGER trg_update_sales_rollups
+    AFTER UPDATE OF status_id ON "order"
+    FOR EACH ROW
+    EXECUTE FUNCTION update_sales_rollups();
+//
+
+-- BEFORE DELETE: позиции заказа ещё не удалены каскадом
+CREATE TRIGGER trg_delete_sales_rollups
+    BEFORE DELETE ON "order"
+    FOR EACH ROW
+    EXECUTE FUNCTION update_sales_rollups();
+//
+
+-- Полная пересборка агрегатов (после массовой загрузки данных в обход триггеров)
+CREATE OR REPLACE FUNCTION rebuild_sales_rollups()
+RETURNS VOID AS $$
+BEGIN
+TRUNCATE sales_rollup_product_daily, sales_rollup_category_brand_daily, sales_rollup_order_daily;
+
+INSERT INTO sales_rollup_product_daily
+    (sale_date, product_id, category_id, brand_id, orders_count, units_sold, revenue)
+SELECT CAST(o.order_date AS DATE), oi.product_id, p.category_id, p.brand_id,
+       COUNT(*), SUM(oi.quantity), SUM(oi.quantity * oi.unit_price)
+FROM order_item oi
+JOIN "order" o ON o.order_id = oi.order_id
+JOIN order_status os ON os.status_id = o.status_id
+JOIN product p ON p.product_id = oi.product_id
+WHERE os.status_name = 'DELIVERED'
+GROUP BY CAST(o.order_date AS DATE), oi.product_id, p.category_id, p.brand_id;
+
+INSERT INTO sales_rollup_category_brand_daily
+    (sale_date, category_id, brand_id, orders_count, units_sold, revenue)
+SELECT CAST(o.order_date AS DATE), p.category_id, p.brand_id,
+       COUNT(DISTINCT o.order_id), SUM(oi.quantity), SUM(oi.quantity * oi.unit_price)
+FROM order_item oi
+JOIN "order" o ON o.order_id = oi.order_id
+JOIN order_status os ON os.status_id = o.status_id
+JOIN product p ON p.product_id = oi.product_id
+WHERE os.status_name = 'DELIVERED'
+  AND p.category_id IS NOT NULL
+  AND p.brand_id IS NOT NULL
+GROUP BY CAST(o.order_date AS DATE), p.category_id, p.brand_id;
+
+INSERT INTO sales_rollup_order_daily
+    (sale_date, city_id, payment_method_id, delivery_method_id, orders_count, revenue)
+SELECT CAST(o.order_date AS DATE),
+       COALESCE(o.shipping_city_id, 0),
+       COALESCE(o.payment_method_id, 0),
+       COALESCE(o.delivery_method_id, 0),
+       COUNT(*), SUM(o.total_amount)
+FROM "order" o
+JOIN order_status os ON os.status_id = o.status_id
+WHERE os.status_name = 'DELIVERED'
+GROUP BY CAST(o.order_date AS DATE),
+         COALESCE(o.shipping_city_id, 0),
+         COALESCE(o.payment_method_id, 0),
+         COALESCE(o.delivery_method_id, 0);
+END;
+$$ LANGUAGE plpgsql;
+//
+
+SELECT rebuild_sales_rollups();
+//
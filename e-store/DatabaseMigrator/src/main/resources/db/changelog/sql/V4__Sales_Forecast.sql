@@ -0,0 +1,18 @@
+-- ===================================
+-- 8. ПРОГНОЗ ПРОДАЖ
+-- ===================================
+-- Предрасчитанный ночной прогноз выручки по категориям (одна строка на месяц прогноза)
+CREATE TABLE IF NOT EXISTS sales_forecast (
+    category_id   INT NOT NULL REFERENCES category(category_id) ON DELETE CASCADE,
+    period_month  DATE NOT NULL,
+    horizon_step  INT NOT NULL,
+    forecast      NUMERIC(15, 2) NOT NULL,
+    lower_bound   NUMERIC(15, 2) NOT NULL,
+    upper_bound   NUMERIC(15, 2) NOT NULL,
+    model         VARCHAR(30) NOT NULL,
+    model_params  VARCHAR(100),
+    rmse          NUMERIC(15, 2),
+    history_end   DATE NOT NULL,
+    computed_at   TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (category_id, period_month)
+);
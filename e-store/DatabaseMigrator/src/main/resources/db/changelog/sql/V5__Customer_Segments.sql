@@ -0,0 +1,163 @@
+-- ===================================
+-- 8. ДЕМОГРАФИЧЕСКИЕ СЕГМЕНТЫ ПОКУПАТЕЛЕЙ
+-- ===================================
+-- Возрастная группа и пол покупателя, вычисленные заранее. Строка поддерживается
+-- триггером на customer_profile, смена группы при днях рождения — функцией
+-- refresh_customer_segments() (вызывается по расписанию из админки).
+
+-- Возрастная группа с шагом 5 лет (0-17, 18-24, 25-29 ... 55-59, 60+, Unknown)
+CREATE OR REPLACE FUNCTION age_bucket_5y(p_date_of_birth DATE, p_as_of DATE)
+RETURNS VARCHAR(10) AS $$
+DECLARE
+v_age INT;
+BEGIN
+IF p_date_of_birth IS NULL THEN
+    RETURN 'Unknown';
+END IF;
+v_age := EXTRACT(YEAR FROM AGE(p_as_of, p_date_of_birth));
+IF v_age < 18 THEN
+    RETURN '0-17';
+ELSIF v_age <= 24 THEN
+    RETURN '18-24';
+ELSIF v_age >= 60 THEN
+    RETURN '60+';
+END IF;
+RETURN (v_age / 5 * 5) || '-' || (v_age / 5 * 5 + 4);
+END;
+$$ LANGUAGE plpgsql IMMUTABLE;
+//
+
+-- Укрупнённая возрастная группа (18-25, 26-35, 36-45, 46-60, 60+, Unknown)
+CREATE OR REPLACE FUNCTION age_group(p_date_of_birth DATE, p_as_of DATE)
+RETURNS VARCHAR(10) AS $$
+DECLARE
+v_age INT;
+BEGIN
+IF p_date_of_birth IS NULL THEN
+    RETURN 'Unknown';
+END IF;
+v_age := EXTRACT(YEAR FROM AGE(p_as_of, p_date_of_birth));
+IF v_age BETWEEN 18 AND 25 THEN
+    RETURN '18-25';
+ELSIF v_age BETWEEN 26 AND 35 THEN
+    RETURN '26-35';
+ELSIF v_age BETWEEN 36 AND 45 THEN
+    RETURN '36-45';
+ELSIF v_age BETWEEN 46 AND 60 THEN
+    RETURN '46-60';
+ELSIF v_age > 60 THEN
+    RETURN '60+';
+END IF;
+RETURN 'Unknown';
+END;
+$$ LANGUAGE plpgsql IMMUTABLE;
+//
+
+-- valid_until: ближайший день рождения, начиная с которого группа может смениться
+CREATE TABLE IF NOT EXISTS customer_segment (
+    user_id       UUID PRIMARY KEY REFERENCES customer_profile(user_id) ON DELETE CASCADE,
+    gender        VARCHAR(1),
+    age_bucket_5y VARCHAR(10) NOT NULL,
+    age_group     VARCHAR(10) NOT NULL,
+    valid_until   DATE,
+    refreshed_at  TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+)
+//
+
+CREATE INDEX IF NOT EXISTS idx_customer_segment_bucket ON customer_segment (age_bucket_5y, gender)
+//
+
+CREATE INDEX IF NOT EXISTS idx_customer_segment_gender ON customer_segment (gender)
+//
+
+CREATE INDEX IF NOT EXISTS idx_customer_segment_valid_until ON customer_segment (valid_until)
+//
+
+-- Следующий день рождения после p_as_of (29 февраля в невисокосный год — 28 февраля)
+CREATE OR REPLACE FUNCTION next_birthday(p_date_of_birth DATE, p_as_of DATE)
+RETURNS DATE AS $$
+BEGIN
+IF p_date_of_birth IS NULL THEN
+    RETURN NULL;
+END IF;
+RETURN CAST(p_date_of_birth
+    + (EXTRACT(YEAR FROM AGE(p_as_of, p_date_of_birth)) + 1) * INTERVAL '1 year' AS DATE);
+END;
+$$ LANGUAGE plpgsql IMMUTABLE;
+//
+
+CREATE OR REPLACE FUNCTION upsert_customer_segment(p_user_id UUID, p_gender VARCHAR, p_date_of_birth DATE)
+RETURNS VOID AS $$
+BEGIN
+INSERT INTO customer_segment AS s (user_id, gender, age_bucket_5y, age_group, valid_until, refreshed_at)
+VALUES (p_user_id,
+        p_gender,
+        age_bucket_5y(p_date_of_birth, CURRENT_DATE),
+        age_group(p_date_of_birth, CURRENT_DATE),
+        next_birthday(p_date_of_birth, CURRENT_DATE),
+        CURRENT_TIMESTAMP)
+ON CONFLICT (user_id) DO UPDATE
+SET gender        = EXCLUDED.gender,
+    age_bucket_5y = EXCLUDED.age_bucket_5y,
+    age_group     = EXCLUDED.age_group,
+    valid_until   = EXCLUDED.valid_until,
+    refreshed_at  = EXCLUDED.refreshed_at;
+END;
+$$ LANGUAGE plpgsql;
+//
+
+CREATE OR REPLACE FUNCTION update_customer_segment()
+RETURNS TRIGGER AS $$
+BEGIN
+PERFORM upsert_customer_segment(NEW.user_id, NEW.gender, NEW.date_of_birth);
+RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+//
+
+CREATE TRIGGER trg_update_customer_segment
+    AFTER INSERT OR UPDATE OF date_of_birth, gender ON customer_profile
+    FOR EACH ROW
+    EXECUTE FUNCTION update_customer_segment();
+//
+
+-- Пересчёт сегментов, у которых прошёл день рождения, и профилей без сегмента.
+-- Возвращает число обновлённых строк.
+CREATE OR REPLACE FUNCTION refresh_customer_segments()
+RETURNS INT AS $$
+DECLARE
+affected INT;
+BEGIN
+WITH due AS (
+    SELECT cp.user_id, cp.gender, cp.date_of_birth
+    FROM customer_segment s
+    JOIN customer_profile cp ON cp.user_id = s.user_id
+    WHERE s.valid_until <= CURRENT_DATE
+    UNION ALL
+    SELECT cp.user_id, cp.gender, cp.date_of_birth
+    FROM customer_profile cp
+    WHERE NOT EXISTS (SELECT 1 FROM customer_segment s WHERE s.user_id = cp.user_id)
+)
+INSERT INTO customer_segment AS s (user_id, gender, age_bucket_5y, age_group, valid_until, refreshed_at)
+SELECT due.user_id,
+       due.gender,
+       age_bucket_5y(due.date_of_birth, CURRENT_DATE),
+       age_group(due.date_of_birth, CURRENT_DATE),
+       next_birthday(due.date_of_birth, CURRENT_DATE),
+       CURRENT_TIMESTAMP
+FROM due
+ON CONFLICT (user_id) DO UPDATE
+SET gender        = EXCLUDED.gender,
+    age_bucket_5y = EXCLUDED.age_bucket_5y,
+    age_group     = EXCLUDED.age_group,
+    valid_until   = EXCLUDED.valid_until,
+    refreshed_at  = EXCLUDED.refreshed_at;
+
+GET DIAGNOSTICS affected = ROW_COUNT;
+RETURN affected;
+END;
+$$ LANGUAGE plpgsql;
+//
+
+SELECT refresh_customer_segments();
+//
@@ -0,0 +1,15 @@
+-- ===================================
+-- 9. ОСТАТКИ ПО СКЛАДАМ
+-- ===================================
+-- Сколько единиц товара лежит на каждом складе. product.stock_quantity остаётся
+-- общим остатком для каталога; эта таблица нужна для выбора склада-источника
+-- заказа. Списание — условным UPDATE (quantity >= списываемого), без блокировки таблицы.
+CREATE TABLE IF NOT EXISTS warehouse_stock (
+    warehouse_id INT NOT NULL REFERENCES warehouse(warehouse_id) ON DELETE CASCADE,
+    product_id   UUID NOT NULL REFERENCES product(product_id) ON DELETE CASCADE,
+    quantity     INT NOT NULL DEFAULT 0 CHECK (quantity >= 0),
+    updated_at   TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (warehouse_id, product_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_warehouse_stock_product ON warehouse_stock (product_id);
@@ -0,0 +1,29 @@
+-- ===================================
+-- 10. РЕЗЕРВЫ ТОВАРОВ ПРИ ОФОРМЛЕНИИ
+-- ===================================
+-- Общий остаток товара. Колонка есть в модели и тестовых данных, но не в базовой
+-- схеме; отрицательный остаток запрещён — списание только условным UPDATE.
+ALTER TABLE product ADD COLUMN IF NOT EXISTS stock_quantity INT NOT NULL DEFAULT 0;
+UPDATE product SET stock_quantity = 0 WHERE stock_quantity < 0;
+ALTER TABLE product DROP CONSTRAINT IF EXISTS chk_product_stock_quantity;
+ALTER TABLE product ADD CONSTRAINT chk_product_stock_quantity CHECK (stock_quantity >= 0);
+
+-- Отмена заказа возвращает остатки по резерву
+INSERT INTO order_status (status_name) VALUES ('CANCELLED') ON CONFLICT (status_name) DO NOTHING;
+
+-- Что списано под заказ. Резерв пишется в одной транзакции с заказом, но до его
+-- вставки, поэтому внешнего ключа на "order" нет; строки остаются после удаления
+-- заказа (невычтенные строки горячих товаров ещё нужны фоновой записи).
+-- warehouse_id — склад, с остатка которого тоже списано (NULL, если склад выбран
+-- без списания).
+CREATE TABLE IF NOT EXISTS stock_reservation (
+    order_id     UUID NOT NULL,
+    product_id   UUID NOT NULL REFERENCES product(product_id) ON DELETE CASCADE,
+    warehouse_id INT REFERENCES warehouse(warehouse_id) ON DELETE SET NULL,
+    quantity     INT NOT NULL CHECK (quantity > 0),
+    status       VARCHAR(16) NOT NULL DEFAULT 'ORDERED' CHECK (status IN ('ORDERED', 'RELEASED')),
+    created_at   TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    released_at  TIMESTAMP WITHOUT TIME ZONE,
+    PRIMARY KEY (order_id, product_id)
+);
+
@@ -0,0 +1,14 @@
+-- ===================================
+-- 11. ГОРЯЧИЕ ТОВАРЫ (ОСТАТОК В ПАМЯТИ)
+-- ===================================
+-- Для товаров с is_hot_stock резерв при оформлении списывается со счётчика в
+-- памяти приложения, а не с product.stock_quantity. Такие строки резерва
+-- пишутся с stock_applied = FALSE и пакетно вычитаются из остатка фоновой
+-- записью; после сбоя невычтенные строки остаются в таблице и досписываются
+-- при следующем проходе. Доступно к продаже = stock_quantity минус невычтенные
+-- действующие резервы.
+ALTER TABLE product ADD COLUMN IF NOT EXISTS is_hot_stock BOOLEAN NOT NULL DEFAULT FALSE;
+ALTER TABLE stock_reservation ADD COLUMN IF NOT EXISTS stock_applied BOOLEAN NOT NULL DEFAULT TRUE;
+
+CREATE INDEX IF NOT EXISTS idx_product_hot_stock ON product (product_id) WHERE is_hot_stock;
+CREATE INDEX IF NOT EXISTS idx_stock_reservation_pending ON stock_reservation (product_id) WHERE NOT stock_applied;
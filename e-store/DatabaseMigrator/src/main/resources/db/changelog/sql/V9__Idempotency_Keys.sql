@@ -0,0 +1,21 @@
+-- ===================================
+-- 12. КЛЮЧИ ИДЕМПОТЕНТНОСТИ
+-- ===================================
+-- Повтор запроса с тем же заголовком Idempotency-Key получает сохранённый ответ
+-- вместо повторного выполнения. Ключ записывается в транзакции самой операции:
+-- конкурентный повтор ждёт её завершения на уникальном индексе, неудачная
+-- операция ключ не оставляет. request_hash — SHA-256 тела запроса (тот же ключ
+-- с другим телом отклоняется). Просроченные ключи удаляются фоновой очисткой.
+CREATE TABLE IF NOT EXISTS idempotency_key (
+    scope         VARCHAR(32)  NOT NULL,
+    owner_id      UUID         NOT NULL,
+    idem_key      VARCHAR(128) NOT NULL,
+    request_hash  BYTEA        NOT NULL,
+    status_code   SMALLINT,
+    response_body TEXT,
+    created_at    TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at    TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    PRIMARY KEY (scope, owner_id, idem_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_key_expires ON idempotency_key (expires_at);
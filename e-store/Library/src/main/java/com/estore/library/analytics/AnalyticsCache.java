@@ -0,0 +1,270 @@
+package com.estore.library.analytics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Кэш результатов аналитических запросов.
+ * <p>
+ * Каждая запись помнит версии регионов данных, от которых она зависит.
+ * Запись при записи данных не удаляется: сервис повышает версию региона после
+ * коммита транзакции, и все зависящие от него записи становятся устаревшими.
+ * Размер ограничен (LRU), время жизни записи ограничено TTL, параллельные
+ * запросы одного ключа выполняют загрузку один раз.
+ * <p>
+ * Кэш локален для JVM: изменения, сделанные другим приложением (например,
+ * заказы из Customer), видны здесь не позже истечения TTL.
+ */
+@Component
+public class AnalyticsCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsCache.class);
+
+    /**
+     * Регионы данных, по которым инвалидируется кэш
+     */
+    public enum Region {
+        /** Доставленные заказы (агрегаты продаж) */
+        DELIVERED_SALES,
+        /** Любые заказы и их статусы */
+        ORDER_PIPELINE,
+        /** Товары, категории, бренды */
+        CATALOG,
+        /** Маршруты между городами */
+        ROUTES,
+        /** Профили покупателей и журнал входов */
+        CUSTOMERS
+    }
+
+    private record Entry(Object value, long[] versions, long expiresAt) {
+    }
+
+    private static final Region[] REGIONS = Region.values();
+
+    private final AtomicLongArray regionVersions = new AtomicLongArray(REGIONS.length);
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Entry> entries;
+
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder[] invalidations = new LongAdder[REGIONS.length];
+
+    public AnalyticsCache(@Value("${analytics.cache.ttl-seconds:300}") long ttlSeconds,
+                          @Value("${analytics.cache.max-entries:500}") int maxEntries) {
+        if (ttlSeconds <= 0) {
+            throw new IllegalArgumentException("analytics.cache.ttl-seconds must be positive");
+        }
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("analytics.cache.max-entries must be positive");
+        }
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > AnalyticsCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        for (int i = 0; i < REGIONS.length; i++) {
+            invalidations[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Вернуть значение из кэша или загрузить его.
+     * Возвращаемые объекты общие для всех вызывающих и не должны изменяться.
+     *
+     * @param key     ключ (имя запроса и параметры)
+     * @param regions регионы данных, от которых зависит результат
+     * @param loader  загрузка значения при промахе
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Set<Region> regions, Supplier<T> loader) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry != null) {
+            if (isFresh(entry, regions)) {
+                hits.increment();
+                return (T) entry.value();
+            }
+            stale.increment();
+        }
+        misses.increment();
+
+        CompletableFuture<Object> own = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, own);
+        if (running != null) {
+            return (T) await(running);
+        }
+
+        try {
+            // Версии фиксируются до загрузки: инвалидация во время загрузки
+            // сделает сохранённую запись устаревшей
+            long[] versions = snapshot(regions);
+            long start = System.nanoTime();
+            T value;
+            try {
+                value = loader.get();
+            } catch (RuntimeException e) {
+                loadFailures.increment();
+                own.completeExceptionally(e);
+                throw e;
+            }
+            long now = System.nanoTime();
+            loads.increment();
+            loadNanos.add(now - start);
+
+            synchronized (entries) {
+                entries.put(key, new Entry(value, versions, now + ttlNanos));
+            }
+            own.complete(value);
+            return value;
+        } finally {
+            if (!own.isDone()) {
+                own.completeExceptionally(new IllegalStateException("Analytics query failed: " + key));
+            }
+            inFlight.remove(key, own);
+        }
+    }
+
+    /**
+     * Пометить регионы изменёнными. Внутри транзакции версия повышается после
+     * коммита, чтобы параллельный запрос не закэшировал незакоммиченное состояние.
+     */
+    public void invalidate(Region... regions) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump(regions);
+                }
+            });
+        } else {
+            bump(regions);
+        }
+    }
+
+    /**
+     * Очистить кэш полностью
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Метрики кэша
+     */
+    public Map<String, Object> getStatistics() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long loadCount = loads.sum();
+        long requests = hitCount + missCount;
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+
+        Map<String, Object> regionStats = new LinkedHashMap<>();
+        for (Region region : REGIONS) {
+            regionStats.put(region.name(), Map.of(
+                    "version", regionVersions.get(region.ordinal()),
+                    "invalidations", invalidations[region.ordinal()].sum()));
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size);
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlSeconds", ttlNanos / 1_000_000_000L);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("staleEntries", stale.sum());
+        stats.put("hitRate", requests > 0 ? (double) hitCount / requests : 0.0);
+        stats.put("loads", loadCount);
+        stats.put("loadFailures", loadFailures.sum());
+        stats.put("averageLoadMillis", loadCount > 0 ? loadNanos.sum() / 1_000_000.0 / loadCount : 0.0);
+        stats.put("evictions", evictions.sum());
+        stats.put("regions", regionStats);
+        return stats;
+    }
+
+    /**
+     * Набор регионов для объявления зависимостей запроса
+     */
+    public static Set<Region> regions(Region first, Region... rest) {
+        return EnumSet.of(first, rest);
+    }
+
+    private void bump(Region... regions) {
+        for (Region region : regions) {
+            regionVersions.incrementAndGet(region.ordinal());
+            invalidations[region.ordinal()].increment();
+        }
+        logger.debug("Analytics cache regions invalidated: {}", (Object) regions);
+    }
+
+    private boolean isFresh(Entry entry, Set<Region> regions) {
+        if (System.nanoTime() - entry.expiresAt() > 0) {
+            return false;
+        }
+        long[] versions = entry.versions();
+        for (Region region : regions) {
+            if (versions[region.ordinal()] != regionVersions.get(region.ordinal())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long[] snapshot(Set<Region> regions) {
+        long[] versions = new long[REGIONS.length];
+        for (Region region : regions) {
+            versions[region.ordinal()] = regionVersions.get(region.ordinal());
+        }
+        return versions;
+    }
+
+    private static Object await(CompletableFuture<Object> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for analytics query", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Analytics query failed", e.getCause());
+        }
+    }
+}
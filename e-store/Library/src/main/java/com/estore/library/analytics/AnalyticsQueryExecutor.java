@@ -0,0 +1,206 @@
+package com.estore.library.analytics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Параллельное выполнение независимых аналитических запросов.
+ * <p>
+ * Пул ограничен (analytics.executor.threads) и должен быть меньше пула
+ * соединений Hikari: каждый подзапрос выполняется в своей read-only транзакции
+ * и занимает одно соединение. Все подзапросы одного вызова делят общий дедлайн;
+ * не уложившиеся отменяются, а ответ помечается как частичный. Остаток дедлайна
+ * передаётся в statement_timeout транзакции, чтобы PostgreSQL сам прервал запрос
+ * и освободил поток и соединение.
+ */
+@Component
+public class AnalyticsQueryExecutor implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsQueryExecutor.class);
+
+    private final ThreadPoolExecutor executor;
+    private final TransactionTemplate readOnlyTx;
+    private final JdbcTemplate jdbcTemplate;
+    private final long timeoutMillis;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public AnalyticsQueryExecutor(PlatformTransactionManager transactionManager, JdbcTemplate jdbcTemplate,
+                                  @Value("${analytics.executor.threads:4}") int threads,
+                                  @Value("${analytics.executor.queue-capacity:32}") int queueCapacity,
+                                  @Value("${analytics.executor.timeout-ms:5000}") long timeoutMillis) {
+        if (threads <= 0 || queueCapacity <= 0 || timeoutMillis <= 0) {
+            throw new IllegalArgumentException("analytics.executor settings must be positive");
+        }
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "analytics-query-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.readOnlyTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.jdbcTemplate = jdbcTemplate;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Начать набор параллельных подзапросов
+     */
+    public FanOut fanOut() {
+        return new FanOut();
+    }
+
+    /**
+     * Набор именованных подзапросов одного ответа
+     */
+    public final class FanOut {
+        private final Map<String, Supplier<?>> tasks = new LinkedHashMap<>();
+
+        public FanOut add(String name, Supplier<?> task) {
+            if (tasks.putIfAbsent(name, task) != null) {
+                throw new IllegalArgumentException("Duplicate subquery name: " + name);
+            }
+            return this;
+        }
+
+        public FanOutResult execute() {
+            return run(tasks, timeoutMillis);
+        }
+    }
+
+    /**
+     * Результаты подзапросов в порядке добавления и ошибки тех, что не выполнились
+     */
+    public record FanOutResult(Map<String, Object> results, Map<String, String> errors) {
+
+        public boolean partial() {
+            return !errors.isEmpty();
+        }
+
+        /**
+         * Тело ответа: результаты на верхнем уровне, плюс признак partial и ошибки
+         */
+        public Map<String, Object> toResponseBody() {
+            Map<String, Object> body = new LinkedHashMap<>(results);
+            body.put("partial", partial());
+            if (partial()) {
+                body.put("errors", errors);
+            }
+            return body;
+        }
+    }
+
+    /**
+     * Метрики исполнителя
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("poolSize", executor.getMaximumPoolSize());
+        stats.put("activeThreads", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("timeoutMillis", timeoutMillis);
+        stats.put("submitted", submitted.sum());
+        stats.put("completed", completed.sum());
+        stats.put("failed", failed.sum());
+        stats.put("timedOut", timedOut.sum());
+        stats.put("rejected", rejected.sum());
+        return stats;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private FanOutResult run(Map<String, Supplier<?>> tasks, long timeout) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        Map<String, Future<?>> futures = new LinkedHashMap<>();
+        Map<String, Object> results = new LinkedHashMap<>();
+        Map<String, String> errors = new LinkedHashMap<>();
+
+        for (Map.Entry<String, Supplier<?>> task : tasks.entrySet()) {
+            Supplier<?> supplier = task.getValue();
+            try {
+                futures.put(task.getKey(), executor.submit(() -> readOnlyTx.execute(status -> {
+                    applyStatementTimeout(deadline);
+                    return supplier.get();
+                })));
+                submitted.increment();
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                errors.put(task.getKey(), "rejected: analytics executor is overloaded");
+            }
+        }
+
+        for (Map.Entry<String, Future<?>> entry : futures.entrySet()) {
+            String name = entry.getKey();
+            Future<?> future = entry.getValue();
+            try {
+                long remaining = deadline - System.nanoTime();
+                results.put(name, future.get(Math.max(remaining, 0), TimeUnit.NANOSECONDS));
+                completed.increment();
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                timedOut.increment();
+                errors.put(name, "timeout after " + timeout + " ms");
+            } catch (CancellationException e) {
+                failed.increment();
+                errors.put(name, "cancelled");
+            } catch (ExecutionException e) {
+                failed.increment();
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                logger.warn("Analytics subquery '{}' failed", name, cause);
+                errors.put(name, cause.getClass().getSimpleName() + ": " + cause.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.values().forEach(f -> f.cancel(true));
+                throw new IllegalStateException("Interrupted while waiting for analytics subqueries", e);
+            }
+        }
+        return new FanOutResult(results, errors);
+    }
+
+    /**
+     * Ограничить запросы транзакции остатком дедлайна; SET LOCAL сбрасывается
+     * по завершении транзакции и не остаётся на соединении пула
+     */
+    private void applyStatementTimeout(long deadline) {
+        long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remainingMillis <= 0) {
+            throw new IllegalStateException("Deadline passed before the subquery started");
+        }
+        jdbcTemplate.execute("SET LOCAL statement_timeout = " + remainingMillis);
+    }
+}
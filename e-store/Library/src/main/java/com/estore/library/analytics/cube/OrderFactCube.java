@@ -0,0 +1,456 @@
+package com.estore.library.analytics.cube;
+
+import com.estore.library.dto.analyze.dto.PieItemDto;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Колоночный куб строк заказов в памяти.
+ * <p>
+ * Каждое измерение хранится как int[] кодов словаря (0 = NULL), для каждого
+ * значения измерения поддерживается битовая карта строк. Фильтр — OR карт
+ * внутри измерения и AND между измерениями, группировка — суммирование
+ * количества по кодам в long[].
+ * <p>
+ * Наполняется {@link OrderFactCubeMaintainer}: полная загрузка при старте и по
+ * расписанию, дозагрузка по событиям заказов.
+ */
+@Component
+@ConditionalOnProperty(name = "analytics.cube.enabled", havingValue = "true")
+public class OrderFactCube {
+
+    /**
+     * Измерения куба и тип ключа фильтра
+     */
+    public enum Dimension {
+        /** UUID товара */
+        PRODUCT,
+        /** id категории */
+        CATEGORY,
+        /** id бренда */
+        BRAND,
+        /** пол покупателя (N/F/M) */
+        GENDER,
+        /** возрастная группа (5 лет), как в getAgeBuckets5y */
+        AGE_BUCKET,
+        /** месяц заказа 1..12 */
+        MONTH,
+        /** имя статуса заказа */
+        STATUS,
+        /** id города доставки */
+        CITY
+    }
+
+    private static final Dimension[] DIMENSIONS = Dimension.values();
+    private static final Set<String> FINAL_STATUSES = Set.of("DELIVERED", "CANCELLED");
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Store store = new Store();
+    private volatile boolean ready;
+    private volatile LocalDateTime loadedAt;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Суммарное количество проданных единиц в разрезе измерения groupBy.
+     * Фильтры — допустимые значения ключей измерений; пустой набор значений даёт пустой результат.
+     */
+    public List<PieItemDto> sumQuantity(Dimension groupBy, Map<Dimension, ? extends Collection<?>> filters) {
+        lock.readLock().lock();
+        try {
+            return store.sumQuantity(groupBy, filters);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Добавить строки заказа. Если заказ уже есть в кубе, обновляется только статус.
+     */
+    public void addOrder(UUID orderId, List<OrderFactRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (store.containsOrder(orderId)) {
+                store.updateStatus(orderId, rows.get(0).getStatusName());
+            } else {
+                for (OrderFactRow row : rows) {
+                    store.append(row);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean containsOrder(UUID orderId) {
+        lock.readLock().lock();
+        try {
+            return store.containsOrder(orderId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void updateStatus(UUID orderId, String statusName) {
+        lock.writeLock().lock();
+        try {
+            store.updateStatus(orderId, statusName);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Исключить строки удалённого заказа; место строк освобождается при полной перезагрузке
+     */
+    public void removeOrder(UUID orderId) {
+        lock.writeLock().lock();
+        try {
+            store.removeOrder(orderId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Заказы в незавершённых статусах (для сверки статусов с БД)
+     */
+    public List<UUID> getOpenOrderIds() {
+        lock.readLock().lock();
+        try {
+            return store.openOrderIds();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Самая поздняя дата заказа в кубе
+     */
+    public LocalDateTime getMaxOrderDate() {
+        lock.readLock().lock();
+        try {
+            return store.maxOrderDate;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("ready", ready);
+            stats.put("loadedAt", loadedAt);
+            stats.put("rows", store.size);
+            stats.put("orders", store.rowsByOrder.size());
+            Map<String, Integer> dictionaries = new LinkedHashMap<>();
+            for (Dimension dimension : DIMENSIONS) {
+                dictionaries.put(dimension.name(), store.dictionaries[dimension.ordinal()].size());
+            }
+            stats.put("dictionarySizes", dictionaries);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Новый пустой набор данных для полной перезагрузки (наполняется без блокировки)
+     */
+    Store newStore() {
+        return new Store();
+    }
+
+    /**
+     * Подменить набор данных загруженным
+     */
+    void replace(Store loaded) {
+        lock.writeLock().lock();
+        try {
+            store = loaded;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        loadedAt = LocalDateTime.now();
+        ready = true;
+    }
+
+    /**
+     * Словарь значений измерения: ключ -> код, код -> подпись. Код 0 зарезервирован под NULL.
+     */
+    private static final class Dictionary {
+        private final Map<Object, Integer> codes = new HashMap<>();
+        private final List<String> labels = new ArrayList<>();
+
+        Dictionary() {
+            labels.add(null);
+        }
+
+        int encode(Object key, String label) {
+            if (key == null) {
+                return 0;
+            }
+            Integer code = codes.get(key);
+            if (code == null) {
+                code = labels.size();
+                codes.put(key, code);
+                labels.add(label);
+            } else if (label != null) {
+                // Подпись может измениться (например, переименование товара)
+                labels.set(code, label);
+            }
+            return code;
+        }
+
+        int lookup(Object key) {
+            Integer code = key != null ? codes.get(key) : null;
+            return code != null ? code : -1;
+        }
+
+        String label(int code) {
+            return labels.get(code);
+        }
+
+        int size() {
+            return labels.size();
+        }
+    }
+
+    /**
+     * Колонки, словари и битовые карты. Не потокобезопасен, защищается блокировкой куба.
+     */
+    static final class Store {
+        private int size;
+        private final int[][] columns = new int[DIMENSIONS.length][];
+        private int[] quantity;
+        private final Dictionary[] dictionaries = new Dictionary[DIMENSIONS.length];
+        @SuppressWarnings("unchecked")
+        private final List<long[]>[] bitmaps = new List[DIMENSIONS.length];
+        private final Map<UUID, int[]> rowsByOrder = new HashMap<>();
+        private LocalDateTime maxOrderDate;
+
+        Store() {
+            int capacity = 1024;
+            for (int d = 0; d < DIMENSIONS.length; d++) {
+                columns[d] = new int[capacity];
+                dictionaries[d] = new Dictionary();
+                bitmaps[d] = new ArrayList<>();
+            }
+            quantity = new int[capacity];
+        }
+
+        boolean containsOrder(UUID orderId) {
+            return rowsByOrder.containsKey(orderId);
+        }
+
+        void append(OrderFactRow fact) {
+            ensureCapacity(size + 1);
+            int row = size++;
+
+            set(Dimension.PRODUCT, row, fact.getProductId(), fact.getProductName());
+            set(Dimension.CATEGORY, row, fact.getCategoryId(), fact.getCategoryName());
+            set(Dimension.BRAND, row, fact.getBrandId(), fact.getBrandName());
+            set(Dimension.GENDER, row, fact.getGender(), fact.getGender());
+            set(Dimension.AGE_BUCKET, row, fact.getAgeBucket(), fact.getAgeBucket());
+            Integer month = fact.getOrderDate() != null ? fact.getOrderDate().getMonthValue() : null;
+            set(Dimension.MONTH, row, month, month != null ? String.valueOf(month) : null);
+            set(Dimension.STATUS, row, fact.getStatusName(), fact.getStatusName());
+            set(Dimension.CITY, row, fact.getCityId(), fact.getCityName());
+            quantity[row] = fact.getQuantity();
+
+            int[] orderRows = rowsByOrder.get(fact.getOrderId());
+            if (orderRows == null) {
+                orderRows = new int[] {row};
+            } else {
+                orderRows = Arrays.copyOf(orderRows, orderRows.length + 1);
+                orderRows[orderRows.length - 1] = row;
+            }
+            rowsByOrder.put(fact.getOrderId(), orderRows);
+
+            if (fact.getOrderDate() != null
+                    && (maxOrderDate == null || fact.getOrderDate().isAfter(maxOrderDate))) {
+                maxOrderDate = fact.getOrderDate();
+            }
+        }
+
+        void updateStatus(UUID orderId, String statusName) {
+            int[] orderRows = rowsByOrder.get(orderId);
+            if (orderRows == null) {
+                return;
+            }
+            int d = Dimension.STATUS.ordinal();
+            int code = dictionaries[d].encode(statusName, statusName);
+            for (int row : orderRows) {
+                int old = columns[d][row];
+                if (old != code) {
+                    clearBit(bitmaps[d].get(old), row);
+                    columns[d][row] = code;
+                    setBit(d, code, row);
+                }
+            }
+        }
+
+        void removeOrder(UUID orderId) {
+            int[] orderRows = rowsByOrder.remove(orderId);
+            if (orderRows == null) {
+                return;
+            }
+            // Строка остаётся пустой: код 0 (NULL) во всех измерениях и нулевое количество
+            for (int row : orderRows) {
+                for (int d = 0; d < DIMENSIONS.length; d++) {
+                    int code = columns[d][row];
+                    if (code != 0) {
+                        clearBit(bitmaps[d].get(code), row);
+                        columns[d][row] = 0;
+                    }
+                }
+                quantity[row] = 0;
+            }
+        }
+
+        List<UUID> openOrderIds() {
+            int d = Dimension.STATUS.ordinal();
+            List<UUID> ids = new ArrayList<>();
+            for (Map.Entry<UUID, int[]> entry : rowsByOrder.entrySet()) {
+                String status = dictionaries[d].label(columns[d][entry.getValue()[0]]);
+                if (!FINAL_STATUSES.contains(status)) {
+                    ids.add(entry.getKey());
+                }
+            }
+            return ids;
+        }
+
+        List<PieItemDto> sumQuantity(Dimension groupBy, Map<Dimension, ? extends Collection<?>> filters) {
+            long[] selection = null;
+            for (Map.Entry<Dimension, ? extends Collection<?>> filter : filters.entrySet()) {
+                long[] matched = union(filter.getKey(), filter.getValue());
+                selection = selection == null ? matched : intersect(selection, matched);
+            }
+
+            int g = groupBy.ordinal();
+            int[] groupColumn = columns[g];
+            long[] sums = new long[dictionaries[g].size()];
+            if (selection == null) {
+                for (int row = 0; row < size; row++) {
+                    sums[groupColumn[row]] += quantity[row];
+                }
+            } else {
+                for (int w = 0; w < selection.length; w++) {
+                    long word = selection[w];
+                    while (word != 0) {
+                        int row = (w << 6) + Long.numberOfTrailingZeros(word);
+                        sums[groupColumn[row]] += quantity[row];
+                        word &= word - 1;
+                    }
+                }
+            }
+
+            // Группировка по подписи: у разных товаров может совпадать название
+            Map<String, Long> byLabel = new HashMap<>();
+            for (int code = 1; code < sums.length; code++) {
+                if (sums[code] != 0) {
+                    byLabel.merge(dictionaries[g].label(code), sums[code], Long::sum);
+                }
+            }
+            List<PieItemDto> result = new ArrayList<>(byLabel.size());
+            byLabel.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                    .forEach(e -> {
+                        PieItemDto dto = new PieItemDto();
+                        dto.setLabel(e.getKey());
+                        dto.setValue(BigDecimal.valueOf(e.getValue()));
+                        result.add(dto);
+                    });
+            return result;
+        }
+
+        private long[] union(Dimension dimension, Collection<?> keys) {
+            int d = dimension.ordinal();
+            long[] result = new long[wordCount(size)];
+            for (Object key : keys) {
+                int code = dictionaries[d].lookup(key);
+                if (code <= 0 || code >= bitmaps[d].size()) {
+                    continue;
+                }
+                long[] bitmap = bitmaps[d].get(code);
+                int n = Math.min(bitmap.length, result.length);
+                for (int w = 0; w < n; w++) {
+                    result[w] |= bitmap[w];
+                }
+            }
+            return result;
+        }
+
+        private static long[] intersect(long[] a, long[] b) {
+            for (int w = 0; w < a.length; w++) {
+                a[w] &= b[w];
+            }
+            return a;
+        }
+
+        private void set(Dimension dimension, int row, Object key, String label) {
+            int d = dimension.ordinal();
+            int code = dictionaries[d].encode(key, label);
+            columns[d][row] = code;
+            setBit(d, code, row);
+        }
+
+        private void setBit(int d, int code, int row) {
+            List<long[]> maps = bitmaps[d];
+            while (maps.size() <= code) {
+                maps.add(new long[0]);
+            }
+            long[] bitmap = maps.get(code);
+            int word = row >>> 6;
+            if (word >= bitmap.length) {
+                bitmap = Arrays.copyOf(bitmap, Math.max(word + 1, bitmap.length * 2));
+                maps.set(code, bitmap);
+            }
+            bitmap[word] |= 1L << row;
+        }
+
+        private static void clearBit(long[] bitmap, int row) {
+            int word = row >>> 6;
+            if (word < bitmap.length) {
+                bitmap[word] &= ~(1L << row);
+            }
+        }
+
+        private void ensureCapacity(int required) {
+            int capacity = quantity.length;
+            if (required <= capacity) {
+                return;
+            }
+            int newCapacity = Math.max(required, capacity * 2);
+            for (int d = 0; d < DIMENSIONS.length; d++) {
+                columns[d] = Arrays.copyOf(columns[d], newCapacity);
+            }
+            quantity = Arrays.copyOf(quantity, newCapacity);
+        }
+
+        private static int wordCount(int rows) {
+            return (rows + 63) >>> 6;
+        }
+    }
+}
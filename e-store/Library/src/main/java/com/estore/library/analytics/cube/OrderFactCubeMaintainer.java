@@ -0,0 +1,128 @@
+package com.estore.library.analytics.cube;
+
+import com.estore.library.event.OrderCreatedEvent;
+import com.estore.library.event.OrderDeletedEvent;
+import com.estore.library.event.OrderStatusChangedEvent;
+import com.estore.library.repository.analyze.OrderFactRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Наполнение {@link OrderFactCube}: полная загрузка при старте и по ночам,
+ * дозагрузка по событиям заказов этой JVM и периодический опрос БД для заказов,
+ * созданных, изменённых или удалённых другим приложением.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "analytics.cube.enabled", havingValue = "true")
+public class OrderFactCubeMaintainer {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderFactCubeMaintainer.class);
+
+    // Запас на транзакции, закоммиченные позже более новых заказов
+    private static final long CATCH_UP_SLACK_MINUTES = 5;
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final OrderFactCube cube;
+    private final OrderFactRepository orderFactRepository;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        rebuild();
+    }
+
+    /**
+     * Полная перезагрузка: заодно обновляются возрастные группы (из customer_segment) и подписи
+     */
+    @Scheduled(cron = "${analytics.cube.rebuild-cron:0 30 3 * * *}")
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        LocalDateTime startedAt = LocalDateTime.now();
+
+        OrderFactCube.Store store = cube.newStore();
+        orderFactRepository.streamAll(store::append);
+        cube.replace(store);
+
+        // События, пришедшие во время загрузки, применены к старому набору
+        catchUp(startedAt.minusMinutes(CATCH_UP_SLACK_MINUTES));
+        logger.info("Order fact cube loaded in {} ms: {}", System.currentTimeMillis() - start, cube.getStatistics());
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.cube.poll-ms:30000}",
+            initialDelayString = "${analytics.cube.poll-ms:30000}")
+    public void poll() {
+        if (!cube.isReady()) {
+            return;
+        }
+        LocalDateTime maxOrderDate = cube.getMaxOrderDate();
+        catchUp(maxOrderDate != null ? maxOrderDate.minusMinutes(CATCH_UP_SLACK_MINUTES) : EPOCH);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderCreated(OrderCreatedEvent event) {
+        if (!cube.isReady()) {
+            return;
+        }
+        UUID orderId = event.getOrderId();
+        cube.addOrder(orderId, orderFactRepository.findByOrderId(orderId));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        if (!cube.isReady()) {
+            return;
+        }
+        if (cube.containsOrder(event.getOrderId())) {
+            cube.updateStatus(event.getOrderId(), event.getNewStatus());
+        } else {
+            cube.addOrder(event.getOrderId(), orderFactRepository.findByOrderId(event.getOrderId()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderDeleted(OrderDeletedEvent event) {
+        if (!cube.isReady()) {
+            return;
+        }
+        cube.removeOrder(event.getOrderId());
+    }
+
+    private synchronized void catchUp(LocalDateTime since) {
+        Map<UUID, List<OrderFactRow>> created = new LinkedHashMap<>();
+        orderFactRepository.streamCreatedAfter(since, row -> {
+            if (!cube.containsOrder(row.getOrderId())) {
+                created.computeIfAbsent(row.getOrderId(), id -> new ArrayList<>()).add(row);
+            }
+        });
+        created.forEach(cube::addOrder);
+
+        List<UUID> open = cube.getOpenOrderIds();
+        if (!open.isEmpty()) {
+            Map<UUID, String> statuses = orderFactRepository.findStatusNames(open);
+            statuses.forEach(cube::updateStatus);
+            // Незавершённых заказов, которых нет в БД, удалили (в том числе другим приложением)
+            for (UUID orderId : open) {
+                if (!statuses.containsKey(orderId)) {
+                    cube.removeOrder(orderId);
+                }
+            }
+        }
+        if (!created.isEmpty()) {
+            logger.debug("Order fact cube caught up {} new orders", created.size());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.estore.library.analytics.cube;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Строка заказа вместе с измерениями для загрузки в куб
+ */
+@Getter
+@AllArgsConstructor
+public class OrderFactRow {
+    private final UUID orderId;
+    private final UUID productId;
+    private final String productName;
+    private final Integer categoryId;
+    private final String categoryName;
+    private final Integer brandId;
+    private final String brandName;
+    private final String gender;
+    private final String ageBucket;
+    private final LocalDateTime orderDate;
+    private final String statusName;
+    private final Integer cityId;
+    private final String cityName;
+    private final int quantity;
+    private final BigDecimal unitPrice;
+    private final UUID userId;
+}
@@ -0,0 +1,19 @@
+package com.estore.library.analytics.forecast;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Прогноз выбранной модели на horizon шагов вперёд с интервалами
+ */
+@Getter
+@AllArgsConstructor
+public class ForecastResult {
+    private final String model;
+    private final String parameters;
+    /** Среднеквадратичная ошибка прогноза на один шаг по истории (NaN, если оценить нельзя) */
+    private final double rmse;
+    private final double[] point;
+    private final double[] lower;
+    private final double[] upper;
+}
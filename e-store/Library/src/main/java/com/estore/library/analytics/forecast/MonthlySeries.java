@@ -0,0 +1,20 @@
+package com.estore.library.analytics.forecast;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.YearMonth;
+
+/**
+ * Помесячный ряд без пропусков: values[i] относится к месяцу start + i
+ */
+@Getter
+@AllArgsConstructor
+public class MonthlySeries {
+    private final YearMonth start;
+    private final double[] values;
+
+    public YearMonth end() {
+        return start.plusMonths(values.length - 1L);
+    }
+}
@@ -0,0 +1,241 @@
+package com.estore.library.analytics.forecast;
+
+import java.util.Arrays;
+
+/**
+ * Модели прогноза месячного ряда продаж на примитивных массивах.
+ * <p>
+ * Кандидаты: скользящее среднее, простое экспоненциальное сглаживание (SES),
+ * линейный тренд Холта и аддитивная модель Холта-Винтерса (сезон 12, при
+ * истории от двух сезонов). Параметры подбираются перебором по сетке, модель
+ * выбирается по RMSE прогноза на один шаг вперёд по истории. Интервалы —
+ * нормальное приближение: point ± z·rmse·√k для шага k.
+ */
+public final class SalesForecastEngine {
+
+    public static final int SEASON_LENGTH = 12;
+    /** z для 95% интервала */
+    public static final double Z_95 = 1.96;
+
+    private static final double[] SMOOTHING_GRID = {0.05, 0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.8, 0.9};
+    private static final double[] SEASONAL_GRID = {0.1, 0.3, 0.5, 0.7, 0.9};
+
+    private SalesForecastEngine() {
+    }
+
+    /**
+     * Скользящее среднее за O(n): элементы до заполнения окна — NaN
+     */
+    public static double[] movingAverage(double[] y, int window) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("Window size must be positive");
+        }
+        double[] result = new double[y.length];
+        double sum = 0;
+        for (int i = 0; i < y.length; i++) {
+            sum += y[i];
+            if (i >= window) {
+                sum -= y[i - window];
+            }
+            result[i] = i + 1 >= window ? sum / window : Double.NaN;
+        }
+        return result;
+    }
+
+    /**
+     * Подобрать модель и построить прогноз на horizon месяцев
+     */
+    public static ForecastResult forecast(double[] y, int window, int horizon) {
+        if (horizon <= 0) {
+            throw new IllegalArgumentException("Horizon must be positive");
+        }
+        int n = y.length;
+        if (n == 0) {
+            return new ForecastResult("NONE", "", Double.NaN, new double[0], new double[0], new double[0]);
+        }
+        if (n == 1) {
+            double[] flat = filled(horizon, y[0]);
+            return new ForecastResult("NAIVE", "", Double.NaN, flat, flat.clone(), flat.clone());
+        }
+
+        Candidate best = sma(y, Math.min(Math.max(window, 1), n - 1), horizon);
+        best = better(best, ses(y, horizon));
+        if (n >= 3) {
+            best = better(best, holt(y, horizon));
+        }
+        if (n >= 2 * SEASON_LENGTH) {
+            best = better(best, holtWinters(y, horizon));
+        }
+
+        double[] lower = new double[horizon];
+        double[] upper = new double[horizon];
+        for (int k = 0; k < horizon; k++) {
+            double point = Math.max(best.point[k], 0);
+            double width = Z_95 * best.rmse * Math.sqrt(k + 1);
+            best.point[k] = point;
+            lower[k] = Math.max(point - width, 0);
+            upper[k] = point + width;
+        }
+        return new ForecastResult(best.model, best.parameters, best.rmse, best.point, lower, upper);
+    }
+
+    private static final class Candidate {
+        final String model;
+        final String parameters;
+        final double rmse;
+        final double[] point;
+
+        Candidate(String model, String parameters, double rmse, double[] point) {
+            this.model = model;
+            this.parameters = parameters;
+            this.rmse = rmse;
+            this.point = point;
+        }
+    }
+
+    private static Candidate better(Candidate a, Candidate b) {
+        if (b == null || Double.isNaN(b.rmse)) return a;
+        if (a == null || Double.isNaN(a.rmse)) return b;
+        return b.rmse < a.rmse ? b : a;
+    }
+
+    private static Candidate sma(double[] y, int window, int horizon) {
+        double sum = 0;
+        double sse = 0;
+        int errors = 0;
+        for (int t = 0; t < y.length; t++) {
+            if (t >= window) {
+                double error = y[t] - sum / window;
+                sse += error * error;
+                errors++;
+                sum -= y[t - window];
+            }
+            sum += y[t];
+        }
+        return new Candidate("SMA", "window=" + window, rmse(sse, errors), filled(horizon, sum / window));
+    }
+
+    private static Candidate ses(double[] y, int horizon) {
+        double bestSse = Double.MAX_VALUE;
+        double bestAlpha = 0;
+        double bestLevel = 0;
+        for (double alpha : SMOOTHING_GRID) {
+            double level = y[0];
+            double sse = 0;
+            for (int t = 1; t < y.length; t++) {
+                double error = y[t] - level;
+                sse += error * error;
+                level += alpha * error;
+            }
+            if (sse < bestSse) {
+                bestSse = sse;
+                bestAlpha = alpha;
+                bestLevel = level;
+            }
+        }
+        return new Candidate("SES", "alpha=" + bestAlpha, rmse(bestSse, y.length - 1), filled(horizon, bestLevel));
+    }
+
+    private static Candidate holt(double[] y, int horizon) {
+        double bestSse = Double.MAX_VALUE;
+        double bestAlpha = 0, bestBeta = 0, bestLevel = 0, bestTrend = 0;
+        for (double alpha : SMOOTHING_GRID) {
+            for (double beta : SMOOTHING_GRID) {
+                double level = y[0];
+                double trend = y[1] - y[0];
+                double sse = 0;
+                for (int t = 1; t < y.length; t++) {
+                    double error = y[t] - (level + trend);
+                    if (t >= 2) {
+                        sse += error * error;
+                    }
+                    double previous = level;
+                    level = alpha * y[t] + (1 - alpha) * (level + trend);
+                    trend = beta * (level - previous) + (1 - beta) * trend;
+                }
+                if (sse < bestSse) {
+                    bestSse = sse;
+                    bestAlpha = alpha;
+                    bestBeta = beta;
+                    bestLevel = level;
+                    bestTrend = trend;
+                }
+            }
+        }
+        double[] point = new double[horizon];
+        for (int k = 0; k < horizon; k++) {
+            point[k] = bestLevel + (k + 1) * bestTrend;
+        }
+        return new Candidate("HOLT", "alpha=" + bestAlpha + ",beta=" + bestBeta,
+                rmse(bestSse, y.length - 2), point);
+    }
+
+    private static Candidate holtWinters(double[] y, int horizon) {
+        int m = SEASON_LENGTH;
+        int n = y.length;
+
+        double firstMean = 0, secondMean = 0;
+        for (int i = 0; i < m; i++) {
+            firstMean += y[i];
+            secondMean += y[i + m];
+        }
+        firstMean /= m;
+        secondMean /= m;
+        double initialTrend = (secondMean - firstMean) / m;
+
+        double[] seasonal = new double[n];
+        double[] bestSeasonal = new double[n];
+        double bestSse = Double.MAX_VALUE;
+        double bestAlpha = 0, bestBeta = 0, bestGamma = 0, bestLevel = 0, bestTrend = 0;
+
+        for (double alpha : SEASONAL_GRID) {
+            for (double beta : SEASONAL_GRID) {
+                for (double gamma : SEASONAL_GRID) {
+                    // Начальные уровень и сезонность — относительно линии тренда первого сезона
+                    for (int i = 0; i < m; i++) {
+                        seasonal[i] = y[i] - (firstMean + initialTrend * (i - (m - 1) / 2.0));
+                    }
+                    double level = firstMean + initialTrend * (m - 1) / 2.0;
+                    double trend = initialTrend;
+                    double sse = 0;
+                    for (int t = m; t < n; t++) {
+                        double season = seasonal[t - m];
+                        double error = y[t] - (level + trend + season);
+                        sse += error * error;
+                        double previous = level;
+                        level = alpha * (y[t] - season) + (1 - alpha) * (level + trend);
+                        trend = beta * (level - previous) + (1 - beta) * trend;
+                        seasonal[t] = gamma * (y[t] - level) + (1 - gamma) * season;
+                    }
+                    if (sse < bestSse) {
+                        bestSse = sse;
+                        bestAlpha = alpha;
+                        bestBeta = beta;
+                        bestGamma = gamma;
+                        bestLevel = level;
+                        bestTrend = trend;
+                        System.arraycopy(seasonal, 0, bestSeasonal, 0, n);
+                    }
+                }
+            }
+        }
+
+        double[] point = new double[horizon];
+        for (int k = 0; k < horizon; k++) {
+            point[k] = bestLevel + (k + 1) * bestTrend + bestSeasonal[n - m + (k % m)];
+        }
+        return new Candidate("HOLT_WINTERS",
+                "alpha=" + bestAlpha + ",beta=" + bestBeta + ",gamma=" + bestGamma + ",season=" + m,
+                rmse(bestSse, n - m), point);
+    }
+
+    private static double rmse(double sse, int count) {
+        return count > 0 ? Math.sqrt(sse / count) : Double.NaN;
+    }
+
+    private static double[] filled(int length, double value) {
+        double[] result = new double[length];
+        Arrays.fill(result, value);
+        return result;
+    }
+}
@@ -0,0 +1,41 @@
+package com.estore.library.analytics.forecast;
+
+import com.estore.library.service.SalesForecastService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ночной пересчёт прогнозов продаж (включается только в одном приложении)
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "analytics.forecast.scheduler.enabled", havingValue = "true")
+public class SalesForecastScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesForecastScheduler.class);
+
+    private final SalesForecastService salesForecastService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recomputeOnStartup() {
+        recompute();
+    }
+
+    @Scheduled(cron = "${analytics.forecast.cron:0 0 4 * * *}")
+    public void recompute() {
+        long start = System.currentTimeMillis();
+        try {
+            int categories = salesForecastService.recomputeAll();
+            logger.info("Sales forecasts recomputed for {} categories in {} ms",
+                    categories, System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            logger.error("Sales forecast recomputation failed", e);
+        }
+    }
+}
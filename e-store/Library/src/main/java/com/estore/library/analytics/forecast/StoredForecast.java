@@ -0,0 +1,19 @@
+package com.estore.library.analytics.forecast;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+/**
+ * Сохранённый ночной прогноз категории
+ */
+@Getter
+@AllArgsConstructor
+public class StoredForecast {
+    private final YearMonth historyEnd;
+    private final YearMonth firstPeriod;
+    private final ForecastResult result;
+    private final LocalDateTime computedAt;
+}
@@ -0,0 +1,136 @@
+package com.estore.library.analytics.live;
+
+import com.estore.library.dto.analyze.dto.LiveMetricDto;
+import com.estore.library.dto.analyze.dto.LiveSnapshotDto;
+import com.estore.library.event.CartItemAddedEvent;
+import com.estore.library.event.OrderCreatedEvent;
+import com.estore.library.event.OrderStatusChangedEvent;
+import com.estore.library.event.UserLoggedInEvent;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Оперативные счётчики событий магазина (минута / час / сутки) в памяти.
+ * <p>
+ * Счётчики заполняются доменными событиями после коммита, чтение снимка
+ * не обращается к БД. События другого приложения (Customer) доставляются
+ * через LiveEventRelayPublisher / LiveEventRelayListener.
+ */
+@Component
+public class LiveAnalytics {
+
+    public enum Metric {
+        ORDERS_CREATED,
+        ORDER_STATUS_CHANGES,
+        ORDERS_DELIVERED,
+        ORDERS_CANCELLED,
+        CART_ITEMS_ADDED,
+        LOGINS
+    }
+
+    private static final long SECOND = 1000L;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long HOUR = 60 * MINUTE;
+
+    private final Map<Metric, Windows> windows = new EnumMap<>(Metric.class);
+    private final ObjectProvider<LiveEventRelayPublisher> relayPublisher;
+
+    public LiveAnalytics(ObjectProvider<LiveEventRelayPublisher> relayPublisher) {
+        this.relayPublisher = relayPublisher;
+        for (Metric metric : Metric.values()) {
+            windows.put(metric, new Windows());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderCreated(OrderCreatedEvent event) {
+        record(Metric.ORDERS_CREATED, 1);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        record(Metric.ORDER_STATUS_CHANGES, 1);
+        if ("DELIVERED".equals(event.getNewStatus())) {
+            record(Metric.ORDERS_DELIVERED, 1);
+        } else if ("CANCELLED".equals(event.getNewStatus())) {
+            record(Metric.ORDERS_CANCELLED, 1);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCartItemAdded(CartItemAddedEvent event) {
+        record(Metric.CART_ITEMS_ADDED, event.getQuantity());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserLoggedIn(UserLoggedInEvent event) {
+        record(Metric.LOGINS, 1);
+    }
+
+    /**
+     * Учесть событие этого приложения и передать его другим приложениям (если включено)
+     */
+    public void record(Metric metric, long amount) {
+        apply(metric, amount);
+        LiveEventRelayPublisher publisher = relayPublisher.getIfAvailable();
+        if (publisher != null) {
+            publisher.enqueue(metric, amount);
+        }
+    }
+
+    /**
+     * Учесть событие локально, без ретрансляции
+     */
+    public void apply(Metric metric, long amount) {
+        windows.get(metric).add(amount, System.currentTimeMillis());
+    }
+
+    /**
+     * Текущее состояние всех счётчиков
+     */
+    public LiveSnapshotDto snapshot() {
+        long now = System.currentTimeMillis();
+        List<LiveMetricDto> metrics = new ArrayList<>(windows.size());
+        for (Map.Entry<Metric, Windows> entry : windows.entrySet()) {
+            Windows w = entry.getValue();
+            long[] hourly = w.day.series(now);
+            List<Long> hourlyList = new ArrayList<>(hourly.length);
+            for (long value : hourly) {
+                hourlyList.add(value);
+            }
+
+            LiveMetricDto dto = new LiveMetricDto();
+            dto.setMetric(entry.getKey().name());
+            dto.setLastMinute(w.minute.sum(now));
+            dto.setLastHour(w.hour.sum(now));
+            dto.setLastDay(w.day.sum(now));
+            dto.setHourly(hourlyList);
+            metrics.add(dto);
+        }
+
+        LiveSnapshotDto snapshot = new LiveSnapshotDto();
+        snapshot.setTimestamp(LocalDateTime.now());
+        snapshot.setMetrics(metrics);
+        return snapshot;
+    }
+
+    // Минута по секундам, час по минутам, сутки по часам
+    private static final class Windows {
+        private final SlidingWindowCounter minute = new SlidingWindowCounter(SECOND, 60);
+        private final SlidingWindowCounter hour = new SlidingWindowCounter(MINUTE, 60);
+        private final SlidingWindowCounter day = new SlidingWindowCounter(HOUR, 24);
+
+        void add(long amount, long now) {
+            minute.add(amount, now);
+            hour.add(amount, now);
+            day.add(amount, now);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.estore.library.analytics.live;
+
+import com.estore.library.dto.analyze.dto.LiveSnapshotDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Рассылка снимков оперативных счётчиков подписчикам SSE.
+ * Один снимок на тик для всех подписчиков, без обращений к БД.
+ */
+@Component
+@ConditionalOnProperty(name = "analytics.live.stream.enabled", havingValue = "true")
+public class LiveDashboardBroadcaster {
+
+    private static final String EVENT_NAME = "snapshot";
+
+    private final LiveAnalytics liveAnalytics;
+    private final long emitterTimeoutMillis;
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    public LiveDashboardBroadcaster(LiveAnalytics liveAnalytics,
+                                    @Value("${analytics.live.stream.timeout-ms:1800000}") long emitterTimeoutMillis) {
+        this.liveAnalytics = liveAnalytics;
+        this.emitterTimeoutMillis = emitterTimeoutMillis;
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(e -> emitters.remove(emitter));
+        emitters.add(emitter);
+        send(emitter, liveAnalytics.snapshot());
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return emitters.size();
+    }
+
+    @Scheduled(fixedRateString = "${analytics.live.tick-ms:500}")
+    public void tick() {
+        if (emitters.isEmpty()) {
+            return;
+        }
+        LiveSnapshotDto snapshot = liveAnalytics.snapshot();
+        for (SseEmitter emitter : emitters) {
+            send(emitter, snapshot);
+        }
+    }
+
+    private void send(SseEmitter emitter, LiveSnapshotDto snapshot) {
+        try {
+            emitter.send(SseEmitter.event().name(EVENT_NAME).data(snapshot));
+        } catch (IOException | IllegalStateException e) {
+            // Клиент отключился или эмиттер уже завершён
+            emitters.remove(emitter);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.estore.library.analytics.live;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Приём оперативных событий других приложений (LISTEN estore_live).
+ * <p>
+ * Держит одно соединение из пула на фоновом потоке; при обрыве
+ * переподключается. Включается в приложении с дашбордом (Admin).
+ */
+@Component
+@ConditionalOnProperty(name = "analytics.live.relay.listen", havingValue = "true")
+public class LiveEventRelayListener implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(LiveEventRelayListener.class);
+
+    private static final int POLL_MILLIS = 1000;
+    private static final long RECONNECT_MILLIS = 5000;
+
+    private final DataSource dataSource;
+    private final LiveAnalytics liveAnalytics;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public LiveEventRelayListener(DataSource dataSource, LiveAnalytics liveAnalytics) {
+        this.dataSource = dataSource;
+        this.liveAnalytics = liveAnalytics;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::listen, "live-event-relay");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public synchronized void destroy() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + LiveEventRelayPublisher.CHANNEL);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try {
+                    while (running) {
+                        PGNotification[] notifications = pgConnection.getNotifications(POLL_MILLIS);
+                        if (notifications == null) {
+                            continue;
+                        }
+                        for (PGNotification notification : notifications) {
+                            apply(notification.getParameter());
+                        }
+                    }
+                } finally {
+                    // Соединение возвращается в пул — подписка не должна на нём остаться
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("UNLISTEN *");
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                logger.warn("Live event relay connection lost, reconnecting: {}", e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void apply(String payload) {
+        try {
+            LiveEventRelayPublisher.decode(payload)
+                    .forEach(liveAnalytics::apply);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Ignoring live event payload '{}': {}", payload, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.estore.library.analytics.live;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Передача оперативных событий в другие приложения через PostgreSQL NOTIFY.
+ * <p>
+ * События копятся в памяти и отправляются одним уведомлением раз в
+ * analytics.live.relay.flush-ms, поэтому запросы покупателей не ждут БД.
+ * Включается в приложении, где происходят события (Customer).
+ */
+@Component
+@ConditionalOnProperty(name = "analytics.live.relay.publish", havingValue = "true")
+public class LiveEventRelayPublisher {
+
+    static final String CHANNEL = "estore_live";
+
+    private static final Logger logger = LoggerFactory.getLogger(LiveEventRelayPublisher.class);
+
+    private final Map<LiveAnalytics.Metric, LongAdder> pending = new EnumMap<>(LiveAnalytics.Metric.class);
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate notifyTx;
+
+    public LiveEventRelayPublisher(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.notifyTx = new TransactionTemplate(transactionManager);
+        this.notifyTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        for (LiveAnalytics.Metric metric : LiveAnalytics.Metric.values()) {
+            pending.put(metric, new LongAdder());
+        }
+    }
+
+    public void enqueue(LiveAnalytics.Metric metric, long amount) {
+        pending.get(metric).add(amount);
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.live.relay.flush-ms:500}")
+    public void flush() {
+        Map<LiveAnalytics.Metric, Long> batch = new EnumMap<>(LiveAnalytics.Metric.class);
+        for (Map.Entry<LiveAnalytics.Metric, LongAdder> entry : pending.entrySet()) {
+            long value = entry.getValue().sumThenReset();
+            if (value > 0) {
+                batch.put(entry.getKey(), value);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            String payload = encode(batch);
+            // NOTIFY доставляется слушателям только после коммита
+            notifyTx.executeWithoutResult(status ->
+                    jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", CHANNEL, payload));
+        } catch (DataAccessException e) {
+            logger.warn("Live event relay failed, will retry: {}", e.getMessage());
+            batch.forEach((metric, value) -> pending.get(metric).add(value));
+        }
+    }
+
+    /**
+     * Формат: METRIC=n,METRIC=n
+     */
+    static String encode(Map<LiveAnalytics.Metric, Long> batch) {
+        StringBuilder sb = new StringBuilder();
+        batch.forEach((metric, value) -> {
+            if (sb.length() > 0) sb.append(',');
+            sb.append(metric.name()).append('=').append(value);
+        });
+        return sb.toString();
+    }
+
+    static Map<LiveAnalytics.Metric, Long> decode(String payload) {
+        Map<LiveAnalytics.Metric, Long> batch = new EnumMap<>(LiveAnalytics.Metric.class);
+        if (payload == null || payload.isBlank()) {
+            return batch;
+        }
+        for (String part : payload.split(",")) {
+            int eq = part.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Malformed live event payload: " + payload);
+            }
+            batch.merge(LiveAnalytics.Metric.valueOf(part.substring(0, eq)),
+                    Long.parseLong(part.substring(eq + 1)), Long::sum);
+        }
+        return batch;
+    }
+}
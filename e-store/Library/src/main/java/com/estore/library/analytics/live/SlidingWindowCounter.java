@@ -0,0 +1,85 @@
+package com.estore.library.analytics.live;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Счётчик событий в скользящем окне без блокировок.
+ * <p>
+ * Окно — кольцо из bucketCount ячеек шириной bucketMillis. Каждая ячейка —
+ * один long: старшие 24 бита хранят номер интервала, младшие 40 — счётчик.
+ * Запись — CAS-цикл по одной ячейке: если номер интервала устарел, ячейка
+ * атомарно перезаписывается новым интервалом, иначе счётчик увеличивается.
+ * Чтение суммирует только ячейки, попадающие в окно.
+ */
+public class SlidingWindowCounter {
+
+    private static final int EPOCH_BITS = 24;
+    private static final int COUNT_BITS = 64 - EPOCH_BITS;
+    private static final long EPOCH_MASK = (1L << EPOCH_BITS) - 1;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    private final long bucketMillis;
+    private final int bucketCount;
+    private final AtomicLongArray cells;
+
+    public SlidingWindowCounter(long bucketMillis, int bucketCount) {
+        if (bucketMillis <= 0 || bucketCount <= 0 || bucketCount >= EPOCH_MASK) {
+            throw new IllegalArgumentException("Invalid window: " + bucketCount + " x " + bucketMillis + " ms");
+        }
+        this.bucketMillis = bucketMillis;
+        this.bucketCount = bucketCount;
+        this.cells = new AtomicLongArray(bucketCount);
+    }
+
+    public void add(long amount, long nowMillis) {
+        if (amount <= 0) {
+            return;
+        }
+        long epoch = nowMillis / bucketMillis;
+        int index = (int) (epoch % bucketCount);
+        long tag = epoch & EPOCH_MASK;
+        while (true) {
+            long cell = cells.get(index);
+            long updated = (cell >>> COUNT_BITS) == tag
+                    ? pack(tag, Math.min((cell & COUNT_MASK) + amount, COUNT_MASK))
+                    : pack(tag, Math.min(amount, COUNT_MASK));
+            if (cells.compareAndSet(index, cell, updated)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Сумма за всё окно (bucketCount интервалов, включая текущий)
+     */
+    public long sum(long nowMillis) {
+        long total = 0;
+        for (long value : series(nowMillis)) {
+            total += value;
+        }
+        return total;
+    }
+
+    /**
+     * Значения по интервалам окна, от самого старого к текущему
+     */
+    public long[] series(long nowMillis) {
+        long epoch = nowMillis / bucketMillis;
+        long[] result = new long[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            long slotEpoch = epoch - (bucketCount - 1 - i);
+            if (slotEpoch < 0) {
+                continue;
+            }
+            long cell = cells.get((int) (slotEpoch % bucketCount));
+            if ((cell >>> COUNT_BITS) == (slotEpoch & EPOCH_MASK)) {
+                result[i] = cell & COUNT_MASK;
+            }
+        }
+        return result;
+    }
+
+    private static long pack(long tag, long count) {
+        return (tag << COUNT_BITS) | count;
+    }
+}
@@ -0,0 +1,47 @@
+package com.estore.library.analytics.segment;
+
+import com.estore.library.analytics.AnalyticsCache;
+import com.estore.library.repository.bisentity.CustomerSegmentRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ежедневный пересчёт возрастных сегментов покупателей после дней рождения
+ * (включается только в одном приложении)
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "analytics.segments.scheduler.enabled", havingValue = "true")
+public class CustomerSegmentScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerSegmentScheduler.class);
+
+    private final CustomerSegmentRepository customerSegmentRepository;
+    private final AnalyticsCache analyticsCache;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void refreshOnStartup() {
+        refresh();
+    }
+
+    @Scheduled(cron = "${analytics.segments.cron:0 5 0 * * *}")
+    public void refresh() {
+        long start = System.currentTimeMillis();
+        try {
+            Integer updated = customerSegmentRepository.refreshDueSegments();
+            if (updated != null && updated > 0) {
+                analyticsCache.invalidate(AnalyticsCache.Region.CUSTOMERS);
+            }
+            logger.info("Customer segments refreshed: {} rows in {} ms",
+                    updated, System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            logger.error("Customer segment refresh failed", e);
+        }
+    }
+}
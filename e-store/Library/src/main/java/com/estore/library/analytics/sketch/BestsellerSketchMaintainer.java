@@ -0,0 +1,107 @@
+package com.estore.library.analytics.sketch;
+
+import com.estore.library.analytics.cube.OrderFactRow;
+import com.estore.library.event.OrderStatusChangedEvent;
+import com.estore.library.repository.analyze.OrderFactRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Наполнение {@link BestsellerSketches}: полная сборка при старте и по ночам,
+ * добавление заказа при переходе в DELIVERED. Space-Saving не поддерживает
+ * вычитание, поэтому отмена доставки помечает месяц для пересборки из БД.
+ * Заказы, доставленные другим приложением, учитываются ночной пересборкой.
+ * Пересборки и добавление заказа идут под одной блокировкой: пока пересборка
+ * читает БД, событие не добавляется напрямую, а помечает месяц.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "analytics.sketch.enabled", havingValue = "true")
+public class BestsellerSketchMaintainer {
+
+    private static final Logger logger = LoggerFactory.getLogger(BestsellerSketchMaintainer.class);
+
+    private static final String DELIVERED = "DELIVERED";
+
+    private final BestsellerSketches sketches;
+    private final OrderFactRepository orderFactRepository;
+
+    // Держится на время пересборки и добавления заказа; повторно входима (rebuild -> refreshDirtyMonths)
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(cron = "${analytics.sketch.rebuild-cron:0 45 3 * * *}")
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            long start = System.currentTimeMillis();
+            Map<YearMonth, BestsellerSketches.MonthSketch> store = sketches.newStore();
+            orderFactRepository.streamDelivered(row -> sketches.add(store, row));
+            sketches.replace(store);
+            refreshDirtyMonths();
+            logger.info("Bestseller sketches loaded in {} ms: {}", System.currentTimeMillis() - start,
+                    sketches.getStatistics());
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.sketch.refresh-ms:10000}",
+            initialDelayString = "${analytics.sketch.refresh-ms:10000}")
+    public void refreshDirtyMonths() {
+        rebuildLock.lock();
+        try {
+            for (YearMonth month : sketches.drainDirty()) {
+                Map<YearMonth, BestsellerSketches.MonthSketch> store = sketches.newStore();
+                orderFactRepository.streamDeliveredBetween(month.atDay(1).atStartOfDay(),
+                        month.plusMonths(1).atDay(1).atStartOfDay(), row -> sketches.add(store, row));
+                sketches.replaceMonth(month, store.get(month));
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        boolean delivered = DELIVERED.equals(event.getNewStatus());
+        boolean undelivered = DELIVERED.equals(event.getOldStatus()) && !delivered;
+        if (!delivered && !undelivered) {
+            return;
+        }
+        List<OrderFactRow> rows = orderFactRepository.findByOrderId(event.getOrderId());
+        if (rows.isEmpty() || rows.get(0).getOrderDate() == null) {
+            return;
+        }
+        YearMonth month = YearMonth.from(rows.get(0).getOrderDate());
+        // Идёт пересборка: заказ может попасть в неё или нет — повторим месяц, а не учтём дважды
+        if (undelivered || !rebuildLock.tryLock()) {
+            sketches.markDirty(month);
+            return;
+        }
+        try {
+            // До первой загрузки заказ будет прочитан ею
+            if (sketches.isReady()) {
+                rows.forEach(sketches::add);
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+}
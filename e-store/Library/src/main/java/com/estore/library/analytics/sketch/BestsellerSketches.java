@@ -0,0 +1,279 @@
+package com.estore.library.analytics.sketch;
+
+import com.estore.library.analytics.cube.OrderFactRow;
+import com.estore.library.dto.analyze.dto.TopKItemDto;
+import com.estore.library.dto.analyze.dto.TopKResultDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Помесячные скетчи продаж доставленных заказов (единицы товара).
+ * <p>
+ * Для каждого месяца и среза (товар / бренд / категория) хранятся Space-Saving
+ * (top-K с границей ошибки), Count-Min (независимая оценка сверху, уточняет
+ * Space-Saving) и HyperLogLog различных покупателей по каждой подписи.
+ * Запрос за период объединяет месячные скетчи: время зависит от числа месяцев
+ * и ёмкости, но не от числа заказов. Подписи совпадают с SQL-аналитикой
+ * (группировка по названию).
+ */
+@Component
+@ConditionalOnProperty(name = "analytics.sketch.enabled", havingValue = "true")
+public class BestsellerSketches {
+
+    public enum Scope {
+        PRODUCTS,
+        BRANDS,
+        CATEGORIES;
+
+        /**
+         * products / brands / categories, как в analyzeGeneric
+         */
+        public static Scope of(String scope) {
+            if (scope == null || scope.isBlank()) {
+                return PRODUCTS;
+            }
+            return switch (scope.toLowerCase()) {
+                case "products" -> PRODUCTS;
+                case "brands" -> BRANDS;
+                case "categories" -> CATEGORIES;
+                default -> throw new IllegalArgumentException("Unknown scope: " + scope);
+            };
+        }
+    }
+
+    private final int capacity;
+    private final int hllPrecision;
+    private final double cmsEpsilon;
+    private final double cmsDelta;
+
+    private volatile Map<YearMonth, MonthSketch> months = new ConcurrentSkipListMap<>();
+    private final Set<YearMonth> dirtyMonths = ConcurrentHashMap.newKeySet();
+    private volatile boolean ready;
+    private volatile LocalDateTime loadedAt;
+
+    public BestsellerSketches(@Value("${analytics.sketch.capacity:256}") int capacity,
+                              @Value("${analytics.sketch.hll-precision:10}") int hllPrecision,
+                              @Value("${analytics.sketch.cms-epsilon:0.002}") double cmsEpsilon,
+                              @Value("${analytics.sketch.cms-delta:0.01}") double cmsDelta) {
+        this.capacity = capacity;
+        this.hllPrecision = hllPrecision;
+        this.cmsEpsilon = cmsEpsilon;
+        this.cmsDelta = cmsDelta;
+        // Некорректные параметры скетчей — ошибка при старте, а не при первом заказе
+        new HyperLogLog(hllPrecision);
+        newMonth();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Учесть строку доставленного заказа
+     */
+    public void add(OrderFactRow fact) {
+        add(months, fact);
+    }
+
+    /**
+     * Учесть строку в наборе месяцев, который ещё не опубликован (полная/помесячная пересборка)
+     */
+    public void add(Map<YearMonth, MonthSketch> target, OrderFactRow fact) {
+        if (fact.getOrderDate() == null) {
+            return;
+        }
+        target.computeIfAbsent(YearMonth.from(fact.getOrderDate()), ym -> newMonth()).add(fact);
+    }
+
+    public Map<YearMonth, MonthSketch> newStore() {
+        return new ConcurrentSkipListMap<>();
+    }
+
+    public MonthSketch newMonth() {
+        return new MonthSketch(capacity, hllPrecision, cmsEpsilon, cmsDelta);
+    }
+
+    /**
+     * Заменить все месяцы новым набором
+     */
+    public void replace(Map<YearMonth, MonthSketch> store) {
+        months = store;
+        loadedAt = LocalDateTime.now();
+        ready = true;
+    }
+
+    /**
+     * Заменить один месяц (null — в месяце больше нет доставленных заказов)
+     */
+    public void replaceMonth(YearMonth month, MonthSketch sketch) {
+        if (sketch == null) {
+            months.remove(month);
+        } else {
+            months.put(month, sketch);
+        }
+    }
+
+    /**
+     * Месяц нужно пересобрать из БД (например, заказ перестал быть доставленным)
+     */
+    public void markDirty(YearMonth month) {
+        dirtyMonths.add(month);
+    }
+
+    public List<YearMonth> drainDirty() {
+        List<YearMonth> drained = new ArrayList<>();
+        for (YearMonth month : dirtyMonths) {
+            if (dirtyMonths.remove(month)) {
+                drained.add(month);
+            }
+        }
+        Collections.sort(drained);
+        return drained;
+    }
+
+    /**
+     * Приближённый top-K за месяцы [from, to] (null — без ограничения)
+     */
+    public TopKResultDto top(Scope scope, YearMonth from, YearMonth to, int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        SpaceSaving<String> heavy = null;
+        CountMinSketch units = null;
+        List<MonthSketch> selected = new ArrayList<>();
+        YearMonth first = null;
+        YearMonth last = null;
+        for (Map.Entry<YearMonth, MonthSketch> entry : months.entrySet()) {
+            YearMonth month = entry.getKey();
+            if ((from != null && month.isBefore(from)) || (to != null && month.isAfter(to))) {
+                continue;
+            }
+            MonthSketch sketch = entry.getValue();
+            synchronized (sketch) {
+                SpaceSaving<String> monthHeavy = sketch.heavy.get(scope);
+                CountMinSketch monthUnits = sketch.units.get(scope);
+                heavy = heavy == null ? monthHeavy.copy() : heavy.merge(monthHeavy);
+                units = units == null ? monthUnits.copy() : units.merge(monthUnits);
+            }
+            selected.add(sketch);
+            if (first == null) first = month;
+            last = month;
+        }
+
+        TopKResultDto result = new TopKResultDto();
+        result.setScope(scope.name().toLowerCase());
+        result.setExact(false);
+        result.setFromMonth(first != null ? first.toString() : null);
+        result.setToMonth(last != null ? last.toString() : null);
+        result.setDistinctBuyersRelativeError(new HyperLogLog(hllPrecision).getRelativeError());
+        if (heavy == null) {
+            result.setTotalUnits(0L);
+            result.setErrorBound(0L);
+            result.setItems(List.of());
+            return result;
+        }
+
+        // Count-Min — независимая оценка сверху: берём меньшую и ранжируем по ней
+        List<TopKItemDto> ranked = new ArrayList<>(heavy.size());
+        Map<String, Long> lowerBounds = new HashMap<>();
+        for (SpaceSaving.Entry<String> entry : heavy.top(heavy.size())) {
+            long upper = Math.min(entry.getCount(), units.estimate(entry.getItem()));
+            TopKItemDto item = new TopKItemDto();
+            item.setLabel(entry.getItem());
+            item.setUnits(upper);
+            item.setMaxError(Math.max(0, upper - entry.getLowerBound()));
+            ranked.add(item);
+            lowerBounds.put(entry.getItem(), entry.getLowerBound());
+        }
+        ranked.sort(Comparator.comparingLong(TopKItemDto::getUnits).reversed());
+
+        // Ни один элемент вне первых k (в том числе неотслеживаемый) не может превысить порог
+        long threshold = Math.max(heavy.floor(), ranked.size() > k ? ranked.get(k).getUnits() : 0);
+        List<TopKItemDto> items = new ArrayList<>(ranked.subList(0, Math.min(k, ranked.size())));
+        for (TopKItemDto item : items) {
+            item.setGuaranteed(lowerBounds.get(item.getLabel()) >= threshold);
+            item.setDistinctBuyers(distinctBuyers(selected, scope, item.getLabel()));
+        }
+        result.setTotalUnits(heavy.getTotal());
+        result.setErrorBound(Math.min(heavy.floor(), units.getErrorBound()));
+        result.setItems(items);
+        return result;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", ready);
+        stats.put("loadedAt", loadedAt);
+        stats.put("months", months.size());
+        stats.put("dirtyMonths", dirtyMonths.size());
+        stats.put("capacity", capacity);
+        stats.put("hllPrecision", hllPrecision);
+        stats.put("cmsEpsilon", cmsEpsilon);
+        stats.put("cmsDelta", cmsDelta);
+        return stats;
+    }
+
+    private static long distinctBuyers(List<MonthSketch> sketches, Scope scope, String label) {
+        HyperLogLog merged = null;
+        for (MonthSketch sketch : sketches) {
+            synchronized (sketch) {
+                HyperLogLog buyers = sketch.buyers.get(scope).get(label);
+                if (buyers != null) {
+                    merged = merged == null ? buyers.copy() : merged.merge(buyers);
+                }
+            }
+        }
+        return merged != null ? merged.estimate() : 0;
+    }
+
+    /**
+     * Скетчи одного месяца; изменяются и читаются под монитором объекта
+     */
+    public static final class MonthSketch {
+        private final Map<Scope, SpaceSaving<String>> heavy = new EnumMap<>(Scope.class);
+        private final Map<Scope, CountMinSketch> units = new EnumMap<>(Scope.class);
+        private final Map<Scope, Map<String, HyperLogLog>> buyers = new EnumMap<>(Scope.class);
+        private final int hllPrecision;
+
+        private MonthSketch(int capacity, int hllPrecision, double cmsEpsilon, double cmsDelta) {
+            this.hllPrecision = hllPrecision;
+            for (Scope scope : Scope.values()) {
+                heavy.put(scope, new SpaceSaving<>(capacity));
+                units.put(scope, new CountMinSketch(cmsEpsilon, cmsDelta));
+                buyers.put(scope, new HashMap<>());
+            }
+        }
+
+        synchronized void add(OrderFactRow fact) {
+            add(Scope.PRODUCTS, fact.getProductName(), fact);
+            add(Scope.BRANDS, fact.getBrandName(), fact);
+            add(Scope.CATEGORIES, fact.getCategoryName(), fact);
+        }
+
+        private void add(Scope scope, String label, OrderFactRow fact) {
+            if (label == null) {
+                return;
+            }
+            heavy.get(scope).offer(label, fact.getQuantity());
+            units.get(scope).add(label, fact.getQuantity());
+            if (fact.getUserId() != null) {
+                buyers.get(scope).computeIfAbsent(label, l -> new HyperLogLog(hllPrecision)).add(fact.getUserId());
+            }
+        }
+    }
+}
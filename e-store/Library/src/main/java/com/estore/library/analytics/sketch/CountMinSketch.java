@@ -0,0 +1,94 @@
+package com.estore.library.analytics.sketch;
+
+/**
+ * Count-Min Sketch: оценка суммы весов любого ключа сверху.
+ * <p>
+ * С вероятностью 1 - delta ошибка не превышает epsilon * total,
+ * где width = ceil(e / epsilon), depth = ceil(ln(1 / delta)).
+ * Скетчи одинакового размера объединяются сложением. Не потокобезопасен.
+ */
+public class CountMinSketch {
+
+    private final int depth;
+    private final int width;
+    private final long[][] table;
+    private long total;
+
+    public CountMinSketch(double epsilon, double delta) {
+        if (epsilon <= 0 || epsilon >= 1 || delta <= 0 || delta >= 1) {
+            throw new IllegalArgumentException("epsilon and delta must be in (0, 1)");
+        }
+        this.width = (int) Math.ceil(Math.E / epsilon);
+        this.depth = (int) Math.ceil(Math.log(1 / delta));
+        this.table = new long[depth][width];
+    }
+
+    private CountMinSketch(int depth, int width) {
+        this.depth = depth;
+        this.width = width;
+        this.table = new long[depth][width];
+    }
+
+    public void add(String key, long weight) {
+        if (weight <= 0) {
+            return;
+        }
+        long hash = SketchHash.hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int row = 0; row < depth; row++) {
+            table[row][index(h1, h2, row)] += weight;
+        }
+        total += weight;
+    }
+
+    public long estimate(String key) {
+        long hash = SketchHash.hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, table[row][index(h1, h2, row)]);
+        }
+        return min;
+    }
+
+    public CountMinSketch merge(CountMinSketch other) {
+        if (other.depth != depth || other.width != width) {
+            throw new IllegalArgumentException("Count-Min sketches have different dimensions");
+        }
+        CountMinSketch result = new CountMinSketch(depth, width);
+        for (int row = 0; row < depth; row++) {
+            for (int col = 0; col < width; col++) {
+                result.table[row][col] = table[row][col] + other.table[row][col];
+            }
+        }
+        result.total = total + other.total;
+        return result;
+    }
+
+    /**
+     * Верхняя граница ошибки оценки (epsilon * total)
+     */
+    public long getErrorBound() {
+        return (long) Math.ceil(Math.E / width * total);
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public CountMinSketch copy() {
+        CountMinSketch copy = new CountMinSketch(depth, width);
+        for (int row = 0; row < depth; row++) {
+            System.arraycopy(table[row], 0, copy.table[row], 0, width);
+        }
+        copy.total = total;
+        return copy;
+    }
+
+    // Двойное хеширование (Kirsch–Mitzenmacher): h1 + row * h2
+    private int index(int h1, int h2, int row) {
+        return Math.floorMod(h1 + row * h2, width);
+    }
+}
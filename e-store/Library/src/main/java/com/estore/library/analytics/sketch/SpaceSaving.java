@@ -0,0 +1,154 @@
+package com.estore.library.analytics.sketch;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Space-Saving: приближённый top-K по взвешенному потоку в памяти O(capacity).
+ * <p>
+ * Для каждого отслеживаемого элемента хранится оценка count (не меньше
+ * истинного значения) и ошибка error (count - error — гарантированный минимум).
+ * Пока различных элементов не больше capacity, подсчёт точный. Ошибка любого
+ * элемента не превышает total / capacity. Скетчи объединяются (mergeable
+ * summaries), что позволяет хранить их помесячно. Не потокобезопасен.
+ */
+public class SpaceSaving<T> {
+
+    private final int capacity;
+    private final Map<T, Counter> counters;
+    private long total;
+
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    public void offer(T item, long weight) {
+        if (weight <= 0) {
+            return;
+        }
+        total += weight;
+        Counter counter = counters.get(item);
+        if (counter != null) {
+            counter.count += weight;
+            return;
+        }
+        if (counters.size() < capacity) {
+            counters.put(item, new Counter(weight, 0));
+            return;
+        }
+        // Вытесняем минимальный счётчик, новый элемент наследует его значение как ошибку
+        T minItem = null;
+        Counter min = null;
+        for (Map.Entry<T, Counter> entry : counters.entrySet()) {
+            if (min == null || entry.getValue().count < min.count) {
+                min = entry.getValue();
+                minItem = entry.getKey();
+            }
+        }
+        counters.remove(minItem);
+        counters.put(item, new Counter(min.count + weight, min.count));
+    }
+
+    /**
+     * Объединение двух скетчей той же ёмкости (Agarwal et al., Mergeable Summaries)
+     */
+    public SpaceSaving<T> merge(SpaceSaving<T> other) {
+        long floorA = floor();
+        long floorB = other.floor();
+        Set<T> keys = new HashSet<>(counters.keySet());
+        keys.addAll(other.counters.keySet());
+
+        List<Map.Entry<T, Counter>> merged = new ArrayList<>(keys.size());
+        for (T key : keys) {
+            Counter a = counters.get(key);
+            Counter b = other.counters.get(key);
+            long count = (a != null ? a.count : floorA) + (b != null ? b.count : floorB);
+            long error = (a != null ? a.error : floorA) + (b != null ? b.error : floorB);
+            merged.add(Map.entry(key, new Counter(count, error)));
+        }
+        merged.sort(Comparator.comparingLong((Map.Entry<T, Counter> e) -> e.getValue().count).reversed());
+
+        SpaceSaving<T> result = new SpaceSaving<>(capacity);
+        result.total = total + other.total;
+        for (int i = 0; i < merged.size() && i < capacity; i++) {
+            result.counters.put(merged.get(i).getKey(), merged.get(i).getValue());
+        }
+        return result;
+    }
+
+    /**
+     * k элементов с наибольшей оценкой
+     */
+    public List<Entry<T>> top(int k) {
+        List<Entry<T>> entries = new ArrayList<>(counters.size());
+        counters.forEach((item, counter) -> entries.add(new Entry<>(item, counter.count, counter.error)));
+        entries.sort(Comparator.comparingLong((Entry<T> e) -> e.count).reversed());
+        return entries.size() > k ? new ArrayList<>(entries.subList(0, k)) : entries;
+    }
+
+    /**
+     * Верхняя граница ошибки для любого элемента (0, пока скетч не заполнен)
+     */
+    public long floor() {
+        if (counters.size() < capacity) {
+            return 0;
+        }
+        long min = Long.MAX_VALUE;
+        for (Counter counter : counters.values()) {
+            min = Math.min(min, counter.count);
+        }
+        return min;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    public SpaceSaving<T> copy() {
+        SpaceSaving<T> copy = new SpaceSaving<>(capacity);
+        copy.total = total;
+        counters.forEach((item, counter) -> copy.counters.put(item, new Counter(counter.count, counter.error)));
+        return copy;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Entry<T> {
+        private final T item;
+        private final long count;
+        private final long error;
+
+        /**
+         * Гарантированный минимум истинного значения
+         */
+        public long getLowerBound() {
+            return count - error;
+        }
+    }
+
+    private static final class Counter {
+        private long count;
+        private final long error;
+
+        Counter(long count, long error) {
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.estore.library.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Включает фоновые задачи (@Scheduled) библиотеки в Admin и Customer
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -4,11 +4,20 @@ package com.estore.library.dto.analyze.dto;
 import lombok.Data;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
 public class ForecastDto {
+    private List<String> months;                // Месяцы истории (YYYY-MM)
     private List<BigDecimal> monthlySales;      // Исторические продажи по месяцам
     private List<BigDecimal> movingAverage;     // Скользящее среднее
     private BigDecimal forecast;                // Прогноз на следующий месяц
+    private List<ForecastPointDto> forecastPoints; // Прогноз на горизонт с интервалами
+    private BigDecimal confidenceLevel;         // Уровень доверия интервалов
+    private String model;                       // Выбранная модель (SMA, SES, HOLT, HOLT_WINTERS)
+    private String modelParameters;             // Подобранные параметры модели
+    private BigDecimal rmse;                    // Ошибка модели на истории
+    private boolean precomputed;                // Прогноз взят из ночного расчёта
+    private LocalDateTime computedAt;           // Время расчёта прогноза
 }
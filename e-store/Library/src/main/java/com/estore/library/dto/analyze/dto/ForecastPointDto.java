@@ -0,0 +1,13 @@
+package com.estore.library.dto.analyze.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+public class ForecastPointDto {
+    private String period;          // Месяц прогноза (YYYY-MM)
+    private BigDecimal forecast;    // Точечный прогноз
+    private BigDecimal lowerBound;  // Нижняя граница интервала
+    private BigDecimal upperBound;  // Верхняя граница интервала
+}
@@ -0,0 +1,14 @@
+package com.estore.library.dto.analyze.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class LiveMetricDto {
+    private String metric;
+    private Long lastMinute;
+    private Long lastHour;
+    private Long lastDay;
+    private List<Long> hourly; // последние 24 часа, от старого к текущему
+}
@@ -0,0 +1,12 @@
+package com.estore.library.dto.analyze.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class LiveSnapshotDto {
+    private LocalDateTime timestamp;
+    private List<LiveMetricDto> metrics;
+}
@@ -0,0 +1,15 @@
+package com.estore.library.dto.analyze.dto;
+
+import lombok.Data;
+
+@Data
+public class RouteHubDto {
+    private Integer cityId;
+    private String cityName;
+    private Integer degree;                // число прямых маршрутов
+    private Double betweenness;            // доля кратчайших путей через город (0..1)
+    private Boolean articulationPoint;     // удаление города разрывает сеть
+    private Integer componentSize;
+    private Long deliveryLoad;             // заказы, чей маршрут проходит через город (включая склад и точку доставки)
+    private Long transitLoad;              // заказы, для которых город — промежуточный
+}
@@ -0,0 +1,19 @@
+package com.estore.library.dto.analyze.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class RouteNetworkDto {
+    private Integer cities;
+    private Integer routes;
+    private Integer components;
+    private Integer largestComponentSize;
+    private Long isolatedCities;
+    private Long unroutableOrders;         // заказы без маршрута склад -> город доставки
+    private Long computeMillis;
+    private List<RouteHubDto> bottlenecks; // по убыванию центральности
+    private List<RouteHubDto> articulationPoints;
+    private List<RouteHubDto> busiestHubs; // по убыванию нагрузки доставки
+}
@@ -0,0 +1,12 @@
+package com.estore.library.dto.analyze.dto;
+
+import lombok.Data;
+
+@Data
+public class TopKItemDto {
+    private String label;
+    private Long units;          // оценка сверху (в точном режиме — точное значение)
+    private Long maxError;       // units - maxError — гарантированный минимум
+    private Boolean guaranteed;  // элемент гарантированно входит в top-K
+    private Long distinctBuyers; // HyperLogLog-оценка числа различных покупателей
+}
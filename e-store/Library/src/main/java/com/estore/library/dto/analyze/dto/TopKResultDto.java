@@ -0,0 +1,17 @@
+package com.estore.library.dto.analyze.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class TopKResultDto {
+    private String scope;
+    private Boolean exact;
+    private String fromMonth;
+    private String toMonth;
+    private Long totalUnits;
+    private Long errorBound;               // максимальная ошибка units для любого элемента
+    private Double distinctBuyersRelativeError;
+    private List<TopKItemDto> items;
+}
@@ -0,0 +1,19 @@
+package com.estore.library.dto.order.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+public class DeliveryPlanDto {
+    private Integer orders;
+    private Integer trips;
+    private Integer tripCapacity;
+    private Integer assignedWarehouses;    // заказам без склада назначен ближайший
+    private BigDecimal totalDistanceKm;
+    private Long planMillis;
+    private List<WarehouseDeliveryPlanDto> warehouses;
+    private List<UUID> unassignedOrderIds; // заказы без склада-источника
+}
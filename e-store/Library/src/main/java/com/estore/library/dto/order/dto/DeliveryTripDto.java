@@ -0,0 +1,16 @@
+package com.estore.library.dto.order.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+public class DeliveryTripDto {
+    private List<Integer> cityIds;         // города по порядку объезда, без склада
+    private List<String> cityNames;
+    private List<List<UUID>> orderIds;     // заказы по каждому городу рейса
+    private Integer orders;
+    private BigDecimal distanceKm;         // кольцо склад -> города -> склад
+}
@@ -0,0 +1,15 @@
+package com.estore.library.dto.order.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Фильтр выгрузки заказов (те же параметры, что у списков заказов в админке)
+ */
+@Data
+public class OrderExportFilter {
+    private Integer statusId;
+    private LocalDateTime startDate;
+    private LocalDateTime endDate;
+}
@@ -0,0 +1,18 @@
+package com.estore.library.dto.order.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+public class WarehouseDeliveryPlanDto {
+    private Long warehouseId;
+    private String warehouseName;
+    private Integer cityId;
+    private Integer orders;
+    private BigDecimal totalDistanceKm;
+    private List<DeliveryTripDto> trips;
+    private List<UUID> unroutableOrderIds; // город доставки недостижим со склада
+}
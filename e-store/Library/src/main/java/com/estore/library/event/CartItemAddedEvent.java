@@ -0,0 +1,17 @@
+package com.estore.library.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Товар добавлен в корзину (публикуется внутри транзакции добавления)
+ */
+@Getter
+@AllArgsConstructor
+public class CartItemAddedEvent {
+    private final UUID userId;
+    private final UUID productId;
+    private final int quantity;
+}
@@ -0,0 +1,15 @@
+package com.estore.library.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Заказ создан (публикуется внутри транзакции создания)
+ */
+@Getter
+@AllArgsConstructor
+public class OrderCreatedEvent {
+    private final UUID orderId;
+}
@@ -0,0 +1,15 @@
+package com.estore.library.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Заказ удалён (публикуется внутри транзакции удаления)
+ */
+@Getter
+@AllArgsConstructor
+public class OrderDeletedEvent {
+    private final UUID orderId;
+}
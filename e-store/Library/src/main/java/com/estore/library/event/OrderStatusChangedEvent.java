@@ -0,0 +1,17 @@
+package com.estore.library.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Статус заказа изменён (публикуется внутри транзакции изменения)
+ */
+@Getter
+@AllArgsConstructor
+public class OrderStatusChangedEvent {
+    private final UUID orderId;
+    private final String oldStatus;
+    private final String newStatus;
+}
@@ -0,0 +1,16 @@
+package com.estore.library.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Пользователь вошёл в систему (публикуется внутри транзакции записи в login_log)
+ */
+@Getter
+@AllArgsConstructor
+public class UserLoggedInEvent {
+    private final UUID userId;
+    private final String source;
+}
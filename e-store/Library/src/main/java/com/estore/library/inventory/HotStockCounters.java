@@ -0,0 +1,234 @@
+package com.estore.library.inventory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Доступный к продаже остаток «горячих» товаров в памяти.
+ * <p>
+ * Списание — CAS по счётчику товара, без блокировки строки product: оформления
+ * одного товара не ждут друг друга. Для сверки с БД у счётчика есть число
+ * списаний, ещё не зафиксированных транзакцией (inFlight), и число изменений,
+ * уже видимых в БД (completions). Сверка ставит счётчик в «остаток в БД минус
+ * inFlight» одним CAS и пропускает товар, если за время чтения БД что-то
+ * зафиксировалось, — поэтому расхождение может быть только в меньшую сторону
+ * и исправляется следующей сверкой.
+ * <p>
+ * Новый горячий товар заводится в два шага: {@link #beginSeeding} — с этого
+ * момента списание с product по нему не должно фиксироваться (см.
+ * {@link #isHotOrSeeding}), затем {@link #seed} остатком, прочитанным под
+ * блокировкой строки, и {@link #endSeeding}.
+ */
+public final class HotStockCounters {
+
+    private static final class Counter {
+
+        final AtomicInteger available;
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicLong completions = new AtomicLong();
+
+        Counter(int available) {
+            this.available = new AtomicInteger(available);
+        }
+
+        boolean take(int quantity) {
+            int current;
+            do {
+                current = available.get();
+                if (current < quantity) {
+                    return false;
+                }
+            } while (!available.compareAndSet(current, current - quantity));
+            return true;
+        }
+    }
+
+    /**
+     * Списание под одну транзакцию; missing — товары, которых не хватило (тогда ничего не списано)
+     */
+    public static final class Consumption {
+
+        private final Counter[] counters;
+        private final int[] amounts;
+        private final List<UUID> missing;
+
+        private Consumption(Counter[] counters, int[] amounts, List<UUID> missing) {
+            this.counters = counters;
+            this.amounts = amounts;
+            this.missing = missing;
+        }
+
+        public boolean isComplete() {
+            return missing.isEmpty();
+        }
+
+        public List<UUID> missing() {
+            return missing;
+        }
+
+        /**
+         * Транзакция зафиксирована: списание видно в БД как невычтенный резерв
+         */
+        public void committed() {
+            for (int i = 0; i < counters.length; i++) {
+                counters[i].completions.incrementAndGet();
+                counters[i].inFlight.addAndGet(-amounts[i]);
+            }
+        }
+
+        /**
+         * Транзакция откатилась: вернуть списанное
+         */
+        public void rolledBack() {
+            for (int i = 0; i < counters.length; i++) {
+                counters[i].available.addAndGet(amounts[i]);
+                counters[i].inFlight.addAndGet(-amounts[i]);
+            }
+        }
+    }
+
+    private final Map<UUID, Counter> counters = new ConcurrentHashMap<>();
+    private final Set<UUID> seeding = ConcurrentHashMap.newKeySet();
+
+    public boolean isHot(UUID productId) {
+        return counters.containsKey(productId);
+    }
+
+    /**
+     * Товар горячий или переводится на счётчик: списание с product.stock_quantity,
+     * начатое до перевода, должно откатиться
+     */
+    public boolean isHotOrSeeding(UUID productId) {
+        return seeding.contains(productId) || counters.containsKey(productId);
+    }
+
+    /**
+     * Доступно к продаже, -1 — товар не горячий
+     */
+    public int available(UUID productId) {
+        Counter counter = counters.get(productId);
+        return counter != null ? counter.available.get() : -1;
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    /**
+     * Списать все позиции или ничего. Товар, который перестал быть горячим, считается недостающим.
+     */
+    public Consumption tryConsume(UUID[] productIds, int[] amounts) {
+        Counter[] taken = new Counter[productIds.length];
+        List<UUID> missing = new ArrayList<>();
+        for (int i = 0; i < productIds.length; i++) {
+            Counter counter = counters.get(productIds[i]);
+            if (counter == null) {
+                missing.add(productIds[i]);
+                continue;
+            }
+            // inFlight растёт раньше остатка: сверка, прочитавшая его, может только занизить счётчик
+            counter.inFlight.addAndGet(amounts[i]);
+            if (counter.take(amounts[i])) {
+                taken[i] = counter;
+            } else {
+                counter.inFlight.addAndGet(-amounts[i]);
+                missing.add(productIds[i]);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (int i = 0; i < taken.length; i++) {
+                if (taken[i] != null) {
+                    taken[i].available.addAndGet(amounts[i]);
+                    taken[i].inFlight.addAndGet(-amounts[i]);
+                }
+            }
+            return new Consumption(new Counter[0], new int[0], missing);
+        }
+        return new Consumption(taken, amounts.clone(), List.of());
+    }
+
+    /**
+     * Вернуть остаток после зафиксированного снятия резерва
+     */
+    public void credit(UUID productId, int quantity) {
+        Counter counter = counters.get(productId);
+        if (counter != null) {
+            counter.completions.incrementAndGet();
+            counter.available.addAndGet(quantity);
+        }
+    }
+
+    /**
+     * Отметки изменений перед чтением остатков из БД для {@link #reconcile}
+     */
+    public Map<UUID, Long> completionsSnapshot() {
+        Map<UUID, Long> snapshot = new HashMap<>(counters.size() * 2);
+        counters.forEach((productId, counter) -> snapshot.put(productId, counter.completions.get()));
+        return snapshot;
+    }
+
+    /**
+     * Начать перевод товаров на счётчики; остаток для {@link #seed} читается после этого вызова
+     */
+    public void beginSeeding(Collection<UUID> productIds) {
+        seeding.addAll(productIds);
+    }
+
+    /**
+     * Завести счётчики новых горячих товаров. Уже заведённые не меняются.
+     *
+     * @param databaseAvailable товар -> остаток в БД минус невычтенные действующие резервы
+     */
+    public void seed(Map<UUID, Integer> databaseAvailable) {
+        // Пока товар не был горячим, списаний в памяти по нему не было
+        databaseAvailable.forEach((productId, available) ->
+                counters.putIfAbsent(productId, new Counter(Math.max(0, available))));
+    }
+
+    public void endSeeding(Collection<UUID> productIds) {
+        seeding.removeAll(productIds);
+    }
+
+    /**
+     * Привести счётчики к БД; снятые с флага удаляются. Товары без счётчика
+     * пропускаются: их заводит {@link #seed}.
+     *
+     * @param databaseAvailable товар -> остаток в БД минус невычтенные действующие резервы
+     * @param before            отметки, снятые до чтения БД
+     * @return число счётчиков, значение которых пришлось поправить
+     */
+    public int reconcile(Map<UUID, Integer> databaseAvailable, Map<UUID, Long> before) {
+        int corrected = 0;
+        for (Map.Entry<UUID, Integer> entry : databaseAvailable.entrySet()) {
+            int target = Math.max(0, entry.getValue());
+            Counter counter = counters.get(entry.getKey());
+            Long mark = before.get(entry.getKey());
+            if (counter == null || mark == null) {
+                continue;
+            }
+            while (true) {
+                int current = counter.available.get();
+                int value = Math.max(0, target - counter.inFlight.get());
+                if (counter.completions.get() != mark) {
+                    break;
+                }
+                if (counter.available.compareAndSet(current, value)) {
+                    if (current != value) {
+                        corrected++;
+                    }
+                    break;
+                }
+            }
+        }
+        counters.keySet().retainAll(databaseAvailable.keySet());
+        return corrected;
+    }
+}
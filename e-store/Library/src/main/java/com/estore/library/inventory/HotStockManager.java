@@ -0,0 +1,226 @@
+package com.estore.library.inventory;
+
+import com.estore.library.repository.HotStockRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Остаток горячих товаров (product.is_hot_stock) в памяти: резерв при
+ * оформлении списывается со {@link HotStockCounters}, в БД пишется только
+ * строка stock_reservation с stock_applied = FALSE. Фоновая запись раз в
+ * inventory.hot.flush-ms вычитает накопленные строки из product.stock_quantity
+ * пакетом. После сбоя невычтенные строки остаются в БД: при старте они
+ * досписываются, а счётчики загружаются как «остаток минус невычтенное».
+ * <p>
+ * Счётчики считаются источником истины для одного приложения — оформляющего
+ * заказы; правки остатка и отмены из другого приложения подхватываются
+ * периодической сверкой.
+ * <p>
+ * Счётчики загружаются в фазе жизненного цикла до запуска веб-сервера: к
+ * первому запросу горячие товары уже списываются только с них. Товар, отмеченный
+ * горячим позже, заводится сверкой под блокировкой строки product, а списания
+ * с остатка, начатые до перевода, откатываются (см. {@link #isHotOrSeeding}).
+ */
+@Component
+public class HotStockManager implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(HotStockManager.class);
+
+    // Строк резерва за один проход записи
+    private static final int FLUSH_BATCH_SIZE = 1000;
+
+    private final HotStockRepository hotStockRepository;
+    private final HotStockCounters counters = new HotStockCounters();
+    private final TransactionTemplate seedTx;
+
+    @Value("${inventory.hot.enabled:false}")
+    private boolean enabled;
+
+    private volatile boolean loaded;
+    private volatile boolean running;
+
+    public HotStockManager(HotStockRepository hotStockRepository, PlatformTransactionManager transactionManager) {
+        this.hotStockRepository = hotStockRepository;
+        this.seedTx = new TransactionTemplate(transactionManager);
+        this.seedTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public void start() {
+        if (enabled) {
+            long start = System.currentTimeMillis();
+            int recovered = flush();
+            reconcile();
+            loaded = true;
+            logger.info("Hot stock counters loaded in {} ms: {} products, {} pending reservation lines applied",
+                    System.currentTimeMillis() - start, counters.size(), recovered);
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Раньше веб-сервера (его фаза близка к Integer.MAX_VALUE)
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    public boolean isHot(UUID productId) {
+        return loaded && counters.isHot(productId);
+    }
+
+    /**
+     * Товар горячий или переводится на счётчик. Проверяется после списания с
+     * product.stock_quantity: если true, списание не попало в остаток, прочитанный
+     * для счётчика, и транзакцию нужно откатить.
+     */
+    public boolean isHotOrSeeding(UUID productId) {
+        return counters.isHotOrSeeding(productId);
+    }
+
+    /**
+     * Списать позиции с счётчиков в текущей транзакции; при откате списанное вернётся.
+     * Возвращает товары, которых не хватило (тогда ничего не списано).
+     */
+    public List<UUID> reserve(UUID[] productIds, int[] amounts) {
+        HotStockCounters.Consumption consumption = counters.tryConsume(productIds, amounts);
+        if (!consumption.isComplete()) {
+            return consumption.missing();
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        consumption.committed();
+                    } else {
+                        consumption.rolledBack();
+                    }
+                }
+            });
+        } else {
+            consumption.committed();
+        }
+        return List.of();
+    }
+
+    /**
+     * Вернуть на счётчик снятый резерв после коммита
+     */
+    public void release(UUID productId, int quantity) {
+        if (!loaded || !counters.isHot(productId)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    counters.credit(productId, quantity);
+                }
+            });
+        } else {
+            counters.credit(productId, quantity);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.hot.flush-ms:1000}",
+            initialDelayString = "${inventory.hot.flush-ms:1000}")
+    public void scheduledFlush() {
+        if (!loaded) {
+            return;
+        }
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.error("Hot stock write-behind failed, pending lines stay for the next pass", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.hot.reconcile-ms:30000}",
+            initialDelayString = "${inventory.hot.reconcile-ms:30000}")
+    public void scheduledReconcile() {
+        if (!loaded) {
+            return;
+        }
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            logger.error("Hot stock reconciliation failed, keeping in-memory counters", e);
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("loaded", loaded);
+        stats.put("products", counters.size());
+        return stats;
+    }
+
+    private int flush() {
+        int total = 0;
+        HotStockRepository.FlushResult flushed;
+        do {
+            flushed = hotStockRepository.flushPending(FLUSH_BATCH_SIZE);
+            total += flushed.lines();
+            if (!flushed.oversold().isEmpty()) {
+                // Продано больше остатка: строки остаются невычтенными, сверка обнулит счётчики
+                logger.error("Hot stock oversold, pending reservation lines kept unapplied for products: {}",
+                        flushed.oversold());
+            }
+        } while (flushed.lines() == FLUSH_BATCH_SIZE);
+        return total;
+    }
+
+    private void reconcile() {
+        Map<UUID, Long> before = counters.completionsSnapshot();
+        Map<UUID, Integer> available = hotStockRepository.findHotAvailability();
+        int corrected = counters.reconcile(available, before);
+        if (corrected > 0) {
+            logger.info("Hot stock reconciliation corrected {} counters", corrected);
+        }
+        List<UUID> flagged = available.keySet().stream().filter(id -> !counters.isHot(id)).toList();
+        if (!flagged.isEmpty()) {
+            seed(flagged);
+        }
+    }
+
+    /**
+     * Завести счётчики товаров, отмеченных горячими: сначала списания с остатка по ним
+     * перестают фиксироваться, затем остаток читается под блокировкой строк — списания,
+     * успевшие её взять, к этому моменту зафиксированы и в нём учтены
+     */
+    private void seed(List<UUID> productIds) {
+        counters.beginSeeding(productIds);
+        try {
+            seedTx.executeWithoutResult(status -> counters.seed(
+                    hotStockRepository.lockHotAvailability(productIds.toArray(new UUID[0]))));
+        } finally {
+            counters.endSeeding(productIds);
+        }
+        logger.info("Hot stock counters seeded for {} products", productIds.size());
+    }
+}
@@ -0,0 +1,110 @@
+package com.estore.library.inventory;
+
+import com.estore.library.repository.WarehouseStockRepository;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Снимок остатков по складам в памяти: для каждого товара — массив остатков
+ * по слотам складов. Набор складов и товаров после загрузки не меняется,
+ * сами остатки уменьшаются CAS-ом при успешных списаниях, поэтому снимок
+ * читается и обновляется из любых потоков без блокировок.
+ * <p>
+ * Это подсказка для выбора склада, а не источник истины: списание всегда
+ * проверяется условным UPDATE в БД, а снимок периодически перечитывается.
+ */
+public final class StockAvailabilityIndex {
+
+    private final long[] warehouseIds;
+    private final int[] warehouseCityIds;
+    private final Map<Long, Integer> slotByWarehouse;
+    private final Map<UUID, AtomicIntegerArray> stock;
+
+    private StockAvailabilityIndex(long[] warehouseIds, int[] warehouseCityIds,
+                                   Map<Long, Integer> slotByWarehouse, Map<UUID, AtomicIntegerArray> stock) {
+        this.warehouseIds = warehouseIds;
+        this.warehouseCityIds = warehouseCityIds;
+        this.slotByWarehouse = slotByWarehouse;
+        this.stock = stock;
+    }
+
+    public static StockAvailabilityIndex load(WarehouseStockRepository repository) {
+        Map<Long, Integer> cities = repository.findWarehouseCities();
+        int n = cities.size();
+        long[] warehouseIds = new long[n];
+        int[] warehouseCityIds = new int[n];
+        Map<Long, Integer> slotByWarehouse = new HashMap<>(n * 2);
+        int slot = 0;
+        for (Map.Entry<Long, Integer> entry : cities.entrySet()) {
+            warehouseIds[slot] = entry.getKey();
+            warehouseCityIds[slot] = entry.getValue();
+            slotByWarehouse.put(entry.getKey(), slot++);
+        }
+        Map<UUID, AtomicIntegerArray> stock = new HashMap<>();
+        repository.forEachStock((warehouseId, productId, quantity) -> {
+            Integer s = slotByWarehouse.get(warehouseId);
+            if (s != null) {
+                stock.computeIfAbsent(productId, id -> new AtomicIntegerArray(n)).set(s, quantity);
+            }
+        });
+        return new StockAvailabilityIndex(warehouseIds, warehouseCityIds, slotByWarehouse, stock);
+    }
+
+    public int size() {
+        return warehouseIds.length;
+    }
+
+    public int getProductCount() {
+        return stock.size();
+    }
+
+    public long warehouseIdAt(int slot) {
+        return warehouseIds[slot];
+    }
+
+    public int cityIdAt(int slot) {
+        return warehouseCityIds[slot];
+    }
+
+    /**
+     * Слот склада, -1 если склада нет в снимке
+     */
+    public int slotOf(Long warehouseId) {
+        Integer slot = warehouseId != null ? slotByWarehouse.get(warehouseId) : null;
+        return slot != null ? slot : -1;
+    }
+
+    /**
+     * Остатки товара по слотам складов; null — товара нет ни на одном складе
+     */
+    AtomicIntegerArray stockOf(UUID productId) {
+        return stock.get(productId);
+    }
+
+    /**
+     * Уменьшить остаток после успешного списания в БД (не ниже нуля)
+     */
+    void consume(int slot, UUID productId, int quantity) {
+        AtomicIntegerArray quantities = stock.get(productId);
+        if (quantities == null) {
+            return;
+        }
+        int current;
+        do {
+            current = quantities.get(slot);
+        } while (!quantities.compareAndSet(slot, current, Math.max(0, current - quantity)));
+    }
+
+    /**
+     * Вернуть остаток после отмены списания
+     */
+    void restore(int slot, UUID productId, int quantity) {
+        AtomicIntegerArray quantities = stock.get(productId);
+        if (quantities != null) {
+            quantities.addAndGet(slot, quantity);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.estore.library.inventory;
+
+import java.math.BigDecimal;
+
+/**
+ * Выбранный склад-источник заказа
+ *
+ * @param reserved товар списан с этого склада (все позиции были в наличии)
+ */
+public record WarehouseAllocation(Long warehouseId, Integer warehouseCityId, BigDecimal distanceKm, boolean reserved) {
+}
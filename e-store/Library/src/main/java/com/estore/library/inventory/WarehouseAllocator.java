@@ -0,0 +1,240 @@
+package com.estore.library.inventory;
+
+import com.estore.library.repository.WarehouseStockRepository;
+import com.estore.library.routing.CityRouteGraph;
+import com.estore.library.routing.DistanceMatrix;
+import com.estore.library.routing.RoutingEngine;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Выбор склада-источника заказа при оформлении.
+ * <p>
+ * За один проход по складам (O(складов × позиций)) для каждого склада
+ * считается, сколько единиц заказа он может отгрузить, и расстояние до города
+ * доставки по матрице кратчайших путей (или одним Дейкстрой из города
+ * доставки, пока матрица не готова). Склады, отгружающие заказ целиком,
+ * пробуются по возрастанию расстояния: остатки списываются условным UPDATE
+ * с построчными блокировками, проигравший гонку склад пропускается. Если
+ * целиком не может никто — выбирается склад с наибольшим покрытием (при
+ * равенстве ближайший) без списания, недостающее довозится перемещением.
+ */
+@Component
+@RequiredArgsConstructor
+public class WarehouseAllocator {
+
+    private static final Logger logger = LoggerFactory.getLogger(WarehouseAllocator.class);
+
+    private final WarehouseStockRepository warehouseStockRepository;
+    private final RoutingEngine routingEngine;
+
+    @Value("${inventory.allocation.max-attempts:3}")
+    private int maxAttempts;
+
+    private volatile StockAvailabilityIndex index;
+    private volatile boolean stale;
+
+    /**
+     * Выбрать склад для доставки в город и списать с него товары, если они есть целиком.
+     * null — город неизвестен или ни один склад не достижим.
+     *
+     * @param quantities товар -> количество (позиции одного товара уже сложены)
+     */
+    @Transactional
+    public WarehouseAllocation allocate(Integer shippingCityId, Map<UUID, Integer> quantities) {
+        StockAvailabilityIndex current = index();
+        CityRouteGraph graph = routingEngine.graph();
+        int target = graph.indexOf(shippingCityId);
+        if (target < 0 || current.size() == 0) {
+            return null;
+        }
+        DistanceMatrix matrix = routingEngine.matrixFor(graph);
+        long[] fromTarget = matrix == null ? graph.distancesFrom(target) : null;
+
+        UUID[] productIds = quantities.keySet().toArray(new UUID[0]);
+        int[] amounts = new int[productIds.length];
+        AtomicIntegerArray[] stock = new AtomicIntegerArray[productIds.length];
+        long total = 0;
+        for (int i = 0; i < productIds.length; i++) {
+            amounts[i] = quantities.get(productIds[i]);
+            stock[i] = current.stockOf(productIds[i]);
+            total += amounts[i];
+        }
+
+        List<long[]> complete = new ArrayList<>();   // {slot, distance}
+        int bestPartial = -1;
+        long bestCovered = -1;
+        long bestPartialDistance = CityRouteGraph.UNREACHABLE;
+        for (int slot = 0; slot < current.size(); slot++) {
+            int city = graph.indexOf(current.cityIdAt(slot));
+            if (city < 0) {
+                continue;
+            }
+            long distance = matrix != null ? matrix.distanceHundredths(city, target) : fromTarget[city];
+            if (distance == CityRouteGraph.UNREACHABLE) {
+                continue;
+            }
+            long covered = 0;
+            for (int i = 0; i < productIds.length; i++) {
+                covered += stock[i] != null ? Math.min(stock[i].get(slot), amounts[i]) : 0;
+            }
+            if (covered == total) {
+                complete.add(new long[]{slot, distance});
+            } else if (covered > bestCovered || (covered == bestCovered && distance < bestPartialDistance)) {
+                bestPartial = slot;
+                bestCovered = covered;
+                bestPartialDistance = distance;
+            }
+        }
+
+        complete.sort((a, b) -> Long.compare(a[1], b[1]));
+        for (int attempt = 0; attempt < Math.min(maxAttempts, complete.size()); attempt++) {
+            int slot = (int) complete.get(attempt)[0];
+            if (tryReserve(current, slot, productIds, amounts)) {
+                return toAllocation(current, slot, complete.get(attempt)[1], true);
+            }
+        }
+        if (bestPartial < 0) {
+            // Остались только склады, проигравшие гонку за остаток, — ближайший из них
+            return complete.isEmpty() ? null
+                    : toAllocation(current, (int) complete.get(0)[0], complete.get(0)[1], false);
+        }
+        return toAllocation(current, bestPartial, bestPartialDistance, false);
+    }
+
+    /**
+     * Вернуть списанное при отмене заказа или неудачном оформлении
+     */
+    @Transactional
+    public void release(WarehouseAllocation allocation, Map<UUID, Integer> quantities) {
+        if (allocation == null || !allocation.reserved() || quantities.isEmpty()) {
+            return;
+        }
+        UUID[] productIds = quantities.keySet().toArray(new UUID[0]);
+        int[] amounts = new int[productIds.length];
+        for (int i = 0; i < productIds.length; i++) {
+            amounts[i] = quantities.get(productIds[i]);
+        }
+        warehouseStockRepository.release(allocation.warehouseId(), productIds, amounts);
+        StockAvailabilityIndex current = index;
+        if (current != null) {
+            int slot = current.slotOf(allocation.warehouseId());
+            if (slot >= 0) {
+                afterCommit(() -> {
+                    for (int i = 0; i < productIds.length; i++) {
+                        current.restore(slot, productIds[i], amounts[i]);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Остатки или склады изменены: перечитать снимок после коммита
+     */
+    public void invalidateAfterCommit() {
+        afterCommit(() -> stale = true);
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.stock.refresh-ms:30000}",
+            initialDelayString = "${inventory.stock.refresh-ms:30000}")
+    public void refresh() {
+        // Снимок загружается при первом выборе склада; до этого обновлять нечего
+        if (index == null) {
+            return;
+        }
+        try {
+            index = StockAvailabilityIndex.load(warehouseStockRepository);
+        } catch (RuntimeException e) {
+            logger.error("Warehouse stock refresh failed, serving previous snapshot", e);
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        StockAvailabilityIndex current = index;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("loaded", current != null);
+        stats.put("warehouses", current != null ? current.size() : 0);
+        stats.put("products", current != null ? current.getProductCount() : 0);
+        stats.put("stale", stale);
+        return stats;
+    }
+
+    private StockAvailabilityIndex index() {
+        StockAvailabilityIndex current = index;
+        if (current == null || stale) {
+            synchronized (this) {
+                if (index == null || stale) {
+                    stale = false;
+                    long start = System.currentTimeMillis();
+                    index = StockAvailabilityIndex.load(warehouseStockRepository);
+                    logger.info("Warehouse stock index loaded in {} ms: {} warehouses, {} products",
+                            System.currentTimeMillis() - start, index.size(), index.getProductCount());
+                }
+                current = index;
+            }
+        }
+        return current;
+    }
+
+    private boolean tryReserve(StockAvailabilityIndex current, int slot, UUID[] productIds, int[] amounts) {
+        long warehouseId = current.warehouseIdAt(slot);
+        List<UUID> reserved = warehouseStockRepository.reserve(warehouseId, productIds, amounts);
+        if (reserved.size() == productIds.length) {
+            afterCommit(() -> {
+                for (int i = 0; i < productIds.length; i++) {
+                    current.consume(slot, productIds[i], amounts[i]);
+                }
+            });
+            return true;
+        }
+        // Снимок отстал от БД: вернуть то, что успели списать, и поправить снимок
+        if (!reserved.isEmpty()) {
+            UUID[] partialIds = reserved.toArray(new UUID[0]);
+            int[] partialAmounts = new int[partialIds.length];
+            for (int i = 0; i < partialIds.length; i++) {
+                for (int j = 0; j < productIds.length; j++) {
+                    if (productIds[j].equals(partialIds[i])) {
+                        partialAmounts[i] = amounts[j];
+                    }
+                }
+            }
+            warehouseStockRepository.release(warehouseId, partialIds, partialAmounts);
+        }
+        stale = true;
+        return false;
+    }
+
+    private static WarehouseAllocation toAllocation(StockAvailabilityIndex current, int slot, long distance, boolean reserved) {
+        return new WarehouseAllocation(current.warehouseIdAt(slot), current.cityIdAt(slot),
+                BigDecimal.valueOf(distance, 2), reserved);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
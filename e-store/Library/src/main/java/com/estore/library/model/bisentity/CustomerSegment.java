@@ -0,0 +1,40 @@
+package com.estore.library.model.bisentity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Демографический сегмент покупателя (поддерживается триггером в БД, только чтение)
+ */
+@Entity
+@Immutable
+@Table(name = "customer_segment")
+@Data
+public class CustomerSegment {
+    @Id
+    @Column(name = "user_id", columnDefinition = "uuid")
+    private UUID userId;
+
+    @Column(name = "gender", length = 1)
+    private String gender; // N/F/M
+
+    @Column(name = "age_bucket_5y", nullable = false, length = 10)
+    private String ageBucket5y;
+
+    @Column(name = "age_group", nullable = false, length = 10)
+    private String ageGroup;
+
+    @Column(name = "valid_until")
+    private LocalDate validUntil;
+
+    @Column(name = "refreshed_at")
+    private LocalDateTime refreshedAt;
+}
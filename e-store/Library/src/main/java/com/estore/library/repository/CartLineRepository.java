@@ -0,0 +1,45 @@
+package com.estore.library.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.UUID;
+
+/**
+ * Пакетные операции над строками корзины (cart_item)
+ */
+@Repository
+@RequiredArgsConstructor
+public class CartLineRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Удалить одним запросом строки корзины, количество в которых не изменилось.
+     * Возвращает число удалённых строк.
+     */
+    public int deleteLines(UUID cartId, int[] cartItemIds, int[] quantities) {
+        String sql = """
+                DELETE FROM cart_item
+                WHERE cart_id = ?
+                  AND (cart_item_id, quantity) IN (SELECT * FROM unnest(?::int[], ?::int[]))
+                """;
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setObject(1, cartId);
+            ps.setArray(2, con.createArrayOf("int4", box(cartItemIds)));
+            ps.setArray(3, con.createArrayOf("int4", box(quantities)));
+            return ps;
+        });
+    }
+
+    private static Integer[] box(int[] values) {
+        Integer[] boxed = new Integer[values.length];
+        for (int i = 0; i < values.length; i++) {
+            boxed[i] = values[i];
+        }
+        return boxed;
+    }
+}
@@ -0,0 +1,140 @@
+package com.estore.library.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Горячие товары: флаг product.is_hot_stock и пакетная запись их резервов в остаток
+ */
+@Repository
+@RequiredArgsConstructor
+public class HotStockRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Доступно к продаже по горячим товарам: остаток минус действующие резервы, ещё не вычтенные из него
+     */
+    public Map<UUID, Integer> findHotAvailability() {
+        Map<UUID, Integer> available = new HashMap<>();
+        jdbcTemplate.query("""
+                SELECT p.product_id, p.stock_quantity - COALESCE(SUM(s.quantity), 0)
+                FROM product p
+                LEFT JOIN stock_reservation s
+                       ON s.product_id = p.product_id AND NOT s.stock_applied AND s.status <> 'RELEASED'
+                WHERE p.is_hot_stock
+                GROUP BY p.product_id, p.stock_quantity
+                """, (RowCallbackHandler) rs -> available.put(rs.getObject(1, UUID.class), rs.getInt(2)));
+        return available;
+    }
+
+    /**
+     * Доступно к продаже по заданным горячим товарам; строки товаров блокируются до конца
+     * транзакции (в порядке product_id): незафиксированные списания с остатка дочитываются
+     * после их коммита, новые ждут окончания транзакции
+     */
+    public Map<UUID, Integer> lockHotAvailability(UUID[] productIds) {
+        String sql = """
+                WITH locked AS (
+                    SELECT p.product_id, p.stock_quantity FROM product p
+                    WHERE p.product_id = ANY(?::uuid[]) AND p.is_hot_stock
+                    ORDER BY p.product_id
+                    FOR NO KEY UPDATE
+                )
+                SELECT l.product_id, l.stock_quantity - COALESCE(SUM(s.quantity), 0)
+                FROM locked l
+                LEFT JOIN stock_reservation s
+                       ON s.product_id = l.product_id AND NOT s.stock_applied AND s.status <> 'RELEASED'
+                GROUP BY l.product_id, l.stock_quantity
+                """;
+        Map<UUID, Integer> available = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("uuid", productIds));
+            return ps;
+        }, (RowCallbackHandler) rs -> available.put(rs.getObject(1, UUID.class), rs.getInt(2)));
+        return available;
+    }
+
+    /**
+     * Итог прохода записи: lines — обработано строк резерва; oversold — товары, остатка
+     * которых не хватило на невычтенные резервы (их строки оставлены невычтенными)
+     */
+    public record FlushResult(int lines, List<UUID> oversold) {
+    }
+
+    /**
+     * Вычесть из остатка до limit невычтенных строк резерва одним запросом: по одному
+     * UPDATE на товар за проход вместо блокировки строки товара на каждое оформление.
+     * Снятые к этому моменту резервы только помечаются. Строки, занятые другой
+     * транзакцией, пропускаются до следующего прохода. Если остатка товара не хватает,
+     * его строки не вычитаются и товар попадает в {@link FlushResult#oversold()}.
+     */
+    public FlushResult flushPending(int limit) {
+        String sql = """
+                WITH pending AS (
+                    SELECT s.order_id, s.product_id, s.quantity, s.status FROM stock_reservation s
+                    WHERE NOT s.stock_applied
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED
+                ), totals AS (
+                    SELECT product_id, SUM(quantity) AS qty FROM pending
+                    WHERE status <> 'RELEASED'
+                    GROUP BY product_id
+                ), locked AS (
+                    SELECT p.product_id, p.stock_quantity FROM product p
+                    WHERE p.product_id IN (SELECT product_id FROM totals)
+                    ORDER BY p.product_id
+                    FOR NO KEY UPDATE
+                ), written AS (
+                    UPDATE product p
+                    SET stock_quantity = p.stock_quantity - t.qty
+                    FROM totals t JOIN locked l ON l.product_id = t.product_id
+                    WHERE p.product_id = t.product_id AND p.stock_quantity >= t.qty
+                    RETURNING p.product_id
+                ), applied AS (
+                    UPDATE stock_reservation s SET stock_applied = TRUE
+                    FROM pending pe
+                    WHERE s.order_id = pe.order_id AND s.product_id = pe.product_id
+                      AND (pe.status = 'RELEASED' OR pe.product_id IN (SELECT product_id FROM written))
+                    RETURNING s.product_id
+                )
+                SELECT (SELECT COUNT(*) FROM applied),
+                       ARRAY(SELECT l.product_id FROM totals t JOIN locked l ON l.product_id = t.product_id
+                             WHERE l.stock_quantity < t.qty)
+                """;
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setInt(1, limit);
+            return ps;
+        }, (ResultSetExtractor<FlushResult>) rs -> {
+            if (!rs.next()) {
+                return new FlushResult(0, List.of());
+            }
+            UUID[] oversold = (UUID[]) rs.getArray(2).getArray();
+            return new FlushResult(rs.getInt(1), List.of(oversold));
+        });
+    }
+
+    /**
+     * Считать невычтенные резервы товара учтёнными: остаток задан вручную и уже их исключает
+     */
+    public int absorbPending(UUID productId) {
+        return jdbcTemplate.update(
+                "UPDATE stock_reservation SET stock_applied = TRUE WHERE product_id = ? AND NOT stock_applied",
+                productId);
+    }
+
+    public int setHot(UUID productId, boolean hot) {
+        return jdbcTemplate.update("UPDATE product SET is_hot_stock = ? WHERE product_id = ?", hot, productId);
+    }
+}
@@ -0,0 +1,76 @@
+package com.estore.library.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Ключи идемпотентности и сохранённые ответы (idempotency_key)
+ */
+@Repository
+@RequiredArgsConstructor
+public class IdempotencyKeyRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Сохранённый ответ; statusCode и body — null, пока операция не завершена.
+     * expiresInMillis — сколько ключу осталось жить по часам БД
+     */
+    public record StoredKey(byte[] requestHash, Integer statusCode, String body, long expiresInMillis) {
+    }
+
+    /**
+     * Занять ключ (или просроченный ключ). Если ключ вставлен конкурентной
+     * незавершённой транзакцией, запрос ждёт её завершения. false — ключ уже занят.
+     */
+    public boolean claim(String scope, UUID ownerId, String key, byte[] requestHash, long ttlSeconds) {
+        return jdbcTemplate.update("""
+                INSERT INTO idempotency_key AS k (scope, owner_id, idem_key, request_hash, created_at, expires_at)
+                VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP + make_interval(secs => ?))
+                ON CONFLICT (scope, owner_id, idem_key) DO UPDATE
+                SET request_hash = EXCLUDED.request_hash, status_code = NULL, response_body = NULL,
+                    created_at = EXCLUDED.created_at, expires_at = EXCLUDED.expires_at
+                WHERE k.expires_at < CURRENT_TIMESTAMP
+                """, scope, ownerId, key, requestHash, ttlSeconds) > 0;
+    }
+
+    public StoredKey find(String scope, UUID ownerId, String key) {
+        List<StoredKey> found = jdbcTemplate.query("""
+                SELECT request_hash, status_code, response_body,
+                       GREATEST(CAST(EXTRACT(EPOCH FROM expires_at - CURRENT_TIMESTAMP) * 1000 AS BIGINT), 0)
+                FROM idempotency_key
+                WHERE scope = ? AND owner_id = ? AND idem_key = ?
+                """, (rs, rowNum) -> new StoredKey(
+                rs.getBytes(1),
+                rs.getObject(2) != null ? rs.getInt(2) : null,
+                rs.getString(3),
+                rs.getLong(4)), scope, ownerId, key);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    public void complete(String scope, UUID ownerId, String key, int statusCode, String body) {
+        jdbcTemplate.update("""
+                UPDATE idempotency_key SET status_code = ?, response_body = ?
+                WHERE scope = ? AND owner_id = ? AND idem_key = ?
+                """, statusCode, body, scope, ownerId, key);
+    }
+
+    /**
+     * Удалить до limit просроченных ключей; возвращает число удалённых
+     */
+    public int deleteExpired(int limit) {
+        return jdbcTemplate.update("""
+                DELETE FROM idempotency_key
+                WHERE (scope, owner_id, idem_key) IN (
+                    SELECT scope, owner_id, idem_key FROM idempotency_key
+                    WHERE expires_at < CURRENT_TIMESTAMP
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED
+                )
+                """, limit);
+    }
+}
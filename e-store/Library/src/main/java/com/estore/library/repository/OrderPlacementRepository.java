@@ -0,0 +1,89 @@
+package com.estore.library.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Вставка заказа при оформлении: проверка ссылок одним запросом, заказ и позиции пакетом JDBC
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderPlacementRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Какие ссылки заказа существуют: {пользователь, город, способ доставки, способ оплаты}
+     */
+    public boolean[] findReferences(UUID userId, Integer cityId, Integer deliveryMethodId, Integer paymentMethodId) {
+        return jdbcTemplate.queryForObject("""
+                SELECT EXISTS (SELECT 1 FROM "user" WHERE user_id = ?),
+                       EXISTS (SELECT 1 FROM city WHERE city_id = ?),
+                       EXISTS (SELECT 1 FROM delivery_method WHERE method_id = ?),
+                       EXISTS (SELECT 1 FROM payment_method WHERE method_id = ?)
+                """, (rs, rowNum) -> new boolean[]{
+                rs.getBoolean(1), rs.getBoolean(2), rs.getBoolean(3), rs.getBoolean(4)
+        }, userId, cityId, deliveryMethodId, paymentMethodId);
+    }
+
+    public void insertOrder(UUID orderId, UUID userId, Date orderDate, Integer statusId, BigDecimal totalAmount,
+                            Integer shippingCityId, String shippingAddressText, Integer deliveryMethodId,
+                            Integer paymentMethodId, Double discountApplied, Long sourceWarehouseId) {
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                    INSERT INTO "order" (order_id, user_id, order_date, status_id, total_amount, shipping_city_id,
+                                         shipping_address_text, delivery_method_id, payment_method_id,
+                                         discount_applied, source_warehouse_id)
+                    VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                    """);
+            ps.setObject(1, orderId);
+            ps.setObject(2, userId);
+            ps.setTimestamp(3, new Timestamp(orderDate.getTime()));
+            ps.setInt(4, statusId);
+            ps.setBigDecimal(5, totalAmount);
+            ps.setInt(6, shippingCityId);
+            ps.setString(7, shippingAddressText);
+            ps.setInt(8, deliveryMethodId);
+            ps.setInt(9, paymentMethodId);
+            ps.setBigDecimal(10, BigDecimal.valueOf(discountApplied != null ? discountApplied : 0.0));
+            if (sourceWarehouseId != null) {
+                ps.setLong(11, sourceWarehouseId);
+            } else {
+                ps.setNull(11, Types.BIGINT);
+            }
+            return ps;
+        });
+    }
+
+    /**
+     * Позиции заказа одним пакетом (по одной строке на товар)
+     */
+    public void insertItems(UUID orderId, UUID[] productIds, int[] quantities, BigDecimal[] unitPrices) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO order_item (order_id, product_id, quantity, unit_price) VALUES (?, ?, ?, ?)",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ps.setObject(1, orderId);
+                        ps.setObject(2, productIds[i]);
+                        ps.setInt(3, quantities[i]);
+                        ps.setBigDecimal(4, unitPrices[i]);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return productIds.length;
+                    }
+                });
+    }
+}
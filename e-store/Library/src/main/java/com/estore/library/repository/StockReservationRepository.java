@@ -0,0 +1,191 @@
+package com.estore.library.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Списание общего остатка товаров (product.stock_quantity) и резервы под заказы (stock_reservation)
+ */
+@Repository
+@RequiredArgsConstructor
+public class StockReservationRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Снятая позиция резерва; warehouseId — склад, с которого тоже списывали, или null;
+     * stockApplied = false — горячий товар, ещё не вычтенный из product.stock_quantity
+     */
+    public record ReleasedLine(UUID productId, Long warehouseId, int quantity, boolean stockApplied) {
+    }
+
+    /**
+     * Условное списание всех позиций одним запросом. Строки товаров блокируются
+     * в порядке product_id (без взаимоблокировок между заказами из нескольких
+     * товаров), после ожидания блокировки условие stock_quantity >= qty
+     * перепроверяется на свежей версии строки — потерянных обновлений нет.
+     * Возвращает товары, которые удалось списать; если их меньше позиций,
+     * вызывающий откатывает транзакцию.
+     */
+    public List<UUID> decrementStock(UUID[] productIds, int[] quantities) {
+        String sql = """
+                WITH r AS (
+                    SELECT * FROM unnest(?::uuid[], ?::int[]) AS r(product_id, qty)
+                ), locked AS (
+                    SELECT p.product_id FROM product p
+                    WHERE p.product_id IN (SELECT product_id FROM r)
+                    ORDER BY p.product_id
+                    FOR NO KEY UPDATE
+                )
+                UPDATE product p
+                SET stock_quantity = p.stock_quantity - r.qty
+                FROM r JOIN locked l ON l.product_id = r.product_id
+                WHERE p.product_id = r.product_id AND p.stock_quantity >= r.qty
+                RETURNING p.product_id
+                """;
+        List<UUID> decremented = new ArrayList<>(productIds.length);
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("uuid", productIds));
+            ps.setArray(2, con.createArrayOf("int4", box(quantities)));
+            return ps;
+        }, (RowCallbackHandler) rs -> decremented.add(rs.getObject(1, UUID.class)));
+        return decremented;
+    }
+
+    /**
+     * Записать резерв заказа; вызывается в транзакции, которая вставляет сам заказ
+     *
+     * @param stockApplied false — позиция списана со счётчика горячего товара, а не с product.stock_quantity
+     */
+    public void insertOrdered(UUID orderId, UUID[] productIds, int[] quantities, boolean[] stockApplied,
+                              Long warehouseId) {
+        String sql = """
+                INSERT INTO stock_reservation (order_id, product_id, warehouse_id, quantity, status,
+                                               stock_applied, created_at)
+                SELECT ?, r.product_id, ?, r.qty, 'ORDERED', r.applied, CURRENT_TIMESTAMP
+                FROM unnest(?::uuid[], ?::int[], ?::boolean[]) AS r(product_id, qty, applied)
+                """;
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setObject(1, orderId);
+            if (warehouseId != null) {
+                ps.setLong(2, warehouseId);
+            } else {
+                ps.setNull(2, Types.BIGINT);
+            }
+            ps.setArray(3, con.createArrayOf("uuid", productIds));
+            ps.setArray(4, con.createArrayOf("int4", box(quantities)));
+            ps.setArray(5, con.createArrayOf("bool", box(stockApplied)));
+            return ps;
+        });
+    }
+
+    /**
+     * Есть ли у заказа резерв в любом статусе (заказы до резервов его не имеют)
+     */
+    public boolean existsForOrder(UUID orderId) {
+        Boolean exists = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM stock_reservation WHERE order_id = ?)", Boolean.class, orderId);
+        return Boolean.TRUE.equals(exists);
+    }
+
+    /**
+     * Снять действующий резерв заказа (остатки возвращает вызывающий через {@link #restock}).
+     * Повторный вызов ничего не возвращает: переход статуса делается один раз.
+     */
+    public List<ReleasedLine> releaseOrder(UUID orderId) {
+        String sql = """
+                UPDATE stock_reservation
+                SET status = 'RELEASED', released_at = CURRENT_TIMESTAMP
+                WHERE order_id = ? AND status = 'ORDERED'
+                RETURNING product_id, warehouse_id, quantity, stock_applied
+                """;
+        return queryReleased(sql, ps -> ps.setObject(1, orderId));
+    }
+
+    /**
+     * Вернуть количество на общий остаток. Строки товаров блокируются в порядке
+     * product_id, как при списании; вызывается после возврата складских остатков,
+     * чтобы порядок блокировок (warehouse_stock, затем product) совпадал с оформлением.
+     */
+    public void restock(UUID[] productIds, int[] quantities) {
+        String sql = """
+                WITH r AS (
+                    SELECT product_id, SUM(qty) AS qty FROM unnest(?::uuid[], ?::int[]) AS r(product_id, qty)
+                    GROUP BY product_id
+                ), locked AS (
+                    SELECT p.product_id FROM product p
+                    WHERE p.product_id IN (SELECT product_id FROM r)
+                    ORDER BY p.product_id
+                    FOR NO KEY UPDATE
+                )
+                UPDATE product p
+                SET stock_quantity = p.stock_quantity + r.qty
+                FROM r JOIN locked l ON l.product_id = r.product_id
+                WHERE p.product_id = r.product_id
+                """;
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("uuid", productIds));
+            ps.setArray(2, con.createArrayOf("int4", box(quantities)));
+            return ps;
+        });
+    }
+
+    /**
+     * Вернуть на остаток позиции заказа без резерва (оформлен до появления резервов)
+     */
+    public int restockFromOrderItems(UUID orderId) {
+        return jdbcTemplate.update("""
+                UPDATE product p
+                SET stock_quantity = p.stock_quantity + i.qty
+                FROM (SELECT product_id, SUM(quantity) AS qty FROM order_item WHERE order_id = ? GROUP BY product_id) i
+                WHERE p.product_id = i.product_id
+                """, orderId);
+    }
+
+    @FunctionalInterface
+    private interface Binder {
+        void bind(PreparedStatement ps) throws SQLException;
+    }
+
+    private List<ReleasedLine> queryReleased(String sql, Binder binder) {
+        List<ReleasedLine> lines = new ArrayList<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            binder.bind(ps);
+            return ps;
+        }, (RowCallbackHandler) rs -> lines.add(new ReleasedLine(
+                rs.getObject(1, UUID.class),
+                rs.getObject(2) != null ? rs.getLong(2) : null,
+                rs.getInt(3),
+                rs.getBoolean(4))));
+        return lines;
+    }
+
+    private static Integer[] box(int[] values) {
+        Integer[] boxed = new Integer[values.length];
+        for (int i = 0; i < values.length; i++) {
+            boxed[i] = values[i];
+        }
+        return boxed;
+    }
+
+    private static Boolean[] box(boolean[] values) {
+        Boolean[] boxed = new Boolean[values.length];
+        for (int i = 0; i < values.length; i++) {
+            boxed[i] = values[i];
+        }
+        return boxed;
+    }
+}
@@ -0,0 +1,125 @@
+package com.estore.library.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Остатки товаров по складам (warehouse_stock)
+ */
+@Repository
+@RequiredArgsConstructor
+public class WarehouseStockRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Строка остатка для построчного чтения без промежуточных списков
+     */
+    @FunctionalInterface
+    public interface StockRowHandler {
+        void accept(long warehouseId, UUID productId, int quantity);
+    }
+
+    /**
+     * Склады и их города: warehouse_id -> city_id
+     */
+    public Map<Long, Integer> findWarehouseCities() {
+        Map<Long, Integer> cities = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT warehouse_id, city_id FROM warehouse ORDER BY warehouse_id",
+                (RowCallbackHandler) rs -> cities.put(rs.getLong(1), rs.getInt(2)));
+        return cities;
+    }
+
+    /**
+     * Все ненулевые остатки
+     */
+    public void forEachStock(StockRowHandler handler) {
+        jdbcTemplate.query("SELECT warehouse_id, product_id, quantity FROM warehouse_stock WHERE quantity > 0",
+                (RowCallbackHandler) rs -> handler.accept(rs.getLong(1), rs.getObject(2, UUID.class), rs.getInt(3)));
+    }
+
+    /**
+     * Остатки склада с названиями товаров
+     */
+    public List<Map<String, Object>> findByWarehouse(long warehouseId) {
+        return jdbcTemplate.queryForList("""
+                SELECT s.product_id AS "productId", p.name AS "productName", s.quantity, s.updated_at AS "updatedAt"
+                FROM warehouse_stock s
+                JOIN product p ON p.product_id = s.product_id
+                WHERE s.warehouse_id = ?
+                ORDER BY p.name
+                """, warehouseId);
+    }
+
+    /**
+     * Установить остаток товара на складе
+     */
+    public void upsert(long warehouseId, UUID productId, int quantity) {
+        jdbcTemplate.update("""
+                INSERT INTO warehouse_stock (warehouse_id, product_id, quantity, updated_at)
+                VALUES (?, ?, ?, CURRENT_TIMESTAMP)
+                ON CONFLICT (warehouse_id, product_id)
+                DO UPDATE SET quantity = EXCLUDED.quantity, updated_at = EXCLUDED.updated_at
+                """, warehouseId, productId, quantity);
+    }
+
+    /**
+     * Условное списание всех позиций одним запросом: строка уменьшается,
+     * только если остатка хватает. Возвращает товары, которые удалось списать;
+     * если их меньше, чем позиций, вызывающий возвращает списанное через {@link #release}.
+     */
+    public List<UUID> reserve(long warehouseId, UUID[] productIds, int[] quantities) {
+        String sql = """
+                UPDATE warehouse_stock s
+                SET quantity = s.quantity - r.qty, updated_at = CURRENT_TIMESTAMP
+                FROM unnest(?::uuid[], ?::int[]) AS r(product_id, qty)
+                WHERE s.warehouse_id = ? AND s.product_id = r.product_id AND s.quantity >= r.qty
+                RETURNING s.product_id
+                """;
+        List<UUID> reserved = new ArrayList<>(productIds.length);
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("uuid", productIds));
+            ps.setArray(2, con.createArrayOf("int4", box(quantities)));
+            ps.setLong(3, warehouseId);
+            return ps;
+        }, (RowCallbackHandler) rs -> reserved.add(rs.getObject(1, UUID.class)));
+        return reserved;
+    }
+
+    /**
+     * Вернуть списанное количество на склад
+     */
+    public void release(long warehouseId, UUID[] productIds, int[] quantities) {
+        String sql = """
+                UPDATE warehouse_stock s
+                SET quantity = s.quantity + r.qty, updated_at = CURRENT_TIMESTAMP
+                FROM unnest(?::uuid[], ?::int[]) AS r(product_id, qty)
+                WHERE s.warehouse_id = ? AND s.product_id = r.product_id
+                """;
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("uuid", productIds));
+            ps.setArray(2, con.createArrayOf("int4", box(quantities)));
+            ps.setLong(3, warehouseId);
+            return ps;
+        });
+    }
+
+    private static Integer[] box(int[] values) {
+        Integer[] boxed = new Integer[values.length];
+        for (int i = 0; i < values.length; i++) {
+            boxed[i] = values[i];
+        }
+        return boxed;
+    }
+}
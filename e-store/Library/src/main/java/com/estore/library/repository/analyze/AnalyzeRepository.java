@@ -1,17 +1,18 @@
 package com.estore.library.repository.analyze;
 
 import com.estore.library.dto.analyze.dto.*;
+import com.estore.library.routing.CityPair;
 import org.springframework.stereotype.Repository;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
-import jakarta.persistence.TypedQuery;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
 
 @Repository
 public class AnalyzeRepository {
@@ -20,38 +21,33 @@ public class AnalyzeRepository {
     private EntityManager entityManager;
 
     /**
-     * Топ товаров по объему продаж (количество и сумма)
+     * Топ товаров по объему продаж (количество и сумма).
+     * Читается из дневных агрегатов sales_rollup_product_daily.
      */
     public List<BestSellerDto> getBestSellers(int limit) {
-        String jpql = """
-            SELECT oi.product.productId, oi.product.name, 
-                   SUM(oi.quantity) as totalQuantity,
-                   SUM(oi.quantity * oi.unitPrice) as totalRevenue,
-                   oi.product.averageRating
-            FROM OrderItem oi
-            JOIN oi.order o
-            WHERE o.status.statusName = 'DELIVERED'
-            GROUP BY oi.product.productId, oi.product.name, oi.product.averageRating
-            ORDER BY totalQuantity DESC, totalRevenue DESC
+        String sql = """
+            SELECT p.product_id, p.name,
+                   SUM(r.units_sold) AS total_quantity,
+                   SUM(r.revenue) AS total_revenue,
+                   p.average_rating
+            FROM sales_rollup_product_daily r
+            JOIN product p ON p.product_id = r.product_id
+            GROUP BY p.product_id, p.name, p.average_rating
+            ORDER BY total_quantity DESC, total_revenue DESC
             """;
-        
-        TypedQuery<Object[]> query = entityManager.createQuery(jpql, Object[].class);
+
+        jakarta.persistence.Query query = entityManager.createNativeQuery(sql);
         query.setMaxResults(limit);
-        
-        List<Object[]> results = query.getResultList();
-        List<BestSellerDto> bestSellers = new ArrayList<>();
-        
-        for (Object[] row : results) {
+
+        return RowProjection.list(query, row -> {
             BestSellerDto dto = new BestSellerDto();
-            dto.setProductId((UUID) row[0]);
-            dto.setProductName((String) row[1]);
-            dto.setTotalQuantitySold(((Number) row[2]).longValue());
-            dto.setTotalRevenue((BigDecimal) row[3]);
-            dto.setAverageRating((BigDecimal) row[4]);
-            bestSellers.add(dto);
-        }
-        
-        return bestSellers;
+            dto.setProductId(row.uuid(0));
+            dto.setProductName(row.str(1));
+            dto.setTotalQuantitySold(row.lng(2));
+            dto.setTotalRevenue(row.dec(3));
+            dto.setAverageRating(row.dec(4));
+            return dto;
+        });
     }
 
     // ===== Product analytics =====
@@ -63,18 +59,7 @@ public class AnalyzeRepository {
             GROUP BY c.categoryName
             ORDER BY COUNT(p) DESC
             """;
-        List<Object[]> rows = entityManager.createQuery(jpql, Object[].class).getResultList();
-        List<PieItemDto> list = new ArrayList<>();
-        long total = rows.stream().mapToLong(r -> ((Number) r[1]).longValue()).sum();
-        for (Object[] r : rows) {
-            PieItemDto dto = new PieItemDto();
-            dto.setLabel((String) r[0]);
-            long cnt = ((Number) r[1]).longValue();
-            dto.setValue(BigDecimal.valueOf(cnt));
-            dto.setPercent(total > 0 ? BigDecimal.valueOf(cnt * 100.0 / total).setScale(2, BigDecimal.ROUND_HALF_UP) : BigDecimal.ZERO);
-            list.add(dto);
-        }
-        return list;
+        return RowProjection.pieWithShare(entityManager.createQuery(jpql));
     }
 
     public List<PieItemDto> getBrandShare() {
@@ -85,18 +70,7 @@ public class AnalyzeRepository {
             GROUP BY b.brandName
             ORDER BY COUNT(p) DESC
             """;
-        List<Object[]> rows = entityManager.createQuery(jpql, Object[].class).getResultList();
-        List<PieItemDto> list = new ArrayList<>();
-        long total = rows.stream().mapToLong(r -> ((Number) r[1]).longValue()).sum();
-        for (Object[] r : rows) {
-            PieItemDto dto = new PieItemDto();
-            dto.setLabel((String) r[0]);
-            long cnt = ((Number) r[1]).longValue();
-            dto.setValue(BigDecimal.valueOf(cnt));
-            dto.setPercent(total > 0 ? BigDecimal.valueOf(cnt * 100.0 / total).setScale(2, BigDecimal.ROUND_HALF_UP) : BigDecimal.ZERO);
-            list.add(dto);
-        }
-        return list;
+        return RowProjection.pieWithShare(entityManager.createQuery(jpql));
     }
 
     public List<BucketItemDto> getPriceBuckets() {
@@ -115,15 +89,7 @@ public class AnalyzeRepository {
             GROUP BY bucket
             ORDER BY bucket
             """;
-        List<Object[]> rows = entityManager.createNativeQuery(sql).getResultList();
-        List<BucketItemDto> list = new ArrayList<>();
-        for (Object[] r : rows) {
-            BucketItemDto dto = new BucketItemDto();
-            dto.setLabel((String) r[0]);
-            dto.setValue(BigDecimal.valueOf(((Number) r[1]).longValue()));
-            list.add(dto);
-        }
-        return list;
+        return RowProjection.buckets(entityManager.createNativeQuery(sql));
     }
 
     public List<PieItemDto> getTopCitiesInRoutes() {
@@ -135,18 +101,7 @@ public class AnalyzeRepository {
             ORDER BY cnt DESC
             LIMIT 10
             """;
-        List<Object[]> rows = entityManager.createNativeQuery(sql).getResultList();
-        List<PieItemDto> list = new ArrayList<>();
-        long total = rows.stream().mapToLong(r -> ((Number) r[1]).longValue()).sum();
-        for (Object[] r : rows) {
-            PieItemDto dto = new PieItemDto();
-            dto.setLabel((String) r[0]);
-            long cnt = ((Number) r[1]).longValue();
-            dto.setValue(BigDecimal.valueOf(cnt));
-            dto.setPercent(total > 0 ? BigDecimal.valueOf(cnt * 100.0 / total).setScale(2, BigDecimal.ROUND_HALF_UP) : BigDecimal.ZERO);
-            list.add(dto);
-        }
-        return list;
+        return RowProjection.pieWithShare(entityManager.createNativeQuery(sql));
     }
 
     public List<BucketItemDto> getRouteDistanceBuckets() {
@@ -164,48 +119,43 @@ public class AnalyzeRepository {
             GROUP BY bucket
             ORDER BY bucket
             """;
-        List<Object[]> rows = entityManager.createNativeQuery(sql).getResultList();
-        List<BucketItemDto> list = new ArrayList<>();
-        for (Object[] r : rows) {
-            BucketItemDto dto = new BucketItemDto();
-            dto.setLabel((String) r[0]);
-            dto.setValue(BigDecimal.valueOf(((Number) r[1]).longValue()));
-            list.add(dto);
-        }
-        return list;
+        return RowProjection.buckets(entityManager.createNativeQuery(sql));
+    }
+
+    /**
+     * Число заказов по парам (город склада, город доставки), без отменённых
+     */
+    public Map<CityPair, Long> getDeliveryPairCounts() {
+        String sql = """
+            SELECT w.city_id, o.shipping_city_id, COUNT(*)
+            FROM "order" o
+            JOIN warehouse w ON w.warehouse_id = o.source_warehouse_id
+            JOIN order_status os ON os.status_id = o.status_id
+            WHERE o.shipping_city_id IS NOT NULL
+              AND os.status_name <> 'CANCELLED'
+            GROUP BY w.city_id, o.shipping_city_id
+            """;
+        Map<CityPair, Long> counts = new HashMap<>();
+        RowProjection.forEach(entityManager.createNativeQuery(sql),
+                row -> counts.put(new CityPair(row.integer(0), row.integer(1)), row.lng(2)));
+        return counts;
     }
 
     // ===== User analytics =====
     public List<AgeBucketDto> getAgeBuckets5y() {
         String sql = """
-            SELECT 
-                CASE 
-                    WHEN cp.date_of_birth IS NULL THEN 'Unknown'
-                    WHEN EXTRACT(YEAR FROM AGE(cp.date_of_birth)) < 18 THEN '0-17'
-                    WHEN EXTRACT(YEAR FROM AGE(cp.date_of_birth)) BETWEEN 18 AND 24 THEN '18-24'
-                    WHEN EXTRACT(YEAR FROM AGE(cp.date_of_birth)) BETWEEN 25 AND 29 THEN '25-29'
-                    WHEN EXTRACT(YEAR FROM AGE(cp.date_of_birth)) BETWEEN 30 AND 34 THEN '30-34'
-                    WHEN EXTRACT(YEAR FROM AGE(cp.date_of_birth)) BETWEEN 35 AND 39 THEN '35-39'
-                    WHEN EXTRACT(YEAR FROM AGE(cp.date_of_birth)) BETWEEN 40 AND 44 THEN '40-44'
-                    WHEN EXTRACT(YEAR FROM AGE(cp.date_of_birth)) BETWEEN 45 AND 49 THEN '45-49'
-                    WHEN EXTRACT(YEAR FROM AGE(cp.date_of_birth)) BETWEEN 50 AND 54 THEN '50-54'
-                    WHEN EXTRACT(YEAR FROM AGE(cp.date_of_birth)) BETWEEN 55 AND 59 THEN '55-59'
-                    ELSE '60+'
-                END as age_bucket,
-                COUNT(*) as users_count
-            FROM customer_profile cp
-            GROUP BY age_bucket
+            SELECT cs.age_bucket_5y as age_bucket,
+                   COUNT(*) as users_count
+            FROM customer_segment cs
+            GROUP BY cs.age_bucket_5y
             ORDER BY age_bucket
             """;
-        List<Object[]> rows = entityManager.createNativeQuery(sql).getResultList();
-        List<AgeBucketDto> list = new ArrayList<>();
-        for (Object[] r : rows) {
+        return RowProjection.list(entityManager.createNativeQuery(sql), row -> {
             AgeBucketDto dto = new AgeBucketDto();
-            dto.setBucket((String) r[0]);
-            dto.setCount(((Number) r[1]).longValue());
-            list.add(dto);
-        }
-        return list;
+            dto.setBucket(row.str(0));
+            dto.setCount(row.lng(1));
+            return dto;
+        });
     }
 
     public List<BucketItemDto> getLoginByHourLast30d() {
@@ -217,134 +167,146 @@ public class AnalyzeRepository {
             GROUP BY hour
             ORDER BY hour
             """;
-        List<Object[]> rows = entityManager.createNativeQuery(sql)
-                .setParameter("from", from)
-                .getResultList();
-        List<BucketItemDto> list = new ArrayList<>();
-        for (Object[] r : rows) {
+        jakarta.persistence.Query query = entityManager.createNativeQuery(sql)
+                .setParameter("from", from);
+        return RowProjection.list(query, row -> {
             BucketItemDto dto = new BucketItemDto();
-            dto.setLabel(String.valueOf(((Number) r[0]).intValue()));
-            dto.setValue(BigDecimal.valueOf(((Number) r[1]).longValue()));
-            list.add(dto);
-        }
-        return list;
+            dto.setLabel(String.valueOf(row.integer(0)));
+            dto.setValue(BigDecimal.valueOf(row.lng(1)));
+            return dto;
+        });
     }
 
     // ===== Order analytics =====
     public List<PieItemDto> getTopBrands() {
-        String jpql = """
-            SELECT p.brand.brandName, SUM(oi.quantity) as qty
-            FROM OrderItem oi
-            JOIN oi.order o
-            JOIN oi.product p
-            WHERE o.status.statusName = 'DELIVERED'
-            GROUP BY p.brand.brandName
+        String sql = """
+            SELECT b.brand_name, SUM(r.units_sold) AS qty
+            FROM sales_rollup_product_daily r
+            JOIN brand b ON b.brand_id = r.brand_id
+            GROUP BY b.brand_name
             ORDER BY qty DESC
             """;
-        List<Object[]> rows = entityManager.createQuery(jpql, Object[].class)
-                .setMaxResults(10)
-                .getResultList();
-        List<PieItemDto> list = new ArrayList<>();
-        for (Object[] r : rows) {
-            PieItemDto dto = new PieItemDto();
-            dto.setLabel((String) r[0]);
-            dto.setValue(BigDecimal.valueOf(((Number) r[1]).longValue()));
-            list.add(dto);
-        }
-        return list;
+        return RowProjection.pie(entityManager.createNativeQuery(sql).setMaxResults(10));
     }
 
     public List<PieItemDto> getTopCategories() {
-        String jpql = """
-            SELECT p.category.categoryName, SUM(oi.quantity) as qty
-            FROM OrderItem oi
-            JOIN oi.order o
-            JOIN oi.product p
-            WHERE o.status.statusName = 'DELIVERED'
-            GROUP BY p.category.categoryName
+        String sql = """
+            SELECT c.category_name, SUM(r.units_sold) AS qty
+            FROM sales_rollup_product_daily r
+            JOIN category c ON c.category_id = r.category_id
+            GROUP BY c.category_name
             ORDER BY qty DESC
             """;
-        List<Object[]> rows = entityManager.createQuery(jpql, Object[].class)
-                .setMaxResults(10)
-                .getResultList();
-        List<PieItemDto> list = new ArrayList<>();
-        for (Object[] r : rows) {
-            PieItemDto dto = new PieItemDto();
-            dto.setLabel((String) r[0]);
-            dto.setValue(BigDecimal.valueOf(((Number) r[1]).longValue()));
-            list.add(dto);
-        }
-        return list;
+        return RowProjection.pie(entityManager.createNativeQuery(sql).setMaxResults(10));
     }
 
     public List<PieItemDto> getTopProducts() {
-        String jpql = """
-            SELECT p.name, SUM(oi.quantity) as qty
-            FROM OrderItem oi
-            JOIN oi.order o
-            JOIN oi.product p
-            WHERE o.status.statusName = 'DELIVERED'
+        String sql = """
+            SELECT p.name, SUM(r.units_sold) AS qty
+            FROM sales_rollup_product_daily r
+            JOIN product p ON p.product_id = r.product_id
             GROUP BY p.name
             ORDER BY qty DESC
             """;
-        List<Object[]> rows = entityManager.createQuery(jpql, Object[].class)
-                .setMaxResults(10)
-                .getResultList();
-        List<PieItemDto> list = new ArrayList<>();
-        for (Object[] r : rows) {
-            PieItemDto dto = new PieItemDto();
-            dto.setLabel((String) r[0]);
-            dto.setValue(BigDecimal.valueOf(((Number) r[1]).longValue()));
-            list.add(dto);
+        return RowProjection.pie(entityManager.createNativeQuery(sql).setMaxResults(10));
+    }
+
+    /**
+     * Точный top-K доставленных товаров / брендов / категорий за период [from, to)
+     * с числом различных покупателей (режим сверки для приближённых скетчей)
+     */
+    public TopKResultDto getTopKExact(String scope, LocalDate from, LocalDate to, int k) {
+        String label = switch (scope) {
+            case "categories" -> "c.category_name";
+            case "brands" -> "b.brand_name";
+            default -> "p.name";
+        };
+        StringBuilder sql = new StringBuilder("""
+            SELECT %s AS label,
+                   SUM(oi.quantity) AS qty,
+                   COUNT(DISTINCT o.user_id) AS buyers,
+                   SUM(SUM(oi.quantity)) OVER () AS total_qty
+            FROM order_item oi
+            JOIN "order" o ON o.order_id = oi.order_id
+            JOIN order_status os ON os.status_id = o.status_id
+            JOIN product p ON p.product_id = oi.product_id
+            LEFT JOIN category c ON c.category_id = p.category_id
+            LEFT JOIN brand b ON b.brand_id = p.brand_id
+            WHERE os.status_name = 'DELIVERED'
+              AND %s IS NOT NULL
+            """.formatted(label, label));
+        if (from != null) {
+            sql.append(" AND o.order_date >= :from ");
         }
-        return list;
+        if (to != null) {
+            sql.append(" AND o.order_date < :to ");
+        }
+        sql.append(" GROUP BY %s ORDER BY qty DESC".formatted(label));
+
+        jakarta.persistence.Query query = entityManager.createNativeQuery(sql.toString());
+        if (from != null) query.setParameter("from", from.atStartOfDay());
+        if (to != null) query.setParameter("to", to.atStartOfDay());
+        query.setMaxResults(k);
+
+        List<TopKItemDto> items = new ArrayList<>();
+        long[] total = {0};
+        RowProjection.forEach(query, row -> {
+            TopKItemDto dto = new TopKItemDto();
+            dto.setLabel(row.str(0));
+            dto.setUnits(row.lng(1));
+            dto.setMaxError(0L);
+            dto.setGuaranteed(true);
+            dto.setDistinctBuyers(row.lng(2));
+            items.add(dto);
+            total[0] = row.lng(3);
+        });
+
+        TopKResultDto result = new TopKResultDto();
+        result.setScope(scope);
+        result.setExact(true);
+        result.setFromMonth(from != null ? from.toString().substring(0, 7) : null);
+        result.setToMonth(to != null ? to.minusDays(1).toString().substring(0, 7) : null);
+        result.setTotalUnits(total[0]);
+        result.setErrorBound(0L);
+        result.setDistinctBuyersRelativeError(0.0);
+        result.setItems(items);
+        return result;
     }
 
     public List<TimeSeriesItemDto> getRevenueByMonthLastYear() {
         String sql = """
-            SELECT to_char(date_trunc('month', o.order_date), 'YYYY-MM') AS ym,
-                   SUM(o.total_amount) as revenue
-            FROM "order" o
-            JOIN order_status os ON os.status_id = o.status_id
-            WHERE os.status_name = 'DELIVERED'
-              AND o.order_date >= (CURRENT_DATE - INTERVAL '12 months')
+            SELECT to_char(date_trunc('month', r.sale_date), 'YYYY-MM') AS ym,
+                   SUM(r.revenue) as revenue
+            FROM sales_rollup_order_daily r
+            WHERE r.sale_date >= (CURRENT_DATE - INTERVAL '12 months')
             GROUP BY ym
             ORDER BY ym
             """;
-        List<Object[]> rows = entityManager.createNativeQuery(sql).getResultList();
-        List<TimeSeriesItemDto> list = new ArrayList<>();
-        for (Object[] r : rows) {
+        return RowProjection.list(entityManager.createNativeQuery(sql), row -> {
             TimeSeriesItemDto dto = new TimeSeriesItemDto();
-            dto.setLabel((String) r[0]);
-            dto.setValue((BigDecimal) r[1]);
-            list.add(dto);
-        }
-        return list;
+            dto.setLabel(row.str(0));
+            dto.setValue(row.dec(1));
+            return dto;
+        });
     }
 
     public List<TimeSeriesItemDto> getBestsellersByMonth() {
         String sql = """
-            SELECT to_char(date_trunc('month', o.order_date), 'YYYY-MM') AS ym,
+            SELECT to_char(date_trunc('month', r.sale_date), 'YYYY-MM') AS ym,
                    p.name,
-                   SUM(oi.quantity) as qty
-            FROM order_item oi
-            JOIN "order" o ON o.order_id = oi.order_id
-            JOIN product p ON p.product_id = oi.product_id
-            JOIN order_status os ON os.status_id = o.status_id
-            WHERE os.status_name = 'DELIVERED'
-              AND o.order_date >= (CURRENT_DATE - INTERVAL '12 months')
+                   SUM(r.units_sold) as qty
+            FROM sales_rollup_product_daily r
+            JOIN product p ON p.product_id = r.product_id
+            WHERE r.sale_date >= (CURRENT_DATE - INTERVAL '12 months')
             GROUP BY ym, p.name
             ORDER BY ym, qty DESC
             """;
-        List<Object[]> rows = entityManager.createNativeQuery(sql).getResultList();
-        List<TimeSeriesItemDto> list = new ArrayList<>();
-        for (Object[] r : rows) {
+        return RowProjection.list(entityManager.createNativeQuery(sql), row -> {
             TimeSeriesItemDto dto = new TimeSeriesItemDto();
-            dto.setLabel((String) r[0] + " - " + r[1]);
-            dto.setValue(BigDecimal.valueOf(((Number) r[2]).longValue()));
-            list.add(dto);
-        }
-        return list;
+            dto.setLabel(row.str(0) + " - " + row.str(1));
+            dto.setValue(BigDecimal.valueOf(row.lng(2)));
+            return dto;
+        });
     }
 
     // ===== Analyze generic =====
@@ -361,308 +323,163 @@ public class AnalyzeRepository {
             FROM OrderItem oi
             JOIN oi.order o
             JOIN oi.product p
-            JOIN o.user u
-            LEFT JOIN u.customerProfile cp
+            LEFT JOIN CustomerSegment cs ON cs.userId = o.user.userId
             WHERE o.status.statusName = 'DELIVERED'
         """.formatted(base));
 
         if (gender != null && !gender.isBlank()) {
-            jpql.append(" AND (cp.gender = :gender) ");
+            jpql.append(" AND (cs.gender = :gender) ");
         }
         if (ageGroup != null && !ageGroup.isBlank()) {
-            jpql.append("""
-                AND (
-                    CASE 
-                        WHEN cp.dateOfBirth IS NULL THEN 'Unknown'
-                        WHEN EXTRACT(YEAR FROM AGE(cp.dateOfBirth)) < 18 THEN '0-17'
-                        WHEN EXTRACT(YEAR FROM AGE(cp.dateOfBirth)) BETWEEN 18 AND 24 THEN '18-24'
-                        WHEN EXTRACT(YEAR FROM AGE(cp.dateOfBirth)) BETWEEN 25 AND 29 THEN '25-29'
-                        WHEN EXTRACT(YEAR FROM AGE(cp.dateOfBirth)) BETWEEN 30 AND 34 THEN '30-34'
-                        WHEN EXTRACT(YEAR FROM AGE(cp.dateOfBirth)) BETWEEN 35 AND 39 THEN '35-39'
-                        WHEN EXTRACT(YEAR FROM AGE(cp.dateOfBirth)) BETWEEN 40 AND 44 THEN '40-44'
-                        WHEN EXTRACT(YEAR FROM AGE(cp.dateOfBirth)) BETWEEN 45 AND 49 THEN '45-49'
-                        WHEN EXTRACT(YEAR FROM AGE(cp.dateOfBirth)) BETWEEN 50 AND 54 THEN '50-54'
-                        WHEN EXTRACT(YEAR FROM AGE(cp.dateOfBirth)) BETWEEN 55 AND 59 THEN '55-59'
-                        ELSE '60+'
-                    END = :ageGroup
-                )
-            """);
+            appendAgeGroupFilter(jpql);
         }
         if (month != null) {
             jpql.append(" AND EXTRACT(MONTH FROM o.orderDate) = :month ");
         }
         jpql.append(" GROUP BY %s ORDER BY qty DESC".formatted(base));
 
-        TypedQuery<Object[]> query = entityManager.createQuery(jpql.toString(), Object[].class);
+        jakarta.persistence.Query query = entityManager.createQuery(jpql.toString());
         if (gender != null && !gender.isBlank()) query.setParameter("gender", gender);
         if (ageGroup != null && !ageGroup.isBlank()) query.setParameter("ageGroup", ageGroup);
         if (month != null) query.setParameter("month", month);
 
-        List<Object[]> rows = query.getResultList();
-        List<PieItemDto> list = new ArrayList<>();
-        for (Object[] r : rows) {
-            PieItemDto dto = new PieItemDto();
-            dto.setLabel((String) r[0]);
-            dto.setValue(BigDecimal.valueOf(((Number) r[1]).longValue()));
-            list.add(dto);
-        }
-        return list;
+        return RowProjection.pie(query);
     }
     /**
      * Анализ по категориям и брендам
      */
     public List<CategoryBrandAnalysisDto> getCategoryBrandAnalysis() {
-        String jpql = """
-            SELECT p.category.categoryId, p.category.categoryName,
-                   p.brand.brandId, p.brand.brandName,
-                   COUNT(DISTINCT o.id) as ordersCount,
-                   SUM(oi.quantity) as unitsSold,
-                   SUM(oi.quantity * oi.unitPrice) as totalRevenue
-            FROM OrderItem oi
-            JOIN oi.order o
-            JOIN oi.product p
-            WHERE o.status.statusName = 'DELIVERED'
-            GROUP BY p.category.categoryId, p.category.categoryName,
-                     p.brand.brandId, p.brand.brandName
-            ORDER BY totalRevenue DESC
+        // Заказ относится ровно к одному дню, поэтому сумма дневных orders_count
+        // равна числу различных заказов в группе
+        String sql = """
+            SELECT c.category_id, c.category_name,
+                   b.brand_id, b.brand_name,
+                   SUM(r.orders_count) AS orders_count,
+                   SUM(r.units_sold) AS units_sold,
+                   SUM(r.revenue) AS total_revenue
+            FROM sales_rollup_category_brand_daily r
+            JOIN category c ON c.category_id = r.category_id
+            JOIN brand b ON b.brand_id = r.brand_id
+            GROUP BY c.category_id, c.category_name, b.brand_id, b.brand_name
+            ORDER BY total_revenue DESC
             """;
-        
-        TypedQuery<Object[]> query = entityManager.createQuery(jpql, Object[].class);
-        List<Object[]> results = query.getResultList();
-        List<CategoryBrandAnalysisDto> analysis = new ArrayList<>();
-        
-        for (Object[] row : results) {
+
+        return RowProjection.list(entityManager.createNativeQuery(sql), row -> {
             CategoryBrandAnalysisDto dto = new CategoryBrandAnalysisDto();
-            dto.setCategoryId((Integer) row[0]);
-            dto.setCategoryName((String) row[1]);
-            dto.setBrandId((Integer) row[2]);
-            dto.setBrandName((String) row[3]);
-            dto.setOrdersCount(((Number) row[4]).longValue());
-            dto.setUnitsSold(((Number) row[5]).longValue());
-            dto.setTotalRevenue((BigDecimal) row[6]);
-            analysis.add(dto);
-        }
-        
-        return analysis;
+            dto.setCategoryId(row.intOrNull(0));
+            dto.setCategoryName(row.str(1));
+            dto.setBrandId(row.intOrNull(2));
+            dto.setBrandName(row.str(3));
+            dto.setOrdersCount(row.lng(4));
+            dto.setUnitsSold(row.lng(5));
+            dto.setTotalRevenue(row.dec(6));
+            return dto;
+        });
     }
 
     /**
      * Анализ по возрастным категориям покупателей
      */
     public List<AgeGroupAnalysisDto> getAgeGroupAnalysis() {
-        // Используем нативный SQL запрос, так как JPA не поддерживает AGE напрямую
         String sql = """
-            SELECT 
-                CASE 
-                    WHEN cp.date_of_birth IS NULL THEN 'Unknown'
-                    WHEN EXTRACT(YEAR FROM AGE(cp.date_of_birth)) BETWEEN 18 AND 25 THEN '18-25'
-                    WHEN EXTRACT(YEAR FROM AGE(cp.date_of_birth)) BETWEEN 26 AND 35 THEN '26-35'
-                    WHEN EXTRACT(YEAR FROM AGE(cp.date_of_birth)) BETWEEN 36 AND 45 THEN '36-45'
-                    WHEN EXTRACT(YEAR FROM AGE(cp.date_of_birth)) BETWEEN 46 AND 60 THEN '46-60'
-                    WHEN EXTRACT(YEAR FROM AGE(cp.date_of_birth)) > 60 THEN '60+'
-                    ELSE 'Unknown'
-                END as age_group,
-                COUNT(DISTINCT cp.user_id) as customers_count,
-                COUNT(DISTINCT o.order_id) as orders_count,
-                COALESCE(SUM(o.total_amount), 0) as total_revenue
+            SELECT COALESCE(cs.age_group, 'Unknown') as age_group,
+                   COUNT(DISTINCT cs.user_id) as customers_count,
+                   COUNT(DISTINCT o.order_id) as orders_count,
+                   COALESCE(SUM(o.total_amount), 0) as total_revenue
             FROM "order" o
-            JOIN "user" u ON o.user_id = u.user_id
-            LEFT JOIN customer_profile cp ON cp.user_id = u.user_id
+            LEFT JOIN customer_segment cs ON cs.user_id = o.user_id
             JOIN order_status os ON o.status_id = os.status_id
             WHERE os.status_name = 'DELIVERED'
-            GROUP BY age_group
-            ORDER BY age_group
+            GROUP BY 1
+            ORDER BY 1
             """;
         
-        jakarta.persistence.Query query = entityManager.createNativeQuery(sql);
-        List<Object[]> results = query.getResultList();
-        List<AgeGroupAnalysisDto> analysis = new ArrayList<>();
-        
-        for (Object[] row : results) {
+        return RowProjection.list(entityManager.createNativeQuery(sql), row -> {
             AgeGroupAnalysisDto dto = new AgeGroupAnalysisDto();
-            dto.setAgeGroup((String) row[0]);
-            dto.setCustomersCount(((Number) row[1]).longValue());
-            dto.setOrdersCount(((Number) row[2]).longValue());
-            dto.setTotalRevenue((BigDecimal) row[3]);
-            analysis.add(dto);
-        }
-        
-        return analysis;
+            dto.setAgeGroup(row.str(0));
+            dto.setCustomersCount(row.lng(1));
+            dto.setOrdersCount(row.lng(2));
+            dto.setTotalRevenue(row.dec(3));
+            return dto;
+        });
     }
 
     /**
      * Анализ по маршрутам (города доставки)
      */
     public List<RouteAnalysisDto> getRouteAnalysis() {
-        String jpql = """
-            SELECT o.shippingCity.cityId, o.shippingCity.cityName,
-                   COUNT(o.id) as ordersCount,
-                   SUM(o.totalAmount) as totalRevenue
-            FROM Order o
-            WHERE o.status.statusName = 'DELIVERED'
-              AND o.shippingCity IS NOT NULL
-            GROUP BY o.shippingCity.cityId, o.shippingCity.cityName
-            ORDER BY totalRevenue DESC
+        String sql = """
+            SELECT c.city_id, c.city_name,
+                   SUM(r.orders_count) AS orders_count,
+                   SUM(r.revenue) AS total_revenue
+            FROM sales_rollup_order_daily r
+            JOIN city c ON c.city_id = r.city_id
+            GROUP BY c.city_id, c.city_name
+            ORDER BY total_revenue DESC
             """;
-        
-        TypedQuery<Object[]> query = entityManager.createQuery(jpql, Object[].class);
-        List<Object[]> results = query.getResultList();
-        List<RouteAnalysisDto> analysis = new ArrayList<>();
-        
-        for (Object[] row : results) {
+
+        return RowProjection.list(entityManager.createNativeQuery(sql), row -> {
             RouteAnalysisDto dto = new RouteAnalysisDto();
-            dto.setCityId((Integer) row[0]);
-            dto.setCityName((String) row[1]);
-            dto.setOrdersCount(((Number) row[2]).longValue());
-            dto.setTotalRevenue((BigDecimal) row[3]);
-            analysis.add(dto);
-        }
-        
-        return analysis;
+            dto.setCityId(row.intOrNull(0));
+            dto.setCityName(row.str(1));
+            dto.setOrdersCount(row.lng(2));
+            dto.setTotalRevenue(row.dec(3));
+            return dto;
+        });
     }
 
     /**
      * Анализ по способам оплаты
      */
     public List<PaymentDeliveryAnalysisDto> getPaymentMethodAnalysis() {
-        String jpql = """
-            SELECT o.paymentMethod.methodId, o.paymentMethod.methodName,
-                   COUNT(o.id) as ordersCount,
-                   SUM(o.totalAmount) as totalRevenue
-            FROM Order o
-            WHERE o.status.statusName = 'DELIVERED'
-              AND o.paymentMethod IS NOT NULL
-            GROUP BY o.paymentMethod.methodId, o.paymentMethod.methodName
-            ORDER BY totalRevenue DESC
+        String sql = """
+            SELECT pm.method_id, pm.method_name,
+                   SUM(r.orders_count) AS orders_count,
+                   SUM(r.revenue) AS total_revenue
+            FROM sales_rollup_order_daily r
+            JOIN payment_method pm ON pm.method_id = r.payment_method_id
+            GROUP BY pm.method_id, pm.method_name
+            ORDER BY total_revenue DESC
             """;
-        
-        TypedQuery<Object[]> query = entityManager.createQuery(jpql, Object[].class);
-        List<Object[]> results = query.getResultList();
-        List<PaymentDeliveryAnalysisDto> analysis = new ArrayList<>();
-        
-        for (Object[] row : results) {
-            PaymentDeliveryAnalysisDto dto = new PaymentDeliveryAnalysisDto();
-            dto.setMethodId((Integer) row[0]);
-            dto.setMethodName((String) row[1]);
-            dto.setMethodType("PAYMENT");
-            dto.setOrdersCount(((Number) row[2]).longValue());
-            dto.setTotalRevenue((BigDecimal) row[3]);
-            analysis.add(dto);
-        }
-        
-        return analysis;
+
+        return RowProjection.list(entityManager.createNativeQuery(sql), row -> methodAnalysis(row, "PAYMENT"));
     }
 
     /**
      * Анализ по способам доставки
      */
     public List<PaymentDeliveryAnalysisDto> getDeliveryMethodAnalysis() {
-        String jpql = """
-            SELECT o.deliveryMethod.methodId, o.deliveryMethod.methodName,
-                   COUNT(o.id) as ordersCount,
-                   SUM(o.totalAmount) as totalRevenue
-            FROM Order o
-            WHERE o.status.statusName = 'DELIVERED'
-              AND o.deliveryMethod IS NOT NULL
-            GROUP BY o.deliveryMethod.methodId, o.deliveryMethod.methodName
-            ORDER BY totalRevenue DESC
-            """;
-        
-        TypedQuery<Object[]> query = entityManager.createQuery(jpql, Object[].class);
-        List<Object[]> results = query.getResultList();
-        List<PaymentDeliveryAnalysisDto> analysis = new ArrayList<>();
-        
-        for (Object[] row : results) {
-            PaymentDeliveryAnalysisDto dto = new PaymentDeliveryAnalysisDto();
-            dto.setMethodId((Integer) row[0]);
-            dto.setMethodName((String) row[1]);
-            dto.setMethodType("DELIVERY");
-            dto.setOrdersCount(((Number) row[2]).longValue());
-            dto.setTotalRevenue((BigDecimal) row[3]);
-            analysis.add(dto);
-        }
-        
-        return analysis;
-    }
-
-
-    /**
-     * Прогнозирование продаж по месяцам по категории товаров
-     */
-    public ForecastDto getMonthlySalesForecast(Integer categoryId, int windowSize) {
-
         String sql = """
-        SELECT 
-            DATE_TRUNC('month', o.order_date) AS month,
-            SUM(oi.quantity * oi.unit_price) AS revenue
-        FROM order_item oi
-        JOIN "order" o ON oi.order_id = o.order_id
-        JOIN product p ON oi.product_id = p.product_id
-        JOIN order_status os ON o.status_id = os.status_id
-        WHERE os.status_name = 'DELIVERED'
-          AND p.category_id = :categoryId
-        GROUP BY month
-        ORDER BY month
-        """;
-
-        jakarta.persistence.Query query = entityManager.createNativeQuery(sql);
-        query.setParameter("categoryId", categoryId);
-
-        List<Object[]> rows = query.getResultList();
-
-        List<BigDecimal> monthlySales = new ArrayList<>();
-        for (Object[] row : rows) {
-            monthlySales.add((BigDecimal) row[1]);
-        }
-
-        // Расчет скользящего среднего
-        List<BigDecimal> movingAvg = new ArrayList<>();
-
-        for (int i = 0; i < monthlySales.size(); i++) {
-            if (i + 1 < windowSize) {
-                movingAvg.add(null); // для первых месяцев нет MA
-            } else {
-                BigDecimal sum = BigDecimal.ZERO;
-                for (int j = i - windowSize + 1; j <= i; j++) {
-                    sum = sum.add(monthlySales.get(j));
-                }
-                movingAvg.add(sum.divide(BigDecimal.valueOf(windowSize), 2, BigDecimal.ROUND_HALF_UP));
-            }
-        }
+            SELECT dm.method_id, dm.method_name,
+                   SUM(r.orders_count) AS orders_count,
+                   SUM(r.revenue) AS total_revenue
+            FROM sales_rollup_order_daily r
+            JOIN delivery_method dm ON dm.method_id = r.delivery_method_id
+            GROUP BY dm.method_id, dm.method_name
+            ORDER BY total_revenue DESC
+            """;
 
-        // Прогноз = последнее скользящее среднее
-        BigDecimal forecast = movingAvg.get(movingAvg.size() - 1);
+        return RowProjection.list(entityManager.createNativeQuery(sql), row -> methodAnalysis(row, "DELIVERY"));
+    }
 
-        ForecastDto dto = new ForecastDto();
-        dto.setMonthlySales(monthlySales);
-        dto.setMovingAverage(movingAvg);
-        dto.setForecast(forecast);
 
+    private static PaymentDeliveryAnalysisDto methodAnalysis(RowProjection.Row row, String methodType) {
+        PaymentDeliveryAnalysisDto dto = new PaymentDeliveryAnalysisDto();
+        dto.setMethodId(row.intOrNull(0));
+        dto.setMethodName(row.str(1));
+        dto.setMethodType(methodType);
+        dto.setOrdersCount(row.lng(2));
+        dto.setTotalRevenue(row.dec(3));
         return dto;
     }
 
     // ===== Order filtered by status/gender/age/category/brand =====
+    // Покупатели без профиля попадают в группу Unknown, как и без даты рождения
     private void appendAgeGroupFilter(StringBuilder sb) {
-        sb.append("""
-                AND (
-                    CASE 
-                        WHEN cp.dateOfBirth IS NULL THEN 'Unknown'
-                        WHEN EXTRACT(YEAR FROM AGE(cp.dateOfBirth)) < 18 THEN '0-17'
-                        WHEN EXTRACT(YEAR FROM AGE(cp.dateOfBirth)) BETWEEN 18 AND 24 THEN '18-24'
-                        WHEN EXTRACT(YEAR FROM AGE(cp.dateOfBirth)) BETWEEN 25 AND 29 THEN '25-29'
-                        WHEN EXTRACT(YEAR FROM AGE(cp.dateOfBirth)) BETWEEN 30 AND 34 THEN '30-34'
-                        WHEN EXTRACT(YEAR FROM AGE(cp.dateOfBirth)) BETWEEN 35 AND 39 THEN '35-39'
-                        WHEN EXTRACT(YEAR FROM AGE(cp.dateOfBirth)) BETWEEN 40 AND 44 THEN '40-44'
-                        WHEN EXTRACT(YEAR FROM AGE(cp.dateOfBirth)) BETWEEN 45 AND 49 THEN '45-49'
-                        WHEN EXTRACT(YEAR FROM AGE(cp.dateOfBirth)) BETWEEN 50 AND 54 THEN '50-54'
-                        WHEN EXTRACT(YEAR FROM AGE(cp.dateOfBirth)) BETWEEN 55 AND 59 THEN '55-59'
-                        ELSE '60+'
-                    END = :ageGroup
-                )
-            """);
+        sb.append(" AND (cs.ageBucket5y = :ageGroup OR (cs.userId IS NULL AND :ageGroup = 'Unknown')) ");
     }
 
-    private TypedQuery<Object[]> buildOrderFilterQuery(String selectLabel,
+    private jakarta.persistence.Query buildOrderFilterQuery(String selectLabel,
                                                        String status,
                                                        String gender,
                                                        String ageGroup,
@@ -673,8 +490,7 @@ public class AnalyzeRepository {
             FROM OrderItem oi
             JOIN oi.order o
             JOIN oi.product p
-            JOIN o.user u
-            LEFT JOIN u.customerProfile cp
+            LEFT JOIN CustomerSegment cs ON cs.userId = o.user.userId
             WHERE 1=1
         """.formatted(selectLabel));
 
@@ -684,7 +500,7 @@ public class AnalyzeRepository {
             jpql.append(" AND o.status.statusName IN ('PROCESSING','IN_TRANSIT','DELIVERED','CANCELLED') ");
         }
         if (gender != null && !gender.isBlank()) {
-            jpql.append(" AND cp.gender = :gender ");
+            jpql.append(" AND cs.gender = :gender ");
         }
         if (ageGroup != null && !ageGroup.isBlank()) {
             appendAgeGroupFilter(jpql);
@@ -698,7 +514,7 @@ public class AnalyzeRepository {
 
         jpql.append(" GROUP BY %s ORDER BY qty DESC".formatted(selectLabel));
 
-        TypedQuery<Object[]> query = entityManager.createQuery(jpql.toString(), Object[].class);
+        jakarta.persistence.Query query = entityManager.createQuery(jpql.toString());
         if (status != null && !status.isBlank()) query.setParameter("status", status);
         if (gender != null && !gender.isBlank()) query.setParameter("gender", gender);
         if (ageGroup != null && !ageGroup.isBlank()) query.setParameter("ageGroup", ageGroup);
@@ -708,30 +524,19 @@ public class AnalyzeRepository {
         return query;
     }
 
-    private List<PieItemDto> mapPie(List<Object[]> rows) {
-        List<PieItemDto> list = new ArrayList<>();
-        for (Object[] r : rows) {
-            PieItemDto dto = new PieItemDto();
-            dto.setLabel((String) r[0]);
-            dto.setValue(BigDecimal.valueOf(((Number) r[1]).longValue()));
-            list.add(dto);
-        }
-        return list;
-    }
-
     public List<PieItemDto> getOrderBrandsByFilter(String status, String gender, String ageGroup, Integer categoryId, Integer brandId) {
         var q = buildOrderFilterQuery("p.brand.brandName", status, gender, ageGroup, categoryId, brandId);
-        return mapPie(q.getResultList());
+        return RowProjection.pie(q);
     }
 
     public List<PieItemDto> getOrderCategoriesByFilter(String status, String gender, String ageGroup, Integer categoryId, Integer brandId) {
         var q = buildOrderFilterQuery("p.category.categoryName", status, gender, ageGroup, categoryId, brandId);
-        return mapPie(q.getResultList());
+        return RowProjection.pie(q);
     }
 
     public List<PieItemDto> getOrderProductsByFilter(String status, String gender, String ageGroup, Integer categoryId, Integer brandId) {
         var q = buildOrderFilterQuery("p.name", status, gender, ageGroup, categoryId, brandId);
-        return mapPie(q.getResultList());
+        return RowProjection.pie(q);
     }
 }
 
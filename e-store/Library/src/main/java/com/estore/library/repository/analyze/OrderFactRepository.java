@@ -0,0 +1,160 @@
+package com.estore.library.repository.analyze;
+
+import com.estore.library.analytics.cube.OrderFactRow;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Выборка строк заказов для колоночного куба (OrderFactCube)
+ */
+@Repository
+@Transactional(readOnly = true)
+public class OrderFactRepository {
+
+    private static final String FACT_SELECT = """
+            SELECT o.order_id, oi.product_id, p.name,
+                   p.category_id, c.category_name,
+                   p.brand_id, b.brand_name,
+                   cs.gender, COALESCE(cs.age_bucket_5y, 'Unknown'),
+                   o.order_date, os.status_name,
+                   o.shipping_city_id, ci.city_name,
+                   oi.quantity, oi.unit_price,
+                   o.user_id
+            FROM order_item oi
+            JOIN "order" o ON o.order_id = oi.order_id
+            JOIN order_status os ON os.status_id = o.status_id
+            JOIN product p ON p.product_id = oi.product_id
+            LEFT JOIN category c ON c.category_id = p.category_id
+            LEFT JOIN brand b ON b.brand_id = p.brand_id
+            LEFT JOIN customer_segment cs ON cs.user_id = o.user_id
+            LEFT JOIN city ci ON ci.city_id = o.shipping_city_id
+            """;
+
+    private static final int FETCH_SIZE = 5000;
+    private static final int STATUS_BATCH = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Все строки заказов (потоково, без загрузки всего результата в память)
+     */
+    public void streamAll(Consumer<OrderFactRow> consumer) {
+        stream(entityManager.createNativeQuery(FACT_SELECT), consumer);
+    }
+
+    /**
+     * Строки заказов, созданных после указанного момента
+     */
+    public void streamCreatedAfter(LocalDateTime since, Consumer<OrderFactRow> consumer) {
+        Query query = entityManager.createNativeQuery(FACT_SELECT + " WHERE o.order_date > :since")
+                .setParameter("since", Timestamp.valueOf(since));
+        stream(query, consumer);
+    }
+
+    /**
+     * Строки всех доставленных заказов
+     */
+    public void streamDelivered(Consumer<OrderFactRow> consumer) {
+        stream(entityManager.createNativeQuery(FACT_SELECT + " WHERE os.status_name = 'DELIVERED'"), consumer);
+    }
+
+    /**
+     * Строки доставленных заказов с датой в полуинтервале [from, to)
+     */
+    public void streamDeliveredBetween(LocalDateTime from, LocalDateTime to, Consumer<OrderFactRow> consumer) {
+        Query query = entityManager.createNativeQuery(FACT_SELECT
+                        + " WHERE os.status_name = 'DELIVERED' AND o.order_date >= :from AND o.order_date < :to")
+                .setParameter("from", Timestamp.valueOf(from))
+                .setParameter("to", Timestamp.valueOf(to));
+        stream(query, consumer);
+    }
+
+    /**
+     * Строки одного заказа
+     */
+    public List<OrderFactRow> findByOrderId(UUID orderId) {
+        List<Object[]> rows = entityManager.createNativeQuery(FACT_SELECT + " WHERE o.order_id = :orderId")
+                .setParameter("orderId", orderId)
+                .getResultList();
+        List<OrderFactRow> result = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            result.add(toFact(row));
+        }
+        return result;
+    }
+
+    /**
+     * Текущие статусы заказов (удалённые заказы в результат не попадают)
+     */
+    public Map<UUID, String> findStatusNames(Collection<UUID> orderIds) {
+        Map<UUID, String> statuses = new HashMap<>();
+        List<UUID> ids = new ArrayList<>(orderIds);
+        for (int from = 0; from < ids.size(); from += STATUS_BATCH) {
+            List<UUID> batch = ids.subList(from, Math.min(from + STATUS_BATCH, ids.size()));
+            List<Object[]> rows = entityManager.createNativeQuery("""
+                    SELECT o.order_id, os.status_name
+                    FROM "order" o
+                    JOIN order_status os ON os.status_id = o.status_id
+                    WHERE o.order_id IN (:ids)
+                    """)
+                    .setParameter("ids", batch)
+                    .getResultList();
+            for (Object[] row : rows) {
+                statuses.put((UUID) row[0], (String) row[1]);
+            }
+        }
+        return statuses;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stream(Query query, Consumer<OrderFactRow> consumer) {
+        query.setHint("org.hibernate.fetchSize", FETCH_SIZE);
+        query.setHint("org.hibernate.readOnly", true);
+        try (Stream<Object[]> rows = query.getResultStream()) {
+            rows.forEach(row -> consumer.accept(toFact(row)));
+        }
+    }
+
+    private static OrderFactRow toFact(Object[] r) {
+        return new OrderFactRow(
+                (UUID) r[0],
+                (UUID) r[1],
+                (String) r[2],
+                r[3] != null ? ((Number) r[3]).intValue() : null,
+                (String) r[4],
+                r[5] != null ? ((Number) r[5]).intValue() : null,
+                (String) r[6],
+                (String) r[7],
+                (String) r[8],
+                toLocalDateTime(r[9]),
+                (String) r[10],
+                r[11] != null ? ((Number) r[11]).intValue() : null,
+                (String) r[12],
+                ((Number) r[13]).intValue(),
+                (BigDecimal) r[14],
+                (UUID) r[15]);
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value == null) return null;
+        if (value instanceof LocalDateTime dateTime) return dateTime;
+        if (value instanceof Timestamp timestamp) return timestamp.toLocalDateTime();
+        throw new IllegalStateException("Unexpected timestamp type: " + value.getClass());
+    }
+}
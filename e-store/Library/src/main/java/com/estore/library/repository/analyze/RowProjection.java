@@ -0,0 +1,191 @@
+package com.estore.library.repository.analyze;
+
+import com.estore.library.dto.analyze.dto.BucketItemDto;
+import com.estore.library.dto.analyze.dto.PieItemDto;
+import jakarta.persistence.Query;
+import org.hibernate.query.TupleTransformer;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Проекция строк аналитических запросов сразу в DTO.
+ * <p>
+ * Строка результата отображается через {@link TupleTransformer} в момент
+ * чтения из ResultSet, поэтому промежуточный {@code List<Object[]>} не создаётся.
+ * {@link Row} — переиспользуемый курсор с типизированными аксессорами вместо
+ * приведения колонок в каждом методе репозитория.
+ */
+final class RowProjection {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private RowProjection() {
+    }
+
+    @FunctionalInterface
+    interface RowMapper<T> {
+        T map(Row row);
+    }
+
+    /**
+     * Список DTO, отображённых по мере чтения строк
+     */
+    @SuppressWarnings("unchecked")
+    static <T> List<T> list(Query query, RowMapper<T> mapper) {
+        Row row = new Row();
+        TupleTransformer<T> transformer = (tuple, aliases) -> mapper.map(row.wrap(tuple));
+        return query.unwrap(org.hibernate.query.Query.class)
+                .setTupleTransformer(transformer)
+                .getResultList();
+    }
+
+    /**
+     * Потоковый обход строк без накопления результата (read-only, с fetch size)
+     */
+    @SuppressWarnings("unchecked")
+    static void forEach(Query query, Consumer<Row> consumer) {
+        query.setHint("org.hibernate.fetchSize", FETCH_SIZE);
+        query.setHint("org.hibernate.readOnly", true);
+        Row row = new Row();
+        try (Stream<Object> rows = query.getResultStream()) {
+            rows.forEach(tuple -> consumer.accept(row.wrap(tuple)));
+        }
+    }
+
+    /**
+     * Строки (подпись, количество) как элементы диаграммы без долей
+     */
+    static List<PieItemDto> pie(Query query) {
+        return list(query, r -> pieItem(r.str(0), r.lng(1)));
+    }
+
+    /**
+     * Строки (подпись, количество) с долей каждой подписи в процентах.
+     * Количества копятся в примитивном массиве: доли считаются после
+     * подсчёта суммы, без второго прохода по Object[]
+     */
+    static List<PieItemDto> pieWithShare(Query query) {
+        ShareAccumulator shares = new ShareAccumulator();
+        forEach(query, shares);
+        return shares.toPie();
+    }
+
+    /**
+     * Строки (подпись, количество) как столбцы гистограммы
+     */
+    static List<BucketItemDto> buckets(Query query) {
+        return list(query, r -> {
+            BucketItemDto dto = new BucketItemDto();
+            dto.setLabel(r.str(0));
+            dto.setValue(BigDecimal.valueOf(r.lng(1)));
+            return dto;
+        });
+    }
+
+    /**
+     * Доля part от total в процентах с двумя знаками (HALF_UP) в целочисленной арифметике
+     */
+    static BigDecimal percent(long part, long total) {
+        if (total <= 0) {
+            return BigDecimal.ZERO;
+        }
+        // Сотые доли процента: part * 10000 / total с округлением половины вверх
+        long hundredths = (part * 20000 / total + 1) / 2;
+        return BigDecimal.valueOf(hundredths, 2);
+    }
+
+    private static PieItemDto pieItem(String label, long value) {
+        PieItemDto dto = new PieItemDto();
+        dto.setLabel(label);
+        dto.setValue(BigDecimal.valueOf(value));
+        return dto;
+    }
+
+    /**
+     * Курсор по текущей строке; действителен только внутри обработки строки
+     */
+    static final class Row {
+        private Object[] tuple;
+
+        private Row wrap(Object tuple) {
+            this.tuple = tuple instanceof Object[] array ? array : new Object[]{tuple};
+            return this;
+        }
+
+        Object get(int index) {
+            return tuple[index];
+        }
+
+        String str(int index) {
+            Object value = tuple[index];
+            return value != null ? value.toString() : null;
+        }
+
+        long lng(int index) {
+            Object value = tuple[index];
+            return value != null ? ((Number) value).longValue() : 0L;
+        }
+
+        int integer(int index) {
+            Object value = tuple[index];
+            return value != null ? ((Number) value).intValue() : 0;
+        }
+
+        Integer intOrNull(int index) {
+            Object value = tuple[index];
+            return value != null ? ((Number) value).intValue() : null;
+        }
+
+        BigDecimal dec(int index) {
+            Object value = tuple[index];
+            if (value == null || value instanceof BigDecimal) {
+                return (BigDecimal) value;
+            }
+            if (value instanceof Double || value instanceof Float) {
+                return BigDecimal.valueOf(((Number) value).doubleValue());
+            }
+            return value instanceof Number number ? BigDecimal.valueOf(number.longValue()) : new BigDecimal(value.toString());
+        }
+
+        UUID uuid(int index) {
+            Object value = tuple[index];
+            return value instanceof UUID id ? id : value != null ? UUID.fromString(value.toString()) : null;
+        }
+    }
+
+    /**
+     * Подписи и количества в примитивном массиве; сумма копится по ходу чтения
+     */
+    private static final class ShareAccumulator implements Consumer<Row> {
+        private final List<String> labels = new ArrayList<>();
+        private long[] counts = new long[16];
+        private long total;
+
+        @Override
+        public void accept(Row row) {
+            int i = labels.size();
+            if (i == counts.length) {
+                counts = Arrays.copyOf(counts, i * 2);
+            }
+            labels.add(row.str(0));
+            counts[i] = row.lng(1);
+            total += counts[i];
+        }
+
+        List<PieItemDto> toPie() {
+            List<PieItemDto> list = new ArrayList<>(labels.size());
+            for (int i = 0; i < labels.size(); i++) {
+                PieItemDto dto = pieItem(labels.get(i), counts[i]);
+                dto.setPercent(percent(counts[i], total));
+                list.add(dto);
+            }
+            return list;
+        }
+    }
+}
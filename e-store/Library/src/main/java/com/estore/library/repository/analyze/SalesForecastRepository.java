@@ -0,0 +1,152 @@
+package com.estore.library.repository.analyze;
+
+import com.estore.library.analytics.forecast.ForecastResult;
+import com.estore.library.analytics.forecast.MonthlySeries;
+import com.estore.library.analytics.forecast.StoredForecast;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Помесячная выручка категорий (из агрегатов продаж) и сохранённые прогнозы
+ */
+@Repository
+@RequiredArgsConstructor
+public class SalesForecastRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Помесячная выручка по категориям одним запросом.
+     * Ряды заполнены нулями от первого месяца продаж категории до последнего месяца с продажами в магазине.
+     *
+     * @param categoryId категория или null для всех категорий
+     */
+    public Map<Integer, MonthlySeries> findMonthlyCategoryRevenue(Integer categoryId) {
+        LocalDate lastSale = jdbcTemplate.queryForObject(
+                "SELECT MAX(sale_date) FROM sales_rollup_product_daily", LocalDate.class);
+        if (lastSale == null) {
+            return Map.of();
+        }
+        YearMonth end = YearMonth.from(lastSale);
+
+        String sql = """
+                SELECT category_id, CAST(date_trunc('month', sale_date) AS DATE) AS month, SUM(revenue)
+                FROM sales_rollup_product_daily
+                WHERE category_id IS NOT NULL
+                """
+                + (categoryId != null ? " AND category_id = ?" : "")
+                + " GROUP BY category_id, month ORDER BY category_id, month";
+        Object[] args = categoryId != null ? new Object[] {categoryId} : new Object[0];
+
+        Map<Integer, MonthlySeries> result = new LinkedHashMap<>();
+        int[] current = {-1};
+        YearMonth[] start = {null};
+        double[][] values = {null};
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+            int category = rs.getInt(1);
+            YearMonth month = YearMonth.from(rs.getDate(2).toLocalDate());
+            if (category != current[0]) {
+                current[0] = category;
+                start[0] = month;
+                values[0] = new double[(int) start[0].until(end, ChronoUnit.MONTHS) + 1];
+                result.put(category, new MonthlySeries(start[0], values[0]));
+            }
+            values[0][(int) start[0].until(month, ChronoUnit.MONTHS)] = rs.getBigDecimal(3).doubleValue();
+        }, args);
+        return result;
+    }
+
+    /**
+     * Заменить все сохранённые прогнозы
+     */
+    public void replaceAll(Map<Integer, MonthlySeries> history, Map<Integer, ForecastResult> forecasts,
+                           LocalDateTime computedAt) {
+        jdbcTemplate.update("DELETE FROM sales_forecast");
+        List<Object[]> rows = new ArrayList<>();
+        forecasts.forEach((categoryId, forecast) -> {
+            YearMonth historyEnd = history.get(categoryId).end();
+            double[] point = forecast.getPoint();
+            for (int k = 0; k < point.length; k++) {
+                rows.add(new Object[] {
+                        categoryId,
+                        Date.valueOf(historyEnd.plusMonths(k + 1L).atDay(1)),
+                        k + 1,
+                        money(point[k]),
+                        money(forecast.getLower()[k]),
+                        money(forecast.getUpper()[k]),
+                        forecast.getModel(),
+                        forecast.getParameters(),
+                        Double.isNaN(forecast.getRmse()) ? null : money(forecast.getRmse()),
+                        Date.valueOf(historyEnd.atDay(1)),
+                        Timestamp.valueOf(computedAt)
+                });
+            }
+        });
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO sales_forecast (category_id, period_month, horizon_step, forecast,
+                                            lower_bound, upper_bound, model, model_params, rmse,
+                                            history_end, computed_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """, rows);
+    }
+
+    /**
+     * Сохранённый прогноз категории или null
+     */
+    public StoredForecast findByCategory(Integer categoryId) {
+        List<Object[]> rows = jdbcTemplate.query("""
+                SELECT period_month, forecast, lower_bound, upper_bound, model, model_params,
+                       rmse, history_end, computed_at
+                FROM sales_forecast
+                WHERE category_id = ?
+                ORDER BY horizon_step
+                """, (rs, rowNum) -> new Object[] {
+                rs.getDate(1).toLocalDate(),
+                rs.getBigDecimal(2),
+                rs.getBigDecimal(3),
+                rs.getBigDecimal(4),
+                rs.getString(5),
+                rs.getString(6),
+                rs.getBigDecimal(7),
+                rs.getDate(8).toLocalDate(),
+                rs.getTimestamp(9).toLocalDateTime()
+        }, categoryId);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        int horizon = rows.size();
+        double[] point = new double[horizon];
+        double[] lower = new double[horizon];
+        double[] upper = new double[horizon];
+        for (int k = 0; k < horizon; k++) {
+            point[k] = ((BigDecimal) rows.get(k)[1]).doubleValue();
+            lower[k] = ((BigDecimal) rows.get(k)[2]).doubleValue();
+            upper[k] = ((BigDecimal) rows.get(k)[3]).doubleValue();
+        }
+        Object[] first = rows.get(0);
+        BigDecimal rmse = (BigDecimal) first[6];
+        ForecastResult result = new ForecastResult((String) first[4], (String) first[5],
+                rmse != null ? rmse.doubleValue() : Double.NaN, point, lower, upper);
+        return new StoredForecast(YearMonth.from((LocalDate) first[7]), YearMonth.from((LocalDate) first[0]),
+                result, (LocalDateTime) first[8]);
+    }
+
+    private static BigDecimal money(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+}
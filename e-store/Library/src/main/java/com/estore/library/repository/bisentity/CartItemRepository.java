@@ -38,7 +38,7 @@ public interface CartItemRepository extends JpaRepository<CartItem, Integer> {
     
     @Modifying
     @Query("DELETE FROM CartItem ci WHERE ci.cart.cartId = :cartId")
-    void deleteByCartId(@Param("cartId") UUID cartId);
+    int deleteByCartId(@Param("cartId") UUID cartId);
     
     @Modifying
     @Query("DELETE FROM CartItem ci WHERE ci.cart.cartId = :cartId AND ci.product.productId = :productId")
@@ -1,6 +1,5 @@
 package com.estore.library.repository.bisentity;
 
-import com.estore.library.dto.city.RoutePathProjection;
 import com.estore.library.dto.city.RouteSummaryProjection;
 import com.estore.library.model.bisentity.CityRoute;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -27,48 +26,6 @@ public interface CityRouteRepository extends JpaRepository<CityRoute, Integer> {
     );
 
 
-    /**
-     * BFS поиск всех маршрутов из начального города
-     * Возвращает: [city_name, level-1, total_distance, path_name]
-     */
-    @Query(value = """
-    WITH RECURSIVE bfs_search AS (
-        SELECT
-            c.city_id,
-            c.city_name,
-            1 AS level,
-            CAST(0.00 AS NUMERIC) AS total_distance,  -- <-- ИСПРАВЛЕНО
-            ARRAY[c.city_id] AS path_ids,
-            CAST(c.city_name AS TEXT) AS path_name     -- <-- ИСПРАВЛЕНО
-        FROM city c
-        WHERE c.city_name = :startCityName
-        
-        UNION ALL
-        
-        SELECT
-            c2.city_id,
-            c2.city_name,
-            t.level + 1,
-            t.total_distance + cr.distance_km,
-            t.path_ids || c2.city_id,
-            t.path_name || ' -> ' || c2.city_name
-        FROM bfs_search t
-        JOIN city_route cr ON cr.city_a_id = t.city_id
-        JOIN city c2 ON c2.city_id = cr.city_b_id
-        WHERE c2.city_id <> ALL(t.path_ids)
-    )
-    SELECT
-        city_name AS city_name,
-        level - 1 AS transfers,
-        total_distance AS total_distance,
-        path_name AS path_name
-    FROM bfs_search
-    ORDER BY level, total_distance
-    """, nativeQuery = true)
-    List<Object[]> findAllRoutesBFS(@Param("startCityName") String startCityName);
-
-
-
     @Query("SELECT cr FROM CityRoute cr WHERE cr.distanceKm <= :maxDistance")
     List<CityRoute> findByMaxDistance(@Param("maxDistance") BigDecimal maxDistance);
     
@@ -76,50 +33,6 @@ public interface CityRouteRepository extends JpaRepository<CityRoute, Integer> {
     List<CityRoute> findByCityName(@Param("cityName") String cityName);
     
 
-    /**
-     * BFS поиск маршрута до конкретного города
-     */
-    @Query(value = """
-        WITH RECURSIVE bfs_search AS (
-            SELECT
-                c.city_id,
-                c.city_name,
-                1 AS level,
-                0.00 AS total_distance,
-                ARRAY[c.city_id] AS path_ids,
-                CAST(c.city_name AS TEXT) AS path_name
-            FROM city c
-            WHERE c.city_name = :startCityName
-            
-            UNION ALL
-            
-            SELECT
-                c2.city_id,
-                c2.city_name,
-                t.level + 1,
-                t.total_distance + cr.distance_km,
-                t.path_ids || c2.city_id,
-                t.path_name || ' -> ' || CAST(c2.city_name AS TEXT)
-            FROM bfs_search t
-            JOIN city_route cr ON cr.city_a_id = t.city_id
-            JOIN city c2 ON c2.city_id = cr.city_b_id
-            WHERE c2.city_id <> ALL(t.path_ids)
-        )
-        SELECT
-            city_name AS city_name,
-            level - 1 AS transfers,
-            total_distance AS total_distance,
-            path_name AS path_name
-        FROM bfs_search
-        WHERE city_name = :endCityName
-        ORDER BY level, total_distance
-        LIMIT 1
-        """, nativeQuery = true)
-    Object[] findShortestRouteBFS(
-            @Param("startCityName") String startCityName,
-            @Param("endCityName") String endCityName
-    );
-    
     /**
      * Получить все прямые маршруты из города
      */
@@ -140,103 +53,24 @@ public interface CityRouteRepository extends JpaRepository<CityRoute, Integer> {
            "OR (cr.cityA.cityId = :cityBId AND cr.cityB.cityId = :cityAId)")
     boolean existsDirectRoute(@Param("cityAId") Integer cityAId, @Param("cityBId") Integer cityBId);
 
+    /**
+     * Все маршруты для построения графа в памяти: [city_a_id, city_b_id, distance_km]
+     */
+    @Query(value = "SELECT city_a_id, city_b_id, distance_km FROM city_route", nativeQuery = true)
+    List<Object[]> findAllEdges();
 
-    // В CityRouteRepository.java (в методе findShortestRouteBFSById)
-
-    @Query(value = """
-    WITH RECURSIVE bfs_search AS (
-    SELECT
-        c.city_id,
-        c.city_name,
-        1 AS level,
-        CAST(0.00 AS NUMERIC) AS total_distance,
-        ARRAY[c.city_id] AS path_ids,
-        CAST(c.city_name AS TEXT) AS path_name
-    FROM city c
-    WHERE c.city_id = :startCityId
-    
-    UNION ALL
-    
-    SELECT
-        c2.city_id,
-        c2.city_name,
-        t.level + 1,
-        t.total_distance + cr.distance_km,
-        t.path_ids || c2.city_id,
-        t.path_name || ' -> ' || c2.city_name
-    FROM bfs_search t
-    JOIN city_route cr ON (
-        (cr.city_a_id = t.city_id AND cr.city_b_id <> ALL(t.path_ids))
-        OR
-        (cr.city_b_id = t.city_id AND cr.city_a_id <> ALL(t.path_ids))
-    )
-    JOIN city c2 ON (
-        (cr.city_a_id = t.city_id AND c2.city_id = cr.city_b_id)
-        OR
-        (cr.city_b_id = t.city_id AND c2.city_id = cr.city_a_id)
-    )
-    WHERE c2.city_id <> ALL(t.path_ids)
-)
-    SELECT
-        city_name AS city_name,
-        city_id AS end_city_id,
-        path_ids AS path_ids,
-        level - 1 AS transfers,
-        total_distance AS total_distance,
-        path_name AS path_name
-    FROM bfs_search
-    WHERE city_id = :endCityId
-    ORDER BY level, total_distance
-    LIMIT 1
-    """, nativeQuery = true)
-    RoutePathProjection findShortestRouteBFSById(
-            @Param("startCityId") Integer startCityId,
-            @Param("endCityId") Integer endCityId
-    );
-
-
+    /**
+     * Отпечаток городов, маршрутов и складов: меняется при любом изменении графа
+     * или размещения складов (их индекс пересобирается вместе с графом)
+     */
     @Query(value = """
-    WITH RECURSIVE bfs_search AS (
-    -- ... (логика CTE такая же, как раньше, с CAST(0.00 AS NUMERIC) и CAST(c.city_name AS TEXT))
-    SELECT
-        c.city_id,
-        c.city_name,
-        1 AS level,
-        CAST(0.00 AS NUMERIC) AS total_distance,
-        ARRAY[c.city_id] AS path_ids,
-        CAST(c.city_name AS TEXT) AS path_name
-    FROM city c
-    WHERE c.city_name = :startCityName
-    
-    UNION ALL
-    
-    SELECT
-        c2.city_id,
-        c2.city_name,
-        t.level + 1,
-        t.total_distance + cr.distance_km,
-        t.path_ids || c2.city_id,
-        t.path_name || ' -> ' || c2.city_name
-    FROM bfs_search t
-    JOIN city_route cr ON cr.city_a_id = t.city_id
-    JOIN city c2 ON c2.city_id = cr.city_b_id
-    WHERE c2.city_id <> ALL(t.path_ids)
-    
-)
-    SELECT
-        city_name AS city_name,
-        city_id AS end_city_id,         -- <-- ДОБАВЛЕНО: ID конечного города
-        path_ids AS path_ids,           -- <-- ДОБАВЛЕНО: Массив ID всего пути
-        level - 1 AS transfers,
-        total_distance AS total_distance,
-        path_name AS path_name
-    FROM bfs_search
-    WHERE city_name = :endCityName
-    ORDER BY level, total_distance
-    LIMIT 1
-    """, nativeQuery = true)
-    RoutePathProjection findShortestRouteByName(
-            @Param("startCityName") String startCityName,
-            @Param("endCityName") String endCityName
-    );
+        SELECT md5(
+            (SELECT COALESCE(string_agg(city_id || ':' || city_name, ',' ORDER BY city_id), '') FROM city)
+            || '|' ||
+            (SELECT COALESCE(string_agg(route_id || ':' || city_a_id || ':' || city_b_id || ':' || distance_km, ',' ORDER BY route_id), '') FROM city_route)
+            || '|' ||
+            (SELECT COALESCE(string_agg(warehouse_id || ':' || city_id || ':' || warehouse_name || ':' || COALESCE(address, ''), ',' ORDER BY warehouse_id), '') FROM warehouse)
+        )
+        """, nativeQuery = true)
+    String routesFingerprint();
 }
@@ -0,0 +1,20 @@
+package com.estore.library.repository.bisentity;
+
+import com.estore.library.model.bisentity.CustomerSegment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+@Repository
+public interface CustomerSegmentRepository extends JpaRepository<CustomerSegment, UUID> {
+
+    /**
+     * Пересчитать сегменты, у которых прошёл день рождения; возвращает число обновлённых строк
+     */
+    @Transactional
+    @Query(value = "SELECT refresh_customer_segments()", nativeQuery = true)
+    Integer refreshDueSegments();
+}
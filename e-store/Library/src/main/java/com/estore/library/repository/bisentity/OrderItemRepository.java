@@ -1,6 +1,7 @@
 package com.estore.library.repository.bisentity;
 
 import com.estore.library.model.bisentity.OrderItem;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -29,5 +30,5 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Integer> {
     
     @Query("SELECT oi.product.productId, SUM(oi.quantity) as totalQuantity FROM OrderItem oi " +
            "GROUP BY oi.product.productId ORDER BY totalQuantity DESC")
-    List<Object[]> findTopSellingProducts();
+    List<Object[]> findTopSellingProducts(Pageable pageable);
 }
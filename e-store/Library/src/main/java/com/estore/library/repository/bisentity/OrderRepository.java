@@ -1,15 +1,18 @@
 package com.estore.library.repository.bisentity;
 
 import com.estore.library.model.bisentity.Order;
+import com.estore.library.model.bisentity.Warehouse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -88,4 +91,19 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
             Pageable pageable
     );
 
+    /**
+     * Заказы в статусе для планирования доставки: [order_id, source_warehouse_id, shipping_city_id]
+     */
+    @Query(value = "SELECT o.order_id, o.source_warehouse_id, o.shipping_city_id FROM \"order\" o " +
+            "JOIN order_status os ON os.status_id = o.status_id " +
+            "WHERE os.status_name = :statusName AND o.shipping_city_id IS NOT NULL", nativeQuery = true)
+    List<Object[]> findDeliveryStops(@Param("statusName") String statusName);
+
+    /**
+     * Назначить склад пачке заказов, у которых его ещё нет
+     */
+    @Modifying
+    @Query("UPDATE Order o SET o.sourceWarehouse = :warehouse WHERE o.id IN :orderIds AND o.sourceWarehouse IS NULL")
+    int assignSourceWarehouse(@Param("warehouse") Warehouse warehouse, @Param("orderIds") Collection<UUID> orderIds);
+
 }
\ No newline at end of file
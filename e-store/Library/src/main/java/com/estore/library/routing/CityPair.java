@@ -0,0 +1,7 @@
+package com.estore.library.routing;
+
+/**
+ * Пара городов (откуда, куда) — ключ пакетного поиска маршрутов
+ */
+public record CityPair(Integer fromCityId, Integer toCityId) {
+}
@@ -0,0 +1,357 @@
+package com.estore.library.routing;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Неизменяемый снимок графа маршрутов между городами в сжатом виде (CSR).
+ * <p>
+ * Города пронумерованы 0..n-1 в порядке возрастания city_id; соседи города i
+ * лежат в targets[offsets[i]..offsets[i+1]), длины перегонов — в weights
+ * в сотых долях км (точное значение NUMERIC(10,2) без BigDecimal).
+ * Маршрут city_route неориентированный (в таблице city_a_id < city_b_id),
+ * поэтому каждое ребро хранится в обе стороны.
+ * <p>
+ * Снимок не изменяется после построения и безопасно читается из любых потоков;
+ * при изменении маршрутов {@link RoutingEngine} строит новый и подменяет ссылку.
+ */
+public final class CityRouteGraph {
+
+    public static final long UNREACHABLE = Long.MAX_VALUE;
+
+    /**
+     * Ребро из city_route
+     */
+    public record Edge(int cityAId, int cityBId, long distanceHundredths) {
+    }
+
+    /**
+     * Обход соседей города без выделения памяти на рёбра
+     */
+    @FunctionalInterface
+    public interface NeighbourVisitor {
+        void visit(int neighbourIndex, long distanceHundredths);
+    }
+
+    private final int[] cityIds;
+    private final String[] cityNames;
+    private final Map<String, Integer> indexByName;
+    private final int[] offsets;
+    private final int[] targets;
+    private final long[] weights;
+    private final int edgeCount;
+    private final LocalDateTime builtAt = LocalDateTime.now();
+
+    private CityRouteGraph(int[] cityIds, String[] cityNames, int[] offsets, int[] targets, long[] weights, int edgeCount) {
+        this.cityIds = cityIds;
+        this.cityNames = cityNames;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.edgeCount = edgeCount;
+        this.indexByName = new HashMap<>(cityNames.length * 2);
+        for (int i = 0; i < cityNames.length; i++) {
+            indexByName.put(cityNames[i], i);
+        }
+    }
+
+    /**
+     * Построить граф; рёбра с неизвестными городами пропускаются
+     *
+     * @param cities города: city_id -> city_name
+     */
+    public static CityRouteGraph build(Map<Integer, String> cities, List<Edge> edges) {
+        int n = cities.size();
+        int[] ids = new int[n];
+        int k = 0;
+        for (Integer id : cities.keySet()) {
+            ids[k++] = id;
+        }
+        Arrays.sort(ids);
+        String[] names = new String[n];
+        for (int i = 0; i < n; i++) {
+            names[i] = cities.get(ids[i]);
+        }
+
+        // Подсчёт степеней, затем префиксные суммы и раскладка соседей
+        int[] from = new int[edges.size()];
+        int[] to = new int[edges.size()];
+        int[] degree = new int[n];
+        for (int e = 0; e < edges.size(); e++) {
+            Edge edge = edges.get(e);
+            int a = Arrays.binarySearch(ids, edge.cityAId());
+            int b = Arrays.binarySearch(ids, edge.cityBId());
+            if (a < 0 || b < 0 || a == b || edge.distanceHundredths() <= 0) {
+                from[e] = -1;
+                continue;
+            }
+            from[e] = a;
+            to[e] = b;
+            degree[a]++;
+            degree[b]++;
+        }
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] = offsets[i] + degree[i];
+        }
+        int[] targets = new int[offsets[n]];
+        long[] weights = new long[offsets[n]];
+        int[] fill = Arrays.copyOf(offsets, n);
+        int edgeCount = 0;
+        for (int e = 0; e < edges.size(); e++) {
+            int a = from[e];
+            if (a < 0) {
+                continue;
+            }
+            int b = to[e];
+            long w = edges.get(e).distanceHundredths();
+            targets[fill[a]] = b;
+            weights[fill[a]++] = w;
+            targets[fill[b]] = a;
+            weights[fill[b]++] = w;
+            edgeCount++;
+        }
+        return new CityRouteGraph(ids, names, offsets, targets, weights, edgeCount);
+    }
+
+    /**
+     * Граф из готовых массивов CSR (чтение снимка {@link RouteGraphSnapshot}); cityIds отсортированы
+     */
+    static CityRouteGraph restore(int[] cityIds, String[] cityNames, int[] offsets, int[] targets,
+                                  long[] weights, int edgeCount) {
+        if (offsets.length != cityIds.length + 1 || offsets[cityIds.length] != targets.length
+                || targets.length != weights.length || cityNames.length != cityIds.length) {
+            throw new IllegalArgumentException("Inconsistent route graph arrays");
+        }
+        return new CityRouteGraph(cityIds, cityNames, offsets, targets, weights, edgeCount);
+    }
+
+    public int size() {
+        return cityIds.length;
+    }
+
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    public LocalDateTime getBuiltAt() {
+        return builtAt;
+    }
+
+    /**
+     * Индекс города по city_id, -1 если города нет
+     */
+    public int indexOf(Integer cityId) {
+        if (cityId == null) {
+            return -1;
+        }
+        int i = Arrays.binarySearch(cityIds, cityId);
+        return i >= 0 ? i : -1;
+    }
+
+    /**
+     * Индекс города по точному названию, -1 если города нет
+     */
+    public int indexOfName(String cityName) {
+        Integer i = cityName != null ? indexByName.get(cityName) : null;
+        return i != null ? i : -1;
+    }
+
+    public int cityIdAt(int index) {
+        return cityIds[index];
+    }
+
+    public String cityNameAt(int index) {
+        return cityNames[index];
+    }
+
+    public int degree(int index) {
+        return offsets[index + 1] - offsets[index];
+    }
+
+    public void forEachNeighbour(int index, NeighbourVisitor visitor) {
+        for (int e = offsets[index], end = offsets[index + 1]; e < end; e++) {
+            visitor.visit(targets[e], weights[e]);
+        }
+    }
+
+    // Прямой доступ к CSR для алгоритмов пакета: рёбра города i — [edgeStart(i), edgeEnd(i))
+    int edgeStart(int index) {
+        return offsets[index];
+    }
+
+    int edgeEnd(int index) {
+        return offsets[index + 1];
+    }
+
+    int edgeTarget(int edge) {
+        return targets[edge];
+    }
+
+    long edgeWeight(int edge) {
+        return weights[edge];
+    }
+
+    /**
+     * Кратчайший маршрут между городами по city_id; null — города нет или он недостижим
+     */
+    public ShortestPath shortestPath(Integer fromCityId, Integer toCityId) {
+        return shortestPathByIndex(indexOf(fromCityId), indexOf(toCityId));
+    }
+
+    /**
+     * Кратчайший маршрут между городами по названию; null — города нет или он недостижим
+     */
+    public ShortestPath shortestPathByName(String fromCityName, String toCityName) {
+        return shortestPathByIndex(indexOfName(fromCityName), indexOfName(toCityName));
+    }
+
+    /**
+     * Длины кратчайших путей от города до всех городов (по индексам, в сотых км);
+     * {@link #UNREACHABLE} для недостижимых
+     */
+    public long[] distancesFrom(int sourceIndex) {
+        long[] dist = new long[size()];
+        dijkstra(sourceIndex, -1, UNREACHABLE, dist, null, null);
+        return dist;
+    }
+
+    /**
+     * Длины кратчайших путей не длиннее maxHundredths: поиск останавливается,
+     * как только ближайший неизвестный город дальше предела; остальные — {@link #UNREACHABLE}
+     */
+    public long[] distancesWithin(int sourceIndex, long maxHundredths) {
+        long[] dist = new long[size()];
+        dijkstra(sourceIndex, -1, maxHundredths, dist, null, null);
+        return dist;
+    }
+
+    ShortestPath shortestPathByIndex(int source, int target) {
+        if (source < 0 || target < 0) {
+            return null;
+        }
+        long[] dist = new long[size()];
+        int[] previous = new int[size()];
+        dijkstra(source, target, UNREACHABLE, dist, previous, null);
+        if (dist[target] == UNREACHABLE) {
+            return null;
+        }
+        return toPath(source, target, previous, dist[target]);
+    }
+
+    /**
+     * Маршруты из одного города в несколько: одно дерево кратчайших путей
+     * на все цели. Элемент null — цели нет в графе или она недостижима.
+     */
+    ShortestPath[] shortestPathsFrom(int source, int[] targetIndexes) {
+        ShortestPath[] paths = new ShortestPath[targetIndexes.length];
+        if (source < 0) {
+            return paths;
+        }
+        long[] dist = new long[size()];
+        int[] previous = new int[size()];
+        dijkstra(source, -1, UNREACHABLE, dist, previous, null);
+        for (int i = 0; i < targetIndexes.length; i++) {
+            int target = targetIndexes[i];
+            if (target >= 0 && dist[target] != UNREACHABLE) {
+                paths[i] = toPath(source, target, previous, dist[target]);
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Дейкстра с индексированной кучей. Длины неотрицательны, поэтому
+     * расстояние вершины окончательно в момент извлечения — поиск до target
+     * останавливается на нём. Координат у городов нет, так что эвристика A*
+     * была бы нулевой и совпала бы с этим поиском. С пределом limit поиск
+     * останавливается на первом городе дальше него.
+     */
+    private int dijkstra(int source, int target, long limit, long[] dist, int[] previous, int[] settled) {
+        Arrays.fill(dist, UNREACHABLE);
+        if (previous != null) {
+            Arrays.fill(previous, -1);
+        }
+        IntMinHeap heap = new IntMinHeap(size());
+        dist[source] = 0;
+        heap.offer(source, 0);
+        int settledCount = 0;
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            if (dist[u] > limit) {
+                // Все оставшиеся в куче ещё дальше: их расстояния не окончательны
+                dist[u] = UNREACHABLE;
+                while (!heap.isEmpty()) {
+                    dist[heap.poll()] = UNREACHABLE;
+                }
+                break;
+            }
+            if (settled != null) {
+                settled[settledCount++] = u;
+            }
+            if (u == target) {
+                break;
+            }
+            long du = dist[u];
+            for (int e = offsets[u], end = offsets[u + 1]; e < end; e++) {
+                int v = targets[e];
+                long dv = du + weights[e];
+                if (dv < dist[v]) {
+                    dist[v] = dv;
+                    if (previous != null) {
+                        previous[v] = u;
+                    }
+                    heap.offer(v, dv);
+                }
+            }
+        }
+        return settledCount;
+    }
+
+    /**
+     * Дерево кратчайших путей из source: длины до всех городов и первый
+     * перегон пути (индекс соседа source, -1 для source и недостижимых).
+     * Города извлекаются из кучи в порядке удаления, поэтому первый перегон
+     * предка уже известен, когда обрабатывается потомок.
+     */
+    void shortestPathTree(int source, long[] dist, int[] firstHop) {
+        int[] previous = new int[size()];
+        int[] settled = new int[size()];
+        int count = dijkstra(source, -1, UNREACHABLE, dist, previous, settled);
+        Arrays.fill(firstHop, -1);
+        for (int i = 1; i < count; i++) {
+            int v = settled[i];
+            int parent = previous[v];
+            firstHop[v] = parent == source ? v : firstHop[parent];
+        }
+    }
+
+    ShortestPath pathOf(int[] indexes, long distance) {
+        int[] ids = new int[indexes.length];
+        String[] names = new String[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            ids[i] = cityIds[indexes[i]];
+            names[i] = cityNames[indexes[i]];
+        }
+        return new ShortestPath(ids, names, distance);
+    }
+
+    private ShortestPath toPath(int source, int target, int[] previous, long distance) {
+        int length = 1;
+        for (int v = target; v != source; v = previous[v]) {
+            length++;
+        }
+        int[] indexes = new int[length];
+        int v = target;
+        for (int i = length - 1; i >= 0; i--) {
+            indexes[i] = v;
+            if (i > 0) {
+                v = previous[v];
+            }
+        }
+        return pathOf(indexes, distance);
+    }
+}
@@ -0,0 +1,232 @@
+package com.estore.library.routing;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Планирование рейсов доставки со склада: заказы группируются по городам,
+ * рейсы ограничены вместимостью (число заказов), порядок городов в рейсе —
+ * ближайший сосед с улучшением 2-opt. Рейс начинается и заканчивается на складе.
+ * <p>
+ * Расстояния между городами рейсов берутся из {@link DistanceMatrix}, если она
+ * готова для снимка, иначе — одним Дейкстрой из каждого участвующего города.
+ * Эвристика, а не точное решение: 2-opt останавливается в локальном минимуме.
+ */
+public final class DeliveryPlanner {
+
+    // Предел полных проходов 2-opt на рейс
+    private static final int MAX_TWO_OPT_PASSES = 50;
+
+    /**
+     * Заказ, который нужно доставить в город
+     */
+    public record Stop(UUID orderId, Integer cityId) {
+    }
+
+    /**
+     * Рейс: города по порядку объезда (без склада в начале и конце),
+     * заказы по каждому городу и длина кольца склад -> ... -> склад
+     */
+    public record Trip(List<Integer> cityIds, List<String> cityNames, List<List<UUID>> orderIds,
+                       long distanceHundredths) {
+
+        public int getOrderCount() {
+            int count = 0;
+            for (List<UUID> ids : orderIds) {
+                count += ids.size();
+            }
+            return count;
+        }
+
+        public BigDecimal getDistanceKm() {
+            return BigDecimal.valueOf(distanceHundredths, 2);
+        }
+    }
+
+    /**
+     * План склада; unroutable — заказы в города, недостижимые со склада
+     */
+    public record Plan(List<Trip> trips, List<UUID> unroutable, long distanceHundredths) {
+
+        public BigDecimal getDistanceKm() {
+            return BigDecimal.valueOf(distanceHundredths, 2);
+        }
+    }
+
+    private DeliveryPlanner() {
+    }
+
+    /**
+     * @param matrix готовая матрица того же снимка или null
+     * @param capacity максимум заказов в рейсе
+     */
+    public static Plan plan(CityRouteGraph graph, DistanceMatrix matrix, Integer depotCityId,
+                            List<Stop> stops, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        if (matrix != null && matrix.getGraph() != graph) {
+            throw new IllegalArgumentException("Distance matrix belongs to another graph snapshot");
+        }
+        int depot = graph.indexOf(depotCityId);
+        List<UUID> unroutable = new ArrayList<>();
+        if (depot < 0) {
+            for (Stop stop : stops) {
+                unroutable.add(stop.orderId());
+            }
+            return new Plan(List.of(), unroutable, 0);
+        }
+
+        // Узлы плана: 0 — склад, дальше города доставки в порядке появления
+        Map<Integer, List<UUID>> ordersByCity = new LinkedHashMap<>();
+        for (Stop stop : stops) {
+            int city = graph.indexOf(stop.cityId());
+            if (city < 0) {
+                unroutable.add(stop.orderId());
+            } else {
+                ordersByCity.computeIfAbsent(city, c -> new ArrayList<>()).add(stop.orderId());
+            }
+        }
+        int[] nodes = new int[ordersByCity.size() + 1];
+        nodes[0] = depot;
+        List<List<UUID>> nodeOrders = new ArrayList<>();
+        nodeOrders.add(List.of());
+        int k = 1;
+        for (Map.Entry<Integer, List<UUID>> entry : ordersByCity.entrySet()) {
+            nodes[k++] = entry.getKey();
+            nodeOrders.add(entry.getValue());
+        }
+        long[][] distance = distances(graph, matrix, nodes);
+
+        List<Trip> trips = new ArrayList<>();
+        int[] remaining = new int[nodes.length];
+        boolean[] done = new boolean[nodes.length];
+        done[0] = true;
+        for (int i = 1; i < nodes.length; i++) {
+            List<UUID> orders = nodeOrders.get(i);
+            if (distance[0][i] == CityRouteGraph.UNREACHABLE) {
+                unroutable.addAll(orders);
+                done[i] = true;
+                continue;
+            }
+            // Город с заказами на полный рейс и больше получает отдельные рейсы
+            int offset = 0;
+            while (orders.size() - offset >= capacity) {
+                trips.add(toTrip(graph, nodes, distance, new int[]{i},
+                        List.of(orders.subList(offset, offset + capacity))));
+                offset += capacity;
+            }
+            remaining[i] = orders.size() - offset;
+            done[i] = remaining[i] == 0;
+        }
+
+        // Ближайший сосед: из текущего города в ближайший, чьи заказы помещаются в рейс
+        while (true) {
+            int[] tour = new int[nodes.length];
+            int length = 0;
+            int load = 0;
+            int current = 0;
+            while (true) {
+                int next = -1;
+                for (int i = 1; i < nodes.length; i++) {
+                    if (!done[i] && load + remaining[i] <= capacity
+                            && (next < 0 || distance[current][i] < distance[current][next])) {
+                        next = i;
+                    }
+                }
+                if (next < 0) {
+                    break;
+                }
+                tour[length++] = next;
+                load += remaining[next];
+                done[next] = true;
+                current = next;
+            }
+            if (length == 0) {
+                break;
+            }
+            int[] route = twoOpt(Arrays.copyOf(tour, length), distance);
+            List<List<UUID>> orders = new ArrayList<>(route.length);
+            for (int node : route) {
+                List<UUID> ids = nodeOrders.get(node);
+                orders.add(ids.subList(ids.size() - remaining[node], ids.size()));
+            }
+            trips.add(toTrip(graph, nodes, distance, route, orders));
+        }
+
+        long total = 0;
+        for (Trip trip : trips) {
+            total += trip.distanceHundredths();
+        }
+        return new Plan(trips, unroutable, total);
+    }
+
+    /**
+     * 2-opt для кольца склад -> route -> склад: разворот отрезка route[i..j],
+     * если он укорачивает кольцо, пока улучшения находятся
+     */
+    static int[] twoOpt(int[] route, long[][] distance) {
+        int n = route.length;
+        if (n < 3) {
+            return route;
+        }
+        // Кольцо с явным складом на концах: 0, route..., 0
+        int[] ring = new int[n + 2];
+        System.arraycopy(route, 0, ring, 1, n);
+        boolean improved = true;
+        for (int pass = 0; improved && pass < MAX_TWO_OPT_PASSES; pass++) {
+            improved = false;
+            for (int i = 1; i < n; i++) {
+                for (int j = i + 1; j <= n; j++) {
+                    long before = distance[ring[i - 1]][ring[i]] + distance[ring[j]][ring[j + 1]];
+                    long after = distance[ring[i - 1]][ring[j]] + distance[ring[i]][ring[j + 1]];
+                    if (after < before) {
+                        reverse(ring, i, j);
+                        improved = true;
+                    }
+                }
+            }
+        }
+        return Arrays.copyOfRange(ring, 1, n + 1);
+    }
+
+    private static void reverse(int[] values, int from, int to) {
+        while (from < to) {
+            int tmp = values[from];
+            values[from++] = values[to];
+            values[to--] = tmp;
+        }
+    }
+
+    private static long[][] distances(CityRouteGraph graph, DistanceMatrix matrix, int[] nodes) {
+        long[][] distance = new long[nodes.length][nodes.length];
+        for (int a = 0; a < nodes.length; a++) {
+            long[] row = matrix == null ? graph.distancesFrom(nodes[a]) : null;
+            for (int b = 0; b < nodes.length; b++) {
+                distance[a][b] = row != null ? row[nodes[b]] : matrix.distanceHundredths(nodes[a], nodes[b]);
+            }
+        }
+        return distance;
+    }
+
+    private static Trip toTrip(CityRouteGraph graph, int[] nodes, long[][] distance, int[] route,
+                               List<List<UUID>> orders) {
+        List<Integer> cityIds = new ArrayList<>(route.length);
+        List<String> cityNames = new ArrayList<>(route.length);
+        long length = 0;
+        int previous = 0;
+        for (int node : route) {
+            cityIds.add(graph.cityIdAt(nodes[node]));
+            cityNames.add(graph.cityNameAt(nodes[node]));
+            length += distance[previous][node];
+            previous = node;
+        }
+        length += distance[previous][0];
+        return new Trip(cityIds, cityNames, orders, length);
+    }
+}
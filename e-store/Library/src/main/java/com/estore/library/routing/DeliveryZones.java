@@ -0,0 +1,229 @@
+package com.estore.library.routing;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Зоны доставки складов: для каждого склада — города, достижимые в пределах
+ * полос расстояния (например 50/100/200/500 км), каждый город в самой узкой
+ * подходящей полосе.
+ * <p>
+ * Из города каждого склада выполняется ограниченный Дейкстра: поиск
+ * останавливается на первом городе дальше самой широкой полосы, поэтому
+ * стоимость зависит от размера зоны, а не от всего графа. Склады считаются
+ * параллельно. Обратный индекс (город -> покрывающие склады) хранится плоско,
+ * как рёбра CSR. Результат неизменяем и относится к одному снимку графа.
+ */
+public final class DeliveryZones {
+
+    /**
+     * Город зоны и кратчайшее расстояние до него от склада
+     */
+    public record ZoneCity(Integer cityId, String cityName, long distanceHundredths) {
+
+        public BigDecimal getDistanceKm() {
+            return BigDecimal.valueOf(distanceHundredths, 2);
+        }
+    }
+
+    /**
+     * Полоса: города дальше предыдущей полосы и не дальше upToKm
+     */
+    public record Zone(int upToKm, List<ZoneCity> cities) {
+    }
+
+    /**
+     * Склад, доставляющий в город, и полоса, в которую город попадает
+     */
+    public record Coverage(NearestWarehouseIndex.Site site, int upToKm, long distanceHundredths) {
+
+        public BigDecimal getDistanceKm() {
+            return BigDecimal.valueOf(distanceHundredths, 2);
+        }
+    }
+
+    private final CityRouteGraph graph;
+    private final int[] bandsKm;
+    private final NearestWarehouseIndex.Site[] sites;
+    private final Map<Long, Integer> siteByWarehouse;
+    // Города зоны каждого склада по возрастанию расстояния
+    private final int[][] zoneCities;
+    private final long[][] zoneDistances;
+    // Обратный индекс: склады города v — в [coverStart[v], coverStart[v + 1])
+    private final int[] coverStart;
+    private final int[] coverSites;
+    private final long[] coverDistances;
+    private final long computeMillis;
+
+    private DeliveryZones(CityRouteGraph graph, int[] bandsKm, NearestWarehouseIndex.Site[] sites,
+                          int[][] zoneCities, long[][] zoneDistances, long computeMillis) {
+        this.graph = graph;
+        this.bandsKm = bandsKm;
+        this.sites = sites;
+        this.zoneCities = zoneCities;
+        this.zoneDistances = zoneDistances;
+        this.computeMillis = computeMillis;
+        this.siteByWarehouse = new HashMap<>();
+        for (int s = 0; s < sites.length; s++) {
+            siteByWarehouse.put(sites[s].warehouseId(), s);
+        }
+
+        int n = graph.size();
+        coverStart = new int[n + 1];
+        for (int[] cities : zoneCities) {
+            for (int v : cities) {
+                coverStart[v + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            coverStart[v + 1] += coverStart[v];
+        }
+        coverSites = new int[coverStart[n]];
+        coverDistances = new long[coverStart[n]];
+        int[] fill = Arrays.copyOf(coverStart, n);
+        for (int s = 0; s < sites.length; s++) {
+            for (int i = 0; i < zoneCities[s].length; i++) {
+                int slot = fill[zoneCities[s][i]]++;
+                coverSites[slot] = s;
+                coverDistances[slot] = zoneDistances[s][i];
+            }
+        }
+    }
+
+    /**
+     * Посчитать зоны; склады в городах, которых нет в графе, не учитываются
+     *
+     * @param bandsKm границы полос в км (положительные, порядок и повторы не важны)
+     */
+    public static DeliveryZones compute(CityRouteGraph graph, List<NearestWarehouseIndex.Site> warehouses,
+                                        int[] bandsKm) {
+        int[] bands = normalizeBands(bandsKm);
+        long start = System.currentTimeMillis();
+        List<NearestWarehouseIndex.Site> placed = new ArrayList<>(warehouses.size());
+        for (NearestWarehouseIndex.Site site : warehouses) {
+            if (graph.indexOf(site.cityId()) >= 0) {
+                placed.add(site);
+            }
+        }
+        NearestWarehouseIndex.Site[] sites = placed.toArray(new NearestWarehouseIndex.Site[0]);
+        long limit = bands[bands.length - 1] * 100L;
+        int[][] zoneCities = new int[sites.length][];
+        long[][] zoneDistances = new long[sites.length][];
+        IntStream.range(0, sites.length).parallel().forEach(s -> {
+            long[] dist = graph.distancesWithin(graph.indexOf(sites[s].cityId()), limit);
+            int count = 0;
+            for (long d : dist) {
+                if (d != CityRouteGraph.UNREACHABLE) {
+                    count++;
+                }
+            }
+            long[] packed = new long[count];
+            int i = 0;
+            for (int v = 0; v < dist.length; v++) {
+                if (dist[v] != CityRouteGraph.UNREACHABLE) {
+                    // Расстояние в старших битах, индекс города в младших — одна сортировка примитивов
+                    packed[i++] = (dist[v] << 32) | v;
+                }
+            }
+            Arrays.sort(packed);
+            int[] cities = new int[count];
+            long[] distances = new long[count];
+            for (i = 0; i < count; i++) {
+                cities[i] = (int) packed[i];
+                distances[i] = packed[i] >>> 32;
+            }
+            zoneCities[s] = cities;
+            zoneDistances[s] = distances;
+        });
+        return new DeliveryZones(graph, bands, sites, zoneCities, zoneDistances,
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Отсортированные полосы без повторов
+     */
+    static int[] normalizeBands(int[] bandsKm) {
+        if (bandsKm == null || bandsKm.length == 0) {
+            throw new IllegalArgumentException("At least one distance band is required");
+        }
+        int[] bands = Arrays.stream(bandsKm).sorted().distinct().toArray();
+        if (bands[0] <= 0) {
+            throw new IllegalArgumentException("Distance bands must be positive");
+        }
+        // Расстояние в сотых долях км должно уместиться в 31 бит упаковки
+        if (bands[bands.length - 1] > 10_000_000) {
+            throw new IllegalArgumentException("Distance band is too large: " + bands[bands.length - 1]);
+        }
+        return bands;
+    }
+
+    public CityRouteGraph getGraph() {
+        return graph;
+    }
+
+    public int[] getBandsKm() {
+        return bandsKm.clone();
+    }
+
+    public int getWarehouseCount() {
+        return sites.length;
+    }
+
+    public long getComputeMillis() {
+        return computeMillis;
+    }
+
+    /**
+     * Полосы склада от ближней к дальней (пустые тоже); null — склада нет в графе
+     */
+    public List<Zone> zonesOf(Long warehouseId) {
+        Integer s = siteByWarehouse.get(warehouseId);
+        if (s == null) {
+            return null;
+        }
+        int[] cities = zoneCities[s];
+        long[] distances = zoneDistances[s];
+        List<Zone> zones = new ArrayList<>(bandsKm.length);
+        int i = 0;
+        for (int band : bandsKm) {
+            long limit = band * 100L;
+            List<ZoneCity> zone = new ArrayList<>();
+            while (i < cities.length && distances[i] <= limit) {
+                zone.add(new ZoneCity(graph.cityIdAt(cities[i]), graph.cityNameAt(cities[i]), distances[i]));
+                i++;
+            }
+            zones.add(new Zone(band, zone));
+        }
+        return zones;
+    }
+
+    /**
+     * Склады, в зону которых попадает город, по возрастанию расстояния
+     */
+    public List<Coverage> coverageOf(Integer cityId) {
+        int v = graph.indexOf(cityId);
+        if (v < 0) {
+            return List.of();
+        }
+        List<Coverage> result = new ArrayList<>(coverStart[v + 1] - coverStart[v]);
+        for (int i = coverStart[v]; i < coverStart[v + 1]; i++) {
+            result.add(new Coverage(sites[coverSites[i]], bandOf(coverDistances[i]), coverDistances[i]));
+        }
+        result.sort((a, b) -> Long.compare(a.distanceHundredths(), b.distanceHundredths()));
+        return result;
+    }
+
+    private int bandOf(long distanceHundredths) {
+        for (int band : bandsKm) {
+            if (distanceHundredths <= band * 100L) {
+                return band;
+            }
+        }
+        return bandsKm[bandsKm.length - 1];
+    }
+}
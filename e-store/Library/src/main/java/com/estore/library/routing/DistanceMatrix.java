@@ -0,0 +1,140 @@
+package com.estore.library.routing;
+
+import java.math.BigDecimal;
+import java.util.stream.IntStream;
+
+/**
+ * Кратчайшие расстояния и первые перегоны для всех пар городов одного
+ * снимка {@link CityRouteGraph}.
+ * <p>
+ * Хранится в двух плоских массивах n×n (строка — город отправления):
+ * расстояние в сотых км и индекс следующего города пути. Расстояние — O(1),
+ * маршрут восстанавливается за O(длины пути) без поиска. Считается
+ * Дейкстрой из каждого города параллельно: граф дорог разрежен, и n запусков
+ * O(m log n) дешевле Флойда–Уоршелла O(n³).
+ */
+public final class DistanceMatrix {
+
+    private final CityRouteGraph graph;
+    private final long version;
+    private final int n;
+    private final long[] distances;
+    private final int[] nextHops;
+    private final long computeMillis;
+
+    private DistanceMatrix(CityRouteGraph graph, long version, long[] distances, int[] nextHops, long computeMillis) {
+        this.graph = graph;
+        this.version = version;
+        this.n = graph.size();
+        this.distances = distances;
+        this.nextHops = nextHops;
+        this.computeMillis = computeMillis;
+    }
+
+    /**
+     * Посчитать матрицу для снимка графа (параллельно по городам отправления)
+     */
+    public static DistanceMatrix compute(CityRouteGraph graph, long version) {
+        long start = System.currentTimeMillis();
+        int n = graph.size();
+        long[] distances = new long[n * n];
+        int[] nextHops = new int[n * n];
+        IntStream.range(0, n).parallel().forEach(source -> {
+            long[] dist = new long[n];
+            int[] firstHop = new int[n];
+            graph.shortestPathTree(source, dist, firstHop);
+            System.arraycopy(dist, 0, distances, source * n, n);
+            System.arraycopy(firstHop, 0, nextHops, source * n, n);
+        });
+        return new DistanceMatrix(graph, version, distances, nextHops, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Матрица из готовых массивов (чтение снимка {@link RouteGraphSnapshot})
+     */
+    static DistanceMatrix restore(CityRouteGraph graph, long version, long[] distances, int[] nextHops) {
+        int cells = graph.size() * graph.size();
+        if (distances.length != cells || nextHops.length != cells) {
+            throw new IllegalArgumentException("Distance matrix does not match graph size");
+        }
+        return new DistanceMatrix(graph, version, distances, nextHops, 0);
+    }
+
+    /**
+     * Оценка памяти матрицы для n городов, байт
+     */
+    public static long estimateBytes(int cities) {
+        return (long) cities * cities * (Long.BYTES + Integer.BYTES);
+    }
+
+    public CityRouteGraph getGraph() {
+        return graph;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getComputeMillis() {
+        return computeMillis;
+    }
+
+    // Плоские массивы для записи снимка, без копирования
+    long[] distances() {
+        return distances;
+    }
+
+    int[] nextHops() {
+        return nextHops;
+    }
+
+    /**
+     * Расстояние по индексам городов в сотых км, {@link CityRouteGraph#UNREACHABLE} если пути нет
+     */
+    public long distanceHundredths(int fromIndex, int toIndex) {
+        return distances[fromIndex * n + toIndex];
+    }
+
+    /**
+     * Расстояние в км по city_id; null — города нет или он недостижим
+     */
+    public BigDecimal distanceKm(Integer fromCityId, Integer toCityId) {
+        int from = graph.indexOf(fromCityId);
+        int to = graph.indexOf(toCityId);
+        if (from < 0 || to < 0) {
+            return null;
+        }
+        long distance = distanceHundredths(from, to);
+        return distance == CityRouteGraph.UNREACHABLE ? null : BigDecimal.valueOf(distance, 2);
+    }
+
+    /**
+     * Маршрут по city_id; null — города нет или он недостижим
+     */
+    public ShortestPath path(Integer fromCityId, Integer toCityId) {
+        return pathByIndex(graph.indexOf(fromCityId), graph.indexOf(toCityId));
+    }
+
+    ShortestPath pathByIndex(int from, int to) {
+        if (from < 0 || to < 0) {
+            return null;
+        }
+        long distance = distanceHundredths(from, to);
+        if (distance == CityRouteGraph.UNREACHABLE) {
+            return null;
+        }
+        int length = 1;
+        for (int v = from; v != to; v = nextHops[v * n + to]) {
+            length++;
+        }
+        int[] indexes = new int[length];
+        int v = from;
+        for (int i = 0; i < length; i++) {
+            indexes[i] = v;
+            if (v != to) {
+                v = nextHops[v * n + to];
+            }
+        }
+        return graph.pathOf(indexes, distance);
+    }
+}
@@ -0,0 +1,119 @@
+package com.estore.library.routing;
+
+import java.util.Arrays;
+
+/**
+ * Индексированная двоичная min-куча вершин 0..capacity-1 с ключами long.
+ * <p>
+ * Хранит только примитивы: без упаковки Integer/Long и без дублей вершин —
+ * уменьшение ключа переставляет уже находящуюся в куче вершину. Не потокобезопасна.
+ */
+public final class IntMinHeap {
+
+    private final int[] heap;
+    private final int[] position;
+    private final long[] keys;
+    private int size;
+
+    public IntMinHeap(int capacity) {
+        this.heap = new int[capacity];
+        this.position = new int[capacity];
+        this.keys = new long[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int vertex) {
+        return position[vertex] >= 0;
+    }
+
+    public long key(int vertex) {
+        return keys[vertex];
+    }
+
+    /**
+     * Добавить вершину или уменьшить её ключ; больший ключ игнорируется
+     */
+    public void offer(int vertex, long key) {
+        int i = position[vertex];
+        if (i < 0) {
+            keys[vertex] = key;
+            heap[size] = vertex;
+            position[vertex] = size;
+            siftUp(size++);
+        } else if (key < keys[vertex]) {
+            keys[vertex] = key;
+            siftUp(i);
+        }
+    }
+
+    /**
+     * Извлечь вершину с минимальным ключом
+     */
+    public int poll() {
+        if (size == 0) {
+            throw new IllegalStateException("Heap is empty");
+        }
+        int top = heap[0];
+        position[top] = -1;
+        if (--size > 0) {
+            heap[0] = heap[size];
+            position[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int i) {
+        int vertex = heap[i];
+        long key = keys[vertex];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            int parentVertex = heap[parent];
+            if (keys[parentVertex] <= key) {
+                break;
+            }
+            heap[i] = parentVertex;
+            position[parentVertex] = i;
+            i = parent;
+        }
+        heap[i] = vertex;
+        position[vertex] = i;
+    }
+
+    private void siftDown(int i) {
+        int vertex = heap[i];
+        long key = keys[vertex];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[heap[child]]) {
+                child = right;
+            }
+            int childVertex = heap[child];
+            if (key <= keys[childVertex]) {
+                break;
+            }
+            heap[i] = childVertex;
+            position[childVertex] = i;
+            i = child;
+        }
+        heap[i] = vertex;
+        position[vertex] = i;
+    }
+}
@@ -0,0 +1,192 @@
+package com.estore.library.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * k кратчайших простых маршрутов между двумя городами (алгоритм Йена)
+ * по снимку {@link CityRouteGraph}.
+ * <p>
+ * Каждый следующий маршрут ищется от «узла ответвления» предыдущего: корень
+ * маршрута до узла фиксирован, его города запрещены, а перегоны из узла,
+ * уже использованные найденными маршрутами с тем же корнем, закрыты. Кандидаты
+ * копятся в очереди по длине. Работа ограничена числом поисков ответвлений:
+ * при исчерпании лимита возвращаются уже гарантированно найденные маршруты
+ * с признаком truncated — перебор никогда не растёт комбинаторно.
+ */
+public final class KShortestPaths {
+
+    /**
+     * Найденные маршруты по возрастанию длины; truncated — лимит работы исчерпан раньше k
+     */
+    public record Result(List<ShortestPath> paths, boolean truncated, int spurSearches) {
+    }
+
+    // Маршрут как последовательность индексов городов и длины его префиксов
+    private record Candidate(int[] nodes, long[] prefix) {
+
+        long distance() {
+            return prefix[prefix.length - 1];
+        }
+    }
+
+    private final CityRouteGraph graph;
+    private final long[] dist;
+    private final int[] previous;
+    private final boolean[] bannedNodes;
+    private final boolean[] bannedTargets;
+    private final IntMinHeap heap;
+
+    private KShortestPaths(CityRouteGraph graph) {
+        int n = graph.size();
+        this.graph = graph;
+        this.dist = new long[n];
+        this.previous = new int[n];
+        this.bannedNodes = new boolean[n];
+        this.bannedTargets = new boolean[n];
+        this.heap = new IntMinHeap(n);
+    }
+
+    /**
+     * @param k            сколько маршрутов нужно (больше 0)
+     * @param maxSpurSearches предел поисков ответвлений (каждый — один Дейкстра)
+     */
+    public static Result find(CityRouteGraph graph, int source, int target, int k, int maxSpurSearches) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        if (source < 0 || target < 0) {
+            return new Result(List.of(), false, 0);
+        }
+        return new KShortestPaths(graph).run(source, target, k, maxSpurSearches);
+    }
+
+    private Result run(int source, int target, int k, int maxSpurSearches) {
+        List<Candidate> accepted = new ArrayList<>(k);
+        Candidate first = search(source, target, null, 0);
+        if (first == null) {
+            return new Result(List.of(), false, 0);
+        }
+        accepted.add(first);
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>((a, b) -> a.distance() != b.distance()
+                ? Long.compare(a.distance(), b.distance())
+                : Integer.compare(a.nodes().length, b.nodes().length));
+        Set<Route> seen = new HashSet<>();
+        seen.add(new Route(first.nodes()));
+        int searches = 0;
+        boolean truncated = false;
+
+        outer:
+        while (accepted.size() < k) {
+            Candidate last = accepted.get(accepted.size() - 1);
+            for (int i = 0; i < last.nodes().length - 1; i++) {
+                if (searches >= maxSpurSearches) {
+                    truncated = true;
+                    break outer;
+                }
+                int spur = last.nodes()[i];
+                for (Candidate path : accepted) {
+                    if (path.nodes().length > i + 1 && Arrays.equals(path.nodes(), 0, i + 1, last.nodes(), 0, i + 1)) {
+                        bannedTargets[path.nodes()[i + 1]] = true;
+                    }
+                }
+                for (int r = 0; r < i; r++) {
+                    bannedNodes[last.nodes()[r]] = true;
+                }
+                Candidate spurPath = search(spur, target, last, i);
+                searches++;
+                Arrays.fill(bannedTargets, false);
+                for (int r = 0; r < i; r++) {
+                    bannedNodes[last.nodes()[r]] = false;
+                }
+                if (spurPath != null && seen.add(new Route(spurPath.nodes()))) {
+                    candidates.add(spurPath);
+                }
+            }
+            Candidate next = candidates.poll();
+            if (next == null) {
+                break;
+            }
+            accepted.add(next);
+        }
+
+        List<ShortestPath> paths = new ArrayList<>(accepted.size());
+        for (Candidate path : accepted) {
+            paths.add(graph.pathOf(path.nodes(), path.distance()));
+        }
+        return new Result(paths, truncated, searches);
+    }
+
+    /**
+     * Дейкстра от spur до target в обход запрещённых городов и перегонов;
+     * с непустым root результат — root[0..rootEnd] плюс найденный хвост
+     */
+    private Candidate search(int spur, int target, Candidate root, int rootEnd) {
+        Arrays.fill(dist, CityRouteGraph.UNREACHABLE);
+        heap.clear();
+        dist[spur] = 0;
+        previous[spur] = -1;
+        heap.offer(spur, 0);
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            if (u == target) {
+                break;
+            }
+            for (int e = graph.edgeStart(u), end = graph.edgeEnd(u); e < end; e++) {
+                int v = graph.edgeTarget(e);
+                if (bannedNodes[v] || (u == spur && bannedTargets[v])) {
+                    continue;
+                }
+                long d = dist[u] + graph.edgeWeight(e);
+                if (d < dist[v]) {
+                    dist[v] = d;
+                    previous[v] = u;
+                    heap.offer(v, d);
+                }
+            }
+        }
+        if (dist[target] == CityRouteGraph.UNREACHABLE) {
+            return null;
+        }
+        int tail = 1;
+        for (int v = target; v != spur; v = previous[v]) {
+            tail++;
+        }
+        int head = root == null ? 0 : rootEnd;
+        int[] nodes = new int[head + tail];
+        long[] prefix = new long[head + tail];
+        if (root != null) {
+            System.arraycopy(root.nodes(), 0, nodes, 0, head);
+            System.arraycopy(root.prefix(), 0, prefix, 0, head);
+        }
+        long base = root == null ? 0 : root.prefix()[rootEnd];
+        int i = nodes.length - 1;
+        for (int v = target; ; v = previous[v]) {
+            nodes[i] = v;
+            prefix[i] = base + dist[v];
+            i--;
+            if (v == spur) {
+                break;
+            }
+        }
+        return new Candidate(nodes, prefix);
+    }
+
+    // Ключ для отсева повторных кандидатов
+    private record Route(int[] nodes) {
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Route route && Arrays.equals(nodes, route.nodes);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(nodes);
+        }
+    }
+}
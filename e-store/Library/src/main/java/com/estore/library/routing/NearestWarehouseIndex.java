@@ -0,0 +1,337 @@
+package com.estore.library.routing;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Неизменяемый индекс ближайших складов для каждого города (диаграмма
+ * Вороного на графе маршрутов, обобщённая до k ближайших).
+ * <p>
+ * Строится одним многоисточниковым Дейкстрой: в кучу кладутся все склады
+ * с нулевым расстоянием, метка (город, склад) фиксируется при первом
+ * извлечении, и город принимает не больше k различных складов — дальше
+ * волна через него не идёт. Списки хранятся плоско: k ячеек на город,
+ * отсортированы по расстоянию. Индекс относится к одному снимку графа.
+ */
+public final class NearestWarehouseIndex {
+
+    /**
+     * Склад в городе графа
+     */
+    public record Site(Long warehouseId, String name, Integer cityId, String address) {
+    }
+
+    /**
+     * Склад и кратчайшее расстояние до него
+     */
+    public record Hit(Site site, long distanceHundredths) {
+
+        public BigDecimal getDistanceKm() {
+            return BigDecimal.valueOf(distanceHundredths, 2);
+        }
+    }
+
+    private final CityRouteGraph graph;
+    private final Site[] sites;
+    private final int[] siteCities;
+    private final int k;
+    private final int[] counts;
+    private final int[] nearestSites;
+    private final long[] nearestDistances;
+
+    private NearestWarehouseIndex(CityRouteGraph graph, Site[] sites, int[] siteCities, int k,
+                                  int[] counts, int[] nearestSites, long[] nearestDistances) {
+        this.graph = graph;
+        this.sites = sites;
+        this.siteCities = siteCities;
+        this.k = k;
+        this.counts = counts;
+        this.nearestSites = nearestSites;
+        this.nearestDistances = nearestDistances;
+    }
+
+    /**
+     * Построить индекс; склады в городах, которых нет в графе, не учитываются
+     */
+    public static NearestWarehouseIndex build(CityRouteGraph graph, List<Site> warehouses, int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        List<Site> placed = new ArrayList<>(warehouses.size());
+        for (Site site : warehouses) {
+            if (graph.indexOf(site.cityId()) >= 0) {
+                placed.add(site);
+            }
+        }
+        Site[] sites = placed.toArray(new Site[0]);
+        int[] siteCities = new int[sites.length];
+        for (int s = 0; s < sites.length; s++) {
+            siteCities[s] = graph.indexOf(sites[s].cityId());
+        }
+
+        int n = graph.size();
+        int[] counts = new int[n];
+        int[] nearestSites = new int[n * k];
+        long[] nearestDistances = new long[n * k];
+
+        LabelHeap heap = new LabelHeap(Math.max(16, sites.length * 4));
+        for (int s = 0; s < sites.length; s++) {
+            heap.push(0, siteCities[s], s);
+        }
+        while (!heap.isEmpty()) {
+            long d = heap.topKey();
+            int v = heap.topVertex();
+            int s = heap.topSite();
+            heap.pop();
+            if (counts[v] == k || contains(nearestSites, v * k, counts[v], s)) {
+                continue;
+            }
+            nearestSites[v * k + counts[v]] = s;
+            nearestDistances[v * k + counts[v]] = d;
+            counts[v]++;
+            graph.forEachNeighbour(v, (u, w) -> {
+                if (counts[u] < k && !contains(nearestSites, u * k, counts[u], s)) {
+                    heap.push(d + w, u, s);
+                }
+            });
+        }
+        return new NearestWarehouseIndex(graph, sites, siteCities, k, counts, nearestSites, nearestDistances);
+    }
+
+    /**
+     * Новый индекс с добавленным складом: один Дейкстра из его города и вставка
+     * в списки городов, где он попадает в k ближайших (без полной пересборки)
+     */
+    public NearestWarehouseIndex withSite(Site site) {
+        int city = graph.indexOf(site.cityId());
+        if (city < 0) {
+            return this;
+        }
+        for (Site existing : sites) {
+            // Склад уже попал в индекс при пересборке из БД
+            if (existing.warehouseId().equals(site.warehouseId())) {
+                return this;
+            }
+        }
+        Site[] newSites = Arrays.copyOf(sites, sites.length + 1);
+        int[] newSiteCities = Arrays.copyOf(siteCities, siteCities.length + 1);
+        int s = sites.length;
+        newSites[s] = site;
+        newSiteCities[s] = city;
+
+        int[] newCounts = counts.clone();
+        int[] newNearestSites = nearestSites.clone();
+        long[] newNearestDistances = nearestDistances.clone();
+        long[] dist = graph.distancesFrom(city);
+        for (int v = 0; v < dist.length; v++) {
+            long d = dist[v];
+            if (d == CityRouteGraph.UNREACHABLE) {
+                continue;
+            }
+            int base = v * k;
+            int count = newCounts[v];
+            if (count == k && newNearestDistances[base + k - 1] <= d) {
+                continue;
+            }
+            // Вставка в отсортированный список с вытеснением самого дальнего
+            int i = Math.min(count, k - 1);
+            while (i > 0 && newNearestDistances[base + i - 1] > d) {
+                newNearestSites[base + i] = newNearestSites[base + i - 1];
+                newNearestDistances[base + i] = newNearestDistances[base + i - 1];
+                i--;
+            }
+            newNearestSites[base + i] = s;
+            newNearestDistances[base + i] = d;
+            newCounts[v] = Math.min(count + 1, k);
+        }
+        return new NearestWarehouseIndex(graph, newSites, newSiteCities, k, newCounts, newNearestSites, newNearestDistances);
+    }
+
+    public CityRouteGraph getGraph() {
+        return graph;
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    public int getWarehouseCount() {
+        return sites.length;
+    }
+
+    /**
+     * Склады индекса (только те, чьи города есть в графе)
+     */
+    public List<Site> getSites() {
+        return List.of(sites);
+    }
+
+    /**
+     * Ближайший склад к городу; null — города нет или ни один склад не достижим
+     */
+    public Hit nearest(Integer cityId) {
+        int v = graph.indexOf(cityId);
+        if (v < 0 || counts[v] == 0) {
+            return null;
+        }
+        return new Hit(sites[nearestSites[v * k]], nearestDistances[v * k]);
+    }
+
+    /**
+     * До k ближайших складов к городу по возрастанию расстояния
+     */
+    public List<Hit> nearest(Integer cityId, int limit) {
+        int v = graph.indexOf(cityId);
+        if (v < 0) {
+            return List.of();
+        }
+        int count = Math.min(counts[v], limit);
+        List<Hit> hits = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            hits.add(new Hit(sites[nearestSites[v * k + i]], nearestDistances[v * k + i]));
+        }
+        return hits;
+    }
+
+    /**
+     * Все достижимые склады в пределах maxDistanceHundredths (включительно).
+     * Если k-список города полон и не выходит за предел, склады за его
+     * пределами ищутся одним Дейкстрой из города.
+     */
+    public List<Hit> within(Integer cityId, long maxDistanceHundredths) {
+        int v = graph.indexOf(cityId);
+        if (v < 0) {
+            return List.of();
+        }
+        boolean complete = counts[v] < k || nearestDistances[v * k + k - 1] > maxDistanceHundredths;
+        List<Hit> hits = complete ? nearest(cityId, k) : byDistance(cityId);
+        List<Hit> result = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            if (hit.distanceHundredths() <= maxDistanceHundredths) {
+                result.add(hit);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Все достижимые из города склады по возрастанию расстояния
+     */
+    public List<Hit> byDistance(Integer cityId) {
+        int v = graph.indexOf(cityId);
+        if (v < 0) {
+            return List.of();
+        }
+        if (counts[v] < k) {
+            // Список неполон — значит, в нём уже все достижимые склады
+            return nearest(cityId, k);
+        }
+        long[] dist = graph.distancesFrom(v);
+        List<Hit> hits = new ArrayList<>(sites.length);
+        for (int s = 0; s < sites.length; s++) {
+            long d = dist[siteCities[s]];
+            if (d != CityRouteGraph.UNREACHABLE) {
+                hits.add(new Hit(sites[s], d));
+            }
+        }
+        hits.sort((a, b) -> Long.compare(a.distanceHundredths(), b.distanceHundredths()));
+        return hits;
+    }
+
+    private static boolean contains(int[] values, int from, int count, int value) {
+        for (int i = from, end = from + count; i < end; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Двоичная куча меток (расстояние, город, склад) на параллельных массивах
+     * без удаления дублей: устаревшие метки отбрасываются при извлечении
+     */
+    private static final class LabelHeap {
+        private long[] keys;
+        private int[] vertices;
+        private int[] siteIndexes;
+        private int size;
+
+        LabelHeap(int capacity) {
+            keys = new long[capacity];
+            vertices = new int[capacity];
+            siteIndexes = new int[capacity];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long topKey() {
+            return keys[0];
+        }
+
+        int topVertex() {
+            return vertices[0];
+        }
+
+        int topSite() {
+            return siteIndexes[0];
+        }
+
+        void push(long key, int vertex, int site) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                vertices = Arrays.copyOf(vertices, size * 2);
+                siteIndexes = Arrays.copyOf(siteIndexes, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                move(parent, i);
+                i = parent;
+            }
+            set(i, key, vertex, site);
+        }
+
+        void pop() {
+            if (--size == 0) {
+                return;
+            }
+            long key = keys[size];
+            int vertex = vertices[size];
+            int site = siteIndexes[size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (key <= keys[child]) {
+                    break;
+                }
+                move(child, i);
+                i = child;
+            }
+            set(i, key, vertex, site);
+        }
+
+        private void move(int from, int to) {
+            keys[to] = keys[from];
+            vertices[to] = vertices[from];
+            siteIndexes[to] = siteIndexes[from];
+        }
+
+        private void set(int i, long key, int vertex, int site) {
+            keys[i] = key;
+            vertices[i] = vertex;
+            siteIndexes[i] = site;
+        }
+    }
+}
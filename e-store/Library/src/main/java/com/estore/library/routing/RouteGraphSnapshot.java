@@ -0,0 +1,193 @@
+package com.estore.library.routing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Двоичный снимок {@link CityRouteGraph} и его {@link DistanceMatrix} в файле.
+ * <p>
+ * Файл отображается в память ({@link MappedByteBuffer}), массивы CSR и матрицы
+ * копируются из него пакетно, без разбора по строкам, — прогрев движка занимает
+ * миллисекунды и не требует БД. Формат:
+ * <pre>
+ * int magic "ESRG", int версия формата, long время записи, int флаги (1 — есть матрица),
+ * int n городов, int m позиций CSR, int число маршрутов, строка отпечатка БД,
+ * int[n] city_id, n строк названий, int[n + 1] offsets, int[m] targets, long[m] weights,
+ * [long[n*n] расстояния, int[n*n] следующие города], int CRC32 всего предыдущего
+ * </pre>
+ * Строка — int длина и байты UTF-8. Запись идёт во временный файл рядом и
+ * атомарно подменяет старый, так что читатель не видит недописанный снимок.
+ */
+public final class RouteGraphSnapshot {
+
+    private static final int MAGIC = 0x45535247;
+    static final int FORMAT_VERSION = 1;
+    private static final int FLAG_MATRIX = 1;
+
+    /**
+     * Прочитанный снимок; matrix — null, если матрица не сохранялась
+     */
+    public record Loaded(CityRouteGraph graph, DistanceMatrix matrix, String fingerprint, long writtenAt) {
+    }
+
+    private RouteGraphSnapshot() {
+    }
+
+    /**
+     * Записать снимок; matrix может быть null
+     *
+     * @param fingerprint отпечаток таблиц, по которым построен граф
+     */
+    public static void write(Path path, CityRouteGraph graph, DistanceMatrix matrix, String fingerprint)
+            throws IOException {
+        if (matrix != null && matrix.getGraph() != graph) {
+            throw new IllegalArgumentException("Distance matrix belongs to another graph snapshot");
+        }
+        int n = graph.size();
+        int m = graph.edgeStart(n);
+        byte[] fingerprintBytes = fingerprint.getBytes(StandardCharsets.UTF_8);
+        byte[][] names = new byte[n][];
+        long size = 4 + 4 + 8 + 4 + 4 + 4 + 4 + 4L + fingerprintBytes.length
+                + 4L * n + 4L * (n + 1) + 12L * m + 4;
+        for (int i = 0; i < n; i++) {
+            names[i] = graph.cityNameAt(i) != null ? graph.cityNameAt(i).getBytes(StandardCharsets.UTF_8) : new byte[0];
+            size += 4L + names[i].length;
+        }
+        if (matrix != null) {
+            size += 12L * n * n;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Route snapshot is too large to map: " + size + " bytes");
+        }
+
+        Path target = path.toAbsolutePath();
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.putInt(MAGIC);
+                buffer.putInt(FORMAT_VERSION);
+                buffer.putLong(System.currentTimeMillis());
+                buffer.putInt(matrix != null ? FLAG_MATRIX : 0);
+                buffer.putInt(n);
+                buffer.putInt(m);
+                buffer.putInt(graph.getEdgeCount());
+                buffer.putInt(fingerprintBytes.length).put(fingerprintBytes);
+                for (int i = 0; i < n; i++) {
+                    buffer.putInt(graph.cityIdAt(i));
+                }
+                for (byte[] name : names) {
+                    buffer.putInt(name.length).put(name);
+                }
+                for (int i = 0; i <= n; i++) {
+                    buffer.putInt(graph.edgeStart(i));
+                }
+                for (int e = 0; e < m; e++) {
+                    buffer.putInt(graph.edgeTarget(e));
+                }
+                for (int e = 0; e < m; e++) {
+                    buffer.putLong(graph.edgeWeight(e));
+                }
+                if (matrix != null) {
+                    buffer.asLongBuffer().put(matrix.distances());
+                    buffer.position(buffer.position() + 8 * n * n);
+                    buffer.asIntBuffer().put(matrix.nextHops());
+                    buffer.position(buffer.position() + 4 * n * n);
+                }
+                buffer.putInt(checksum(buffer, buffer.position()));
+                buffer.force();
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Прочитать снимок; IOException — файл повреждён, другой версии формата или не читается
+     */
+    public static Loaded read(Path path, long graphVersion) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 40 || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a route snapshot: unexpected size " + size);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a route snapshot: bad magic");
+            }
+            int format = buffer.getInt();
+            if (format != FORMAT_VERSION) {
+                throw new IOException("Unsupported route snapshot format " + format + ", expected " + FORMAT_VERSION);
+            }
+            if (buffer.getInt((int) size - 4) != checksum(buffer, (int) size - 4)) {
+                throw new IOException("Route snapshot checksum mismatch");
+            }
+            try {
+                long writtenAt = buffer.getLong();
+                int flags = buffer.getInt();
+                int n = buffer.getInt();
+                int m = buffer.getInt();
+                int edgeCount = buffer.getInt();
+                String fingerprint = readString(buffer);
+                int[] cityIds = new int[n];
+                buffer.asIntBuffer().get(cityIds);
+                buffer.position(buffer.position() + 4 * n);
+                String[] names = new String[n];
+                for (int i = 0; i < n; i++) {
+                    names[i] = readString(buffer);
+                }
+                int[] offsets = new int[n + 1];
+                buffer.asIntBuffer().get(offsets);
+                buffer.position(buffer.position() + 4 * (n + 1));
+                int[] targets = new int[m];
+                buffer.asIntBuffer().get(targets);
+                buffer.position(buffer.position() + 4 * m);
+                long[] weights = new long[m];
+                buffer.asLongBuffer().get(weights);
+                buffer.position(buffer.position() + 8 * m);
+                CityRouteGraph graph = CityRouteGraph.restore(cityIds, names, offsets, targets, weights, edgeCount);
+
+                DistanceMatrix matrix = null;
+                if ((flags & FLAG_MATRIX) != 0) {
+                    long[] distances = new long[n * n];
+                    buffer.asLongBuffer().get(distances);
+                    buffer.position(buffer.position() + 8 * n * n);
+                    int[] nextHops = new int[n * n];
+                    buffer.asIntBuffer().get(nextHops);
+                    matrix = DistanceMatrix.restore(graph, graphVersion, distances, nextHops);
+                }
+                return new Loaded(graph, matrix, fingerprint, writtenAt);
+            } catch (RuntimeException e) {
+                // Контрольная сумма сошлась, но размеры не согласованы — файл записан не этим кодом
+                throw new IOException("Malformed route snapshot", e);
+            }
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int checksum(ByteBuffer buffer, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(0).limit(length));
+        return (int) crc.getValue();
+    }
+}
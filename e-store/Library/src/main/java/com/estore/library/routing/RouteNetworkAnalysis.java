@@ -0,0 +1,283 @@
+package com.estore.library.routing;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Структурный анализ снимка {@link CityRouteGraph}: посредническая
+ * центральность городов, компоненты связности и точки сочленения.
+ * <p>
+ * Центральность — алгоритм Брандеса для взвешенного графа: из каждого города
+ * Дейкстра с подсчётом числа кратчайших путей, затем обратный проход по
+ * порядку извлечения накапливает зависимости. Города-источники делятся между
+ * задачами fork/join, у каждой свой массив сумм. Точки сочленения —
+ * итеративный обход в глубину Тарьяна (без рекурсии на длинных цепочках).
+ * Результат неизменяем и относится к одному снимку графа.
+ */
+public final class RouteNetworkAnalysis {
+
+    // Источников на одну задачу fork/join
+    private static final int SOURCES_PER_TASK = 16;
+
+    private final CityRouteGraph graph;
+    private final double[] betweenness;
+    private final int[] components;
+    private final int[] componentSizes;
+    private final boolean[] articulationPoints;
+    private final long computeMillis;
+
+    private RouteNetworkAnalysis(CityRouteGraph graph, double[] betweenness, int[] components,
+                                 int[] componentSizes, boolean[] articulationPoints, long computeMillis) {
+        this.graph = graph;
+        this.betweenness = betweenness;
+        this.components = components;
+        this.componentSizes = componentSizes;
+        this.articulationPoints = articulationPoints;
+        this.computeMillis = computeMillis;
+    }
+
+    public static RouteNetworkAnalysis compute(CityRouteGraph graph) {
+        long start = System.currentTimeMillis();
+        int n = graph.size();
+        double[] betweenness = n > 0
+                ? ForkJoinPool.commonPool().invoke(new BetweennessTask(graph, 0, n))
+                : new double[0];
+        // Каждый путь неориентированного графа посчитан из обоих концов;
+        // нормировка на число пар, не включающих сам город
+        double scale = n > 2 ? 1.0 / ((double) (n - 1) * (n - 2)) : 0;
+        for (int v = 0; v < n; v++) {
+            betweenness[v] *= scale;
+        }
+        int[] components = new int[n];
+        int[] componentSizes = labelComponents(graph, components);
+        boolean[] articulationPoints = findArticulationPoints(graph);
+        return new RouteNetworkAnalysis(graph, betweenness, components, componentSizes,
+                articulationPoints, System.currentTimeMillis() - start);
+    }
+
+    public CityRouteGraph getGraph() {
+        return graph;
+    }
+
+    public long getComputeMillis() {
+        return computeMillis;
+    }
+
+    /**
+     * Нормированная посредническая центральность города (0..1)
+     */
+    public double betweenness(int index) {
+        return betweenness[index];
+    }
+
+    public int componentOf(int index) {
+        return components[index];
+    }
+
+    public int getComponentCount() {
+        return componentSizes.length;
+    }
+
+    public int componentSize(int component) {
+        return componentSizes[component];
+    }
+
+    public int getLargestComponentSize() {
+        int largest = 0;
+        for (int size : componentSizes) {
+            largest = Math.max(largest, size);
+        }
+        return largest;
+    }
+
+    /**
+     * Удаление города разрывает его компоненту связности
+     */
+    public boolean isArticulationPoint(int index) {
+        return articulationPoints[index];
+    }
+
+    /**
+     * Индексы городов по убыванию центральности
+     */
+    public int[] byBetweenness() {
+        Integer[] order = new Integer[betweenness.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(betweenness[b], betweenness[a]));
+        int[] result = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            result[i] = order[i];
+        }
+        return result;
+    }
+
+    /**
+     * Суммы зависимостей Брандеса для диапазона городов-источников
+     */
+    private static final class BetweennessTask extends RecursiveTask<double[]> {
+        private final CityRouteGraph graph;
+        private final int from;
+        private final int to;
+
+        BetweennessTask(CityRouteGraph graph, int from, int to) {
+            this.graph = graph;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (to - from <= SOURCES_PER_TASK) {
+                return accumulate(graph, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            BetweennessTask left = new BetweennessTask(graph, from, middle);
+            left.fork();
+            double[] right = new BetweennessTask(graph, middle, to).compute();
+            double[] sum = left.join();
+            for (int v = 0; v < sum.length; v++) {
+                sum[v] += right[v];
+            }
+            return sum;
+        }
+    }
+
+    private static double[] accumulate(CityRouteGraph graph, int from, int to) {
+        int n = graph.size();
+        double[] centrality = new double[n];
+        long[] dist = new long[n];
+        double[] sigma = new double[n];
+        double[] delta = new double[n];
+        int[] order = new int[n];
+        IntMinHeap heap = new IntMinHeap(n);
+        for (int s = from; s < to; s++) {
+            Arrays.fill(dist, CityRouteGraph.UNREACHABLE);
+            Arrays.fill(sigma, 0);
+            dist[s] = 0;
+            sigma[s] = 1;
+            heap.offer(s, 0);
+            int count = 0;
+            while (!heap.isEmpty()) {
+                int v = heap.poll();
+                order[count++] = v;
+                delta[v] = 0;
+                for (int e = graph.edgeStart(v), end = graph.edgeEnd(v); e < end; e++) {
+                    int w = graph.edgeTarget(e);
+                    long d = dist[v] + graph.edgeWeight(e);
+                    if (d < dist[w]) {
+                        dist[w] = d;
+                        sigma[w] = sigma[v];
+                        heap.offer(w, d);
+                    } else if (d == dist[w]) {
+                        // Ещё один кратчайший путь; длины положительны, так что w не извлечён
+                        sigma[w] += sigma[v];
+                    }
+                }
+            }
+            // Обратный проход: от дальних городов к ближним
+            for (int i = count - 1; i > 0; i--) {
+                int w = order[i];
+                double share = (1 + delta[w]) / sigma[w];
+                for (int e = graph.edgeStart(w), end = graph.edgeEnd(w); e < end; e++) {
+                    int v = graph.edgeTarget(e);
+                    if (dist[v] != CityRouteGraph.UNREACHABLE && dist[v] + graph.edgeWeight(e) == dist[w]) {
+                        delta[v] += sigma[v] * share;
+                    }
+                }
+                centrality[w] += delta[w];
+            }
+        }
+        return centrality;
+    }
+
+    /**
+     * Номер компоненты для каждого города (обход в ширину); возвращает размеры компонент
+     */
+    private static int[] labelComponents(CityRouteGraph graph, int[] components) {
+        int n = graph.size();
+        Arrays.fill(components, -1);
+        int[] queue = new int[n];
+        int[] sizes = new int[n];
+        int count = 0;
+        for (int root = 0; root < n; root++) {
+            if (components[root] >= 0) {
+                continue;
+            }
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = root;
+            components[root] = count;
+            while (head < tail) {
+                int v = queue[head++];
+                for (int e = graph.edgeStart(v), end = graph.edgeEnd(v); e < end; e++) {
+                    int u = graph.edgeTarget(e);
+                    if (components[u] < 0) {
+                        components[u] = count;
+                        queue[tail++] = u;
+                    }
+                }
+            }
+            sizes[count++] = tail;
+        }
+        return Arrays.copyOf(sizes, count);
+    }
+
+    /**
+     * Точки сочленения: город v (не корень обхода) — точка сочленения, если
+     * у него есть потомок u с low[u] >= disc[v]; корень — если у него больше
+     * одного потомка. Стек обхода хранит для каждого города позицию в списке рёбер.
+     */
+    private static boolean[] findArticulationPoints(CityRouteGraph graph) {
+        int n = graph.size();
+        boolean[] result = new boolean[n];
+        int[] disc = new int[n];
+        int[] low = new int[n];
+        int[] parent = new int[n];
+        int[] cursor = new int[n];
+        int[] stack = new int[n];
+        Arrays.fill(disc, -1);
+        int time = 0;
+        for (int root = 0; root < n; root++) {
+            if (disc[root] >= 0) {
+                continue;
+            }
+            int top = 0;
+            stack[top++] = root;
+            parent[root] = -1;
+            disc[root] = low[root] = time++;
+            cursor[root] = graph.edgeStart(root);
+            int rootChildren = 0;
+            while (top > 0) {
+                int v = stack[top - 1];
+                if (cursor[v] < graph.edgeEnd(v)) {
+                    int u = graph.edgeTarget(cursor[v]++);
+                    if (disc[u] < 0) {
+                        parent[u] = v;
+                        disc[u] = low[u] = time++;
+                        cursor[u] = graph.edgeStart(u);
+                        stack[top++] = u;
+                        if (v == root) {
+                            rootChildren++;
+                        }
+                    } else if (u != parent[v]) {
+                        low[v] = Math.min(low[v], disc[u]);
+                    }
+                } else {
+                    top--;
+                    int p = parent[v];
+                    if (p >= 0) {
+                        low[p] = Math.min(low[p], low[v]);
+                        if (p != root && low[v] >= disc[p]) {
+                            result[p] = true;
+                        }
+                    }
+                }
+            }
+            result[root] = rootChildren > 1;
+        }
+        return result;
+    }
+}
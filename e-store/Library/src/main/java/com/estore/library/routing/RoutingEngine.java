@@ -0,0 +1,426 @@
+package com.estore.library.routing;
+
+import com.estore.library.model.dicts.City;
+import com.estore.library.repository.bisentity.CityRouteRepository;
+import com.estore.library.repository.dicts.CityRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Держит текущий {@link CityRouteGraph} и пересобирает его copy-on-write:
+ * новый снимок строится целиком и подменяет ссылку, читатели никогда не видят
+ * частично обновлённый граф. Изменения этого приложения помечают снимок
+ * устаревшим после коммита, и следующее обращение пересобирает его; изменения
+ * другого приложения замечаются периодической сверкой отпечатка таблиц
+ * city / city_route.
+ * <p>
+ * После каждой пересборки в фоне считается {@link DistanceMatrix} всех пар
+ * городов; пока она не готова (или городов больше routing.matrix.max-cities),
+ * запросы выполняют Дейкстру по текущему снимку.
+ * <p>
+ * Граф с матрицей сохраняется в файл {@link RouteGraphSnapshot}
+ * (routing.snapshot.path). При старте движок прогревается из файла без БД,
+ * затем отпечаток таблиц сверяется с записанным в файле; расхождение или
+ * недоступная БД не мешают отвечать на запросы по прочитанному снимку.
+ */
+@Component
+@RequiredArgsConstructor
+public class RoutingEngine implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoutingEngine.class);
+
+    private final CityRepository cityRepository;
+    private final CityRouteRepository cityRouteRepository;
+
+    private volatile CityRouteGraph graph;
+    private volatile String fingerprint;
+    private volatile boolean stale;
+    private volatile DistanceMatrix matrix;
+    private volatile RouteNetworkAnalysis network;
+    private final AtomicLong graphVersion = new AtomicLong();
+
+    private final ExecutorService matrixExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "route-matrix");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${routing.matrix.max-cities:2000}")
+    private int matrixMaxCities;
+
+    @Value("${routing.snapshot.path:}")
+    private String snapshotPath;
+
+    // Отпечаток графа, уже сохранённого в файл снимка
+    private volatile String snapshotFingerprint;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (loadSnapshot()) {
+            // Снимок уже отвечает на запросы; сверка с БД пересоберёт граф, если он устарел
+            refreshIfChanged();
+            return;
+        }
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            logger.error("Route graph load failed, will retry on first use", e);
+        }
+    }
+
+    /**
+     * Текущий снимок графа (загружается при первом обращении и после изменений)
+     */
+    public CityRouteGraph graph() {
+        CityRouteGraph current = graph;
+        if (current == null || stale) {
+            synchronized (this) {
+                if (graph == null || stale) {
+                    reloadOrKeep();
+                }
+                current = graph;
+            }
+        }
+        return current;
+    }
+
+    public synchronized void reload() {
+        long start = System.currentTimeMillis();
+        stale = false;
+        // Отпечаток читаем до данных: изменение между запросами лишь вызовет ещё одну пересборку
+        String currentFingerprint = cityRouteRepository.routesFingerprint();
+        Map<Integer, String> cities = new HashMap<>();
+        for (City city : cityRepository.findAll()) {
+            cities.put(city.getCityId(), city.getCityName());
+        }
+        List<CityRouteGraph.Edge> edges = new ArrayList<>();
+        for (Object[] row : cityRouteRepository.findAllEdges()) {
+            edges.add(new CityRouteGraph.Edge(
+                    ((Number) row[0]).intValue(),
+                    ((Number) row[1]).intValue(),
+                    toHundredths((BigDecimal) row[2])));
+        }
+        CityRouteGraph built = CityRouteGraph.build(cities, edges);
+        long version = graphVersion.incrementAndGet();
+        graph = built;
+        fingerprint = currentFingerprint;
+        logger.info("Route graph v{} built in {} ms: {} cities, {} routes",
+                version, System.currentTimeMillis() - start, built.size(), built.getEdgeCount());
+        scheduleMatrix(built, version, currentFingerprint);
+    }
+
+    /**
+     * Прогреть движок из файла снимка; false — файла нет или он непригоден
+     */
+    synchronized boolean loadSnapshot() {
+        Path path = snapshotPath();
+        if (path == null || !Files.isRegularFile(path)) {
+            return false;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            long version = graphVersion.incrementAndGet();
+            RouteGraphSnapshot.Loaded loaded = RouteGraphSnapshot.read(path, version);
+            graph = loaded.graph();
+            matrix = loaded.matrix();
+            fingerprint = loaded.fingerprint();
+            snapshotFingerprint = loaded.fingerprint();
+            stale = false;
+            logger.info("Route graph v{} loaded from snapshot {} in {} ms: {} cities, {} routes, matrix {}",
+                    version, path, System.currentTimeMillis() - start, loaded.graph().size(),
+                    loaded.graph().getEdgeCount(), loaded.matrix() != null ? "included" : "absent");
+            if (loaded.matrix() == null) {
+                scheduleMatrix(loaded.graph(), version, loaded.fingerprint());
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Route snapshot {} ignored: {}", path, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Кратчайший маршрут между городами; null — города нет или он недостижим
+     */
+    public ShortestPath route(Integer fromCityId, Integer toCityId) {
+        CityRouteGraph current = graph();
+        DistanceMatrix ready = matrixFor(current);
+        return ready != null ? ready.path(fromCityId, toCityId) : current.shortestPath(fromCityId, toCityId);
+    }
+
+    /**
+     * Кратчайший маршрут по названиям городов; null — города нет или он недостижим
+     */
+    public ShortestPath routeByName(String fromCityName, String toCityName) {
+        CityRouteGraph current = graph();
+        DistanceMatrix ready = matrixFor(current);
+        if (ready == null) {
+            return current.shortestPathByName(fromCityName, toCityName);
+        }
+        return ready.pathByIndex(current.indexOfName(fromCityName), current.indexOfName(toCityName));
+    }
+
+    /**
+     * Расстояние в км между городами; null — города нет или он недостижим
+     */
+    public BigDecimal distanceKm(Integer fromCityId, Integer toCityId) {
+        CityRouteGraph current = graph();
+        DistanceMatrix ready = matrixFor(current);
+        if (ready != null) {
+            return ready.distanceKm(fromCityId, toCityId);
+        }
+        ShortestPath path = current.shortestPath(fromCityId, toCityId);
+        return path != null ? path.getTotalDistance() : null;
+    }
+
+    /**
+     * Маршруты для набора пар городов по одному снимку графа. Пары
+     * дедуплицируются; без готовой матрицы на каждый город отправления
+     * строится одно дерево кратчайших путей, общее для всех его пар.
+     * Недостижимых пар и пар с неизвестными городами в результате нет.
+     */
+    public Map<CityPair, ShortestPath> routes(Collection<CityPair> pairs) {
+        CityRouteGraph current = graph();
+        DistanceMatrix ready = matrixFor(current);
+        Map<CityPair, ShortestPath> result = new HashMap<>();
+        Map<Integer, List<CityPair>> bySource = new HashMap<>();
+        for (CityPair pair : new HashSet<>(pairs)) {
+            if (ready != null) {
+                putIfFound(result, pair, ready.path(pair.fromCityId(), pair.toCityId()));
+            } else {
+                bySource.computeIfAbsent(pair.fromCityId(), id -> new ArrayList<>()).add(pair);
+            }
+        }
+        bySource.forEach((fromCityId, group) -> {
+            int[] targets = new int[group.size()];
+            for (int i = 0; i < targets.length; i++) {
+                targets[i] = current.indexOf(group.get(i).toCityId());
+            }
+            ShortestPath[] paths = current.shortestPathsFrom(current.indexOf(fromCityId), targets);
+            for (int i = 0; i < paths.length; i++) {
+                putIfFound(result, group.get(i), paths[i]);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Кратчайшие маршруты из города в ближайшие limit достижимых городов, по возрастанию
+     * расстояния: по одному маршруту на город, не больше числа городов
+     */
+    public List<ShortestPath> routesFrom(Integer fromCityId, int limit) {
+        CityRouteGraph current = graph();
+        int source = current.indexOf(fromCityId);
+        if (source < 0 || limit <= 0) {
+            return List.of();
+        }
+        DistanceMatrix ready = matrixFor(current);
+        long[] dist = ready == null ? current.distancesFrom(source) : null;
+        List<long[]> reachable = new ArrayList<>();   // {distance, index}
+        for (int v = 0; v < current.size(); v++) {
+            long d = ready != null ? ready.distanceHundredths(source, v) : dist[v];
+            if (v != source && d != CityRouteGraph.UNREACHABLE) {
+                reachable.add(new long[]{d, v});
+            }
+        }
+        reachable.sort((a, b) -> Long.compare(a[0], b[0]));
+        int[] targets = new int[Math.min(limit, reachable.size())];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = (int) reachable.get(i)[1];
+        }
+        List<ShortestPath> paths = new ArrayList<>(targets.length);
+        if (ready != null) {
+            for (int target : targets) {
+                paths.add(ready.pathByIndex(source, target));
+            }
+        } else {
+            paths.addAll(Arrays.asList(current.shortestPathsFrom(source, targets)));
+        }
+        return paths;
+    }
+
+    /**
+     * До k кратчайших простых маршрутов между городами (Йен) с пределом числа поисков
+     */
+    public KShortestPaths.Result alternatives(Integer fromCityId, Integer toCityId, int k, int maxSpurSearches) {
+        CityRouteGraph current = graph();
+        return KShortestPaths.find(current, current.indexOf(fromCityId), current.indexOf(toCityId), k, maxSpurSearches);
+    }
+
+    private static void putIfFound(Map<CityPair, ShortestPath> result, CityPair pair, ShortestPath path) {
+        if (path != null) {
+            result.put(pair, path);
+        }
+    }
+
+    /**
+     * Структурный анализ текущего снимка; считается при первом обращении к снимку
+     */
+    public RouteNetworkAnalysis network() {
+        CityRouteGraph current = graph();
+        RouteNetworkAnalysis analysis = network;
+        if (analysis == null || analysis.getGraph() != current) {
+            analysis = RouteNetworkAnalysis.compute(current);
+            network = analysis;
+            logger.info("Route network analysis computed in {} ms for {} cities",
+                    analysis.getComputeMillis(), current.size());
+        }
+        return analysis;
+    }
+
+    /**
+     * Готовая матрица для снимка или null (матрица годится, только если посчитана для того же снимка)
+     */
+    public DistanceMatrix matrixFor(CityRouteGraph current) {
+        DistanceMatrix ready = matrix;
+        return ready != null && ready.getGraph() == current ? ready : null;
+    }
+
+    private void scheduleMatrix(CityRouteGraph built, long version, String builtFingerprint) {
+        if (built.size() > matrixMaxCities) {
+            matrix = null;
+            logger.warn("Route matrix disabled: {} cities exceed routing.matrix.max-cities={} (~{} MB)",
+                    built.size(), matrixMaxCities, DistanceMatrix.estimateBytes(built.size()) >> 20);
+            matrixExecutor.execute(() -> writeSnapshot(built, null, builtFingerprint));
+            return;
+        }
+        matrixExecutor.execute(() -> {
+            // Пока считали, граф мог смениться — тогда результат уже не нужен
+            if (graph != built) {
+                return;
+            }
+            try {
+                DistanceMatrix computed = DistanceMatrix.compute(built, version);
+                if (graph == built) {
+                    matrix = computed;
+                    logger.info("Route matrix v{} computed in {} ms for {} cities",
+                            version, computed.getComputeMillis(), built.size());
+                    writeSnapshot(built, computed, builtFingerprint);
+                }
+            } catch (RuntimeException | OutOfMemoryError e) {
+                logger.error("Route matrix v{} computation failed, using Dijkstra per query", version, e);
+            }
+        });
+    }
+
+    /**
+     * Сохранить снимок в файл, если он включён и в файле другой граф
+     */
+    private void writeSnapshot(CityRouteGraph built, DistanceMatrix computed, String builtFingerprint) {
+        Path path = snapshotPath();
+        if (path == null || builtFingerprint == null || builtFingerprint.equals(snapshotFingerprint)
+                || graph != built) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            RouteGraphSnapshot.write(path, built, computed, builtFingerprint);
+            snapshotFingerprint = builtFingerprint;
+            logger.info("Route snapshot written to {} in {} ms", path, System.currentTimeMillis() - start);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Route snapshot write to {} failed", path, e);
+        }
+    }
+
+    private Path snapshotPath() {
+        return snapshotPath == null || snapshotPath.isBlank() ? null : Path.of(snapshotPath);
+    }
+
+    /**
+     * Пометить граф устаревшим после коммита текущей транзакции (сразу, если её нет)
+     */
+    public void invalidateAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    stale = true;
+                }
+            });
+        } else {
+            stale = true;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${routing.graph.refresh-ms:60000}",
+            initialDelayString = "${routing.graph.refresh-ms:60000}")
+    public void refreshIfChanged() {
+        try {
+            if (graph != null && !Objects.equals(fingerprint, cityRouteRepository.routesFingerprint())) {
+                reload();
+            }
+        } catch (RuntimeException e) {
+            logger.error("Route graph refresh failed", e);
+        }
+    }
+
+    public long getGraphVersion() {
+        return graphVersion.get();
+    }
+
+    public Map<String, Object> getStatistics() {
+        CityRouteGraph current = graph;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("loaded", current != null);
+        stats.put("cities", current != null ? current.size() : 0);
+        stats.put("routes", current != null ? current.getEdgeCount() : 0);
+        stats.put("builtAt", current != null ? current.getBuiltAt() : null);
+        stats.put("stale", stale);
+        stats.put("version", graphVersion.get());
+        DistanceMatrix ready = current != null ? matrixFor(current) : null;
+        stats.put("matrixReady", ready != null);
+        stats.put("matrixComputeMs", ready != null ? ready.getComputeMillis() : null);
+        stats.put("snapshotPath", snapshotPath);
+        stats.put("snapshotCurrent", fingerprint != null && fingerprint.equals(snapshotFingerprint));
+        return stats;
+    }
+
+    private void reloadOrKeep() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            if (graph == null) {
+                throw e;
+            }
+            // Старый снимок остаётся в работе, сверка отпечатка повторит попытку
+            fingerprint = null;
+            logger.error("Route graph rebuild failed, serving previous snapshot", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        matrixExecutor.shutdownNow();
+    }
+
+    static long toHundredths(BigDecimal distanceKm) {
+        return distanceKm.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+}
@@ -0,0 +1,73 @@
+package com.estore.library.routing;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Кратчайший маршрут между городами: последовательность городов и длина в км
+ */
+public final class ShortestPath {
+
+    private final int[] cityIds;
+    private final String[] cityNames;
+    private final long distanceHundredths;
+
+    ShortestPath(int[] cityIds, String[] cityNames, long distanceHundredths) {
+        this.cityIds = cityIds;
+        this.cityNames = cityNames;
+        this.distanceHundredths = distanceHundredths;
+    }
+
+    /**
+     * Города маршрута, включая начальный и конечный
+     */
+    public int[] getCityIds() {
+        return cityIds.clone();
+    }
+
+    public String[] getCityNames() {
+        return cityNames.clone();
+    }
+
+    public int getStartCityId() {
+        return cityIds[0];
+    }
+
+    public int getEndCityId() {
+        return cityIds[cityIds.length - 1];
+    }
+
+    public String getEndCityName() {
+        return cityNames[cityNames.length - 1];
+    }
+
+    /**
+     * Число перегонов (рёбер) маршрута
+     */
+    public int getTransfers() {
+        return cityIds.length - 1;
+    }
+
+    public BigDecimal getTotalDistance() {
+        return BigDecimal.valueOf(distanceHundredths, 2);
+    }
+
+    /**
+     * Длина в сотых долях км (точное значение без BigDecimal)
+     */
+    public long getDistanceHundredths() {
+        return distanceHundredths;
+    }
+
+    /**
+     * "Москва -> Казань -> Челябинск"
+     */
+    public String getPathName() {
+        return String.join(" -> ", cityNames);
+    }
+
+    @Override
+    public String toString() {
+        return getPathName() + " (" + getTotalDistance() + " km, ids " + Arrays.toString(cityIds) + ")";
+    }
+}
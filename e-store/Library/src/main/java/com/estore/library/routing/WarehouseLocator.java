@@ -0,0 +1,173 @@
+package com.estore.library.routing;
+
+import com.estore.library.model.bisentity.Warehouse;
+import com.estore.library.repository.WarehouseRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Держит {@link NearestWarehouseIndex} для текущего снимка графа маршрутов.
+ * <p>
+ * Новый снимок графа (изменились маршруты или города) — индекс строится
+ * заново одним многоисточниковым проходом. Добавленный склад вливается
+ * в существующий индекс инкрементально; изменение или удаление склада
+ * помечает индекс устаревшим. Всё применяется после коммита при следующем
+ * обращении, читатели видят только готовые снимки.
+ */
+@Component
+@RequiredArgsConstructor
+public class WarehouseLocator {
+
+    private static final Logger logger = LoggerFactory.getLogger(WarehouseLocator.class);
+
+    private final RoutingEngine routingEngine;
+    private final WarehouseRepository warehouseRepository;
+
+    @Value("${routing.warehouses.k:5}")
+    private int k;
+
+    @Value("${routing.zones.bands-km:50,100,200,500}")
+    private int[] zoneBandsKm;
+
+    private volatile NearestWarehouseIndex index;
+    private volatile DeliveryZones zones;
+    // Индекс, по которому посчитаны zones
+    private volatile NearestWarehouseIndex zonesIndex;
+    private final Object zonesLock = new Object();
+    private volatile boolean stale;
+    private final Queue<NearestWarehouseIndex.Site> addedSites = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Индекс, согласованный с текущим снимком графа
+     */
+    public NearestWarehouseIndex index() {
+        CityRouteGraph graph = routingEngine.graph();
+        NearestWarehouseIndex current = index;
+        if (current != null && current.getGraph() == graph && !stale && addedSites.isEmpty()) {
+            return current;
+        }
+        synchronized (this) {
+            current = index;
+            if (current == null || current.getGraph() != graph || stale) {
+                stale = false;
+                addedSites.clear();
+                current = rebuild(graph);
+            } else {
+                NearestWarehouseIndex.Site site;
+                while ((site = addedSites.poll()) != null) {
+                    current = current.withSite(site);
+                }
+            }
+            index = current;
+            return current;
+        }
+    }
+
+    /**
+     * Зоны доставки для полос из routing.zones.bands-km. Считаются заново,
+     * только когда сменился индекс складов (новый снимок графа или склады)
+     */
+    public DeliveryZones zones() {
+        NearestWarehouseIndex current = index();
+        // zonesIndex пишется после zones: совпавший индекс гарантирует свежие зоны
+        if (zonesIndex == current) {
+            return zones;
+        }
+        synchronized (zonesLock) {
+            if (zones == null || zonesIndex != current) {
+                DeliveryZones built = DeliveryZones.compute(current.getGraph(), current.getSites(), zoneBandsKm);
+                logger.info("Delivery zones computed in {} ms: {} warehouses, bands {} km",
+                        built.getComputeMillis(), built.getWarehouseCount(), Arrays.toString(built.getBandsKm()));
+                zones = built;
+                zonesIndex = current;
+            }
+            return zones;
+        }
+    }
+
+    /**
+     * Зоны для произвольных полос: настроенные берутся из кэша, остальные считаются по запросу
+     */
+    public DeliveryZones zones(int[] bandsKm) {
+        if (bandsKm == null || Arrays.equals(DeliveryZones.normalizeBands(bandsKm),
+                DeliveryZones.normalizeBands(zoneBandsKm))) {
+            return zones();
+        }
+        NearestWarehouseIndex current = index();
+        return DeliveryZones.compute(current.getGraph(), current.getSites(), bandsKm);
+    }
+
+    /**
+     * Склад создан: влить его в индекс после коммита
+     */
+    public void warehouseAddedAfterCommit(Warehouse warehouse) {
+        NearestWarehouseIndex.Site site = toSite(warehouse);
+        afterCommit(() -> addedSites.add(site));
+    }
+
+    /**
+     * Склад изменён или удалён: пересобрать индекс после коммита
+     */
+    public void invalidateAfterCommit() {
+        afterCommit(() -> stale = true);
+    }
+
+    public Map<String, Object> getStatistics() {
+        NearestWarehouseIndex current = index;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("loaded", current != null);
+        stats.put("k", k);
+        stats.put("warehouses", current != null ? current.getWarehouseCount() : 0);
+        stats.put("stale", stale);
+        stats.put("pendingAdds", addedSites.size());
+        stats.put("zonesLoaded", zones != null);
+        stats.put("zoneBandsKm", zoneBandsKm);
+        return stats;
+    }
+
+    private NearestWarehouseIndex rebuild(CityRouteGraph graph) {
+        long start = System.currentTimeMillis();
+        List<NearestWarehouseIndex.Site> sites = new ArrayList<>();
+        for (Warehouse warehouse : warehouseRepository.findAll()) {
+            sites.add(toSite(warehouse));
+        }
+        NearestWarehouseIndex built = NearestWarehouseIndex.build(graph, sites, k);
+        logger.info("Nearest-warehouse index built in {} ms: {} warehouses, {} cities, k={}",
+                System.currentTimeMillis() - start, built.getWarehouseCount(), graph.size(), k);
+        return built;
+    }
+
+    private static NearestWarehouseIndex.Site toSite(Warehouse warehouse) {
+        return new NearestWarehouseIndex.Site(
+                warehouse.getId(),
+                warehouse.getName(),
+                warehouse.getCity() != null ? warehouse.getCity().getCityId() : null,
+                warehouse.getAddress());
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
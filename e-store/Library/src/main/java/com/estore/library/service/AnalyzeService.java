@@ -3,6 +3,7 @@ package com.estore.library.service;
 import com.estore.library.dto.analyze.dto.*;
 
 import java.util.List;
+import java.util.Map;
 
 public interface AnalyzeService {
     /**
@@ -47,6 +48,12 @@ public interface AnalyzeService {
     List<PieItemDto> getTopCitiesInRoutes();
     List<BucketItemDto> getRouteDistanceBuckets();
 
+    /**
+     * Анализ сети маршрутов: узкие места (центральность), компоненты связности,
+     * точки сочленения и нагрузка доставки на города
+     */
+    RouteNetworkDto getRouteNetwork(int limit);
+
     // User analytics
     List<AgeBucketDto> getAgeBuckets5y();
     List<BucketItemDto> getLoginByHourLast30d();
@@ -58,6 +65,12 @@ public interface AnalyzeService {
     List<TimeSeriesItemDto> getRevenueByMonthLastYear();
     List<TimeSeriesItemDto> getBestsellersByMonth();
 
+    /**
+     * Top-K доставленных товаров / брендов / категорий за последние months месяцев
+     * (null — за всё время). По умолчанию из скетчей с границей ошибки, exact — точный SQL.
+     */
+    TopKResultDto getTopK(String scope, Integer months, int k, boolean exact);
+
     // Analyze combined
     List<PieItemDto> analyzeGeneric(String scope, String gender, String ageGroup, Integer month);
 
@@ -65,7 +78,19 @@ public interface AnalyzeService {
     List<PieItemDto> getOrderBrandsByFilter(String status, String gender, String ageGroup, Integer categoryId, Integer brandId);
     List<PieItemDto> getOrderCategoriesByFilter(String status, String gender, String ageGroup, Integer categoryId, Integer brandId);
     List<PieItemDto> getOrderProductsByFilter(String status, String gender, String ageGroup, Integer categoryId, Integer brandId);
-}
 
+    /**
+     * Метрики кэша аналитики (попадания, промахи, время загрузки)
+     */
+    Map<String, Object> getCacheStatistics();
 
+    /**
+     * Состояние колоночного куба заказов (строки, словари, время загрузки)
+     */
+    Map<String, Object> getCubeStatistics();
 
+    /**
+     * Состояние скетчей бестселлеров (месяцы, параметры точности)
+     */
+    Map<String, Object> getSketchStatistics();
+}
@@ -2,9 +2,12 @@ package com.estore.library.service;
 
 import com.estore.library.dto.city.RouteSummaryDto;
 import com.estore.library.model.bisentity.CityRoute;
+import com.estore.library.routing.CityPair;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface CityRouteService {
@@ -31,11 +34,25 @@ public interface CityRouteService {
     
     boolean existsDirectRoute(Integer cityAId, Integer cityBId);
     
-    List<Object[]> findAllRoutesBFS(String startCityName);
+    /**
+     * Кратчайшие маршруты из города в ближайшие limit городов (по одному на город)
+     */
+    List<RouteSummaryDto> findRoutesFrom(String startCityName, int limit);
+
+    /**
+     * До k альтернативных маршрутов между городами по возрастанию длины;
+     * k ограничено routing.alternatives.max-k, перебор — routing.alternatives.max-spur-searches
+     */
+    List<RouteSummaryDto> findAlternativeRoutes(Integer fromCityId, Integer toCityId, int k);
     
     Object[] findShortestRouteBFS(String startCityName, String endCityName);
 
     RouteSummaryDto findShortestRouteBFSById(Integer startCityId, Integer endCityId);//todo may  be Object[] return
 
     RouteSummaryDto findShortestRouteBFSByName(String startCityName, String endCityName);
+
+    /**
+     * Кратчайшие маршруты для набора пар городов за один проход; ненайденных пар в результате нет
+     */
+    Map<CityPair, RouteSummaryDto> findShortestRoutesByIds(Collection<CityPair> pairs);
 }
@@ -0,0 +1,17 @@
+package com.estore.library.service;
+
+import com.estore.library.dto.order.dto.DeliveryPlanDto;
+
+public interface DeliveryPlanningService {
+
+    /**
+     * План рейсов для всех заказов в статусе PROCESSING, по складам-источникам
+     */
+    DeliveryPlanDto planProcessingOrders();
+
+    /**
+     * Назначить заказам PROCESSING без склада ближайший склад (одним пакетом)
+     * и вернуть план рейсов
+     */
+    DeliveryPlanDto assignWarehousesAndPlan();
+}
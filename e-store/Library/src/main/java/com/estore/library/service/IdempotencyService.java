@@ -0,0 +1,35 @@
+package com.estore.library.service;
+
+import java.util.UUID;
+import java.util.function.Supplier;
+
+public interface IdempotencyService {
+
+    /**
+     * Ответ операции в JSON; replayed — возвращён сохранённый ответ, операция не выполнялась
+     */
+    record StoredResponse(int status, String body, boolean replayed) {
+    }
+
+    /**
+     * Выполнить операцию один раз для ключа. Операция выполняется в одной транзакции
+     * с записью ключа; повтор (в том числе конкурентный) получает сохранённый ответ.
+     * Если операция выбросила исключение, ключ не сохраняется и повтор выполнит её заново.
+     *
+     * @param scope         имя операции, например "orders"
+     * @param ownerId       владелец ключа (пользователь)
+     * @param key           значение заголовка Idempotency-Key
+     * @param request       тело запроса: тот же ключ с другим телом отклоняется
+     * @param successStatus HTTP-код успешного ответа
+     * @param action        операция, возвращает тело ответа
+     * @throws IllegalArgumentException пустой или слишком длинный ключ, нет владельца, ключ с другим телом
+     * @throws IllegalStateException    ключ занят незавершённым запросом
+     */
+    StoredResponse execute(String scope, UUID ownerId, String key, Object request, int successStatus,
+                           Supplier<Object> action);
+
+    /**
+     * Удалить просроченные ключи из БД и памяти
+     */
+    void sweepExpired();
+}
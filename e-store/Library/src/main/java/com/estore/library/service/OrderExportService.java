@@ -0,0 +1,45 @@
+package com.estore.library.service;
+
+import com.estore.library.dto.order.dto.OrderExportFilter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface OrderExportService {
+
+    enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    enum Dataset {
+        /** Одна строка на заказ */
+        ORDERS,
+        /** Одна строка на позицию заказа */
+        LINES
+    }
+
+    /**
+     * Потоковая выгрузка заказов в поток вывода.
+     * Строки читаются курсором БД и пишутся сразу, память не зависит от объёма.
+     *
+     * @return количество выгруженных строк
+     */
+    long export(Dataset dataset, Format format, OrderExportFilter filter, OutputStream out) throws IOException;
+}
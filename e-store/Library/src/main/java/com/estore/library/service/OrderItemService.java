@@ -24,5 +24,5 @@ public interface OrderItemService {
     
     Long getTotalQuantitySoldForProduct(UUID productId);
     
-    List<Object[]> getTopSellingProducts();
+    List<Object[]> getTopSellingProducts(int limit);
 }
@@ -0,0 +1,27 @@
+package com.estore.library.service;
+
+import com.estore.library.dto.order.request.OrderRequestDto;
+import com.estore.library.inventory.WarehouseAllocation;
+import com.estore.library.model.dicts.OrderStatus;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public interface OrderPlacementService {
+
+    /**
+     * Оформленный заказ; allocation — выбранный склад-источник или null
+     */
+    record PlacedOrder(UUID orderId, BigDecimal totalAmount, OrderStatus status, WarehouseAllocation allocation) {
+    }
+
+    /**
+     * Оформить заказ одной транзакцией: ссылки заказа проверяются одним запросом,
+     * товары читаются одним findAllById, остатки списываются пакетно, заказ и
+     * позиции вставляются пакетом JDBC. Позиции одного товара складываются.
+     *
+     * @throws IllegalArgumentException нет позиций или не найден пользователь, город, способ доставки/оплаты, товар
+     * @throws IllegalStateException    товар снят с продажи или его не хватает (ничего не записано)
+     */
+    PlacedOrder placeOrder(OrderRequestDto request);
+}
@@ -55,6 +55,11 @@ public interface ProductService {
 
     void updateStock(UUID productId, Integer quantity);
     
+    /**
+     * Включить/выключить остаток товара в памяти для распродаж (подхватывается сверкой счётчиков)
+     */
+    void setHotStock(UUID productId, boolean hot);
+    
     void updateRating(UUID productId, BigDecimal newRating);
     
     void markAsAvailable(UUID productId);
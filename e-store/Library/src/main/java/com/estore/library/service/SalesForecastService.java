@@ -0,0 +1,19 @@
+package com.estore.library.service;
+
+import com.estore.library.dto.analyze.dto.ForecastDto;
+
+public interface SalesForecastService {
+
+    /**
+     * Прогноз выручки категории: история, скользящее среднее и прогноз с интервалами.
+     * Использует ночной расчёт, если он актуален, иначе считает на лету.
+     */
+    ForecastDto getForecast(Integer categoryId, int windowSize);
+
+    /**
+     * Пересчитать и сохранить прогнозы всех категорий одним проходом
+     *
+     * @return количество категорий
+     */
+    int recomputeAll();
+}
@@ -1,5 +1,6 @@
 package com.estore.library.service;
 
+import com.estore.library.dto.order.request.OrderRequestDto;
 import com.estore.library.model.bisentity.ShoppingCart;
 
 import java.math.BigDecimal;
@@ -31,4 +32,16 @@ public interface ShoppingCartService {
     void removeProductFromCart(UUID userId, UUID productId);
     
     ShoppingCart getOrCreateCart(UUID userId);
+    
+    /**
+     * Оформить заказ из сохранённой корзины одной транзакцией: корзина читается
+     * одним запросом, цены берутся текущие, остатки списываются, заказ и позиции
+     * вставляются пакетом, корзина очищается. Повторное оформление той же корзины
+     * (например, двойная отправка) откатывается.
+     *
+     * @param delivery город, адрес, способы доставки и оплаты, скидка (позиции не нужны)
+     * @throws IllegalArgumentException корзины нет или не найдены ссылки заказа
+     * @throws IllegalStateException    корзина пуста, уже оформлена или товара не хватает
+     */
+    OrderPlacementService.PlacedOrder checkout(UUID userId, OrderRequestDto delivery);
 }
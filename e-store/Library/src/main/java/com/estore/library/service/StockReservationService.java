@@ -0,0 +1,27 @@
+package com.estore.library.service;
+
+import com.estore.library.inventory.WarehouseAllocation;
+
+import java.util.Map;
+import java.util.UUID;
+
+public interface StockReservationService {
+
+    /**
+     * Списать товары заказа с общего остатка одним условным запросом (горячие товары —
+     * со счётчиков в памяти) и записать резерв.
+     * Вызывается в транзакции, которая затем вставляет заказ: без заказа резерв откатывается вместе с ней.
+     *
+     * @param orderId    ID будущего заказа
+     * @param quantities товар -> количество (позиции одного товара уже сложены)
+     * @param allocation выбранный склад; если с него списано, резерв вернёт и складской остаток
+     * @throws IllegalStateException товара не хватает (ничего не списано)
+     */
+    void reserve(UUID orderId, Map<UUID, Integer> quantities, WarehouseAllocation allocation);
+
+    /**
+     * Вернуть на остаток всё, что списано под заказ (отмена или удаление заказа).
+     * Повторный вызов ничего не меняет.
+     */
+    void releaseOrder(UUID orderId);
+}
@@ -5,6 +5,7 @@ import com.estore.library.model.bisentity.Warehouse;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 
 public interface WarehouseService {
     
@@ -75,4 +76,34 @@ public interface WarehouseService {
      * @return стоимость доставки
      */
     Double calculateDeliveryCost(Long warehouseFromId, Long warehouseToId, Double pricePerKm);
+
+    /**
+     * Зоны доставки склада: города по полосам расстояния
+     * @param warehouseId ID склада
+     * @param bandsKm границы полос в км; null — из настроек routing.zones.bands-km
+     * @return Map: warehouseId, warehouseName, cityId, zones (upToKm, cityCount, cities)
+     */
+    Map<String, Object> getDeliveryZones(Long warehouseId, List<Integer> bandsKm);
+
+    /**
+     * Склады, в зону доставки которых попадает город
+     * @param cityId ID города доставки
+     * @param bandsKm границы полос в км; null — из настроек
+     * @return Список складов по возрастанию расстояния с полосой upToKm
+     */
+    List<Map<String, Object>> getDeliveryZonesForCity(Integer cityId, List<Integer> bandsKm);
+
+    // ============= ОСТАТКИ ПО СКЛАДАМ =============
+
+    /**
+     * Остатки товаров на складе
+     * @param warehouseId ID склада
+     * @return Список: productId, productName, quantity, updatedAt
+     */
+    List<Map<String, Object>> getWarehouseStock(Long warehouseId);
+
+    /**
+     * Установить остаток товара на складе (учитывается при выборе склада для заказа)
+     */
+    void setWarehouseStock(Long warehouseId, UUID productId, int quantity);
 }
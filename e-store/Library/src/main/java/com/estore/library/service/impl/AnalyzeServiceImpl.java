@@ -1,134 +1,381 @@
 package com.estore.library.service.impl;
 
+import com.estore.library.analytics.AnalyticsCache;
+import com.estore.library.analytics.AnalyticsCache.Region;
+import com.estore.library.analytics.cube.OrderFactCube;
+import com.estore.library.analytics.cube.OrderFactCube.Dimension;
+import com.estore.library.analytics.sketch.BestsellerSketches;
 import com.estore.library.dto.analyze.dto.*;
 import com.estore.library.repository.analyze.AnalyzeRepository;
+import com.estore.library.routing.CityPair;
+import com.estore.library.routing.CityRouteGraph;
+import com.estore.library.routing.RouteNetworkAnalysis;
+import com.estore.library.routing.RoutingEngine;
+import com.estore.library.routing.ShortestPath;
 import com.estore.library.service.AnalyzeService;
+import com.estore.library.service.SalesForecastService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+
+import static com.estore.library.analytics.AnalyticsCache.regions;
 
 @Service
 @RequiredArgsConstructor
 public class AnalyzeServiceImpl implements AnalyzeService {
 
+    private static final List<String> ORDER_FILTER_STATUSES =
+            List.of("PROCESSING", "IN_TRANSIT", "DELIVERED", "CANCELLED");
+    private static final int MAX_TOP_K = 100;
+
     private final AnalyzeRepository analyzeRepository;
+    private final AnalyticsCache analyticsCache;
+    private final ObjectProvider<OrderFactCube> orderFactCube;
+    private final ObjectProvider<BestsellerSketches> bestsellerSketches;
+    private final SalesForecastService salesForecastService;
+    private final RoutingEngine routingEngine;
 
     @Override
     public List<BestSellerDto> getBestSellers(int limit) {
-        return analyzeRepository.getBestSellers(limit);
+        return analyticsCache.get("bestSellers:" + limit, regions(Region.DELIVERED_SALES, Region.CATALOG),
+                () -> analyzeRepository.getBestSellers(limit));
     }
 
     @Override
     public List<CategoryBrandAnalysisDto> getCategoryBrandAnalysis() {
-        return analyzeRepository.getCategoryBrandAnalysis();
+        return analyticsCache.get("categoryBrandAnalysis", regions(Region.DELIVERED_SALES, Region.CATALOG),
+                () -> analyzeRepository.getCategoryBrandAnalysis());
     }
 
     @Override
     public List<AgeGroupAnalysisDto> getAgeGroupAnalysis() {
-        return analyzeRepository.getAgeGroupAnalysis();
+        return analyticsCache.get("ageGroupAnalysis", regions(Region.DELIVERED_SALES, Region.CUSTOMERS),
+                () -> analyzeRepository.getAgeGroupAnalysis());
     }
 
     @Override
     public List<RouteAnalysisDto> getRouteAnalysis() {
-        return analyzeRepository.getRouteAnalysis();
+        return analyticsCache.get("routeAnalysis", regions(Region.DELIVERED_SALES),
+                () -> analyzeRepository.getRouteAnalysis());
     }
 
     @Override
     public List<PaymentDeliveryAnalysisDto> getPaymentMethodAnalysis() {
-        return analyzeRepository.getPaymentMethodAnalysis();
+        return analyticsCache.get("paymentMethodAnalysis", regions(Region.DELIVERED_SALES),
+                () -> analyzeRepository.getPaymentMethodAnalysis());
     }
 
     @Override
     public List<PaymentDeliveryAnalysisDto> getDeliveryMethodAnalysis() {
-        return analyzeRepository.getDeliveryMethodAnalysis();
+        return analyticsCache.get("deliveryMethodAnalysis", regions(Region.DELIVERED_SALES),
+                () -> analyzeRepository.getDeliveryMethodAnalysis());
     }
 
     @Override
     public ForecastDto getMonthlySalesForecast(Integer categoryId, int windowSize) {
-        return analyzeRepository.getMonthlySalesForecast(categoryId, windowSize);
+        return analyticsCache.get("salesForecast:" + categoryId + ":" + windowSize, regions(Region.DELIVERED_SALES, Region.CATALOG),
+                () -> salesForecastService.getForecast(categoryId, windowSize));
     }
 
     @Override
     public List<PieItemDto> getCategoryShare() {
-        return analyzeRepository.getCategoryShare();
+        return analyticsCache.get("categoryShare", regions(Region.CATALOG),
+                () -> analyzeRepository.getCategoryShare());
     }
 
     @Override
     public List<PieItemDto> getBrandShare() {
-        return analyzeRepository.getBrandShare();
+        return analyticsCache.get("brandShare", regions(Region.CATALOG),
+                () -> analyzeRepository.getBrandShare());
     }
 
     @Override
     public List<BucketItemDto> getPriceBuckets() {
-        return analyzeRepository.getPriceBuckets();
+        return analyticsCache.get("priceBuckets", regions(Region.CATALOG),
+                () -> analyzeRepository.getPriceBuckets());
     }
 
     @Override
     public List<PieItemDto> getTopCitiesInRoutes() {
-        return analyzeRepository.getTopCitiesInRoutes();
+        return analyticsCache.get("topCitiesInRoutes", regions(Region.ROUTES),
+                () -> analyzeRepository.getTopCitiesInRoutes());
     }
 
     @Override
     public List<BucketItemDto> getRouteDistanceBuckets() {
-        return analyzeRepository.getRouteDistanceBuckets();
+        return analyticsCache.get("routeDistanceBuckets", regions(Region.ROUTES),
+                () -> analyzeRepository.getRouteDistanceBuckets());
+    }
+
+    @Override
+    public RouteNetworkDto getRouteNetwork(int limit) {
+        if (limit <= 0 || limit > MAX_TOP_K) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_TOP_K);
+        }
+        // Версия снимка в ключе: граф мог смениться в другом приложении, без инвалидации региона
+        return analyticsCache.get(key("routeNetwork", limit, routingEngine.getGraphVersion()),
+                regions(Region.ROUTES, Region.ORDER_PIPELINE),
+                () -> buildRouteNetwork(limit));
+    }
+
+    private RouteNetworkDto buildRouteNetwork(int limit) {
+        RouteNetworkAnalysis network = routingEngine.network();
+        CityRouteGraph graph = network.getGraph();
+        int n = graph.size();
+
+        // Нагрузка: заказы раскладываются по городам кратчайшего маршрута склад -> доставка
+        long[] deliveryLoad = new long[n];
+        long[] transitLoad = new long[n];
+        long unroutable = 0;
+        Map<CityPair, Long> pairCounts = analyzeRepository.getDeliveryPairCounts();
+        Map<CityPair, ShortestPath> routes = routingEngine.routes(pairCounts.keySet());
+        for (Map.Entry<CityPair, Long> pair : pairCounts.entrySet()) {
+            ShortestPath path = routes.get(pair.getKey());
+            if (path == null) {
+                unroutable += pair.getValue();
+                continue;
+            }
+            int[] cityIds = path.getCityIds();
+            for (int i = 0; i < cityIds.length; i++) {
+                int v = graph.indexOf(cityIds[i]);
+                if (v < 0) {
+                    continue;
+                }
+                deliveryLoad[v] += pair.getValue();
+                if (i > 0 && i < cityIds.length - 1) {
+                    transitLoad[v] += pair.getValue();
+                }
+            }
+        }
+
+        List<RouteHubDto> bottlenecks = new ArrayList<>();
+        List<RouteHubDto> articulationPoints = new ArrayList<>();
+        long isolated = 0;
+        for (int v : network.byBetweenness()) {
+            if (bottlenecks.size() < limit && network.betweenness(v) > 0) {
+                bottlenecks.add(toHub(network, v, deliveryLoad, transitLoad));
+            }
+            if (network.isArticulationPoint(v)) {
+                articulationPoints.add(toHub(network, v, deliveryLoad, transitLoad));
+            }
+            if (graph.degree(v) == 0) {
+                isolated++;
+            }
+        }
+        List<RouteHubDto> busiestHubs = new ArrayList<>();
+        for (int v = 0; v < n; v++) {
+            if (deliveryLoad[v] > 0) {
+                busiestHubs.add(toHub(network, v, deliveryLoad, transitLoad));
+            }
+        }
+        busiestHubs.sort((a, b) -> Long.compare(b.getDeliveryLoad(), a.getDeliveryLoad()));
+
+        RouteNetworkDto dto = new RouteNetworkDto();
+        dto.setCities(n);
+        dto.setRoutes(graph.getEdgeCount());
+        dto.setComponents(network.getComponentCount());
+        dto.setLargestComponentSize(network.getLargestComponentSize());
+        dto.setIsolatedCities(isolated);
+        dto.setUnroutableOrders(unroutable);
+        dto.setComputeMillis(network.getComputeMillis());
+        dto.setBottlenecks(bottlenecks);
+        dto.setArticulationPoints(articulationPoints);
+        dto.setBusiestHubs(busiestHubs.size() > limit ? new ArrayList<>(busiestHubs.subList(0, limit)) : busiestHubs);
+        return dto;
+    }
+
+    private static RouteHubDto toHub(RouteNetworkAnalysis network, int v, long[] deliveryLoad, long[] transitLoad) {
+        CityRouteGraph graph = network.getGraph();
+        RouteHubDto hub = new RouteHubDto();
+        hub.setCityId(graph.cityIdAt(v));
+        hub.setCityName(graph.cityNameAt(v));
+        hub.setDegree(graph.degree(v));
+        hub.setBetweenness(network.betweenness(v));
+        hub.setArticulationPoint(network.isArticulationPoint(v));
+        hub.setComponentSize(network.componentSize(network.componentOf(v)));
+        hub.setDeliveryLoad(deliveryLoad[v]);
+        hub.setTransitLoad(transitLoad[v]);
+        return hub;
     }
 
     @Override
     public List<AgeBucketDto> getAgeBuckets5y() {
-        return analyzeRepository.getAgeBuckets5y();
+        return analyticsCache.get("ageBuckets5y", regions(Region.CUSTOMERS),
+                () -> analyzeRepository.getAgeBuckets5y());
     }
 
     @Override
     public List<BucketItemDto> getLoginByHourLast30d() {
-        return analyzeRepository.getLoginByHourLast30d();
+        return analyticsCache.get("loginByHourLast30d", regions(Region.CUSTOMERS),
+                () -> analyzeRepository.getLoginByHourLast30d());
     }
 
     @Override
     public List<PieItemDto> getTopBrands() {
-        return analyzeRepository.getTopBrands();
+        return analyticsCache.get("topBrands", regions(Region.DELIVERED_SALES, Region.CATALOG),
+                () -> analyzeRepository.getTopBrands());
     }
 
     @Override
     public List<PieItemDto> getTopCategories() {
-        return analyzeRepository.getTopCategories();
+        return analyticsCache.get("topCategories", regions(Region.DELIVERED_SALES, Region.CATALOG),
+                () -> analyzeRepository.getTopCategories());
     }
 
     @Override
     public List<PieItemDto> getTopProducts() {
-        return analyzeRepository.getTopProducts();
+        return analyticsCache.get("topProducts", regions(Region.DELIVERED_SALES, Region.CATALOG),
+                () -> analyzeRepository.getTopProducts());
     }
 
     @Override
     public List<TimeSeriesItemDto> getRevenueByMonthLastYear() {
-        return analyzeRepository.getRevenueByMonthLastYear();
+        return analyticsCache.get("revenueByMonthLastYear", regions(Region.DELIVERED_SALES),
+                () -> analyzeRepository.getRevenueByMonthLastYear());
     }
 
     @Override
     public List<TimeSeriesItemDto> getBestsellersByMonth() {
-        return analyzeRepository.getBestsellersByMonth();
+        return analyticsCache.get("bestsellersByMonth", regions(Region.DELIVERED_SALES, Region.CATALOG),
+                () -> analyzeRepository.getBestsellersByMonth());
+    }
+
+    @Override
+    public TopKResultDto getTopK(String scope, Integer months, int k, boolean exact) {
+        BestsellerSketches.Scope sketchScope = BestsellerSketches.Scope.of(scope);
+        if (k <= 0 || k > MAX_TOP_K) {
+            throw new IllegalArgumentException("k must be between 1 and " + MAX_TOP_K);
+        }
+        if (months != null && months <= 0) {
+            throw new IllegalArgumentException("months must be positive");
+        }
+        YearMonth to = months != null ? YearMonth.now() : null;
+        YearMonth from = months != null ? to.minusMonths(months - 1) : null;
+
+        BestsellerSketches sketches = readySketches();
+        if (!exact && sketches != null) {
+            return sketches.top(sketchScope, from, to, k);
+        }
+        String scopeName = sketchScope.name().toLowerCase();
+        return analyticsCache.get(key("topKExact", scopeName, months, k), regions(Region.DELIVERED_SALES, Region.CATALOG),
+                () -> analyzeRepository.getTopKExact(scopeName,
+                        from != null ? from.atDay(1) : null,
+                        to != null ? to.plusMonths(1).atDay(1) : null,
+                        k));
     }
 
     @Override
     public List<PieItemDto> analyzeGeneric(String scope, String gender, String ageGroup, Integer month) {
-        return analyzeRepository.analyzeGeneric(scope, gender, ageGroup, month);
+        OrderFactCube cube = orderFactCube.getIfAvailable();
+        if (cube != null && cube.isReady()) {
+            Map<Dimension, Collection<?>> filters = new EnumMap<>(Dimension.class);
+            filters.put(Dimension.STATUS, List.of("DELIVERED"));
+            addFilter(filters, Dimension.GENDER, gender);
+            addFilter(filters, Dimension.AGE_BUCKET, ageGroup);
+            addFilter(filters, Dimension.MONTH, month);
+            return cube.sumQuantity(scopeDimension(scope), filters);
+        }
+        return analyticsCache.get(key("analyzeGeneric", scope, gender, ageGroup, month),
+                regions(Region.DELIVERED_SALES, Region.CATALOG, Region.CUSTOMERS),
+                () -> analyzeRepository.analyzeGeneric(scope, gender, ageGroup, month));
     }
 
     @Override
     public List<PieItemDto> getOrderBrandsByFilter(String status, String gender, String ageGroup, Integer categoryId, Integer brandId) {
-        return analyzeRepository.getOrderBrandsByFilter(status, gender, ageGroup, categoryId, brandId);
+        OrderFactCube cube = orderFactCube.getIfAvailable();
+        if (cube != null && cube.isReady()) {
+            return cube.sumQuantity(Dimension.BRAND, orderFilters(status, gender, ageGroup, categoryId, brandId));
+        }
+        return analyticsCache.get(key("orderBrands", status, gender, ageGroup, categoryId, brandId),
+                regions(Region.ORDER_PIPELINE, Region.CATALOG, Region.CUSTOMERS),
+                () -> analyzeRepository.getOrderBrandsByFilter(status, gender, ageGroup, categoryId, brandId));
     }
 
     @Override
     public List<PieItemDto> getOrderCategoriesByFilter(String status, String gender, String ageGroup, Integer categoryId, Integer brandId) {
-        return analyzeRepository.getOrderCategoriesByFilter(status, gender, ageGroup, categoryId, brandId);
+        OrderFactCube cube = orderFactCube.getIfAvailable();
+        if (cube != null && cube.isReady()) {
+            return cube.sumQuantity(Dimension.CATEGORY, orderFilters(status, gender, ageGroup, categoryId, brandId));
+        }
+        return analyticsCache.get(key("orderCategories", status, gender, ageGroup, categoryId, brandId),
+                regions(Region.ORDER_PIPELINE, Region.CATALOG, Region.CUSTOMERS),
+                () -> analyzeRepository.getOrderCategoriesByFilter(status, gender, ageGroup, categoryId, brandId));
     }
 
     @Override
     public List<PieItemDto> getOrderProductsByFilter(String status, String gender, String ageGroup, Integer categoryId, Integer brandId) {
-        return analyzeRepository.getOrderProductsByFilter(status, gender, ageGroup, categoryId, brandId);
+        OrderFactCube cube = orderFactCube.getIfAvailable();
+        if (cube != null && cube.isReady()) {
+            return cube.sumQuantity(Dimension.PRODUCT, orderFilters(status, gender, ageGroup, categoryId, brandId));
+        }
+        return analyticsCache.get(key("orderProducts", status, gender, ageGroup, categoryId, brandId),
+                regions(Region.ORDER_PIPELINE, Region.CATALOG, Region.CUSTOMERS),
+                () -> analyzeRepository.getOrderProductsByFilter(status, gender, ageGroup, categoryId, brandId));
     }
-}
 
+    @Override
+    public Map<String, Object> getCubeStatistics() {
+        OrderFactCube cube = orderFactCube.getIfAvailable();
+        return cube != null ? cube.getStatistics() : Map.of("enabled", false);
+    }
+
+    @Override
+    public Map<String, Object> getSketchStatistics() {
+        BestsellerSketches sketches = bestsellerSketches.getIfAvailable();
+        return sketches != null ? sketches.getStatistics() : Map.of("enabled", false);
+    }
 
+    @Override
+    public Map<String, Object> getCacheStatistics() {
+        return analyticsCache.getStatistics();
+    }
+
+    // Те же фильтры, что и в AnalyzeRepository.buildOrderFilterQuery
+    private static Map<Dimension, Collection<?>> orderFilters(String status, String gender, String ageGroup,
+                                                              Integer categoryId, Integer brandId) {
+        Map<Dimension, Collection<?>> filters = new EnumMap<>(Dimension.class);
+        filters.put(Dimension.STATUS, status != null && !status.isBlank()
+                ? List.of(status)
+                : ORDER_FILTER_STATUSES);
+        addFilter(filters, Dimension.GENDER, gender);
+        addFilter(filters, Dimension.AGE_BUCKET, ageGroup);
+        addFilter(filters, Dimension.CATEGORY, categoryId);
+        addFilter(filters, Dimension.BRAND, brandId);
+        return filters;
+    }
 
+    private static void addFilter(Map<Dimension, Collection<?>> filters, Dimension dimension, Object value) {
+        if (value == null || (value instanceof String text && text.isBlank())) {
+            return;
+        }
+        filters.put(dimension, List.of(value));
+    }
+
+    private static Dimension scopeDimension(String scope) {
+        return switch (scope) {
+            case "categories" -> Dimension.CATEGORY;
+            case "brands" -> Dimension.BRAND;
+            default -> Dimension.PRODUCT;
+        };
+    }
+
+    private BestsellerSketches readySketches() {
+        BestsellerSketches sketches = bestsellerSketches.getIfAvailable();
+        return sketches != null && sketches.isReady() ? sketches : null;
+    }
+
+    private static String key(String name, Object... params) {
+        StringBuilder sb = new StringBuilder(name);
+        for (Object param : params) {
+            sb.append(':').append(param);
+        }
+        return sb.toString();
+    }
+}
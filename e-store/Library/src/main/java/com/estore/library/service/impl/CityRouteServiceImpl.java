@@ -1,20 +1,27 @@
 package com.estore.library.service.impl;
 
+import com.estore.library.analytics.AnalyticsCache;
 import com.estore.library.dto.city.CityDto;
-import com.estore.library.dto.city.RoutePathProjection;
 import com.estore.library.dto.city.RouteSummaryDto;
 import com.estore.library.model.bisentity.CityRoute;
-import com.estore.library.model.dicts.City;
 import com.estore.library.repository.bisentity.CityRouteRepository;
+import com.estore.library.routing.CityPair;
+import com.estore.library.routing.CityRouteGraph;
+import com.estore.library.routing.KShortestPaths;
+import com.estore.library.routing.RoutingEngine;
+import com.estore.library.routing.ShortestPath;
 import com.estore.library.service.CityRouteService;
-import com.estore.library.service.CityService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -23,7 +30,14 @@ import java.util.Optional;
 public class CityRouteServiceImpl implements CityRouteService {
     
     private final CityRouteRepository cityRouteRepository;
-    private final CityService cityService;;
+    private final AnalyticsCache analyticsCache;
+    private final RoutingEngine routingEngine;
+
+    @Value("${routing.alternatives.max-k:10}")
+    private int maxAlternatives;
+
+    @Value("${routing.alternatives.max-spur-searches:1000}")
+    private int maxSpurSearches;
     
     @Override
     @Transactional
@@ -31,6 +45,8 @@ public class CityRouteServiceImpl implements CityRouteService {
         if (route.getDistanceKm().compareTo(BigDecimal.ZERO) <= 0) {
             throw new IllegalArgumentException("Distance must be greater than zero");
         }
+        analyticsCache.invalidate(AnalyticsCache.Region.ROUTES);
+        routingEngine.invalidateAfterCommit();
         return cityRouteRepository.save(route);
     }
     
@@ -43,6 +59,8 @@ public class CityRouteServiceImpl implements CityRouteService {
         existingRoute.setCityA(route.getCityA());
         existingRoute.setCityB(route.getCityB());
         existingRoute.setDistanceKm(route.getDistanceKm());
+        analyticsCache.invalidate(AnalyticsCache.Region.ROUTES);
+        routingEngine.invalidateAfterCommit();
         
         return cityRouteRepository.save(existingRoute);
     }
@@ -54,6 +72,8 @@ public class CityRouteServiceImpl implements CityRouteService {
             throw new IllegalArgumentException("Route not found with id: " + routeId);
         }
         cityRouteRepository.deleteById(routeId);
+        analyticsCache.invalidate(AnalyticsCache.Region.ROUTES);
+        routingEngine.invalidateAfterCommit();
     }
     
     @Override
@@ -97,11 +117,40 @@ public class CityRouteServiceImpl implements CityRouteService {
     }
     
     @Override
-    public List<Object[]> findAllRoutesBFS(String startCityName) {
+    public List<RouteSummaryDto> findRoutesFrom(String startCityName, int limit) {
         if (startCityName == null || startCityName.trim().isEmpty()) {
             throw new IllegalArgumentException("Start city name cannot be empty");
         }
-        return cityRouteRepository.findAllRoutesBFS(startCityName);
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        CityRouteGraph graph = routingEngine.graph();
+        int start = graph.indexOfName(startCityName);
+        if (start < 0) {
+            return List.of();
+        }
+        List<RouteSummaryDto> routes = new ArrayList<>();
+        for (ShortestPath path : routingEngine.routesFrom(graph.cityIdAt(start), limit)) {
+            routes.add(toSummary(path));
+        }
+        return routes;
+    }
+
+    @Override
+    public List<RouteSummaryDto> findAlternativeRoutes(Integer fromCityId, Integer toCityId, int k) {
+        if (fromCityId == null || toCityId == null) {
+            throw new IllegalArgumentException("City IDs cannot be null");
+        }
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        KShortestPaths.Result result = routingEngine.alternatives(
+                fromCityId, toCityId, Math.min(k, maxAlternatives), maxSpurSearches);
+        List<RouteSummaryDto> routes = new ArrayList<>(result.paths().size());
+        for (ShortestPath path : result.paths()) {
+            routes.add(toSummary(path));
+        }
+        return routes;
     }
     
     @Override
@@ -112,7 +161,12 @@ public class CityRouteServiceImpl implements CityRouteService {
         if (endCityName == null || endCityName.trim().isEmpty()) {
             throw new IllegalArgumentException("End city name cannot be empty");
         }
-        return cityRouteRepository.findShortestRouteBFS(startCityName, endCityName);
+        ShortestPath path = routingEngine.routeByName(startCityName, endCityName);
+        if (path == null) {
+            return null;
+        }
+        // Формат прежнего SQL-запроса: [city_name, transfers, total_distance, path_name]
+        return new Object[]{path.getEndCityName(), path.getTransfers(), path.getTotalDistance(), path.getPathName()};
     }
 
     @Override
@@ -120,97 +174,55 @@ public class CityRouteServiceImpl implements CityRouteService {
         if (startCityId == null || endCityId == null) {
             throw new IllegalArgumentException("City IDs cannot be null");
         }
-
-        // 1. Получаем проекцию из репозитория
-        RoutePathProjection projection = cityRouteRepository.findShortestRouteBFSById(startCityId, endCityId);
-
-        if (projection == null) {
-            return null; // Маршрут не найден
-        }
-
-        // 2. Получаем полный список городов по ID
-        List<City> fullPathEntities = new ArrayList<>();
-        if (projection.getPathIds() != null) {
-            for (Integer cityId : projection.getPathIds()) {
-                cityService.getCityById(cityId).ifPresent(fullPathEntities::add);
-            }
-        }
-
-        // 3. Преобразуем в DTO
-        List<CityDto> pathDtos = fullPathEntities.stream()
-                .map(CityDto::fromEntity)
-                .toList();
-
-        // 4. Определяем стартовый, конечный и промежуточные города
-        CityDto startCityDto = pathDtos.get(0);
-        CityDto endCityDto = pathDtos.get(pathDtos.size() - 1);
-
-        List<CityDto> intermediateCities = pathDtos.size() > 2
-                ? pathDtos.subList(1, pathDtos.size() - 1)
-                : List.of();
-
-        // 5. Создаем финальный RouteSummaryDto
-        return new RouteSummaryDto(
-                true,
-                startCityDto,
-                endCityDto,
-                pathDtos,
-                intermediateCities,
-                projection.getTotalDistance(),
-                projection.getTransfers(),
-                projection.getPathName()
-        );
+        return toSummary(routingEngine.route(startCityId, endCityId));
     }
 
-    // В CityRouteServiceImpl.java
-
     @Override
     public RouteSummaryDto findShortestRouteBFSByName(String startCityName, String endCityName) {
         if (startCityName == null || startCityName.trim().isEmpty() ||
                 endCityName == null || endCityName.trim().isEmpty()) {
             throw new IllegalArgumentException("City names cannot be empty");
         }
+        return toSummary(routingEngine.routeByName(startCityName, endCityName));
+    }
 
-        // 1. Получаем проекцию из репозитория
-        RoutePathProjection projection = cityRouteRepository.findShortestRouteByName(startCityName, endCityName);
-
-        if (projection == null) {
-            return null; // Маршрут не найден
+    @Override
+    public Map<CityPair, RouteSummaryDto> findShortestRoutesByIds(Collection<CityPair> pairs) {
+        if (pairs.isEmpty()) {
+            return Map.of();
         }
+        Map<CityPair, RouteSummaryDto> summaries = new HashMap<>();
+        routingEngine.routes(pairs).forEach((pair, path) -> summaries.put(pair, toSummary(path)));
+        return summaries;
+    }
 
-        // 2. Получаем полный список городов по ID (из массива path_ids)
-        List<City> fullPathEntities = new ArrayList<>();
-        if (projection.getPathIds() != null) {
-            for (Integer cityId : projection.getPathIds()) {
-                cityService.getCityById(cityId).ifPresent(fullPathEntities::add);
-            }
+    private static RouteSummaryDto toSummary(ShortestPath path) {
+        if (path == null) {
+            return null; // Маршрут не найден
         }
-
-        // 3. Строим RouteSummaryDto (используя ту же логику, что и раньше)
-        List<CityDto> pathDtos = fullPathEntities.stream()
-                .map(CityDto::fromEntity)
-                .toList();
-
-        if (pathDtos.isEmpty()) {
-            return null;
+        int[] ids = path.getCityIds();
+        String[] names = path.getCityNames();
+        List<CityDto> pathDtos = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            CityDto dto = new CityDto();
+            dto.setCityId(ids[i]);
+            dto.setCityName(names[i]);
+            pathDtos.add(dto);
         }
 
-        CityDto startCityDto = pathDtos.get(0);
-        CityDto endCityDto = pathDtos.get(pathDtos.size() - 1);
-
         List<CityDto> intermediateCities = pathDtos.size() > 2
                 ? pathDtos.subList(1, pathDtos.size() - 1)
                 : List.of();
 
         return new RouteSummaryDto(
                 true,
-                startCityDto,
-                endCityDto,
+                pathDtos.get(0),
+                pathDtos.get(pathDtos.size() - 1),
                 pathDtos,
                 intermediateCities,
-                projection.getTotalDistance(),
-                projection.getTransfers(),
-                projection.getPathName()
+                path.getTotalDistance(),
+                (long) path.getTransfers(),
+                path.getPathName()
         );
     }
 }
@@ -2,6 +2,7 @@ package com.estore.library.service.impl;
 
 import com.estore.library.model.dicts.City;
 import com.estore.library.repository.dicts.CityRepository;
+import com.estore.library.routing.RoutingEngine;
 import com.estore.library.service.CityService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -16,6 +17,7 @@ import java.util.Optional;
 public class CityServiceImpl implements CityService {
     
     private final CityRepository cityRepository;
+    private final RoutingEngine routingEngine;
     
     @Override
     @Transactional
@@ -23,6 +25,7 @@ public class CityServiceImpl implements CityService {
         if (cityRepository.existsByCityName(city.getCityName())) {
             throw new IllegalArgumentException("City already exists: " + city.getCityName());
         }
+        routingEngine.invalidateAfterCommit();
         return cityRepository.save(city);
     }
     
@@ -38,6 +41,7 @@ public class CityServiceImpl implements CityService {
         }
         
         existing.setCityName(city.getCityName());
+        routingEngine.invalidateAfterCommit();
         return cityRepository.save(existing);
     }
     
@@ -48,6 +52,7 @@ public class CityServiceImpl implements CityService {
             throw new IllegalArgumentException("City not found with id: " + cityId);
         }
         cityRepository.deleteById(cityId);
+        routingEngine.invalidateAfterCommit();
     }
     
     @Override
@@ -0,0 +1,156 @@
+package com.estore.library.service.impl;
+
+import com.estore.library.dto.order.dto.DeliveryPlanDto;
+import com.estore.library.dto.order.dto.DeliveryTripDto;
+import com.estore.library.dto.order.dto.WarehouseDeliveryPlanDto;
+import com.estore.library.model.bisentity.Warehouse;
+import com.estore.library.repository.WarehouseRepository;
+import com.estore.library.repository.bisentity.OrderRepository;
+import com.estore.library.routing.CityRouteGraph;
+import com.estore.library.routing.DeliveryPlanner;
+import com.estore.library.routing.DistanceMatrix;
+import com.estore.library.routing.NearestWarehouseIndex;
+import com.estore.library.routing.RoutingEngine;
+import com.estore.library.routing.WarehouseLocator;
+import com.estore.library.service.DeliveryPlanningService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class DeliveryPlanningServiceImpl implements DeliveryPlanningService {
+
+    private static final String PROCESSING = "PROCESSING";
+    // Размер IN-списка в пакетном UPDATE
+    private static final int ASSIGN_BATCH_SIZE = 1000;
+
+    private final OrderRepository orderRepository;
+    private final WarehouseRepository warehouseRepository;
+    private final RoutingEngine routingEngine;
+    private final WarehouseLocator warehouseLocator;
+
+    @Value("${routing.planner.trip-capacity:20}")
+    private int tripCapacity;
+
+    @Override
+    public DeliveryPlanDto planProcessingOrders() {
+        return plan(orderRepository.findDeliveryStops(PROCESSING), 0);
+    }
+
+    @Override
+    @Transactional
+    public DeliveryPlanDto assignWarehousesAndPlan() {
+        List<Object[]> rows = orderRepository.findDeliveryStops(PROCESSING);
+        NearestWarehouseIndex index = warehouseLocator.index();
+        Map<Long, List<UUID>> toAssign = new HashMap<>();
+        for (Object[] row : rows) {
+            if (row[1] != null) {
+                continue;
+            }
+            NearestWarehouseIndex.Hit nearest = index.nearest(((Number) row[2]).intValue());
+            if (nearest != null) {
+                toAssign.computeIfAbsent(nearest.site().warehouseId(), id -> new ArrayList<>()).add((UUID) row[0]);
+            }
+        }
+
+        int assigned = 0;
+        for (Map.Entry<Long, List<UUID>> entry : toAssign.entrySet()) {
+            Warehouse warehouse = warehouseRepository.getReferenceById(entry.getKey());
+            List<UUID> orderIds = entry.getValue();
+            for (int from = 0; from < orderIds.size(); from += ASSIGN_BATCH_SIZE) {
+                List<UUID> batch = orderIds.subList(from, Math.min(from + ASSIGN_BATCH_SIZE, orderIds.size()));
+                assigned += orderRepository.assignSourceWarehouse(warehouse, batch);
+            }
+        }
+        // Перечитываем: назначения видны в этой же транзакции; без склада остаются
+        // только заказы, от города которых не достижим ни один склад
+        return plan(orderRepository.findDeliveryStops(PROCESSING), assigned);
+    }
+
+    private DeliveryPlanDto plan(List<Object[]> rows, int assigned) {
+        long start = System.currentTimeMillis();
+        Map<Long, NearestWarehouseIndex.Site> sites = new HashMap<>();
+        for (Warehouse warehouse : warehouseRepository.findAll()) {
+            sites.put(warehouse.getId(), new NearestWarehouseIndex.Site(
+                    warehouse.getId(),
+                    warehouse.getName(),
+                    warehouse.getCity() != null ? warehouse.getCity().getCityId() : null,
+                    warehouse.getAddress()));
+        }
+        Map<Long, List<DeliveryPlanner.Stop>> stopsByWarehouse = new LinkedHashMap<>();
+        List<UUID> withoutWarehouse = new ArrayList<>();
+        for (Object[] row : rows) {
+            UUID orderId = (UUID) row[0];
+            if (row[1] == null) {
+                withoutWarehouse.add(orderId);
+                continue;
+            }
+            stopsByWarehouse.computeIfAbsent(((Number) row[1]).longValue(), id -> new ArrayList<>())
+                    .add(new DeliveryPlanner.Stop(orderId, ((Number) row[2]).intValue()));
+        }
+
+        // Склады планируются независимо и параллельно на одном снимке графа
+        CityRouteGraph graph = routingEngine.graph();
+        DistanceMatrix matrix = routingEngine.matrixFor(graph);
+        List<WarehouseDeliveryPlanDto> warehouses = stopsByWarehouse.entrySet().parallelStream()
+                .map(entry -> planWarehouse(graph, matrix, sites.get(entry.getKey()), entry.getKey(), entry.getValue()))
+                .toList();
+
+        DeliveryPlanDto dto = new DeliveryPlanDto();
+        int orders = withoutWarehouse.size();
+        int trips = 0;
+        BigDecimal total = BigDecimal.ZERO;
+        for (WarehouseDeliveryPlanDto warehouse : warehouses) {
+            orders += warehouse.getOrders();
+            trips += warehouse.getTrips().size();
+            total = total.add(warehouse.getTotalDistanceKm());
+        }
+        dto.setOrders(orders);
+        dto.setTrips(trips);
+        dto.setTripCapacity(tripCapacity);
+        dto.setAssignedWarehouses(assigned);
+        dto.setTotalDistanceKm(total);
+        dto.setWarehouses(warehouses);
+        dto.setUnassignedOrderIds(withoutWarehouse);
+        dto.setPlanMillis(System.currentTimeMillis() - start);
+        return dto;
+    }
+
+    private WarehouseDeliveryPlanDto planWarehouse(CityRouteGraph graph, DistanceMatrix matrix,
+                                                   NearestWarehouseIndex.Site site, Long warehouseId,
+                                                   List<DeliveryPlanner.Stop> stops) {
+        Integer depotCityId = site != null ? site.cityId() : null;
+        DeliveryPlanner.Plan plan = DeliveryPlanner.plan(graph, matrix, depotCityId, stops, tripCapacity);
+
+        WarehouseDeliveryPlanDto dto = new WarehouseDeliveryPlanDto();
+        dto.setWarehouseId(warehouseId);
+        dto.setWarehouseName(site != null ? site.name() : null);
+        dto.setCityId(depotCityId);
+        dto.setOrders(stops.size());
+        dto.setTotalDistanceKm(plan.getDistanceKm());
+        List<DeliveryTripDto> trips = new ArrayList<>(plan.trips().size());
+        for (DeliveryPlanner.Trip trip : plan.trips()) {
+            DeliveryTripDto tripDto = new DeliveryTripDto();
+            tripDto.setCityIds(trip.cityIds());
+            tripDto.setCityNames(trip.cityNames());
+            tripDto.setOrderIds(trip.orderIds());
+            tripDto.setOrders(trip.getOrderCount());
+            tripDto.setDistanceKm(trip.getDistanceKm());
+            trips.add(tripDto);
+        }
+        dto.setTrips(trips);
+        dto.setUnroutableOrderIds(plan.unroutable());
+        return dto;
+    }
+}
@@ -0,0 +1,167 @@
+package com.estore.library.service.impl;
+
+import com.estore.library.repository.IdempotencyKeyRepository;
+import com.estore.library.service.IdempotencyService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Ключи идемпотентности: недавние ответы держатся в памяти (LRU с TTL) и
+ * отдаются без обращения к БД; промах проверяется по таблице idempotency_key.
+ * Память локальна для JVM, источник истины — таблица: ключ пишется в одной
+ * транзакции с операцией, поэтому повтор на другом экземпляре тоже получит
+ * сохранённый ответ.
+ */
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyServiceImpl.class);
+
+    private static final int MAX_KEY_LENGTH = 128;
+    // Ключей за один проход очистки
+    private static final int SWEEP_BATCH_SIZE = 1000;
+
+    private record Entry(byte[] requestHash, int status, String body, long expiresAt) {
+    }
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate keyTx;
+    private final long ttlSeconds;
+    private final Map<String, Entry> recent;
+
+    public IdempotencyServiceImpl(IdempotencyKeyRepository idempotencyKeyRepository, ObjectMapper objectMapper,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${idempotency.ttl-seconds:86400}") long ttlSeconds,
+                                  @Value("${idempotency.cache.max-entries:10000}") int maxEntries) {
+        if (ttlSeconds <= 0) {
+            throw new IllegalArgumentException("idempotency.ttl-seconds must be positive");
+        }
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("idempotency.cache.max-entries must be positive");
+        }
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.objectMapper = objectMapper;
+        this.keyTx = new TransactionTemplate(transactionManager);
+        this.ttlSeconds = ttlSeconds;
+        this.recent = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public StoredResponse execute(String scope, UUID ownerId, String key, Object request, int successStatus,
+                                  Supplier<Object> action) {
+        if (key == null || key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency key must be 1-" + MAX_KEY_LENGTH + " characters");
+        }
+        if (ownerId == null) {
+            throw new IllegalArgumentException("User ID is required");
+        }
+        byte[] requestHash = sha256(toJson(request));
+        String cacheKey = scope + ':' + ownerId + ':' + key;
+
+        Entry cached;
+        synchronized (recent) {
+            cached = recent.get(cacheKey);
+        }
+        if (cached != null && cached.expiresAt() > System.currentTimeMillis()) {
+            checkSameRequest(cached.requestHash(), requestHash);
+            return new StoredResponse(cached.status(), cached.body(), true);
+        }
+
+        return keyTx.execute(tx -> {
+            // Срок в памяти не дольше срока ключа в таблице: отсчёт до его записи
+            long expiresAt = System.currentTimeMillis() + ttlSeconds * 1000;
+            if (!idempotencyKeyRepository.claim(scope, ownerId, key, requestHash, ttlSeconds)) {
+                IdempotencyKeyRepository.StoredKey stored = idempotencyKeyRepository.find(scope, ownerId, key);
+                if (stored == null || stored.statusCode() == null) {
+                    throw new IllegalStateException("Request with this idempotency key is still in progress");
+                }
+                checkSameRequest(stored.requestHash(), requestHash);
+                // Повтор кэшируется до истечения сохранённого ключа, а не на полный TTL
+                remember(cacheKey, new Entry(stored.requestHash(), stored.statusCode(), stored.body(),
+                        System.currentTimeMillis() + stored.expiresInMillis()));
+                return new StoredResponse(stored.statusCode(), stored.body(), true);
+            }
+            String body = toJson(action.get());
+            idempotencyKeyRepository.complete(scope, ownerId, key, successStatus, body);
+            Entry entry = new Entry(requestHash, successStatus, body, expiresAt);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remember(cacheKey, entry);
+                }
+            });
+            return new StoredResponse(successStatus, body, false);
+        });
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${idempotency.sweep-ms:3600000}",
+            initialDelayString = "${idempotency.sweep-ms:3600000}")
+    public void sweepExpired() {
+        long now = System.currentTimeMillis();
+        synchronized (recent) {
+            recent.values().removeIf(entry -> entry.expiresAt() <= now);
+        }
+        int total = 0;
+        int deleted;
+        do {
+            deleted = idempotencyKeyRepository.deleteExpired(SWEEP_BATCH_SIZE);
+            total += deleted;
+        } while (deleted == SWEEP_BATCH_SIZE);
+        if (total > 0) {
+            logger.info("Deleted {} expired idempotency keys", total);
+        }
+    }
+
+    private void remember(String cacheKey, Entry entry) {
+        synchronized (recent) {
+            recent.put(cacheKey, entry);
+        }
+    }
+
+    private static void checkSameRequest(byte[] storedHash, byte[] requestHash) {
+        if (!Arrays.equals(storedHash, requestHash)) {
+            throw new IllegalArgumentException("Idempotency key was already used with a different request");
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize idempotent request or response", e);
+        }
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
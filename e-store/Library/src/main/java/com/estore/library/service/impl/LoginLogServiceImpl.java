@@ -1,9 +1,11 @@
 package com.estore.library.service.impl;
 
+import com.estore.library.event.UserLoggedInEvent;
 import com.estore.library.model.log.LoginLog;
 import com.estore.library.repository.log.LoginLogRepository;
 import com.estore.library.service.LoginLogService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -16,6 +18,7 @@ import java.util.UUID;
 public class LoginLogServiceImpl implements LoginLogService {
 
     private final LoginLogRepository loginLogRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
@@ -25,6 +28,7 @@ public class LoginLogServiceImpl implements LoginLogService {
         log.setSource(source);
         log.setLoggedAt(LocalDateTime.now());
         loginLogRepository.save(log);
+        eventPublisher.publishEvent(new UserLoggedInEvent(userId, source));
     }
 
     @Override
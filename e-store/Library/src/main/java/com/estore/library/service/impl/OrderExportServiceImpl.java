@@ -0,0 +1,240 @@
+package com.estore.library.service.impl;
+
+import com.estore.library.dto.order.dto.OrderExportFilter;
+import com.estore.library.service.OrderExportService;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class OrderExportServiceImpl implements OrderExportService {
+
+    private static final String ORDERS_SELECT = """
+            SELECT o.order_id, o.order_date, os.status_name AS status, o.user_id, u.email,
+                   o.total_amount, o.discount_applied,
+                   c.city_name AS shipping_city, o.shipping_address_text,
+                   dm.method_name AS delivery_method, pm.method_name AS payment_method,
+                   w.warehouse_name AS source_warehouse, o.actual_delivery_date
+            FROM "order" o
+            JOIN order_status os ON os.status_id = o.status_id
+            JOIN "user" u ON u.user_id = o.user_id
+            LEFT JOIN city c ON c.city_id = o.shipping_city_id
+            LEFT JOIN delivery_method dm ON dm.method_id = o.delivery_method_id
+            LEFT JOIN payment_method pm ON pm.method_id = o.payment_method_id
+            LEFT JOIN warehouse w ON w.warehouse_id = o.source_warehouse_id
+            """;
+
+    private static final String LINES_SELECT = """
+            SELECT o.order_id, o.order_date, os.status_name AS status,
+                   oi.product_id, p.name AS product_name,
+                   cat.category_name AS category, b.brand_name AS brand,
+                   oi.quantity, oi.unit_price, oi.quantity * oi.unit_price AS line_total
+            FROM order_item oi
+            JOIN "order" o ON o.order_id = oi.order_id
+            JOIN order_status os ON os.status_id = o.status_id
+            JOIN product p ON p.product_id = oi.product_id
+            LEFT JOIN category cat ON cat.category_id = p.category_id
+            LEFT JOIN brand b ON b.brand_id = p.brand_id
+            """;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    // Через сколько строк отправлять накопленный буфер клиенту
+    private static final int FLUSH_EVERY_ROWS = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${export.fetch-size:1000}")
+    private int fetchSize;
+
+    @Override
+    public long export(Dataset dataset, Format format, OrderExportFilter filter, OutputStream out) throws IOException {
+        StringBuilder sql = new StringBuilder(dataset == Dataset.LINES ? LINES_SELECT : ORDERS_SELECT)
+                .append(" WHERE 1=1");
+        List<Object> params = new ArrayList<>();
+        if (filter.getStatusId() != null) {
+            sql.append(" AND o.status_id = ?");
+            params.add(filter.getStatusId());
+        }
+        if (filter.getStartDate() != null) {
+            sql.append(" AND o.order_date >= ?");
+            params.add(Timestamp.valueOf(filter.getStartDate()));
+        }
+        if (filter.getEndDate() != null) {
+            sql.append(" AND o.order_date <= ?");
+            params.add(Timestamp.valueOf(filter.getEndDate()));
+        }
+        sql.append(" ORDER BY o.order_date, o.order_id");
+
+        // Курсор PostgreSQL работает только внутри транзакции (autocommit выключен)
+        // и при заданном fetchSize, иначе драйвер читает весь результат в память
+        PreparedStatementCreator statement = connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            return ps;
+        };
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        RowWriter rowWriter = format == Format.NDJSON ? new NdjsonRowWriter(writer) : new CsvRowWriter(writer);
+        long rows;
+        try {
+            // Метаданные доступны до первой строки: заголовок CSV пишется и для пустой выгрузки
+            rows = jdbcTemplate.query(statement, (ResultSetExtractor<Long>) rs -> {
+                long count = 0;
+                try {
+                    rowWriter.start(rs.getMetaData());
+                    while (rs.next()) {
+                        rowWriter.write(rs);
+                        if (++count % FLUSH_EVERY_ROWS == 0) {
+                            writer.flush();
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return count;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        return rows;
+    }
+
+    private interface RowWriter {
+        void start(ResultSetMetaData meta) throws SQLException, IOException;
+
+        void write(ResultSet rs) throws SQLException, IOException;
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+        private String[] columns;
+
+        CsvRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void start(ResultSetMetaData meta) throws SQLException, IOException {
+            columns = columnLabels(meta);
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) writer.write(',');
+                writer.write(columns[i]);
+            }
+            writer.write('\n');
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) writer.write(',');
+                Object value = rs.getObject(i + 1);
+                if (value != null) {
+                    writeEscaped(format(value));
+                }
+            }
+            writer.write('\n');
+        }
+
+        private void writeEscaped(String value) throws IOException {
+            boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    private static final class NdjsonRowWriter implements RowWriter {
+        private final Writer writer;
+        private String[] columns;
+
+        NdjsonRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void start(ResultSetMetaData meta) throws SQLException {
+            columns = columnLabels(meta);
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            // Генератор не закрывает writer и не буферизует между строками
+            JsonGenerator json = JSON_FACTORY.createGenerator(writer);
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.writeStartObject();
+            for (int i = 0; i < columns.length; i++) {
+                Object value = rs.getObject(i + 1);
+                json.writeFieldName(columns[i]);
+                if (value == null) {
+                    json.writeNull();
+                } else if (value instanceof BigDecimal decimal) {
+                    json.writeNumber(decimal);
+                } else if (value instanceof Integer || value instanceof Long || value instanceof Short) {
+                    json.writeNumber(((Number) value).longValue());
+                } else if (value instanceof Number number) {
+                    json.writeNumber(number.doubleValue());
+                } else {
+                    json.writeString(format(value));
+                }
+            }
+            json.writeEndObject();
+            json.flush();
+            writer.write('\n');
+        }
+    }
+
+    private static String[] columnLabels(ResultSetMetaData meta) throws SQLException {
+        String[] labels = new String[meta.getColumnCount()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = meta.getColumnLabel(i + 1);
+        }
+        return labels;
+    }
+
+    private static String format(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime().toString();
+        }
+        if (value instanceof java.sql.Date date) {
+            return date.toLocalDate().toString();
+        }
+        if (value instanceof BigDecimal decimal) {
+            return decimal.toPlainString();
+        }
+        return value.toString();
+    }
+}
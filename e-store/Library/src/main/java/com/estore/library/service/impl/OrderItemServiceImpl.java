@@ -4,6 +4,7 @@ import com.estore.library.model.bisentity.OrderItem;
 import com.estore.library.repository.bisentity.OrderItemRepository;
 import com.estore.library.service.OrderItemService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -75,7 +76,7 @@ public class OrderItemServiceImpl implements OrderItemService {
     }
     
     @Override
-    public List<Object[]> getTopSellingProducts() {
-        return orderItemRepository.findTopSellingProducts();
+    public List<Object[]> getTopSellingProducts(int limit) {
+        return orderItemRepository.findTopSellingProducts(PageRequest.of(0, limit));
     }
 }
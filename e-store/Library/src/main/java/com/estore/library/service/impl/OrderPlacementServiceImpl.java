@@ -0,0 +1,151 @@
+package com.estore.library.service.impl;
+
+import com.estore.library.analytics.AnalyticsCache;
+import com.estore.library.dto.order.request.OrderRequestDto;
+import com.estore.library.event.OrderCreatedEvent;
+import com.estore.library.inventory.WarehouseAllocation;
+import com.estore.library.inventory.WarehouseAllocator;
+import com.estore.library.model.bisentity.Product;
+import com.estore.library.model.dicts.OrderStatus;
+import com.estore.library.repository.OrderPlacementRepository;
+import com.estore.library.repository.bisentity.ProductRepository;
+import com.estore.library.repository.dicts.OrderStatusRepository;
+import com.estore.library.service.OrderPlacementService;
+import com.estore.library.service.StockReservationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class OrderPlacementServiceImpl implements OrderPlacementService {
+
+    private static final String PROCESSING = "PROCESSING";
+
+    private final OrderPlacementRepository orderPlacementRepository;
+    private final ProductRepository productRepository;
+    private final OrderStatusRepository orderStatusRepository;
+    private final WarehouseAllocator warehouseAllocator;
+    private final StockReservationService stockReservationService;
+    private final AnalyticsCache analyticsCache;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Справочник статусов меняется только миграциями
+    private volatile OrderStatus processingStatus;
+
+    @Override
+    @Transactional
+    public PlacedOrder placeOrder(OrderRequestDto request) {
+        Map<UUID, Integer> quantities = mergeLines(request.getItems());
+        checkReferences(request);
+
+        Map<UUID, Product> products = new HashMap<>(quantities.size() * 2);
+        for (Product product : productRepository.findAllById(quantities.keySet())) {
+            products.put(product.getProductId(), product);
+        }
+        UUID[] productIds = quantities.keySet().toArray(new UUID[0]);
+        int[] amounts = new int[productIds.length];
+        BigDecimal[] unitPrices = new BigDecimal[productIds.length];
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (int i = 0; i < productIds.length; i++) {
+            Product product = products.get(productIds[i]);
+            if (product == null) {
+                throw new IllegalArgumentException("Product not found: " + productIds[i]);
+            }
+            if (Boolean.FALSE.equals(product.getIsAvailable())) {
+                throw new IllegalStateException("Product is not available: " + productIds[i]);
+            }
+            amounts[i] = quantities.get(productIds[i]);
+            unitPrices[i] = product.getPrice();
+            subtotal = subtotal.add(unitPrices[i].multiply(BigDecimal.valueOf(amounts[i])));
+        }
+
+        // Склад-источник: ближайший к городу доставки, где заказ есть целиком
+        UUID orderId = UUID.randomUUID();
+        WarehouseAllocation allocation = warehouseAllocator.allocate(request.getShippingCityId(), quantities);
+        // Не хватает товара — исключение откатывает и списание со склада
+        stockReservationService.reserve(orderId, quantities, allocation);
+
+        BigDecimal totalAmount = applyDiscount(subtotal, request.getDiscountApplied());
+        OrderStatus status = processingStatus();
+        orderPlacementRepository.insertOrder(orderId, request.getUserId(), new Date(), status.getStatusId(),
+                totalAmount, request.getShippingCityId(), request.getShippingAddressText(),
+                request.getDeliveryMethodId(), request.getPaymentMethodId(), request.getDiscountApplied(),
+                allocation != null ? allocation.warehouseId() : null);
+        orderPlacementRepository.insertItems(orderId, productIds, amounts, unitPrices);
+
+        analyticsCache.invalidate(AnalyticsCache.Region.ORDER_PIPELINE);
+        eventPublisher.publishEvent(new OrderCreatedEvent(orderId));
+        return new PlacedOrder(orderId, totalAmount, status, allocation);
+    }
+
+    /**
+     * Сложить позиции одного товара: в order_item товар встречается в заказе один раз
+     */
+    private static Map<UUID, Integer> mergeLines(List<OrderRequestDto.OrderItemRequestDto> items) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("Order must contain at least one item");
+        }
+        Map<UUID, Integer> quantities = new LinkedHashMap<>();
+        for (OrderRequestDto.OrderItemRequestDto item : items) {
+            if (item.getProductId() == null) {
+                throw new IllegalArgumentException("Product ID is required");
+            }
+            if (item.getQuantity() == null || item.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Quantity must be positive for product: " + item.getProductId());
+            }
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    private void checkReferences(OrderRequestDto request) {
+        if (request.getUserId() == null || request.getShippingCityId() == null
+                || request.getDeliveryMethodId() == null || request.getPaymentMethodId() == null) {
+            throw new IllegalArgumentException("User, shipping city, delivery and payment method are required");
+        }
+        boolean[] found = orderPlacementRepository.findReferences(request.getUserId(),
+                request.getShippingCityId(), request.getDeliveryMethodId(), request.getPaymentMethodId());
+        if (!found[0]) {
+            throw new IllegalArgumentException("User not found: " + request.getUserId());
+        }
+        if (!found[1]) {
+            throw new IllegalArgumentException("City not found: " + request.getShippingCityId());
+        }
+        if (!found[2]) {
+            throw new IllegalArgumentException("Delivery method not found: " + request.getDeliveryMethodId());
+        }
+        if (!found[3]) {
+            throw new IllegalArgumentException("Payment method not found: " + request.getPaymentMethodId());
+        }
+    }
+
+    // Та же формула, что в OrderServiceImpl: скидка в процентах от суммы позиций
+    private static BigDecimal applyDiscount(BigDecimal subtotal, Double discountApplied) {
+        if (discountApplied != null && discountApplied > 0.0) {
+            BigDecimal discount = subtotal.multiply(BigDecimal.valueOf(discountApplied)).divide(BigDecimal.valueOf(100));
+            return subtotal.subtract(discount);
+        }
+        return subtotal;
+    }
+
+    private OrderStatus processingStatus() {
+        OrderStatus status = processingStatus;
+        if (status == null) {
+            status = orderStatusRepository.findByStatusName(PROCESSING)
+                    .orElseThrow(() -> new IllegalStateException("Default status 'PROCESSING' not found"));
+            processingStatus = status;
+        }
+        return status;
+    }
+}
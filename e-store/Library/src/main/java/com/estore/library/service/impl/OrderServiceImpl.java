@@ -1,11 +1,17 @@
 package com.estore.library.service.impl;
+import com.estore.library.analytics.AnalyticsCache;
+import com.estore.library.event.OrderCreatedEvent;
+import com.estore.library.event.OrderDeletedEvent;
+import com.estore.library.event.OrderStatusChangedEvent;
 import com.estore.library.model.bisentity.Order;
 import com.estore.library.model.bisentity.OrderItem;
 import com.estore.library.model.dicts.OrderStatus;
 import com.estore.library.repository.bisentity.OrderRepository;
 import com.estore.library.repository.dicts.OrderStatusRepository;
 import com.estore.library.service.OrderService;
+import com.estore.library.service.StockReservationService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -15,6 +21,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Date;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -25,6 +32,9 @@ public class OrderServiceImpl implements OrderService {
 
     private final OrderRepository orderRepository;
     private final OrderStatusRepository orderStatusRepository;
+    private final AnalyticsCache analyticsCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StockReservationService stockReservationService;
 
     @Override
     @Transactional
@@ -40,7 +50,10 @@ public class OrderServiceImpl implements OrderService {
         BigDecimal totalAmount = calculateTotalAmount(order);
         order.setTotalAmount(totalAmount);
 
-        return orderRepository.save(order);
+        Order saved = orderRepository.save(order);
+        analyticsCache.invalidate(AnalyticsCache.Region.ORDER_PIPELINE);
+        eventPublisher.publishEvent(new OrderCreatedEvent(saved.getId()));
+        return saved;
     }
 
     @Override
@@ -49,6 +62,8 @@ public class OrderServiceImpl implements OrderService {
         Order existingOrder = orderRepository.findById(orderId)
                 .orElseThrow(() -> new IllegalArgumentException("Order not found with id: " + orderId));
 
+        OrderStatus oldStatus = existingOrder.getStatus();
+        checkTransition(oldStatus, order.getStatus());
         existingOrder.setStatus(order.getStatus());
         existingOrder.setShippingCity(order.getShippingCity());
         existingOrder.setShippingAddressText(order.getShippingAddressText());
@@ -61,16 +76,28 @@ public class OrderServiceImpl implements OrderService {
         BigDecimal totalAmount = calculateTotalAmount(existingOrder);
         existingOrder.setTotalAmount(totalAmount);
 
-        return orderRepository.save(existingOrder);
+        Order saved = orderRepository.save(existingOrder);
+        analyticsCache.invalidate(AnalyticsCache.Region.ORDER_PIPELINE, AnalyticsCache.Region.DELIVERED_SALES);
+        if (saved.getStatus() != null && !sameStatus(saved.getStatus(), oldStatus)) {
+            eventPublisher.publishEvent(new OrderStatusChangedEvent(orderId,
+                    oldStatus != null ? oldStatus.getStatusName() : null, saved.getStatus().getStatusName()));
+        }
+        return saved;
     }
 
     @Override
     @Transactional
     public void deleteOrder(UUID orderId) {
-        if (!orderRepository.existsById(orderId)) {
-            throw new IllegalArgumentException("Order not found with id: " + orderId);
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new IllegalArgumentException("Order not found with id: " + orderId));
+        // Незавершённый заказ возвращает списанное на остаток; отменённый уже вернул,
+        // доставленный забран покупателем
+        if (!isDelivered(order.getStatus()) && !isCancelled(order.getStatus())) {
+            stockReservationService.releaseOrder(orderId);
         }
         orderRepository.deleteById(orderId);
+        analyticsCache.invalidate(AnalyticsCache.Region.ORDER_PIPELINE, AnalyticsCache.Region.DELIVERED_SALES);
+        eventPublisher.publishEvent(new OrderDeletedEvent(orderId));
     }
 
     @Override
@@ -145,8 +172,22 @@ public class OrderServiceImpl implements OrderService {
         OrderStatus newStatus = orderStatusRepository.findById(newStatusId)
                 .orElseThrow(() -> new IllegalArgumentException("Invalid status ID: " + newStatusId));
 
+        OrderStatus oldStatus = order.getStatus();
+        checkTransition(oldStatus, newStatus);
+        if (sameStatus(newStatus, oldStatus)) {
+            return;
+        }
         order.setStatus(newStatus);
         orderRepository.save(order);
+
+        // Продажи считаются только по доставленным заказам
+        if (isDelivered(oldStatus) || isDelivered(newStatus)) {
+            analyticsCache.invalidate(AnalyticsCache.Region.ORDER_PIPELINE, AnalyticsCache.Region.DELIVERED_SALES);
+        } else {
+            analyticsCache.invalidate(AnalyticsCache.Region.ORDER_PIPELINE);
+        }
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(orderId,
+                oldStatus != null ? oldStatus.getStatusName() : null, newStatus.getStatusName()));
     }
 
 
@@ -186,6 +227,28 @@ public class OrderServiceImpl implements OrderService {
         return subtotal;
     }
 
+    private boolean isDelivered(OrderStatus status) {
+        return status != null && "DELIVERED".equals(status.getStatusName());
+    }
+
+    /**
+     * Отмена возвращает остатки по резерву заказа: доставленный или уже отменённый заказ не отменяется
+     */
+    private void checkTransition(OrderStatus oldStatus, OrderStatus newStatus) {
+        if (isCancelled(newStatus) && (isDelivered(oldStatus) || isCancelled(oldStatus))) {
+            throw new IllegalStateException("Order in status " + oldStatus.getStatusName() + " cannot be cancelled");
+        }
+    }
+
+    // Сравнение по id: статус из запроса — другой экземпляр того же справочника
+    private static boolean sameStatus(OrderStatus a, OrderStatus b) {
+        return a == null ? b == null : b != null && Objects.equals(a.getStatusId(), b.getStatusId());
+    }
+
+    private boolean isCancelled(OrderStatus status) {
+        return status != null && "CANCELLED".equals(status.getStatusName());
+    }
+
     private Integer getDeliveredStatusId() {
         return orderStatusRepository.findByStatusName("DELIVERED")
                 .map(OrderStatus::getStatusId)
@@ -1,10 +1,12 @@
 package com.estore.library.service.impl;
 
+import com.estore.library.analytics.AnalyticsCache;
 import com.estore.library.dto.product.request.ProductCreateRequest;
 import com.estore.library.model.bisentity.Product;
 import com.estore.library.model.dicts.Brand;
 import com.estore.library.model.dicts.Category;
 import com.estore.library.model.dicts.ProductImage;
+import com.estore.library.repository.HotStockRepository;
 import com.estore.library.repository.bisentity.ProductRepository;
 import com.estore.library.service.BrandService;
 import com.estore.library.service.CategoryService;
@@ -29,6 +31,8 @@ public class ProductServiceImpl implements ProductService {
     private final BrandService brandService;
     private final ProductImageService productImageService;
     private final ProductRepository productRepository;
+    private final AnalyticsCache analyticsCache;
+    private final HotStockRepository hotStockRepository;
     
     @Override
     @Transactional
@@ -38,6 +42,7 @@ public class ProductServiceImpl implements ProductService {
         product.setIsAvailable(true);
         product.setAverageRating(BigDecimal.ZERO);
         product.setRatingsCount(0);
+        analyticsCache.invalidate(AnalyticsCache.Region.CATALOG);
         return productRepository.save(product);
     }
     
@@ -55,6 +60,7 @@ public class ProductServiceImpl implements ProductService {
         existingProduct.setBrand(product.getBrand());
         existingProduct.setMainImageUrl(product.getMainImageUrl());
         existingProduct.setUpdatedAt(LocalDateTime.now());
+        analyticsCache.invalidate(AnalyticsCache.Region.CATALOG);
         
         return productRepository.save(existingProduct);
     }
@@ -88,6 +94,8 @@ public class ProductServiceImpl implements ProductService {
         product.setAverageRating(BigDecimal.ZERO);
         product.setRatingsCount(0);
 
+        analyticsCache.invalidate(AnalyticsCache.Region.CATALOG);
+
         // Сохраняем продукт, чтобы получить его ID (ОЧЕНЬ ВАЖНО)
         Product savedProduct = productRepository.save(product);
 
@@ -120,6 +128,7 @@ public class ProductServiceImpl implements ProductService {
             throw new IllegalArgumentException("Product not found with id: " + productId);
         }
         productRepository.deleteById(productId);
+        analyticsCache.invalidate(AnalyticsCache.Region.CATALOG);
     }
     
     @Override
@@ -206,6 +215,8 @@ public class ProductServiceImpl implements ProductService {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new IllegalArgumentException("Product not found with id: " + productId));
         
+        // Заданный остаток уже исключает проданное: резервы горячего товара больше не вычитаются
+        hotStockRepository.absorbPending(productId);
         product.setStockQuantity(quantity);
         product.setUpdatedAt(LocalDateTime.now());
         
@@ -216,6 +227,14 @@ public class ProductServiceImpl implements ProductService {
         productRepository.save(product);
     }
     
+    @Override
+    @Transactional
+    public void setHotStock(UUID productId, boolean hot) {
+        if (hotStockRepository.setHot(productId, hot) == 0) {
+            throw new IllegalArgumentException("Product not found with id: " + productId);
+        }
+    }
+    
     @Override
     @Transactional
     public void updateRating(UUID productId, BigDecimal newRating) {
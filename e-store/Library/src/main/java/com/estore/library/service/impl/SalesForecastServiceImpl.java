@@ -0,0 +1,120 @@
+package com.estore.library.service.impl;
+
+import com.estore.library.analytics.forecast.ForecastResult;
+import com.estore.library.analytics.forecast.MonthlySeries;
+import com.estore.library.analytics.forecast.SalesForecastEngine;
+import com.estore.library.analytics.forecast.StoredForecast;
+import com.estore.library.dto.analyze.dto.ForecastDto;
+import com.estore.library.dto.analyze.dto.ForecastPointDto;
+import com.estore.library.repository.analyze.SalesForecastRepository;
+import com.estore.library.service.SalesForecastService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class SalesForecastServiceImpl implements SalesForecastService {
+
+    // Окно SMA-кандидата при ночном пересчёте (совпадает с окном по умолчанию в API)
+    private static final int DEFAULT_WINDOW = 3;
+
+    private final SalesForecastRepository salesForecastRepository;
+
+    @Value("${analytics.forecast.horizon:3}")
+    private int horizon;
+
+    @Override
+    public ForecastDto getForecast(Integer categoryId, int windowSize) {
+        if (categoryId == null) {
+            throw new IllegalArgumentException("Category ID is required");
+        }
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Window size must be positive");
+        }
+
+        MonthlySeries series = salesForecastRepository.findMonthlyCategoryRevenue(categoryId).get(categoryId);
+        ForecastDto dto = new ForecastDto();
+        dto.setConfidenceLevel(BigDecimal.valueOf(0.95));
+        if (series == null) {
+            // Нет продаж по категории — пустая история без прогноза
+            dto.setMonths(List.of());
+            dto.setMonthlySales(List.of());
+            dto.setMovingAverage(List.of());
+            dto.setForecastPoints(List.of());
+            return dto;
+        }
+
+        double[] values = series.getValues();
+        List<String> months = new ArrayList<>(values.length);
+        List<BigDecimal> sales = new ArrayList<>(values.length);
+        List<BigDecimal> movingAverage = new ArrayList<>(values.length);
+        double[] ma = SalesForecastEngine.movingAverage(values, windowSize);
+        for (int i = 0; i < values.length; i++) {
+            months.add(series.getStart().plusMonths(i).toString());
+            sales.add(money(values[i]));
+            movingAverage.add(Double.isNaN(ma[i]) ? null : money(ma[i]));
+        }
+        dto.setMonths(months);
+        dto.setMonthlySales(sales);
+        dto.setMovingAverage(movingAverage);
+
+        // Ночной прогноз актуален, пока не появился новый месяц продаж;
+        // окно влияет на SMA-кандидата, поэтому для другого окна считаем заново
+        StoredForecast stored = windowSize == DEFAULT_WINDOW
+                ? salesForecastRepository.findByCategory(categoryId)
+                : null;
+        ForecastResult result;
+        YearMonth firstPeriod = series.end().plusMonths(1);
+        if (stored != null && stored.getHistoryEnd().equals(series.end())) {
+            result = stored.getResult();
+            dto.setPrecomputed(true);
+            dto.setComputedAt(stored.getComputedAt());
+        } else {
+            result = SalesForecastEngine.forecast(values, windowSize, horizon);
+            dto.setComputedAt(LocalDateTime.now());
+        }
+
+        List<ForecastPointDto> points = new ArrayList<>();
+        for (int k = 0; k < result.getPoint().length; k++) {
+            ForecastPointDto point = new ForecastPointDto();
+            point.setPeriod(firstPeriod.plusMonths(k).toString());
+            point.setForecast(money(result.getPoint()[k]));
+            point.setLowerBound(money(result.getLower()[k]));
+            point.setUpperBound(money(result.getUpper()[k]));
+            points.add(point);
+        }
+        dto.setForecastPoints(points);
+        dto.setForecast(points.isEmpty() ? null : points.get(0).getForecast());
+        dto.setModel(result.getModel());
+        dto.setModelParameters(result.getParameters());
+        dto.setRmse(Double.isNaN(result.getRmse()) ? null : money(result.getRmse()));
+        return dto;
+    }
+
+    @Override
+    @Transactional
+    public int recomputeAll() {
+        Map<Integer, MonthlySeries> history = salesForecastRepository.findMonthlyCategoryRevenue(null);
+        Map<Integer, ForecastResult> forecasts = new LinkedHashMap<>();
+        history.forEach((categoryId, series) ->
+                forecasts.put(categoryId, SalesForecastEngine.forecast(series.getValues(), DEFAULT_WINDOW, horizon)));
+        salesForecastRepository.replaceAll(history, forecasts, LocalDateTime.now());
+        return forecasts.size();
+    }
+
+    private static BigDecimal money(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+}
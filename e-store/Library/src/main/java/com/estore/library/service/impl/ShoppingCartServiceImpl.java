@@ -1,20 +1,28 @@
 package com.estore.library.service.impl;
 
+import com.estore.library.dto.order.request.OrderRequestDto;
+import com.estore.library.event.CartItemAddedEvent;
 import com.estore.library.model.bisentity.CartItem;
 import com.estore.library.model.bisentity.Product;
 import com.estore.library.model.bisentity.ShoppingCart;
 import com.estore.library.model.bisentity.User;
+import com.estore.library.repository.CartLineRepository;
 import com.estore.library.repository.bisentity.CartItemRepository;
 import com.estore.library.repository.bisentity.ProductRepository;
 import com.estore.library.repository.bisentity.ShoppingCartRepository;
 import com.estore.library.repository.bisentity.UserRepository;
+import com.estore.library.service.OrderPlacementService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -27,6 +35,9 @@ public class ShoppingCartServiceImpl implements com.estore.library.service.Shopp
         private final CartItemRepository cartItemRepository;
     private final UserRepository userRepository;
     private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OrderPlacementService orderPlacementService;
+    private final CartLineRepository cartLineRepository;
     
     @Override
     @Transactional
@@ -129,6 +140,7 @@ public class ShoppingCartServiceImpl implements com.estore.library.service.Shopp
         
         cart.setUpdatedAt(LocalDateTime.now());
         shoppingCartRepository.save(cart);
+        eventPublisher.publishEvent(new CartItemAddedEvent(userId, productId, quantity));
     }
     
     @Override
@@ -174,4 +186,51 @@ public class ShoppingCartServiceImpl implements com.estore.library.service.Shopp
         return shoppingCartRepository.findByUserId(userId)
                 .orElseGet(() -> createCart(userId));
     }
+    
+    @Override
+    @Transactional
+    public OrderPlacementService.PlacedOrder checkout(UUID userId, OrderRequestDto delivery) {
+        ShoppingCart cart = shoppingCartRepository.findByUserIdWithItems(userId)
+                .orElseThrow(() -> new IllegalArgumentException("Cart not found for user: " + userId));
+        if (cart.getItems() == null || cart.getItems().isEmpty()) {
+            throw new IllegalStateException("Cart is empty");
+        }
+        
+        // Одним запросом удаляются ровно прочитанные строки с прочитанным количеством:
+        // если параллельно строку удалили, изменили или уже оформили корзину, удалится
+        // меньше строк и оформление откатится; добавленные позже строки останутся в корзине
+        List<CartItem> items = new ArrayList<>(cart.getItems());
+        items.sort(Comparator.comparing(CartItem::getCartItemId));
+        int[] cartItemIds = new int[items.size()];
+        int[] quantities = new int[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            cartItemIds[i] = items.get(i).getCartItemId();
+            quantities[i] = items.get(i).getQuantity();
+        }
+        int deleted = cartLineRepository.deleteLines(cart.getCartId(), cartItemIds, quantities);
+        if (deleted != items.size()) {
+            throw new IllegalStateException("Cart was changed or already checked out");
+        }
+        
+        // Цена в корзине — цена на момент добавления; заказ оформляется по текущей
+        List<OrderRequestDto.OrderItemRequestDto> lines = new ArrayList<>(items.size());
+        for (CartItem item : items) {
+            OrderRequestDto.OrderItemRequestDto line = new OrderRequestDto.OrderItemRequestDto();
+            line.setProductId(item.getProduct().getProductId());
+            line.setQuantity(item.getQuantity());
+            lines.add(line);
+        }
+        OrderRequestDto request = new OrderRequestDto();
+        request.setUserId(userId);
+        request.setShippingCityId(delivery.getShippingCityId());
+        request.setShippingAddressText(delivery.getShippingAddressText());
+        request.setDeliveryMethodId(delivery.getDeliveryMethodId());
+        request.setPaymentMethodId(delivery.getPaymentMethodId());
+        request.setDiscountApplied(delivery.getDiscountApplied());
+        request.setItems(lines);
+        OrderPlacementService.PlacedOrder placed = orderPlacementService.placeOrder(request);
+        
+        cart.setUpdatedAt(LocalDateTime.now());
+        return placed;
+    }
 }
@@ -0,0 +1,165 @@
+package com.estore.library.service.impl;
+
+import com.estore.library.event.OrderStatusChangedEvent;
+import com.estore.library.inventory.HotStockManager;
+import com.estore.library.inventory.WarehouseAllocation;
+import com.estore.library.inventory.WarehouseAllocator;
+import com.estore.library.repository.StockReservationRepository;
+import com.estore.library.service.StockReservationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class StockReservationServiceImpl implements StockReservationService {
+
+    private static final String CANCELLED = "CANCELLED";
+
+    private final StockReservationRepository stockReservationRepository;
+    private final WarehouseAllocator warehouseAllocator;
+    private final HotStockManager hotStockManager;
+
+    @Override
+    @Transactional
+    public void reserve(UUID orderId, Map<UUID, Integer> quantities, WarehouseAllocation allocation) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        UUID[] productIds = quantities.keySet().toArray(new UUID[0]);
+        int[] amounts = new int[productIds.length];
+        boolean[] stockApplied = new boolean[productIds.length];
+        int hotCount = 0;
+        for (int i = 0; i < productIds.length; i++) {
+            amounts[i] = quantities.get(productIds[i]);
+            if (amounts[i] <= 0) {
+                throw new IllegalArgumentException("Quantity must be positive for product: " + productIds[i]);
+            }
+            stockApplied[i] = !hotStockManager.isHot(productIds[i]);
+            if (!stockApplied[i]) {
+                hotCount++;
+            }
+        }
+
+        // Горячие товары — со счётчиков в памяти, остальные — условным UPDATE строк product
+        List<UUID> missing = new ArrayList<>();
+        if (hotCount > 0) {
+            missing.addAll(hotStockManager.reserve(
+                    select(productIds, stockApplied, false), select(amounts, stockApplied, false)));
+        }
+        if (missing.isEmpty() && hotCount < productIds.length) {
+            UUID[] coldIds = select(productIds, stockApplied, true);
+            List<UUID> decremented = stockReservationRepository.decrementStock(
+                    coldIds, select(amounts, stockApplied, true));
+            if (decremented.size() < coldIds.length) {
+                Set<UUID> shortIds = new HashSet<>(Arrays.asList(coldIds));
+                decremented.forEach(shortIds::remove);
+                missing.addAll(shortIds);
+            }
+            // Товар стал горячим, пока ждали строку: его счётчик мог быть заведён без этого списания
+            List<UUID> switched = Arrays.stream(coldIds).filter(hotStockManager::isHotOrSeeding).toList();
+            if (missing.isEmpty() && !switched.isEmpty()) {
+                throw new IllegalStateException("Stock of products moved to in-memory counters, retry: " + switched);
+            }
+        }
+        if (!missing.isEmpty()) {
+            // Исключение откатывает транзакцию вместе с частичным списанием (счётчики — после отката)
+            throw new IllegalStateException("Insufficient stock for products: " + missing);
+        }
+        Long warehouseId = allocation != null && allocation.reserved() ? allocation.warehouseId() : null;
+        stockReservationRepository.insertOrdered(orderId, productIds, amounts, stockApplied, warehouseId);
+    }
+
+    @Override
+    @Transactional
+    public void releaseOrder(UUID orderId) {
+        List<StockReservationRepository.ReleasedLine> released = stockReservationRepository.releaseOrder(orderId);
+        if (released.isEmpty()) {
+            // Заказ оформлен до появления резервов: остаток списывался по позициям заказа
+            if (!stockReservationRepository.existsForOrder(orderId)) {
+                stockReservationRepository.restockFromOrderItems(orderId);
+            }
+            return;
+        }
+        releaseHeldStock(released);
+    }
+
+    /**
+     * Отмена заказа (из любого приложения) возвращает остатки в той же транзакции
+     */
+    @EventListener
+    @Transactional
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        if (CANCELLED.equals(event.getNewStatus()) && !CANCELLED.equals(event.getOldStatus())) {
+            releaseOrder(event.getOrderId());
+        }
+    }
+
+    /**
+     * Вернуть снятые позиции: сначала склады, затем общий остаток — в том же порядке
+     * блокировок, что и при оформлении (склад списывается до product), иначе встречные
+     * отмена и оформление взаимоблокируются
+     */
+    private void releaseHeldStock(List<StockReservationRepository.ReleasedLine> released) {
+        if (released.isEmpty()) {
+            return;
+        }
+        Map<Long, Map<UUID, Integer>> byWarehouse = new TreeMap<>();
+        Map<UUID, Integer> applied = new HashMap<>();
+        for (StockReservationRepository.ReleasedLine line : released) {
+            if (line.warehouseId() != null) {
+                byWarehouse.computeIfAbsent(line.warehouseId(), id -> new HashMap<>())
+                        .merge(line.productId(), line.quantity(), Integer::sum);
+            }
+            if (line.stockApplied()) {
+                applied.merge(line.productId(), line.quantity(), Integer::sum);
+            }
+        }
+        byWarehouse.forEach((warehouseId, quantities) -> warehouseAllocator.release(
+                new WarehouseAllocation(warehouseId, null, null, true), quantities));
+        if (!applied.isEmpty()) {
+            UUID[] productIds = applied.keySet().toArray(new UUID[0]);
+            int[] amounts = new int[productIds.length];
+            for (int i = 0; i < productIds.length; i++) {
+                amounts[i] = applied.get(productIds[i]);
+            }
+            stockReservationRepository.restock(productIds, amounts);
+        }
+        for (StockReservationRepository.ReleasedLine line : released) {
+            hotStockManager.release(line.productId(), line.quantity());
+        }
+    }
+
+    private static UUID[] select(UUID[] values, boolean[] flags, boolean flag) {
+        List<UUID> selected = new ArrayList<>(values.length);
+        for (int i = 0; i < values.length; i++) {
+            if (flags[i] == flag) {
+                selected.add(values[i]);
+            }
+        }
+        return selected.toArray(new UUID[0]);
+    }
+
+    private static int[] select(int[] values, boolean[] flags, boolean flag) {
+        int[] selected = new int[values.length];
+        int count = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (flags[i] == flag) {
+                selected[count++] = values[i];
+            }
+        }
+        return Arrays.copyOf(selected, count);
+    }
+}
@@ -1,7 +1,14 @@
 package com.estore.library.service.impl;
 
+import com.estore.library.inventory.WarehouseAllocator;
 import com.estore.library.model.bisentity.Warehouse;
 import com.estore.library.repository.WarehouseRepository;
+import com.estore.library.repository.WarehouseStockRepository;
+import com.estore.library.routing.DeliveryZones;
+import com.estore.library.routing.NearestWarehouseIndex;
+import com.estore.library.routing.RoutingEngine;
+import com.estore.library.routing.ShortestPath;
+import com.estore.library.routing.WarehouseLocator;
 import com.estore.library.service.WarehouseService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -16,6 +23,10 @@ import java.util.*;
 public class WarehouseServiceImpl implements WarehouseService {
     
     private final WarehouseRepository warehouseRepository;
+    private final RoutingEngine routingEngine;
+    private final WarehouseLocator warehouseLocator;
+    private final WarehouseStockRepository warehouseStockRepository;
+    private final WarehouseAllocator warehouseAllocator;
     
     @Override
     @Transactional
@@ -23,7 +34,10 @@ public class WarehouseServiceImpl implements WarehouseService {
         if (warehouseRepository.existsByName(warehouse.getName())) {
             throw new IllegalArgumentException("Warehouse with name '" + warehouse.getName() + "' already exists");
         }
-        return warehouseRepository.save(warehouse);
+        Warehouse saved = warehouseRepository.save(warehouse);
+        warehouseLocator.warehouseAddedAfterCommit(saved);
+        warehouseAllocator.invalidateAfterCommit();
+        return saved;
     }
     
     @Override
@@ -40,6 +54,8 @@ public class WarehouseServiceImpl implements WarehouseService {
         existing.setName(warehouse.getName());
         existing.setCity(warehouse.getCity());
         existing.setAddress(warehouse.getAddress());
+        warehouseLocator.invalidateAfterCommit();
+        warehouseAllocator.invalidateAfterCommit();
         
         return warehouseRepository.save(existing);
     }
@@ -51,6 +67,8 @@ public class WarehouseServiceImpl implements WarehouseService {
             throw new IllegalArgumentException("Warehouse not found with id: " + warehouseId);
         }
         warehouseRepository.deleteById(warehouseId);
+        warehouseLocator.invalidateAfterCommit();
+        warehouseAllocator.invalidateAfterCommit();
     }
     
     @Override
@@ -92,37 +110,26 @@ public class WarehouseServiceImpl implements WarehouseService {
     
     @Override
     public Map<String, Object> findNearestWarehouseToCity(Integer cityId) {
-        Object[] result = warehouseRepository.findNearestWarehouse(cityId);
+        // Поиск по готовому индексу ближайших складов, без обхода графа
+        NearestWarehouseIndex.Hit nearest = warehouseLocator.index().nearest(cityId);
         
-        if (result == null) {
+        if (nearest == null) {
             throw new IllegalArgumentException("No warehouse found reachable from city id: " + cityId);
         }
         
-        Map<String, Object> warehouseData = new HashMap<>();
-        warehouseData.put("warehouseId", result[0]);
-        warehouseData.put("warehouseName", result[1]);
-        warehouseData.put("cityId", result[2]);
-        warehouseData.put("address", result[3]);
-        warehouseData.put("distance", result[4]);
-        
-        return warehouseData;
+        return toWarehouseData(nearest);
     }
     
     @Override
     public List<Map<String, Object>> findWarehousesWithinDistance(Integer cityId, Double maxDistance) {
-        List<Object[]> results = warehouseRepository.findWarehousesWithinDistance(cityId, maxDistance);
+        if (maxDistance == null || maxDistance < 0) {
+            throw new IllegalArgumentException("Max distance must not be negative");
+        }
+        long maxHundredths = BigDecimal.valueOf(maxDistance).movePointRight(2).longValue();
         List<Map<String, Object>> warehouses = new ArrayList<>();
-        
-        for (Object[] row : results) {
-            Map<String, Object> warehouse = new HashMap<>();
-            warehouse.put("warehouseId", row[0]);
-            warehouse.put("warehouseName", row[1]);
-            warehouse.put("cityId", row[2]);
-            warehouse.put("address", row[3]);
-            warehouse.put("distance", row[4]);
-            warehouses.add(warehouse);
+        for (NearestWarehouseIndex.Hit hit : warehouseLocator.index().within(cityId, maxHundredths)) {
+            warehouses.add(toWarehouseData(hit));
         }
-        
         return warehouses;
     }
     
@@ -132,39 +139,37 @@ public class WarehouseServiceImpl implements WarehouseService {
             throw new IllegalArgumentException("Source and destination warehouses cannot be the same");
         }
         
-        Object[] result = warehouseRepository.findRouteBetweenWarehouses(warehouseFromId, warehouseToId);
-        
-        if (result == null) {
+        Warehouse from = findWarehouse(warehouseFromId);
+        Warehouse to = findWarehouse(warehouseToId);
+        ShortestPath path = routingEngine.route(from.getCity().getCityId(), to.getCity().getCityId());
+
+        if (path == null) {
             throw new IllegalArgumentException(
                 "No route found between warehouses " + warehouseFromId + " and " + warehouseToId
             );
         }
         
         Map<String, Object> routeData = new HashMap<>();
-        routeData.put("destinationCityId", result[0]);
-        routeData.put("destinationCityName", result[1]);
-        routeData.put("totalDistance", result[2]);
-        routeData.put("hops", result[3]); // количество пересадок
-        routeData.put("path", result[4]); // путь через города
-        routeData.put("destinationWarehouseId", result[5]);
-        routeData.put("destinationWarehouseName", result[6]);
+        routeData.put("destinationCityId", path.getEndCityId());
+        routeData.put("destinationCityName", path.getEndCityName());
+        routeData.put("totalDistance", path.getTotalDistance());
+        routeData.put("hops", path.getTransfers()); // количество пересадок
+        routeData.put("path", path.getPathName()); // путь через города
+        routeData.put("destinationWarehouseId", to.getId());
+        routeData.put("destinationWarehouseName", to.getName());
         
         return routeData;
     }
     
     @Override
     public List<Map<String, Object>> findReachableWarehouses(Long warehouseId) {
-        List<Object[]> results = warehouseRepository.findReachableWarehouses(warehouseId);
+        Warehouse source = findWarehouse(warehouseId);
         List<Map<String, Object>> reachableWarehouses = new ArrayList<>();
         
-        for (Object[] row : results) {
-            Map<String, Object> warehouse = new HashMap<>();
-            warehouse.put("warehouseId", row[0]);
-            warehouse.put("warehouseName", row[1]);
-            warehouse.put("cityId", row[2]);
-            warehouse.put("address", row[3]);
-            warehouse.put("distance", row[4]);
-            reachableWarehouses.add(warehouse);
+        for (NearestWarehouseIndex.Hit hit : warehouseLocator.index().byDistance(source.getCity().getCityId())) {
+            if (!hit.site().warehouseId().equals(warehouseId)) {
+                reachableWarehouses.add(toWarehouseData(hit));
+            }
         }
         
         return reachableWarehouses;
@@ -182,22 +187,102 @@ public class WarehouseServiceImpl implements WarehouseService {
             throw new IllegalArgumentException("Price per km must be greater than zero");
         }
         
-        Map<String, Object> route = findRouteBetweenWarehouses(warehouseFromId, warehouseToId);
-        
-        Object distanceObj = route.get("totalDistance");
-        Double distance;
+        if (warehouseFromId.equals(warehouseToId)) {
+            throw new IllegalArgumentException("Source and destination warehouses cannot be the same");
+        }
         
-        // Обработка разных типов данных для distance
-        if (distanceObj instanceof BigDecimal) {
-            distance = ((BigDecimal) distanceObj).doubleValue();
-        } else if (distanceObj instanceof Double) {
-            distance = (Double) distanceObj;
-        } else if (distanceObj instanceof Number) {
-            distance = ((Number) distanceObj).doubleValue();
-        } else {
-            throw new IllegalStateException("Unexpected distance type: " + distanceObj.getClass());
+        // Расстояние берётся из матрицы кратчайших путей, без поиска маршрута
+        BigDecimal distance = routingEngine.distanceKm(
+                findWarehouse(warehouseFromId).getCity().getCityId(),
+                findWarehouse(warehouseToId).getCity().getCityId());
+        if (distance == null) {
+            throw new IllegalArgumentException(
+                "No route found between warehouses " + warehouseFromId + " and " + warehouseToId
+            );
         }
         
-        return distance * pricePerKm;
+        return distance.doubleValue() * pricePerKm;
+    }
+
+    @Override
+    public Map<String, Object> getDeliveryZones(Long warehouseId, List<Integer> bandsKm) {
+        Warehouse warehouse = findWarehouse(warehouseId);
+        List<DeliveryZones.Zone> zones = warehouseLocator.zones(toBands(bandsKm)).zonesOf(warehouseId);
+        if (zones == null) {
+            throw new IllegalArgumentException("Warehouse city is not on the route graph: " + warehouseId);
+        }
+
+        List<Map<String, Object>> bands = new ArrayList<>(zones.size());
+        for (DeliveryZones.Zone zone : zones) {
+            List<Map<String, Object>> cities = new ArrayList<>(zone.cities().size());
+            for (DeliveryZones.ZoneCity city : zone.cities()) {
+                Map<String, Object> cityData = new HashMap<>();
+                cityData.put("cityId", city.cityId());
+                cityData.put("cityName", city.cityName());
+                cityData.put("distance", city.getDistanceKm());
+                cities.add(cityData);
+            }
+            Map<String, Object> band = new HashMap<>();
+            band.put("upToKm", zone.upToKm());
+            band.put("cityCount", cities.size());
+            band.put("cities", cities);
+            bands.add(band);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("warehouseId", warehouse.getId());
+        result.put("warehouseName", warehouse.getName());
+        result.put("cityId", warehouse.getCity().getCityId());
+        result.put("zones", bands);
+        return result;
+    }
+
+    @Override
+    public List<Map<String, Object>> getDeliveryZonesForCity(Integer cityId, List<Integer> bandsKm) {
+        List<Map<String, Object>> warehouses = new ArrayList<>();
+        for (DeliveryZones.Coverage coverage : warehouseLocator.zones(toBands(bandsKm)).coverageOf(cityId)) {
+            Map<String, Object> warehouse = toWarehouseData(
+                    new NearestWarehouseIndex.Hit(coverage.site(), coverage.distanceHundredths()));
+            warehouse.put("upToKm", coverage.upToKm());
+            warehouses.add(warehouse);
+        }
+        return warehouses;
+    }
+
+    @Override
+    public List<Map<String, Object>> getWarehouseStock(Long warehouseId) {
+        findWarehouse(warehouseId);
+        return warehouseStockRepository.findByWarehouse(warehouseId);
+    }
+
+    @Override
+    @Transactional
+    public void setWarehouseStock(Long warehouseId, UUID productId, int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity cannot be negative");
+        }
+        findWarehouse(warehouseId);
+        warehouseStockRepository.upsert(warehouseId, productId, quantity);
+        warehouseAllocator.invalidateAfterCommit();
+    }
+
+    private static int[] toBands(List<Integer> bandsKm) {
+        return bandsKm == null || bandsKm.isEmpty() ? null
+                : bandsKm.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static Map<String, Object> toWarehouseData(NearestWarehouseIndex.Hit hit) {
+        Map<String, Object> warehouse = new HashMap<>();
+        warehouse.put("warehouseId", hit.site().warehouseId());
+        warehouse.put("warehouseName", hit.site().name());
+        warehouse.put("cityId", hit.site().cityId());
+        warehouse.put("address", hit.site().address());
+        warehouse.put("distance", hit.getDistanceKm());
+        return warehouse;
+    }
+
+    private Warehouse findWarehouse(Long warehouseId) {
+        return warehouseRepository.findById(warehouseId)
+                .orElseThrow(() -> new IllegalArgumentException("Warehouse not found with id: " + warehouseId));
     }
 }
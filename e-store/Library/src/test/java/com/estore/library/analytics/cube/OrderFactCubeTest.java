@@ -0,0 +1,219 @@
+package com.estore.library.analytics.cube;
+
+import com.estore.library.analytics.cube.OrderFactCube.Dimension;
+import com.estore.library.dto.analyze.dto.PieItemDto;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderFactCubeTest {
+
+    private static final String[] STATUSES = {"NEW", "PROCESSING", "SHIPPED", "DELIVERED", "CANCELLED"};
+    private static final String[] GENDERS = {"N", "F", "M"};
+
+    private final Random random = new Random(4);
+    private final List<UUID> products = new ArrayList<>();
+    private final OrderFactCube cube = new OrderFactCube();
+    // Эталон: строки заказов и текущий статус заказа
+    private final Map<UUID, List<OrderFactRow>> orders = new LinkedHashMap<>();
+    private final Map<UUID, String> statuses = new HashMap<>();
+
+    @Test
+    void groupByMatchesScanOfRows() {
+        fill(300);
+
+        assertQueriesMatchScan(300);
+    }
+
+    @Test
+    void groupByMatchesScanAfterRemovalsAndStatusChanges() {
+        fill(300);
+        List<UUID> ids = new ArrayList<>(orders.keySet());
+        for (int i = 0; i < 60; i++) {
+            UUID orderId = ids.get(random.nextInt(ids.size()));
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    cube.removeOrder(orderId);
+                    orders.remove(orderId);
+                    statuses.remove(orderId);
+                }
+                case 1 -> {
+                    String status = STATUSES[random.nextInt(STATUSES.length)];
+                    cube.updateStatus(orderId, status);
+                    if (orders.containsKey(orderId)) {
+                        statuses.put(orderId, status);
+                    }
+                }
+                default -> {
+                    // Повторная загрузка уже известного заказа меняет только статус
+                    List<OrderFactRow> rows = orders.get(orderId);
+                    if (rows != null) {
+                        String status = STATUSES[random.nextInt(STATUSES.length)];
+                        cube.addOrder(orderId, List.of(withStatus(rows.get(0), status)));
+                        statuses.put(orderId, status);
+                    }
+                }
+            }
+        }
+        // Заказы, добавленные после удалений, занимают новые строки
+        fill(50);
+
+        assertQueriesMatchScan(300);
+        assertThat(new HashSet<>(cube.getOpenOrderIds())).isEqualTo(expectedOpenOrders());
+    }
+
+    @Test
+    void emptyFilterValuesGiveEmptyResult() {
+        fill(20);
+
+        assertThat(cube.sumQuantity(Dimension.BRAND, Map.of(Dimension.CITY, List.of()))).isEmpty();
+        assertThat(cube.sumQuantity(Dimension.BRAND, Map.of(Dimension.CITY, List.of(-1)))).isEmpty();
+    }
+
+    private void assertQueriesMatchScan(int queries) {
+        Dimension[] dimensions = Dimension.values();
+        for (int q = 0; q < queries; q++) {
+            Dimension groupBy = dimensions[random.nextInt(dimensions.length)];
+            Map<Dimension, List<Object>> filters = new EnumMap<>(Dimension.class);
+            int filterCount = random.nextInt(4);
+            for (int f = 0; f < filterCount; f++) {
+                Dimension dimension = dimensions[random.nextInt(dimensions.length)];
+                List<Object> keys = new ArrayList<>();
+                for (int k = 1 + random.nextInt(3); k > 0; k--) {
+                    keys.add(randomKey(dimension));
+                }
+                filters.put(dimension, keys);
+            }
+
+            List<PieItemDto> actual = cube.sumQuantity(groupBy, filters);
+
+            Map<String, Long> sums = new HashMap<>();
+            for (int i = 0; i < actual.size(); i++) {
+                sums.put(actual.get(i).getLabel(), actual.get(i).getValue().longValueExact());
+                if (i > 0) {
+                    assertThat(actual.get(i).getValue()).isLessThanOrEqualTo(actual.get(i - 1).getValue());
+                }
+            }
+            assertThat(sums).as("%s by %s", filters, groupBy).isEqualTo(scan(groupBy, filters));
+        }
+    }
+
+    private Map<String, Long> scan(Dimension groupBy, Map<Dimension, ? extends Collection<?>> filters) {
+        Map<String, Long> sums = new HashMap<>();
+        for (List<OrderFactRow> rows : orders.values()) {
+            for (OrderFactRow row : rows) {
+                boolean matches = true;
+                for (Map.Entry<Dimension, ? extends Collection<?>> filter : filters.entrySet()) {
+                    Object key = key(row, filter.getKey());
+                    matches &= key != null && filter.getValue().contains(key);
+                }
+                if (matches && key(row, groupBy) != null) {
+                    sums.merge(label(row, groupBy), (long) row.getQuantity(), Long::sum);
+                }
+            }
+        }
+        return sums;
+    }
+
+    private Set<UUID> expectedOpenOrders() {
+        Set<UUID> open = new HashSet<>();
+        statuses.forEach((orderId, status) -> {
+            if (!status.equals("DELIVERED") && !status.equals("CANCELLED")) {
+                open.add(orderId);
+            }
+        });
+        return open;
+    }
+
+    private Object key(OrderFactRow row, Dimension dimension) {
+        return switch (dimension) {
+            case PRODUCT -> row.getProductId();
+            case CATEGORY -> row.getCategoryId();
+            case BRAND -> row.getBrandId();
+            case GENDER -> row.getGender();
+            case AGE_BUCKET -> row.getAgeBucket();
+            case MONTH -> row.getOrderDate().getMonthValue();
+            case STATUS -> statuses.get(row.getOrderId());
+            case CITY -> row.getCityId();
+        };
+    }
+
+    private String label(OrderFactRow row, Dimension dimension) {
+        return switch (dimension) {
+            case PRODUCT -> row.getProductName();
+            case CATEGORY -> row.getCategoryName();
+            case BRAND -> row.getBrandName();
+            case CITY -> row.getCityName();
+            default -> String.valueOf(key(row, dimension));
+        };
+    }
+
+    private Object randomKey(Dimension dimension) {
+        return switch (dimension) {
+            // Иногда — товар, которого нет в кубе
+            case PRODUCT -> random.nextInt(10) == 0
+                    ? UUID.randomUUID()
+                    : products.get(random.nextInt(products.size()));
+            case CATEGORY -> 1 + random.nextInt(6);
+            case BRAND -> 1 + random.nextInt(5);
+            case GENDER -> GENDERS[random.nextInt(GENDERS.length)];
+            case AGE_BUCKET -> ageBucket(random.nextInt(8));
+            case MONTH -> 1 + random.nextInt(12);
+            case STATUS -> STATUSES[random.nextInt(STATUSES.length)];
+            case CITY -> 1 + random.nextInt(7);
+        };
+    }
+
+    private void fill(int orderCount) {
+        while (products.size() < 25) {
+            products.add(UUID.randomUUID());
+        }
+        for (int o = 0; o < orderCount; o++) {
+            UUID orderId = UUID.randomUUID();
+            String status = STATUSES[random.nextInt(STATUSES.length)];
+            String gender = GENDERS[random.nextInt(GENDERS.length)];
+            String ageBucket = random.nextInt(5) == 0 ? null : ageBucket(random.nextInt(7));
+            LocalDateTime orderDate = LocalDateTime.of(2024, 1 + random.nextInt(12), 1 + random.nextInt(28), 12, 0);
+            int city = 1 + random.nextInt(6);
+            List<OrderFactRow> rows = new ArrayList<>();
+            for (int line = 1 + random.nextInt(4); line > 0; line--) {
+                int product = random.nextInt(products.size());
+                // У товаров 0 и 20 одно название; категория и бренд задаются номером товара
+                Integer category = product % 7 == 6 ? null : 1 + product % 7;
+                int brand = 1 + product % 4;
+                rows.add(new OrderFactRow(orderId, products.get(product), "Product" + product % 20,
+                        category, category != null ? "Category" + category : null,
+                        brand, "Brand" + brand, gender, ageBucket, orderDate, status,
+                        city, "City" + city, 1 + random.nextInt(5), BigDecimal.TEN, null));
+            }
+            cube.addOrder(orderId, rows);
+            orders.put(orderId, rows);
+            statuses.put(orderId, status);
+        }
+    }
+
+    private static String ageBucket(int index) {
+        return (15 + 5 * index) + "-" + (19 + 5 * index);
+    }
+
+    private static OrderFactRow withStatus(OrderFactRow row, String status) {
+        return new OrderFactRow(row.getOrderId(), row.getProductId(), row.getProductName(),
+                row.getCategoryId(), row.getCategoryName(), row.getBrandId(), row.getBrandName(),
+                row.getGender(), row.getAgeBucket(), row.getOrderDate(), status,
+                row.getCityId(), row.getCityName(), row.getQuantity(), row.getUnitPrice(), row.getUserId());
+    }
+}
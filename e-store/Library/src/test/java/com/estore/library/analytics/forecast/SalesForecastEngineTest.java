@@ -0,0 +1,135 @@
+package com.estore.library.analytics.forecast;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class SalesForecastEngineTest {
+
+    @Test
+    void movingAverageHasNaNUntilWindowIsFilled() {
+        double[] average = SalesForecastEngine.movingAverage(new double[]{1, 2, 3, 4, 5, 9}, 3);
+
+        assertThat(average[0]).isNaN();
+        assertThat(average[1]).isNaN();
+        assertThat(average[2]).isCloseTo(2, within(1e-9));
+        assertThat(average[3]).isCloseTo(3, within(1e-9));
+        assertThat(average[4]).isCloseTo(4, within(1e-9));
+        assertThat(average[5]).isCloseTo(6, within(1e-9));
+        for (double value : SalesForecastEngine.movingAverage(new double[]{1, 2}, 3)) {
+            assertThat(value).isNaN();
+        }
+        assertThatThrownBy(() -> SalesForecastEngine.movingAverage(new double[]{1}, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shortSeriesDoNotFail() {
+        ForecastResult empty = SalesForecastEngine.forecast(new double[0], 3, 4);
+        assertThat(empty.getModel()).isEqualTo("NONE");
+        assertThat(empty.getPoint()).isEmpty();
+
+        ForecastResult single = SalesForecastEngine.forecast(new double[]{7}, 3, 4);
+        assertThat(single.getModel()).isEqualTo("NAIVE");
+        assertThat(single.getPoint()).containsExactly(7, 7, 7, 7);
+        assertThat(single.getLower()).containsExactly(7, 7, 7, 7);
+
+        for (int n = 2; n <= 5; n++) {
+            double[] y = new double[n];
+            for (int i = 0; i < n; i++) {
+                y[i] = 10 + (i % 2) * 4;
+            }
+            ForecastResult result = SalesForecastEngine.forecast(y, 6, 3);
+            assertThat(result.getPoint()).hasSize(3);
+            assertThat(Double.isNaN(result.getRmse())).as("rmse for n=%d", n).isFalse();
+            assertBandIsValid(result);
+        }
+
+        assertThatThrownBy(() -> SalesForecastEngine.forecast(new double[]{1, 2}, 3, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void linearSeriesIsForecastByHolt() {
+        double[] y = new double[12];
+        for (int t = 0; t < y.length; t++) {
+            y[t] = 10 + 5 * t;
+        }
+
+        ForecastResult result = SalesForecastEngine.forecast(y, 3, 3);
+
+        assertThat(result.getModel()).isEqualTo("HOLT");
+        assertThat(result.getRmse()).isCloseTo(0, within(1e-9));
+        for (int k = 0; k < 3; k++) {
+            assertThat(result.getPoint()[k]).isCloseTo(10 + 5 * (12 + k), within(1e-6));
+        }
+    }
+
+    @Test
+    void seasonalSeriesIsForecastByHoltWintersFromTwoSeasons() {
+        double[] y = new double[36];
+        for (int t = 0; t < y.length; t++) {
+            y[t] = 100 + 2 * t + 30 * Math.sin(2 * Math.PI * t / SalesForecastEngine.SEASON_LENGTH);
+        }
+
+        ForecastResult result = SalesForecastEngine.forecast(y, 3, 12);
+
+        assertThat(result.getModel()).isEqualTo("HOLT_WINTERS");
+        assertThat(result.getRmse()).isLessThan(1.0);
+        for (int k = 0; k < 12; k++) {
+            int t = y.length + k;
+            double expected = 100 + 2 * t + 30 * Math.sin(2 * Math.PI * t / SalesForecastEngine.SEASON_LENGTH);
+            assertThat(result.getPoint()[k]).isCloseTo(expected, within(1.0));
+        }
+
+        // Меньше двух сезонов — сезонная модель не рассматривается
+        double[] shorter = new double[2 * SalesForecastEngine.SEASON_LENGTH - 1];
+        System.arraycopy(y, 0, shorter, 0, shorter.length);
+        assertThat(SalesForecastEngine.forecast(shorter, 3, 12).getModel()).isNotEqualTo("HOLT_WINTERS");
+    }
+
+    @Test
+    void intervalWidensWithSquareRootOfHorizon() {
+        Random random = new Random(6);
+        double[] y = new double[30];
+        for (int t = 0; t < y.length; t++) {
+            y[t] = 500 + random.nextGaussian() * 40;
+        }
+
+        ForecastResult result = SalesForecastEngine.forecast(y, 3, 6);
+
+        assertThat(result.getRmse()).isPositive();
+        double firstWidth = result.getUpper()[0] - result.getPoint()[0];
+        assertThat(firstWidth).isCloseTo(SalesForecastEngine.Z_95 * result.getRmse(), within(1e-6));
+        for (int k = 0; k < 6; k++) {
+            double width = result.getUpper()[k] - result.getPoint()[k];
+            assertThat(width).isCloseTo(firstWidth * Math.sqrt(k + 1), within(1e-6));
+        }
+        assertBandIsValid(result);
+    }
+
+    @Test
+    void pointsAndLowerBoundsStayNonNegative() {
+        Random random = new Random(60);
+        double[] y = new double[18];
+        for (int t = 0; t < y.length; t++) {
+            y[t] = Math.max(0, 90 - 6 * t + random.nextGaussian() * 5);
+        }
+
+        ForecastResult result = SalesForecastEngine.forecast(y, 3, 12);
+
+        assertBandIsValid(result);
+    }
+
+    private static void assertBandIsValid(ForecastResult result) {
+        for (int k = 0; k < result.getPoint().length; k++) {
+            assertThat(result.getLower()[k]).isGreaterThanOrEqualTo(0.0);
+            assertThat(result.getLower()[k]).isLessThanOrEqualTo(result.getPoint()[k]);
+            assertThat(result.getUpper()[k]).isGreaterThanOrEqualTo(result.getPoint()[k]);
+        }
+    }
+}
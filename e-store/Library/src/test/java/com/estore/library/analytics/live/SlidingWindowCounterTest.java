@@ -0,0 +1,112 @@
+package com.estore.library.analytics.live;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SlidingWindowCounterTest {
+
+    private static final long BUCKET = 1_000;
+    // Реальное время: номер интервала больше 24 бит метки
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    void bucketsLeaveWindowAfterBucketCountIntervals() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(BUCKET, 5);
+        counter.add(3, START);
+        counter.add(2, START + 1_500);
+
+        assertThat(counter.sum(START + 1_999)).isEqualTo(5);
+        assertThat(counter.sum(START + 4_999)).isEqualTo(5);
+        assertThat(counter.sum(START + 5_000)).isEqualTo(2);
+        assertThat(counter.sum(START + 6_000)).isZero();
+    }
+
+    @Test
+    void reusedSlotStartsFromZero() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(BUCKET, 5);
+        counter.add(4, START);
+
+        // Тот же индекс ячейки через bucketCount интервалов
+        counter.add(7, START + 5 * BUCKET);
+
+        assertThat(counter.series(START + 5 * BUCKET)).containsExactly(0, 0, 0, 0, 7);
+        assertThat(counter.sum(START + 5 * BUCKET)).isEqualTo(7);
+        // Старый интервал перезаписан и не читается даже «из прошлого»
+        assertThat(counter.sum(START)).isZero();
+    }
+
+    @Test
+    void seriesGoesFromOldestToCurrent() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(BUCKET, 5);
+        counter.add(1, START + BUCKET);
+        counter.add(2, START + 2 * BUCKET);
+        counter.add(2, START + 2 * BUCKET + 999);
+        counter.add(3, START + 4 * BUCKET);
+
+        assertThat(counter.series(START + 4 * BUCKET)).containsExactly(0, 1, 4, 0, 3);
+        assertThat(counter.series(START + 5 * BUCKET)).containsExactly(1, 4, 0, 3, 0);
+    }
+
+    @Test
+    void seriesNearEpochStartSkipsNegativeIntervals() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(BUCKET, 4);
+        counter.add(5, 0);
+        counter.add(6, BUCKET);
+
+        assertThat(counter.series(BUCKET)).containsExactly(0, 0, 5, 6);
+    }
+
+    @Test
+    void ignoresNonPositiveAmountsAndRejectsBadWindow() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(BUCKET, 3);
+        counter.add(0, START);
+        counter.add(-4, START);
+
+        assertThat(counter.sum(START)).isZero();
+        assertThatThrownBy(() -> new SlidingWindowCounter(0, 3)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SlidingWindowCounter(BUCKET, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void concurrentAddsAreNotLost() throws Exception {
+        SlidingWindowCounter counter = new SlidingWindowCounter(BUCKET, 10);
+        int threads = 8;
+        int addsPerThread = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < addsPerThread; i++) {
+                        // Потоки пишут в два соседних интервала вперемешку
+                        counter.add(1 + i % 3, START + (i % 2) * BUCKET);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        long perThread = 0;
+        for (int i = 0; i < addsPerThread; i++) {
+            perThread += 1 + i % 3;
+        }
+        assertThat(counter.sum(START + BUCKET)).isEqualTo(threads * perThread);
+    }
+}
@@ -0,0 +1,88 @@
+package com.estore.library.analytics.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CountMinSketchTest {
+
+    private static final double EPSILON = 0.01;
+    private static final double DELTA = 0.01;
+
+    @Test
+    void neverUnderestimatesAndStaysWithinEpsilonTotal() {
+        CountMinSketch sketch = new CountMinSketch(EPSILON, DELTA);
+        Map<String, Long> exact = fill(sketch, new Random(42), 2_000, 50_000);
+
+        long total = sketch.getTotal();
+        int violations = 0;
+        for (Map.Entry<String, Long> entry : exact.entrySet()) {
+            long estimate = sketch.estimate(entry.getKey());
+            assertThat(estimate).isGreaterThanOrEqualTo(entry.getValue());
+            if (estimate - entry.getValue() > EPSILON * total) {
+                violations++;
+            }
+        }
+        // Каждая оценка выходит за epsilon * total с вероятностью не больше delta
+        assertThat(violations).isLessThanOrEqualTo((int) (DELTA * exact.size()));
+        assertThat(sketch.getErrorBound()).isLessThanOrEqualTo((long) Math.ceil(EPSILON * total));
+    }
+
+    @Test
+    void unseenKeyEstimateIsBoundedToo() {
+        CountMinSketch sketch = new CountMinSketch(EPSILON, DELTA);
+        fill(sketch, new Random(1), 100, 1_000);
+
+        assertThat(sketch.estimate("missing")).isLessThanOrEqualTo(sketch.getTotal());
+        assertThat(new CountMinSketch(EPSILON, DELTA).estimate("missing")).isZero();
+    }
+
+    @Test
+    void mergeEqualsSketchOfCombinedStream() {
+        CountMinSketch first = new CountMinSketch(EPSILON, DELTA);
+        CountMinSketch second = new CountMinSketch(EPSILON, DELTA);
+        CountMinSketch combined = new CountMinSketch(EPSILON, DELTA);
+        Map<String, Long> firstCounts = fill(first, new Random(3), 500, 5_000);
+        Map<String, Long> secondCounts = fill(second, new Random(4), 500, 5_000);
+        firstCounts.forEach(combined::add);
+        secondCounts.forEach(combined::add);
+
+        CountMinSketch merged = first.merge(second);
+
+        assertThat(merged.getTotal()).isEqualTo(combined.getTotal());
+        for (int i = 0; i < 500; i++) {
+            assertThat(merged.estimate("key-" + i)).isEqualTo(combined.estimate("key-" + i));
+        }
+    }
+
+    @Test
+    void mergeRejectsDifferentDimensions() {
+        CountMinSketch sketch = new CountMinSketch(EPSILON, DELTA);
+        assertThatThrownBy(() -> sketch.merge(new CountMinSketch(0.1, DELTA)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsParametersOutsideUnitInterval() {
+        assertThatThrownBy(() -> new CountMinSketch(0, DELTA)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CountMinSketch(EPSILON, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static Map<String, Long> fill(CountMinSketch sketch, Random random, int keys, int events) {
+        Map<String, Long> exact = new HashMap<>();
+        for (int e = 0; e < events; e++) {
+            // Квадрат равномерного: малые ключи встречаются чаще
+            double u = random.nextDouble();
+            String key = "key-" + (int) (u * u * keys);
+            long weight = 1 + random.nextInt(5);
+            sketch.add(key, weight);
+            exact.merge(key, weight, Long::sum);
+        }
+        return exact;
+    }
+}
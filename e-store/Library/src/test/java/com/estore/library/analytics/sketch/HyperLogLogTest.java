@@ -0,0 +1,77 @@
+package com.estore.library.analytics.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HyperLogLogTest {
+
+    private static final int PRECISION = 10;
+
+    @Test
+    void smallCardinalityIsNearlyExact() {
+        HyperLogLog hll = new HyperLogLog(PRECISION);
+        uuids(new Random(1), 100).forEach(hll::add);
+
+        assertThat(hll.estimate()).isBetween(95L, 105L);
+    }
+
+    @Test
+    void largeCardinalityWithinThreeStandardErrors() {
+        for (int n : new int[] {5_000, 50_000, 200_000}) {
+            HyperLogLog hll = new HyperLogLog(PRECISION);
+            uuids(new Random(n), n).forEach(hll::add);
+
+            double relativeError = Math.abs(hll.estimate() - n) / (double) n;
+            assertThat(relativeError).isLessThanOrEqualTo(3 * hll.getRelativeError());
+        }
+    }
+
+    @Test
+    void duplicatesDoNotChangeEstimate() {
+        List<UUID> values = uuids(new Random(2), 10_000);
+        HyperLogLog once = new HyperLogLog(PRECISION);
+        HyperLogLog twice = new HyperLogLog(PRECISION);
+        values.forEach(once::add);
+        values.forEach(twice::add);
+        values.forEach(twice::add);
+
+        assertThat(twice.estimate()).isEqualTo(once.estimate());
+    }
+
+    @Test
+    void mergeEqualsSketchOfUnion() {
+        List<UUID> values = uuids(new Random(3), 30_000);
+        HyperLogLog first = new HyperLogLog(PRECISION);
+        HyperLogLog second = new HyperLogLog(PRECISION);
+        HyperLogLog union = new HyperLogLog(PRECISION);
+        // Пересекающиеся половины: [0, 20000) и [10000, 30000)
+        values.subList(0, 20_000).forEach(first::add);
+        values.subList(10_000, 30_000).forEach(second::add);
+        values.forEach(union::add);
+
+        assertThat(first.merge(second).estimate()).isEqualTo(union.estimate());
+        assertThatThrownBy(() -> first.merge(new HyperLogLog(PRECISION + 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsPrecisionOutOfRange() {
+        assertThatThrownBy(() -> new HyperLogLog(3)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new HyperLogLog(17)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<UUID> uuids(Random random, int count) {
+        List<UUID> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(new UUID(random.nextLong(), random.nextLong()));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,122 @@
+package com.estore.library.analytics.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SpaceSavingTest {
+
+    private static final int CAPACITY = 50;
+
+    @Test
+    void countsExactlyWhileUnderCapacity() {
+        SpaceSaving<String> sketch = new SpaceSaving<>(CAPACITY);
+        sketch.offer("a", 5);
+        sketch.offer("b", 3);
+        sketch.offer("a", 2);
+        sketch.offer("c", 0);
+
+        List<SpaceSaving.Entry<String>> top = sketch.top(10);
+        assertThat(top).extracting(SpaceSaving.Entry::getItem).containsExactly("a", "b");
+        assertThat(top).extracting(SpaceSaving.Entry::getCount).containsExactly(7L, 3L);
+        assertThat(top).extracting(SpaceSaving.Entry::getError).containsExactly(0L, 0L);
+        assertThat(sketch.floor()).isZero();
+        assertThat(sketch.getTotal()).isEqualTo(10);
+    }
+
+    @Test
+    void boundsErrorByTotalOverCapacity() {
+        SpaceSaving<String> sketch = new SpaceSaving<>(CAPACITY);
+        Map<String, Long> exact = new HashMap<>();
+        offerSkewed(new Random(42), 20_000, sketch, exact);
+
+        assertBounds(sketch, exact);
+    }
+
+    @Test
+    void mergeKeepsBoundsOfCombinedStream() {
+        SpaceSaving<String> first = new SpaceSaving<>(CAPACITY);
+        SpaceSaving<String> second = new SpaceSaving<>(CAPACITY);
+        Map<String, Long> exact = new HashMap<>();
+        offerSkewed(new Random(7), 10_000, first, exact);
+        offerSkewed(new Random(8), 10_000, second, exact);
+
+        SpaceSaving<String> merged = first.merge(second);
+
+        assertThat(merged.getTotal()).isEqualTo(first.getTotal() + second.getTotal());
+        assertThat(merged.size()).isLessThanOrEqualTo(CAPACITY);
+        assertBounds(merged, exact);
+    }
+
+    @Test
+    void copyIsIndependent() {
+        SpaceSaving<String> sketch = new SpaceSaving<>(CAPACITY);
+        sketch.offer("a", 1);
+        SpaceSaving<String> copy = sketch.copy();
+        copy.offer("a", 1);
+
+        assertThat(sketch.top(1).get(0).getCount()).isEqualTo(1);
+        assertThat(copy.top(1).get(0).getCount()).isEqualTo(2);
+    }
+
+    @Test
+    void rejectsNonPositiveCapacity() {
+        assertThatThrownBy(() -> new SpaceSaving<String>(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * count - error <= истинное <= count, ошибка <= total / capacity;
+     * неотслеживаемый элемент не больше floor, частые (> total / capacity) отслеживаются
+     */
+    private static void assertBounds(SpaceSaving<String> sketch, Map<String, Long> exact) {
+        long total = exact.values().stream().mapToLong(Long::longValue).sum();
+        long maxError = total / CAPACITY;
+        List<SpaceSaving.Entry<String>> tracked = sketch.top(CAPACITY);
+        for (SpaceSaving.Entry<String> entry : tracked) {
+            long actual = exact.getOrDefault(entry.getItem(), 0L);
+            assertThat(entry.getLowerBound()).isLessThanOrEqualTo(actual);
+            assertThat(entry.getCount()).isGreaterThanOrEqualTo(actual);
+            assertThat(entry.getCount() - actual).isLessThanOrEqualTo(maxError);
+        }
+        assertThat(sketch.floor()).isLessThanOrEqualTo(maxError);
+
+        Set<String> trackedItems = tracked.stream().map(SpaceSaving.Entry::getItem).collect(Collectors.toSet());
+        exact.forEach((item, count) -> {
+            if (!trackedItems.contains(item)) {
+                assertThat(count).isLessThanOrEqualTo(sketch.floor());
+            }
+            if (count > maxError) {
+                assertThat(trackedItems).contains(item);
+            }
+        });
+    }
+
+    // Частота элемента i ~ 1 / (i + 1): несколько частых и длинный хвост
+    private static void offerSkewed(Random random, int events, SpaceSaving<String> sketch, Map<String, Long> exact) {
+        double[] cumulative = new double[1000];
+        double sum = 0;
+        for (int i = 0; i < cumulative.length; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        for (int e = 0; e < events; e++) {
+            double point = random.nextDouble() * sum;
+            int i = 0;
+            while (cumulative[i] < point) {
+                i++;
+            }
+            String item = "item-" + i;
+            long weight = 1 + random.nextInt(3);
+            sketch.offer(item, weight);
+            exact.merge(item, weight, Long::sum);
+        }
+    }
+}
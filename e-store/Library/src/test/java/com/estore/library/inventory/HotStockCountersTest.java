@@ -0,0 +1,186 @@
+package com.estore.library.inventory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HotStockCountersTest {
+
+    private static final UUID FIRST = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID SECOND = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+    @Test
+    void consumesAllLinesOrNothing() {
+        HotStockCounters counters = seeded(Map.of(FIRST, 5, SECOND, 1));
+
+        HotStockCounters.Consumption consumption = counters.tryConsume(new UUID[]{FIRST, SECOND}, new int[]{3, 2});
+
+        assertThat(consumption.isComplete()).isFalse();
+        assertThat(consumption.missing()).containsExactly(SECOND);
+        assertThat(counters.available(FIRST)).isEqualTo(5);
+        assertThat(counters.available(SECOND)).isEqualTo(1);
+    }
+
+    @Test
+    void productWithoutCounterIsMissing() {
+        HotStockCounters counters = seeded(Map.of(FIRST, 5));
+
+        HotStockCounters.Consumption consumption = counters.tryConsume(new UUID[]{FIRST, SECOND}, new int[]{1, 1});
+
+        assertThat(consumption.missing()).containsExactly(SECOND);
+        assertThat(counters.available(FIRST)).isEqualTo(5);
+        assertThat(counters.available(SECOND)).isEqualTo(-1);
+    }
+
+    @Test
+    void commitKeepsDecrementAndRollbackRestoresIt() {
+        HotStockCounters counters = seeded(Map.of(FIRST, 5));
+
+        counters.tryConsume(new UUID[]{FIRST}, new int[]{2}).committed();
+        assertThat(counters.available(FIRST)).isEqualTo(3);
+
+        counters.tryConsume(new UUID[]{FIRST}, new int[]{3}).rolledBack();
+        assertThat(counters.available(FIRST)).isEqualTo(3);
+    }
+
+    @Test
+    void reconcileSubtractsUncommittedConsumption() {
+        HotStockCounters counters = seeded(Map.of(FIRST, 10));
+        HotStockCounters.Consumption consumption = counters.tryConsume(new UUID[]{FIRST}, new int[]{3});
+
+        // Остаток уменьшен вручную; незафиксированное списание в БД ещё не видно
+        int corrected = counters.reconcile(Map.of(FIRST, 4), counters.completionsSnapshot());
+
+        assertThat(corrected).isEqualTo(1);
+        assertThat(counters.available(FIRST)).isEqualTo(1);
+
+        consumption.rolledBack();
+        assertThat(counters.available(FIRST)).isEqualTo(4);
+    }
+
+    @Test
+    void reconcileSkipsCounterCommittedAfterSnapshot() {
+        HotStockCounters counters = seeded(Map.of(FIRST, 10));
+        HotStockCounters.Consumption consumption = counters.tryConsume(new UUID[]{FIRST}, new int[]{2});
+        Map<UUID, Long> before = counters.completionsSnapshot();
+        consumption.committed();
+
+        // Остаток прочитан до коммита: без проверки отметки счётчик вернулся бы к 10
+        int corrected = counters.reconcile(Map.of(FIRST, 10), before);
+
+        assertThat(corrected).isZero();
+        assertThat(counters.available(FIRST)).isEqualTo(8);
+    }
+
+    @Test
+    void reconcileDropsUnflaggedAndLeavesNewProductsToSeed() {
+        HotStockCounters counters = seeded(Map.of(FIRST, 10));
+
+        counters.reconcile(Map.of(SECOND, 7), counters.completionsSnapshot());
+
+        assertThat(counters.isHot(FIRST)).isFalse();
+        assertThat(counters.isHot(SECOND)).isFalse();
+        assertThat(counters.size()).isZero();
+    }
+
+    @Test
+    void seedingMarksProductBeforeCounterExists() {
+        HotStockCounters counters = new HotStockCounters();
+
+        counters.beginSeeding(List.of(FIRST));
+        assertThat(counters.isHotOrSeeding(FIRST)).isTrue();
+        assertThat(counters.isHot(FIRST)).isFalse();
+
+        counters.seed(Map.of(FIRST, -2));
+        counters.endSeeding(List.of(FIRST));
+        assertThat(counters.isHot(FIRST)).isTrue();
+        assertThat(counters.available(FIRST)).isZero();
+
+        counters.seed(Map.of(FIRST, 50));
+        assertThat(counters.available(FIRST)).isZero();
+        assertThat(counters.isHotOrSeeding(SECOND)).isFalse();
+    }
+
+    @Test
+    void concurrentCheckoutsAndReconcileNeverOversell() throws Exception {
+        int stock = 2_000;
+        HotStockCounters counters = seeded(Map.of(FIRST, stock));
+        // Доступно по БД: остаток минус зафиксированные резервы
+        AtomicInteger database = new AtomicInteger(stock);
+        AtomicInteger committed = new AtomicInteger();
+        AtomicBoolean done = new AtomicBoolean();
+        int threads = 4;
+        CountDownLatch startGate = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        try {
+            Future<?> reconciler = pool.submit(() -> {
+                startGate.await();
+                while (!done.get()) {
+                    Map<UUID, Long> before = counters.completionsSnapshot();
+                    counters.reconcile(Map.of(FIRST, database.get()), before);
+                }
+                return null;
+            });
+            List<Future<?>> checkouts = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long seed = t;
+                checkouts.add(pool.submit(() -> {
+                    Random random = new Random(seed);
+                    startGate.await();
+                    for (int i = 0; i < 2_000; i++) {
+                        HotStockCounters.Consumption consumption =
+                                counters.tryConsume(new UUID[]{FIRST}, new int[]{1});
+                        if (!consumption.isComplete()) {
+                            continue;
+                        }
+                        if (random.nextInt(4) == 0) {
+                            consumption.rolledBack();
+                        } else {
+                            // Как в транзакции: строка резерва видна в БД раньше afterCompletion
+                            database.decrementAndGet();
+                            committed.incrementAndGet();
+                            consumption.committed();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            startGate.countDown();
+            for (Future<?> checkout : checkouts) {
+                checkout.get(30, TimeUnit.SECONDS);
+            }
+            done.set(true);
+            reconciler.get(30, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(committed.get()).isLessThanOrEqualTo(stock);
+        assertThat(database.get()).isGreaterThanOrEqualTo(0);
+        // Расхождение возможно только в меньшую сторону; следующая сверка его исправляет
+        assertThat(counters.available(FIRST)).isLessThanOrEqualTo(database.get());
+        counters.reconcile(Map.of(FIRST, database.get()), counters.completionsSnapshot());
+        assertThat(counters.available(FIRST)).isEqualTo(database.get());
+    }
+
+    private static HotStockCounters seeded(Map<UUID, Integer> available) {
+        HotStockCounters counters = new HotStockCounters();
+        counters.beginSeeding(available.keySet());
+        counters.seed(available);
+        counters.endSeeding(available.keySet());
+        return counters;
+    }
+}
@@ -0,0 +1,105 @@
+package com.estore.library.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+
+import static com.estore.library.routing.RouteGraphs.cities;
+import static com.estore.library.routing.RouteGraphs.edge;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CityRouteGraphTest {
+
+    // 1 -(10.00)- 2 -(5.50)- 3, прямой 1 -(20.00)- 3, 3 -(1.00)- 4; город 5 изолирован
+    private final CityRouteGraph graph = CityRouteGraph.build(cities(5), List.of(
+            edge(1, 2, 1000),
+            edge(2, 3, 550),
+            edge(1, 3, 2000),
+            edge(3, 4, 100)));
+
+    @Test
+    void prefersShorterMultiHopRoute() {
+        ShortestPath path = graph.shortestPath(1, 4);
+
+        assertThat(path.getCityIds()).containsExactly(1, 2, 3, 4);
+        assertThat(path.getTotalDistance()).isEqualByComparingTo(new BigDecimal("16.50"));
+        assertThat(path.getTransfers()).isEqualTo(3);
+        assertThat(path.getPathName()).isEqualTo("City1 -> City2 -> City3 -> City4");
+        assertThat(graph.shortestPathByName("City4", "City1").getCityIds()).containsExactly(4, 3, 2, 1);
+    }
+
+    @Test
+    void unknownOrUnreachableCityHasNoPath() {
+        assertThat(graph.shortestPath(1, 5)).isNull();
+        assertThat(graph.shortestPath(1, 99)).isNull();
+        assertThat(graph.shortestPath(null, 1)).isNull();
+        assertThat(graph.shortestPathByName("City1", "Nowhere")).isNull();
+
+        ShortestPath self = graph.shortestPath(2, 2);
+        assertThat(self.getCityIds()).containsExactly(2);
+        assertThat(self.getDistanceHundredths()).isZero();
+    }
+
+    @Test
+    void skipsInvalidEdges() {
+        CityRouteGraph built = CityRouteGraph.build(cities(3), List.of(
+                edge(1, 2, 100),
+                edge(1, 99, 100),
+                edge(2, 2, 100),
+                edge(2, 3, 0)));
+
+        assertThat(built.getEdgeCount()).isEqualTo(1);
+        assertThat(built.degree(built.indexOf(1))).isEqualTo(1);
+        assertThat(built.degree(built.indexOf(2))).isEqualTo(1);
+        assertThat(built.degree(built.indexOf(3))).isZero();
+    }
+
+    @Test
+    void distancesWithinStopAtLimit() {
+        long[] dist = graph.distancesWithin(graph.indexOf(1), 1000);
+
+        assertThat(dist[graph.indexOf(1)]).isZero();
+        assertThat(dist[graph.indexOf(2)]).isEqualTo(1000);
+        assertThat(dist[graph.indexOf(3)]).isEqualTo(CityRouteGraph.UNREACHABLE);
+        assertThat(dist[graph.indexOf(4)]).isEqualTo(CityRouteGraph.UNREACHABLE);
+    }
+
+    @Test
+    void shortestPathTreeRecordsFirstHop() {
+        int n = graph.size();
+        long[] dist = new long[n];
+        int[] firstHop = new int[n];
+        graph.shortestPathTree(graph.indexOf(1), dist, firstHop);
+
+        assertThat(firstHop[graph.indexOf(1)]).isEqualTo(-1);
+        assertThat(firstHop[graph.indexOf(3)]).isEqualTo(graph.indexOf(2));
+        assertThat(firstHop[graph.indexOf(4)]).isEqualTo(graph.indexOf(2));
+        assertThat(firstHop[graph.indexOf(5)]).isEqualTo(-1);
+        assertThat(dist[graph.indexOf(4)]).isEqualTo(1650);
+    }
+
+    @Test
+    void dijkstraMatchesFloydWarshallOnRandomGraphs() {
+        Random random = new Random(42);
+        for (int round = 0; round < 20; round++) {
+            int n = 5 + random.nextInt(40);
+            CityRouteGraph sample = CityRouteGraph.build(cities(n),
+                    RouteGraphs.randomEdges(random, n, n + random.nextInt(2 * n), 5_000));
+            long[][] expected = RouteGraphs.allPairs(sample);
+            for (int source = 0; source < n; source++) {
+                assertThat(sample.distancesFrom(source)).containsExactly(expected[source]);
+                for (int target = 0; target < n; target++) {
+                    ShortestPath path = sample.shortestPathByIndex(source, target);
+                    if (expected[source][target] == CityRouteGraph.UNREACHABLE) {
+                        assertThat(path).isNull();
+                    } else {
+                        assertThat(path.getDistanceHundredths()).isEqualTo(expected[source][target]);
+                        assertThat(RouteGraphs.length(sample, path)).isEqualTo(expected[source][target]);
+                    }
+                }
+            }
+        }
+    }
+}
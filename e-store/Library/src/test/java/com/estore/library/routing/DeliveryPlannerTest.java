@@ -0,0 +1,181 @@
+package com.estore.library.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static com.estore.library.routing.RouteGraphs.cities;
+import static com.estore.library.routing.RouteGraphs.edge;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DeliveryPlannerTest {
+
+    // Склад в городе 1: 1 -(1.00)- 2 -(1.00)- 3, 1 -(3.00)- 4; город 5 отрезан
+    private final CityRouteGraph graph = CityRouteGraph.build(cities(5), List.of(
+            edge(1, 2, 100), edge(2, 3, 100), edge(1, 4, 300)));
+
+    @Test
+    void cityWithFullLoadGetsDedicatedTrips() {
+        List<DeliveryPlanner.Stop> stops = new ArrayList<>();
+        List<UUID> toCity2 = addStops(stops, 2, 5);
+        List<UUID> toCity3 = addStops(stops, 3, 1);
+        List<UUID> toCity4 = addStops(stops, 4, 1);
+
+        DeliveryPlanner.Plan plan = DeliveryPlanner.plan(graph, null, 1, stops, 2);
+
+        assertThat(plan.unroutable()).isEmpty();
+        List<DeliveryPlanner.Trip> dedicated = plan.trips().stream()
+                .filter(trip -> trip.cityIds().equals(List.of(2)))
+                .toList();
+        assertThat(dedicated).hasSize(2);
+        for (DeliveryPlanner.Trip trip : dedicated) {
+            assertThat(trip.getOrderCount()).isEqualTo(2);
+            assertThat(trip.distanceHundredths()).isEqualTo(200);
+        }
+        // Остаток города 2 едет вместе с городом 3, город 4 — отдельным рейсом
+        assertThat(plan.trips()).hasSize(4);
+        assertThat(plan.trips().get(2).cityIds()).containsExactly(2, 3);
+        assertThat(plan.trips().get(2).orderIds()).containsExactly(toCity2.subList(4, 5), toCity3);
+        assertThat(plan.trips().get(2).distanceHundredths()).isEqualTo(400);
+        assertThat(plan.trips().get(3).cityIds()).containsExactly(4);
+        assertThat(plan.trips().get(3).orderIds()).containsExactly(toCity4);
+        assertThat(plan.distanceHundredths()).isEqualTo(200 + 200 + 400 + 600);
+        assertEveryOrderPlannedOnce(plan, stops, 2);
+    }
+
+    @Test
+    void unknownAndUnreachableCitiesAreUnroutable() {
+        List<DeliveryPlanner.Stop> stops = new ArrayList<>();
+        List<UUID> cut = addStops(stops, 5, 2);
+        List<UUID> unknown = addStops(stops, 99, 1);
+        List<UUID> routed = addStops(stops, 3, 1);
+
+        DeliveryPlanner.Plan plan = DeliveryPlanner.plan(graph, null, 1, stops, 10);
+
+        assertThat(plan.unroutable()).containsExactlyInAnyOrder(cut.get(0), cut.get(1), unknown.get(0));
+        assertThat(plan.trips()).hasSize(1);
+        assertThat(plan.trips().get(0).cityIds()).containsExactly(3);
+        assertThat(plan.trips().get(0).orderIds()).containsExactly(routed);
+    }
+
+    @Test
+    void unknownDepotLeavesAllOrdersUnroutable() {
+        List<DeliveryPlanner.Stop> stops = new ArrayList<>();
+        addStops(stops, 2, 2);
+        addStops(stops, 3, 1);
+
+        DeliveryPlanner.Plan plan = DeliveryPlanner.plan(graph, null, 42, stops, 5);
+
+        assertThat(plan.trips()).isEmpty();
+        assertThat(plan.unroutable()).hasSize(3);
+        assertThat(plan.distanceHundredths()).isZero();
+    }
+
+    @Test
+    void rejectsNonPositiveCapacity() {
+        assertThatThrownBy(() -> DeliveryPlanner.plan(graph, null, 1, List.of(), 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void matrixAndDijkstraGiveSamePlan() {
+        Random random = new Random(16);
+        for (int round = 0; round < 10; round++) {
+            int n = 10 + random.nextInt(40);
+            CityRouteGraph randomGraph = CityRouteGraph.build(cities(n),
+                    RouteGraphs.randomEdges(random, n, 2 * n, 5_000));
+            List<DeliveryPlanner.Stop> stops = new ArrayList<>();
+            for (int i = 0; i < 3 * n; i++) {
+                stops.add(new DeliveryPlanner.Stop(UUID.randomUUID(), 1 + random.nextInt(n)));
+            }
+            int capacity = 1 + random.nextInt(8);
+
+            DeliveryPlanner.Plan withMatrix = DeliveryPlanner.plan(randomGraph,
+                    DistanceMatrix.compute(randomGraph, round), 1, stops, capacity);
+            DeliveryPlanner.Plan withDijkstra = DeliveryPlanner.plan(randomGraph, null, 1, stops, capacity);
+
+            assertThat(withMatrix).isEqualTo(withDijkstra);
+            assertEveryOrderPlannedOnce(withMatrix, stops, capacity);
+        }
+    }
+
+    @Test
+    void twoOptNeverLengthensRing() {
+        Random random = new Random(2);
+        for (int round = 0; round < 50; round++) {
+            int n = 5 + random.nextInt(30);
+            CityRouteGraph randomGraph = CityRouteGraph.build(cities(n),
+                    RouteGraphs.randomEdges(random, n, 3 * n, 5_000));
+            long[][] distance = RouteGraphs.allPairs(randomGraph);
+            // Узел 0 — склад; в рейс берутся достижимые из него города
+            List<Integer> reachable = new ArrayList<>();
+            for (int i = 1; i < n; i++) {
+                if (distance[0][i] != CityRouteGraph.UNREACHABLE) {
+                    reachable.add(i);
+                }
+            }
+            Collections.shuffle(reachable, random);
+            int[] route = reachable.stream().mapToInt(Integer::intValue).toArray();
+
+            int[] improved = DeliveryPlanner.twoOpt(route.clone(), distance);
+
+            assertThat(ringLength(improved, distance)).isLessThanOrEqualTo(ringLength(route, distance));
+            int[] sortedBefore = route.clone();
+            int[] sortedAfter = improved.clone();
+            Arrays.sort(sortedBefore);
+            Arrays.sort(sortedAfter);
+            assertThat(sortedAfter).isEqualTo(sortedBefore);
+        }
+    }
+
+    @Test
+    void twoOptUncrossesRing() {
+        // Квадрат: склад 0 и углы 1, 2, 3; обход 0-2-1-3-0 пересекается, 0-1-2-3-0 нет
+        long[][] distance = {
+                {0, 100, 141, 100},
+                {100, 0, 100, 141},
+                {141, 100, 0, 100},
+                {100, 141, 100, 0}};
+
+        int[] improved = DeliveryPlanner.twoOpt(new int[]{2, 1, 3}, distance);
+
+        assertThat(ringLength(improved, distance)).isEqualTo(400);
+    }
+
+    private static List<UUID> addStops(List<DeliveryPlanner.Stop> stops, int cityId, int count) {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            stops.add(new DeliveryPlanner.Stop(id, cityId));
+        }
+        return ids;
+    }
+
+    private static long ringLength(int[] route, long[][] distance) {
+        long length = 0;
+        int previous = 0;
+        for (int node : route) {
+            length += distance[previous][node];
+            previous = node;
+        }
+        return length + distance[previous][0];
+    }
+
+    private static void assertEveryOrderPlannedOnce(DeliveryPlanner.Plan plan, List<DeliveryPlanner.Stop> stops,
+                                                    int capacity) {
+        List<UUID> planned = new ArrayList<>(plan.unroutable());
+        for (DeliveryPlanner.Trip trip : plan.trips()) {
+            assertThat(trip.getOrderCount()).isBetween(1, capacity);
+            trip.orderIds().forEach(planned::addAll);
+        }
+        assertThat(planned).containsExactlyInAnyOrderElementsOf(
+                stops.stream().map(DeliveryPlanner.Stop::orderId).toList());
+    }
+}
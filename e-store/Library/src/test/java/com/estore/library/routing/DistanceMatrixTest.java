@@ -0,0 +1,74 @@
+package com.estore.library.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+
+import static com.estore.library.routing.RouteGraphs.cities;
+import static com.estore.library.routing.RouteGraphs.edge;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DistanceMatrixTest {
+
+    @Test
+    void answersDistancesAndPathsOfSmallGraph() {
+        // 1 -(10.00)- 2 -(5.50)- 3, прямой 1 -(20.00)- 3; город 4 изолирован
+        CityRouteGraph graph = CityRouteGraph.build(cities(4), List.of(
+                edge(1, 2, 1000),
+                edge(2, 3, 550),
+                edge(1, 3, 2000)));
+        DistanceMatrix matrix = DistanceMatrix.compute(graph, 7);
+
+        assertThat(matrix.getVersion()).isEqualTo(7);
+        assertThat(matrix.distanceKm(1, 3)).isEqualByComparingTo(new BigDecimal("15.50"));
+        assertThat(matrix.distanceKm(3, 1)).isEqualByComparingTo(new BigDecimal("15.50"));
+        assertThat(matrix.distanceKm(2, 2)).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(matrix.path(1, 3).getCityIds()).containsExactly(1, 2, 3);
+        assertThat(matrix.path(2, 2).getCityIds()).containsExactly(2);
+
+        assertThat(matrix.distanceKm(1, 4)).isNull();
+        assertThat(matrix.distanceKm(1, 99)).isNull();
+        assertThat(matrix.path(4, 1)).isNull();
+        assertThat(matrix.path(null, 1)).isNull();
+    }
+
+    @Test
+    void matchesFloydWarshallOnRandomGraphs() {
+        Random random = new Random(7);
+        for (int round = 0; round < 10; round++) {
+            int n = 5 + random.nextInt(60);
+            CityRouteGraph graph = CityRouteGraph.build(cities(n),
+                    RouteGraphs.randomEdges(random, n, n + random.nextInt(2 * n), 5_000));
+            long[][] expected = RouteGraphs.allPairs(graph);
+            DistanceMatrix matrix = DistanceMatrix.compute(graph, round);
+
+            for (int from = 0; from < n; from++) {
+                for (int to = 0; to < n; to++) {
+                    assertThat(matrix.distanceHundredths(from, to)).isEqualTo(expected[from][to]);
+                    ShortestPath path = matrix.pathByIndex(from, to);
+                    if (expected[from][to] == CityRouteGraph.UNREACHABLE) {
+                        assertThat(path).isNull();
+                        continue;
+                    }
+                    // Маршрут восстанавливается по первым перегонам и имеет ту же длину
+                    assertThat(path.getStartCityId()).isEqualTo(graph.cityIdAt(from));
+                    assertThat(path.getEndCityId()).isEqualTo(graph.cityIdAt(to));
+                    assertThat(RouteGraphs.length(graph, path)).isEqualTo(expected[from][to]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void restoreRoundTripsArrays() {
+        CityRouteGraph graph = CityRouteGraph.build(cities(3), List.of(edge(1, 2, 100), edge(2, 3, 200)));
+        DistanceMatrix matrix = DistanceMatrix.compute(graph, 1);
+
+        DistanceMatrix restored = DistanceMatrix.restore(graph, 1, matrix.distances(), matrix.nextHops());
+
+        assertThat(restored.distanceKm(1, 3)).isEqualByComparingTo(new BigDecimal("3.00"));
+        assertThat(restored.path(3, 1).getCityIds()).containsExactly(3, 2, 1);
+    }
+}
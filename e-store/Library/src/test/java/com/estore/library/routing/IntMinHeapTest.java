@@ -0,0 +1,65 @@
+package com.estore.library.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IntMinHeapTest {
+
+    @Test
+    void pollsVerticesInKeyOrderAfterDecreaseKey() {
+        int n = 500;
+        Random random = new Random(42);
+        IntMinHeap heap = new IntMinHeap(n);
+        long[] expected = new long[n];
+        for (int v = 0; v < n; v++) {
+            expected[v] = 1_000 + random.nextInt(1_000_000);
+            heap.offer(v, expected[v]);
+        }
+        // Уменьшение ключа переставляет вершину, больший ключ игнорируется
+        for (int i = 0; i < 2_000; i++) {
+            int v = random.nextInt(n);
+            long key = random.nextInt(1_001_000);
+            heap.offer(v, key);
+            expected[v] = Math.min(expected[v], key);
+        }
+        assertThat(heap.size()).isEqualTo(n);
+
+        long previous = Long.MIN_VALUE;
+        List<Integer> polled = new ArrayList<>();
+        while (!heap.isEmpty()) {
+            int v = heap.poll();
+            assertThat(heap.key(v)).isEqualTo(expected[v]);
+            assertThat(expected[v]).isGreaterThanOrEqualTo(previous);
+            assertThat(heap.contains(v)).isFalse();
+            previous = expected[v];
+            polled.add(v);
+        }
+        assertThat(polled).hasSize(n).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void clearAllowsReuse() {
+        IntMinHeap heap = new IntMinHeap(4);
+        heap.offer(0, 5);
+        heap.offer(1, 3);
+        heap.clear();
+
+        assertThat(heap.isEmpty()).isTrue();
+        assertThat(heap.contains(1)).isFalse();
+        heap.offer(1, 7);
+        heap.offer(2, 1);
+        assertThat(heap.poll()).isEqualTo(2);
+        assertThat(heap.poll()).isEqualTo(1);
+    }
+
+    @Test
+    void pollOnEmptyHeapFails() {
+        assertThatThrownBy(() -> new IntMinHeap(1).poll()).isInstanceOf(IllegalStateException.class);
+    }
+}
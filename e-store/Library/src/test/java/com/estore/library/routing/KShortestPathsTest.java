@@ -0,0 +1,142 @@
+package com.estore.library.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static com.estore.library.routing.RouteGraphs.cities;
+import static com.estore.library.routing.RouteGraphs.edge;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KShortestPathsTest {
+
+    // Пример Йена (неориентированный): C=1, D=2, E=3, F=4, G=5, H=6
+    private final CityRouteGraph graph = CityRouteGraph.build(cities(6), List.of(
+            edge(1, 2, 3),
+            edge(1, 3, 2),
+            edge(2, 4, 4),
+            edge(3, 2, 1),
+            edge(3, 4, 2),
+            edge(3, 5, 3),
+            edge(4, 5, 2),
+            edge(4, 6, 1),
+            edge(5, 6, 2)));
+
+    @Test
+    void findsRoutesOfKnownGraphInOrder() {
+        KShortestPaths.Result result = find(graph, 1, 6, 5, 100);
+
+        assertThat(result.truncated()).isFalse();
+        assertThat(result.paths()).extracting(ShortestPath::getDistanceHundredths).containsExactly(5L, 7L, 7L, 8L, 8L);
+        // C-E-F-H, затем при равной длине более короткий по числу городов C-E-G-H
+        assertThat(result.paths().get(0).getCityIds()).containsExactly(1, 3, 4, 6);
+        assertThat(result.paths().get(1).getCityIds()).containsExactly(1, 3, 5, 6);
+        assertThat(result.paths().get(2).getCityIds()).containsExactly(1, 2, 3, 4, 6);
+        assertDistinctSimplePaths(result.paths());
+    }
+
+    @Test
+    void returnsAllRoutesWhenFewerThanK() {
+        CityRouteGraph line = CityRouteGraph.build(cities(3), List.of(edge(1, 2, 100), edge(2, 3, 100)));
+
+        KShortestPaths.Result result = find(line, 1, 3, 3, 100);
+
+        assertThat(result.paths()).hasSize(1);
+        assertThat(result.truncated()).isFalse();
+    }
+
+    @Test
+    void truncatesAtSpurSearchLimitKeepingAcceptedRoutes() {
+        KShortestPaths.Result result = find(graph, 1, 6, 5, 1);
+
+        assertThat(result.truncated()).isTrue();
+        assertThat(result.spurSearches()).isEqualTo(1);
+        assertThat(result.paths()).extracting(ShortestPath::getDistanceHundredths).containsExactly(5L);
+
+        KShortestPaths.Result partial = find(graph, 1, 6, 5, 4);
+        assertThat(partial.truncated()).isTrue();
+        assertThat(partial.spurSearches()).isEqualTo(4);
+        // Найденные до лимита маршруты — это префикс полного ответа
+        assertThat(partial.paths()).extracting(ShortestPath::getDistanceHundredths).containsExactly(5L, 7L);
+    }
+
+    @Test
+    void unreachableOrUnknownTargetHasNoRoutes() {
+        CityRouteGraph split = CityRouteGraph.build(cities(4), List.of(edge(1, 2, 100), edge(3, 4, 100)));
+
+        assertThat(find(split, 1, 4, 3, 100).paths()).isEmpty();
+        assertThat(KShortestPaths.find(split, 0, -1, 3, 100).paths()).isEmpty();
+        assertThatThrownBy(() -> KShortestPaths.find(split, 0, 1, 0, 100))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void matchesEnumerationOfSimplePathsOnRandomGraphs() {
+        Random random = new Random(5);
+        for (int round = 0; round < 30; round++) {
+            int n = 4 + random.nextInt(6);
+            CityRouteGraph sample = CityRouteGraph.build(cities(n),
+                    RouteGraphs.randomEdges(random, n, n + random.nextInt(n), 50));
+            int source = random.nextInt(n);
+            int target = random.nextInt(n);
+            int k = 1 + random.nextInt(8);
+
+            List<Long> all = simplePathLengths(sample, source, target);
+            all.sort(null);
+            KShortestPaths.Result result = KShortestPaths.find(sample, source, target, k, Integer.MAX_VALUE);
+
+            assertThat(result.truncated()).isFalse();
+            assertThat(result.paths()).extracting(ShortestPath::getDistanceHundredths)
+                    .containsExactlyElementsOf(all.subList(0, Math.min(k, all.size())));
+            for (ShortestPath path : result.paths()) {
+                assertThat(path.getStartCityId()).isEqualTo(sample.cityIdAt(source));
+                assertThat(path.getEndCityId()).isEqualTo(sample.cityIdAt(target));
+                assertThat(RouteGraphs.length(sample, path)).isEqualTo(path.getDistanceHundredths());
+            }
+            assertDistinctSimplePaths(result.paths());
+        }
+    }
+
+    private static KShortestPaths.Result find(CityRouteGraph graph, int fromCityId, int toCityId, int k, int maxSearches) {
+        return KShortestPaths.find(graph, graph.indexOf(fromCityId), graph.indexOf(toCityId), k, maxSearches);
+    }
+
+    private static void assertDistinctSimplePaths(List<ShortestPath> paths) {
+        Set<List<Integer>> seen = new HashSet<>();
+        for (ShortestPath path : paths) {
+            List<Integer> ids = new ArrayList<>();
+            for (int id : path.getCityIds()) {
+                ids.add(id);
+            }
+            assertThat(new HashSet<>(ids)).hasSize(ids.size());
+            assertThat(seen.add(ids)).isTrue();
+        }
+    }
+
+    // Длины всех простых путей перебором в глубину (графы в тесте маленькие)
+    private static List<Long> simplePathLengths(CityRouteGraph graph, int source, int target) {
+        List<Long> lengths = new ArrayList<>();
+        enumerate(graph, source, target, new boolean[graph.size()], 0, lengths);
+        return lengths;
+    }
+
+    private static void enumerate(CityRouteGraph graph, int v, int target, boolean[] visited, long length,
+                                  List<Long> lengths) {
+        if (v == target) {
+            lengths.add(length);
+            return;
+        }
+        visited[v] = true;
+        graph.forEachNeighbour(v, (u, w) -> {
+            if (!visited[u]) {
+                enumerate(graph, u, target, visited, length + w, lengths);
+            }
+        });
+        visited[v] = false;
+    }
+}
@@ -0,0 +1,108 @@
+package com.estore.library.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.estore.library.routing.RouteGraphs.cities;
+import static com.estore.library.routing.RouteGraphs.edge;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class NearestWarehouseIndexTest {
+
+    // Цепочка 1 - 2 - 3 - 4 - 5 по 1.00 км; город 6 изолирован
+    private final CityRouteGraph chain = CityRouteGraph.build(cities(6), List.of(
+            edge(1, 2, 100),
+            edge(2, 3, 100),
+            edge(3, 4, 100),
+            edge(4, 5, 100)));
+
+    @Test
+    void findsNearestWarehousesOnChain() {
+        NearestWarehouseIndex index = NearestWarehouseIndex.build(chain, List.of(
+                site(10, 1), site(20, 5), site(30, 99)), 2);
+
+        assertThat(index.getWarehouseCount()).isEqualTo(2);
+        assertThat(index.nearest(2).site().warehouseId()).isEqualTo(10L);
+        assertThat(index.nearest(2).distanceHundredths()).isEqualTo(100);
+        assertThat(index.nearest(4, 2)).extracting(hit -> hit.site().warehouseId()).containsExactly(20L, 10L);
+        assertThat(index.nearest(4, 2)).extracting(NearestWarehouseIndex.Hit::distanceHundredths)
+                .containsExactly(100L, 300L);
+        assertThat(index.within(3, 200)).hasSize(2);
+        assertThat(index.within(2, 200)).extracting(hit -> hit.site().warehouseId()).containsExactly(10L);
+
+        assertThat(index.nearest(6)).isNull();
+        assertThat(index.nearest(99)).isNull();
+        assertThat(index.nearest(6, 2)).isEmpty();
+    }
+
+    @Test
+    void matchesBruteForceOnRandomGraphs() {
+        Random random = new Random(13);
+        for (int round = 0; round < 10; round++) {
+            int n = 10 + random.nextInt(50);
+            CityRouteGraph graph = CityRouteGraph.build(cities(n),
+                    RouteGraphs.randomEdges(random, n, n + random.nextInt(2 * n), 5_000));
+            List<NearestWarehouseIndex.Site> sites = new ArrayList<>();
+            for (int s = 0; s < 2 + random.nextInt(8); s++) {
+                sites.add(site(s + 1, 1 + random.nextInt(n)));
+            }
+            int k = 1 + random.nextInt(4);
+            long[][] expected = RouteGraphs.allPairs(graph);
+
+            NearestWarehouseIndex index = NearestWarehouseIndex.build(graph, sites, k);
+            assertMatches(index, graph, sites, k, expected);
+
+            // Склад, добавленный без пересборки, даёт тот же индекс, что и полная сборка
+            NearestWarehouseIndex.Site added = site(100, 1 + random.nextInt(n));
+            List<NearestWarehouseIndex.Site> withAdded = new ArrayList<>(sites);
+            withAdded.add(added);
+            assertMatches(index.withSite(added), graph, withAdded, k, expected);
+            assertThat(index.withSite(added).withSite(added).getWarehouseCount()).isEqualTo(sites.size() + 1);
+        }
+    }
+
+    @Test
+    void rejectsNonPositiveK() {
+        assertThatThrownBy(() -> NearestWarehouseIndex.build(chain, List.of(), 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Расстояния k ближайших и всех достижимых складов совпадают с перебором
+     * (при равных расстояниях порядок складов может различаться)
+     */
+    private static void assertMatches(NearestWarehouseIndex index, CityRouteGraph graph,
+                                      List<NearestWarehouseIndex.Site> sites, int k, long[][] expected) {
+        for (int v = 0; v < graph.size(); v++) {
+            List<Long> reachable = new ArrayList<>();
+            for (NearestWarehouseIndex.Site site : sites) {
+                long d = expected[graph.indexOf(site.cityId())][v];
+                if (d != CityRouteGraph.UNREACHABLE) {
+                    reachable.add(d);
+                }
+            }
+            reachable.sort(null);
+            Integer cityId = graph.cityIdAt(v);
+
+            assertThat(index.nearest(cityId, k)).extracting(NearestWarehouseIndex.Hit::distanceHundredths)
+                    .containsExactlyElementsOf(reachable.subList(0, Math.min(k, reachable.size())));
+            assertThat(index.byDistance(cityId)).extracting(NearestWarehouseIndex.Hit::distanceHundredths)
+                    .containsExactlyElementsOf(reachable);
+            for (NearestWarehouseIndex.Hit hit : index.byDistance(cityId)) {
+                assertThat(hit.distanceHundredths())
+                        .isEqualTo(expected[graph.indexOf(hit.site().cityId())][v]);
+            }
+            long limit = reachable.isEmpty() ? 0 : reachable.get(reachable.size() / 2);
+            assertThat(index.within(cityId, limit)).extracting(NearestWarehouseIndex.Hit::distanceHundredths)
+                    .containsExactlyElementsOf(reachable.stream().filter(d -> d <= limit).toList());
+        }
+    }
+
+    private static NearestWarehouseIndex.Site site(long warehouseId, int cityId) {
+        return new NearestWarehouseIndex.Site(warehouseId, "Warehouse" + warehouseId, cityId, null);
+    }
+}
@@ -0,0 +1,157 @@
+package com.estore.library.routing;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static com.estore.library.routing.RouteGraphs.cities;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RouteGraphSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripRestoresGraphAndMatrix() throws IOException {
+        CityRouteGraph graph = randomGraph(new Random(19), 40);
+        DistanceMatrix matrix = DistanceMatrix.compute(graph, 3);
+        Path file = dir.resolve("routes.bin");
+
+        RouteGraphSnapshot.write(file, graph, matrix, "fp-Москва");
+        RouteGraphSnapshot.Loaded loaded = RouteGraphSnapshot.read(file, 11);
+
+        assertSameGraph(loaded.graph(), graph);
+        assertThat(loaded.fingerprint()).isEqualTo("fp-Москва");
+        assertThat(loaded.writtenAt()).isPositive();
+        assertThat(loaded.matrix()).isNotNull();
+        assertThat(loaded.matrix().getVersion()).isEqualTo(11);
+        assertThat(loaded.matrix().getGraph()).isSameAs(loaded.graph());
+        assertThat(Arrays.equals(loaded.matrix().distances(), matrix.distances())).isTrue();
+        assertThat(Arrays.equals(loaded.matrix().nextHops(), matrix.nextHops())).isTrue();
+        // Восстановленная матрица отвечает как посчитанная заново
+        long[][] expected = RouteGraphs.allPairs(loaded.graph());
+        for (int from = 0; from < graph.size(); from++) {
+            for (int to = 0; to < graph.size(); to++) {
+                assertThat(loaded.matrix().distanceHundredths(from, to)).isEqualTo(expected[from][to]);
+            }
+        }
+    }
+
+    @Test
+    void roundTripWithoutMatrix() throws IOException {
+        CityRouteGraph graph = randomGraph(new Random(20), 25);
+        Path file = dir.resolve("routes.bin");
+
+        RouteGraphSnapshot.write(file, graph, null, "fp");
+        RouteGraphSnapshot.Loaded loaded = RouteGraphSnapshot.read(file, 1);
+
+        assertSameGraph(loaded.graph(), graph);
+        assertThat(loaded.fingerprint()).isEqualTo("fp");
+        assertThat(loaded.matrix()).isNull();
+    }
+
+    @Test
+    void rewriteReplacesPreviousSnapshot() throws IOException {
+        Path file = dir.resolve("routes.bin");
+        RouteGraphSnapshot.write(file, randomGraph(new Random(1), 10), null, "old");
+        CityRouteGraph graph = randomGraph(new Random(2), 12);
+
+        RouteGraphSnapshot.write(file, graph, null, "new");
+
+        RouteGraphSnapshot.Loaded loaded = RouteGraphSnapshot.read(file, 1);
+        assertSameGraph(loaded.graph(), graph);
+        assertThat(loaded.fingerprint()).isEqualTo("new");
+        try (var files = Files.list(dir)) {
+            assertThat(files.count()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void rejectsBadMagic() throws IOException {
+        Path file = writeSnapshot();
+        corrupt(file, bytes -> bytes[0] ^= 0x01);
+
+        assertThatThrownBy(() -> RouteGraphSnapshot.read(file, 1))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("bad magic");
+    }
+
+    @Test
+    void rejectsOtherFormatVersion() throws IOException {
+        Path file = writeSnapshot();
+        corrupt(file, bytes -> ByteBuffer.wrap(bytes).putInt(4, RouteGraphSnapshot.FORMAT_VERSION + 1));
+
+        assertThatThrownBy(() -> RouteGraphSnapshot.read(file, 1))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("format");
+    }
+
+    @Test
+    void rejectsFlippedByte() throws IOException {
+        Path file = writeSnapshot();
+        corrupt(file, bytes -> bytes[bytes.length / 2] ^= 0x10);
+
+        assertThatThrownBy(() -> RouteGraphSnapshot.read(file, 1))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("checksum");
+    }
+
+    @Test
+    void rejectsTruncatedFile() throws IOException {
+        Path file = writeSnapshot();
+        byte[] bytes = Files.readAllBytes(file);
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 7));
+        assertThatThrownBy(() -> RouteGraphSnapshot.read(file, 1)).isInstanceOf(IOException.class);
+
+        Files.write(file, Arrays.copyOf(bytes, 20));
+        assertThatThrownBy(() -> RouteGraphSnapshot.read(file, 1)).isInstanceOf(IOException.class);
+    }
+
+    private Path writeSnapshot() throws IOException {
+        CityRouteGraph graph = randomGraph(new Random(5), 15);
+        Path file = dir.resolve("routes.bin");
+        RouteGraphSnapshot.write(file, graph, DistanceMatrix.compute(graph, 1), "fp");
+        return file;
+    }
+
+    private interface Corruption {
+        void apply(byte[] bytes);
+    }
+
+    private static void corrupt(Path file, Corruption corruption) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        corruption.apply(bytes);
+        Files.write(file, bytes);
+    }
+
+    private static CityRouteGraph randomGraph(Random random, int n) {
+        return CityRouteGraph.build(cities(n), RouteGraphs.randomEdges(random, n, 2 * n, 5_000));
+    }
+
+    private static void assertSameGraph(CityRouteGraph actual, CityRouteGraph expected) {
+        int n = expected.size();
+        assertThat(actual.size()).isEqualTo(n);
+        assertThat(actual.getEdgeCount()).isEqualTo(expected.getEdgeCount());
+        for (int i = 0; i < n; i++) {
+            assertThat(actual.cityIdAt(i)).isEqualTo(expected.cityIdAt(i));
+            assertThat(actual.cityNameAt(i)).isEqualTo(expected.cityNameAt(i));
+            assertThat(actual.indexOf(expected.cityIdAt(i))).isEqualTo(i);
+        }
+        for (int i = 0; i <= n; i++) {
+            assertThat(actual.edgeStart(i)).isEqualTo(expected.edgeStart(i));
+        }
+        for (int e = 0; e < expected.edgeStart(n); e++) {
+            assertThat(actual.edgeTarget(e)).isEqualTo(expected.edgeTarget(e));
+            assertThat(actual.edgeWeight(e)).isEqualTo(expected.edgeWeight(e));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.estore.library.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Графы для тестов маршрутизации и эталонные расстояния перебором
+ */
+final class RouteGraphs {
+
+    private RouteGraphs() {
+    }
+
+    /**
+     * Города с city_id = 1..n и названиями "City1".."CityN"
+     */
+    static Map<Integer, String> cities(int n) {
+        Map<Integer, String> cities = new LinkedHashMap<>();
+        for (int id = 1; id <= n; id++) {
+            cities.put(id, "City" + id);
+        }
+        return cities;
+    }
+
+    static CityRouteGraph.Edge edge(int cityA, int cityB, long distanceHundredths) {
+        return new CityRouteGraph.Edge(Math.min(cityA, cityB), Math.max(cityA, cityB), distanceHundredths);
+    }
+
+    /**
+     * Случайный граф без кратных рёбер (не больше полного); может быть несвязным
+     */
+    static List<CityRouteGraph.Edge> randomEdges(Random random, int n, int edges, int maxDistance) {
+        edges = Math.min(edges, n * (n - 1) / 2);
+        Set<Long> used = new HashSet<>();
+        List<CityRouteGraph.Edge> result = new ArrayList<>(edges);
+        while (result.size() < edges) {
+            int a = 1 + random.nextInt(n);
+            int b = 1 + random.nextInt(n);
+            if (a == b || !used.add((long) Math.min(a, b) * n + Math.max(a, b))) {
+                continue;
+            }
+            result.add(edge(a, b, 1 + random.nextInt(maxDistance)));
+        }
+        return result;
+    }
+
+    /**
+     * Флойд–Уоршелл по индексам графа; {@link CityRouteGraph#UNREACHABLE} для недостижимых
+     */
+    static long[][] allPairs(CityRouteGraph graph) {
+        int n = graph.size();
+        long[][] dist = new long[n][n];
+        for (int i = 0; i < n; i++) {
+            Arrays.fill(dist[i], CityRouteGraph.UNREACHABLE);
+            dist[i][i] = 0;
+            long[] row = dist[i];
+            graph.forEachNeighbour(i, (j, w) -> row[j] = Math.min(row[j], w));
+        }
+        for (int via = 0; via < n; via++) {
+            for (int i = 0; i < n; i++) {
+                if (dist[i][via] == CityRouteGraph.UNREACHABLE) {
+                    continue;
+                }
+                for (int j = 0; j < n; j++) {
+                    if (dist[via][j] != CityRouteGraph.UNREACHABLE && dist[i][via] + dist[via][j] < dist[i][j]) {
+                        dist[i][j] = dist[i][via] + dist[via][j];
+                    }
+                }
+            }
+        }
+        return dist;
+    }
+
+    /**
+     * Длина маршрута по его городам (перегоны берутся из графа)
+     */
+    static long length(CityRouteGraph graph, ShortestPath path) {
+        int[] ids = path.getCityIds();
+        long total = 0;
+        for (int i = 0; i + 1 < ids.length; i++) {
+            int to = graph.indexOf(ids[i + 1]);
+            long[] best = {CityRouteGraph.UNREACHABLE};
+            graph.forEachNeighbour(graph.indexOf(ids[i]), (j, w) -> {
+                if (j == to) {
+                    best[0] = Math.min(best[0], w);
+                }
+            });
+            if (best[0] == CityRouteGraph.UNREACHABLE) {
+                throw new AssertionError("No edge " + ids[i] + " -> " + ids[i + 1] + " in " + path);
+            }
+            total += best[0];
+        }
+        return total;
+    }
+}
@@ -0,0 +1,119 @@
+package com.estore.library.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static com.estore.library.routing.RouteGraphs.cities;
+import static com.estore.library.routing.RouteGraphs.edge;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class RouteNetworkAnalysisTest {
+
+    @Test
+    void middleOfPathAreArticulationPoints() {
+        // 1 - 2 - 3 - 4 - 5
+        CityRouteGraph graph = CityRouteGraph.build(cities(5), List.of(
+                edge(1, 2, 100), edge(2, 3, 100), edge(3, 4, 100), edge(4, 5, 100)));
+
+        RouteNetworkAnalysis analysis = RouteNetworkAnalysis.compute(graph);
+
+        assertThat(analysis.isArticulationPoint(graph.indexOf(1))).isFalse();
+        assertThat(analysis.isArticulationPoint(graph.indexOf(5))).isFalse();
+        for (int city = 2; city <= 4; city++) {
+            assertThat(analysis.isArticulationPoint(graph.indexOf(city))).isTrue();
+        }
+        // Через город 3 идут пути 1-4, 1-5, 2-4, 2-5 из 6 пар без него
+        assertThat(analysis.betweenness(graph.indexOf(3))).isCloseTo(4.0 / 6, within(1e-9));
+        assertThat(analysis.betweenness(graph.indexOf(1))).isZero();
+        assertThat(analysis.byBetweenness()[0]).isEqualTo(graph.indexOf(3));
+    }
+
+    @Test
+    void centreOfStarHasFullBetweenness() {
+        Map<Integer, String> cities = cities(6);
+        List<CityRouteGraph.Edge> edges = new ArrayList<>();
+        for (int leaf = 2; leaf <= 6; leaf++) {
+            edges.add(edge(1, leaf, 100L * leaf));
+        }
+        CityRouteGraph graph = CityRouteGraph.build(cities, edges);
+
+        RouteNetworkAnalysis analysis = RouteNetworkAnalysis.compute(graph);
+
+        assertThat(analysis.betweenness(graph.indexOf(1))).isCloseTo(1.0, within(1e-9));
+        assertThat(analysis.isArticulationPoint(graph.indexOf(1))).isTrue();
+        for (int leaf = 2; leaf <= 6; leaf++) {
+            assertThat(analysis.betweenness(graph.indexOf(leaf))).isZero();
+            assertThat(analysis.isArticulationPoint(graph.indexOf(leaf))).isFalse();
+        }
+    }
+
+    @Test
+    void labelsComponentsAndTheirSizes() {
+        // Треугольник 1-2-3, цепочка 4-5-6-7, город 8 изолирован
+        CityRouteGraph graph = CityRouteGraph.build(cities(8), List.of(
+                edge(1, 2, 100), edge(2, 3, 100), edge(1, 3, 100),
+                edge(4, 5, 100), edge(5, 6, 100), edge(6, 7, 100)));
+
+        RouteNetworkAnalysis analysis = RouteNetworkAnalysis.compute(graph);
+
+        assertThat(analysis.getComponentCount()).isEqualTo(3);
+        assertThat(analysis.getLargestComponentSize()).isEqualTo(4);
+        int triangle = analysis.componentOf(graph.indexOf(1));
+        int chain = analysis.componentOf(graph.indexOf(4));
+        int single = analysis.componentOf(graph.indexOf(8));
+        assertThat(analysis.componentSize(triangle)).isEqualTo(3);
+        assertThat(analysis.componentSize(chain)).isEqualTo(4);
+        assertThat(analysis.componentSize(single)).isEqualTo(1);
+        assertThat(analysis.componentOf(graph.indexOf(3))).isEqualTo(triangle);
+        assertThat(analysis.componentOf(graph.indexOf(7))).isEqualTo(chain);
+        assertThat(triangle).isNotEqualTo(chain);
+    }
+
+    @Test
+    void cycleHasNoArticulationPoints() {
+        int n = 7;
+        List<CityRouteGraph.Edge> edges = new ArrayList<>();
+        for (int city = 1; city <= n; city++) {
+            edges.add(edge(city, city % n + 1, 100));
+        }
+        CityRouteGraph graph = CityRouteGraph.build(cities(n), edges);
+
+        RouteNetworkAnalysis analysis = RouteNetworkAnalysis.compute(graph);
+
+        assertThat(analysis.getComponentCount()).isEqualTo(1);
+        for (int i = 0; i < n; i++) {
+            assertThat(analysis.isArticulationPoint(i)).isFalse();
+            // Симметрия кольца: центральность у всех городов одна
+            assertThat(analysis.betweenness(i)).isCloseTo(analysis.betweenness(0), within(1e-9));
+        }
+    }
+
+    @Test
+    void articulationPointsMatchRemovalOnRandomGraphs() {
+        Random random = new Random(15);
+        for (int round = 0; round < 20; round++) {
+            int n = 4 + random.nextInt(30);
+            List<CityRouteGraph.Edge> edges = RouteGraphs.randomEdges(random, n, n + random.nextInt(n), 1_000);
+            CityRouteGraph graph = CityRouteGraph.build(cities(n), edges);
+            RouteNetworkAnalysis analysis = RouteNetworkAnalysis.compute(graph);
+            int components = analysis.getComponentCount();
+
+            for (int i = 0; i < n; i++) {
+                int removed = graph.cityIdAt(i);
+                Map<Integer, String> rest = cities(n);
+                rest.remove(removed);
+                CityRouteGraph without = CityRouteGraph.build(rest,
+                        edges.stream().filter(e -> e.cityAId() != removed && e.cityBId() != removed).toList());
+                // Город без соседей при удалении убирает и свою компоненту
+                int expected = graph.degree(i) == 0 ? components - 1 : components;
+                assertThat(analysis.isArticulationPoint(i))
+                        .isEqualTo(RouteNetworkAnalysis.compute(without).getComponentCount() > expected);
+            }
+        }
+    }
+}